@@ -0,0 +1,118 @@
+package com.MoneyMind.projet_javafx.benchmarks;
+
+import com.MoneyMind.projet_javafx.assistant_AI.AIAgent;
+import com.MoneyMind.projet_javafx.assistant_AI.AdviceCache;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AIAgent against a local OpenAI-compatible stand-in that answers after
+ * {@code latencyMs}: uncached calls, cache hits, and a burst of identical
+ * concurrent requests coalesced into one call. The number of requests the
+ * stand-in actually served is printed with the cache stats after each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AIAgentBenchmark {
+
+    private static final String PROMPT = """
+            Analyse les dépenses mensuelles suivantes et donne 3 conseils pratiques et personnalisés :
+            - Nourriture : 1250.00 DH dépensés (83.3% du budget de 1500.00 DH)
+            - Transport : 300.00 DH dépensés (aucun budget défini)
+            """;
+    private static final int BURST = 16;
+
+    @Param({"20"})
+    public int latencyMs;
+
+    private HttpServer server;
+    private final AtomicInteger served = new AtomicInteger();
+    private AIAgent uncachedAgent;
+    private AIAgent cachedAgent;
+    private ExecutorService burstExecutor;
+    private int burstRound;
+
+    @Setup(Level.Trial)
+    public void startStandIn() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/v1/chat/completions", exchange -> {
+            served.incrementAndGet();
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            JSONObject body = new JSONObject().put("choices", new JSONArray().put(new JSONObject()
+                    .put("message", new JSONObject().put("role", "assistant").put("content", "1. Conseil. 2. Conseil. 3. Conseil."))));
+            byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions";
+        uncachedAgent = new AIAgent(url, "bench", null);
+        cachedAgent = new AIAgent(url, "bench", new AdviceCache(64, Duration.ofHours(1)));
+        burstExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopStandIn() {
+        System.out.println("\nStand-in requests: " + served.get() + ", cache: " + cachedAgent.getCacheStats());
+        burstExecutor.shutdownNow();
+        server.stop(0);
+    }
+
+    @Benchmark
+    public String uncached() throws IOException {
+        return uncachedAgent.getAdvice(PROMPT);
+    }
+
+    @Benchmark
+    public String cachedHit() throws IOException {
+        return cachedAgent.getAdvice(PROMPT);
+    }
+
+    /**
+     * {@value #BURST} concurrent requests for a prompt not yet in the cache
+     * (whitespace differs per thread, the normalized key does not).
+     */
+    @Benchmark
+    public List<String> coalescedBurst() throws Exception {
+        String prompt = PROMPT + "Tour " + (burstRound++);
+        List<Future<String>> futures = new ArrayList<>(BURST);
+        for (int i = 0; i < BURST; i++) {
+            String variant = (i % 2 == 0) ? prompt : "  " + prompt.replace(" ", "   ");
+            futures.add(burstExecutor.submit(() -> cachedAgent.getAdvice(variant)));
+        }
+        List<String> responses = new ArrayList<>(BURST);
+        for (Future<String> future : futures) {
+            responses.add(future.get());
+        }
+        return responses;
+    }
+}
@@ -0,0 +1,53 @@
+package com.MoneyMind.projet_javafx.benchmarks;
+
+import com.MoneyMind.projet_javafx.assistant_AI.AIAgent;
+import com.MoneyMind.projet_javafx.assistant_AI.AIAssistant;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Monthly advice generation: the query for the current month plus the in-memory
+ * analysis. The HTTP call is replaced by a stub so only local work is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AIAssistantBenchmark {
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int transactions;
+
+    private BenchmarkDatabase db;
+    private AIAssistant assistant;
+    private int userId;
+
+    @Setup(Level.Trial)
+    public void openDatabase() throws IOException, SQLException {
+        db = BenchmarkDatabase.open(transactions);
+        userId = db.login(0).getId();
+        assistant = new AIAssistant(db.getDataStorage(), new StubAIAgent());
+    }
+
+    @TearDown(Level.Trial)
+    public void closeDatabase() throws IOException {
+        db.close();
+    }
+
+    @Benchmark
+    public String generateMonthlyAdvice() throws SQLException, IOException {
+        return assistant.generateMonthlyAdvice(userId);
+    }
+
+    static class StubAIAgent extends AIAgent {
+        @Override
+        public String getAdvice(String userInput) {
+            return "1. Conseil. 2. Conseil. 3. Conseil (" + userInput.length() + " caractères analysés)";
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.MoneyMind.projet_javafx.benchmarks;
+
+import com.MoneyMind.projet_javafx.assistant_AI.AIAssistant;
+import com.MoneyMind.projet_javafx.controllers.Money;
+import com.MoneyMind.projet_javafx.controllers.Transaction;
+import com.MoneyMind.projet_javafx.controllers.TransactionView;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory aggregations behind the totals, the chart tab and the advice.
+ * The {@code legacy*} methods reproduce the former double/boxed versions for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AggregationBenchmark {
+
+    private static final String[] CATEGORIES = {"Loyer", "Nourriture", "Transport", "Salaire", "Loisirs", "Éducation"};
+
+    @Param({"10000", "100000", "1000000"})
+    public int transactions;
+
+    private List<Transaction> list;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        Random random = new Random(42);
+        LocalDate today = LocalDate.now();
+        list = new ArrayList<>(transactions);
+        for (int i = 0; i < transactions; i++) {
+            long amount = 1 + random.nextInt(200_000);
+            if (random.nextInt(10) != 0) amount = -amount;
+            list.add(new Transaction("Tx " + i, amount, CATEGORIES[random.nextInt(CATEGORIES.length)],
+                    today.minusDays(random.nextInt(BenchmarkDatabase.HISTORY_DAYS))));
+        }
+    }
+
+    // ==================== Totals ====================
+
+    @Benchmark
+    public long total() {
+        long sum = 0;
+        for (Transaction t : list) {
+            sum = Money.add(sum, t.getAmount());
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double legacyTotal() {
+        double sum = 0;
+        for (Transaction t : list) {
+            sum += Money.toMajor(t.getAmount());
+        }
+        return sum;
+    }
+
+    // ==================== Spending by category ====================
+
+    @Benchmark
+    public Map<String, Long> spendingByCategory() {
+        return AIAssistant.sumExpensesByCategory(list);
+    }
+
+    @Benchmark
+    public Map<String, Double> legacySpendingByCategory() {
+        return list.stream()
+                .filter(t -> t.getAmount() < 0)
+                .collect(Collectors.groupingBy(
+                        Transaction::getCategory,
+                        Collectors.summingDouble(t -> Math.abs(Money.toMajor(t.getAmount())))));
+    }
+
+    // ==================== Chart data ====================
+
+    @Benchmark
+    public Map<String, long[]> createChartData() {
+        return TransactionView.monthlyTotals(list);
+    }
+
+    @Benchmark
+    public Map<String, Map<String, Double>> legacyCreateChartData() {
+        Map<String, Map<String, Double>> chartData = new HashMap<>();
+        for (Transaction t : list) {
+            String month = t.getDate().getMonth().getDisplayName(TextStyle.SHORT, Locale.getDefault());
+            Map<String, Double> months = chartData.computeIfAbsent(t.getCategory(), c -> {
+                Map<String, Double> empty = new HashMap<>();
+                for (Month m : Month.values()) empty.put(m.getDisplayName(TextStyle.SHORT, Locale.getDefault()), 0.0);
+                return empty;
+            });
+            months.put(month, months.get(month) + Money.toMajor(t.getAmount()));
+        }
+        return chartData;
+    }
+}
@@ -0,0 +1,147 @@
+package com.MoneyMind.projet_javafx.benchmarks;
+
+import com.MoneyMind.projet_javafx.controllers.Budget;
+import com.MoneyMind.projet_javafx.controllers.DataStorage;
+import com.MoneyMind.projet_javafx.controllers.Money;
+import com.MoneyMind.projet_javafx.controllers.Transaction;
+import com.MoneyMind.projet_javafx.controllers.User;
+import com.MoneyMind.projet_javafx.db.ConnectionPool;
+import com.MoneyMind.projet_javafx.db.DBInitializer;
+import com.MoneyMind.projet_javafx.db.PoolConfig;
+import com.MoneyMind.projet_javafx.db.UserDAO;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic SQLite database shared by the benchmarks.
+ *
+ * Seeding 10^7 rows takes minutes, so each size is seeded once into a template file
+ * under {@code target/jmh-data} (override with {@code -Dmoneymind.bench.dir}) and every
+ * trial works on a private copy, leaving the template untouched by write benchmarks.
+ */
+public class BenchmarkDatabase implements AutoCloseable {
+    public static final int USERS = 50;
+    public static final String PASSWORD = "bench";
+    // Transactions are spread over the twelve months ending today
+    public static final int HISTORY_DAYS = 365;
+
+    private static final int SEED = 42;
+    private static final int SEED_CHUNK = 50_000;
+
+    private final Path file;
+    private final ConnectionPool pool;
+    private final DataStorage dataStorage;
+
+    private BenchmarkDatabase(Path file) {
+        this.file = file;
+        this.pool = new ConnectionPool(PoolConfig.defaults().setUrl("jdbc:sqlite:" + file));
+        this.dataStorage = new DataStorage(pool);
+    }
+
+    /**
+     * Opens a fresh copy of the database seeded with {@code transactions} rows.
+     */
+    public static BenchmarkDatabase open(int transactions) throws IOException, SQLException {
+        Path template = template(transactions);
+        Path copy = Files.createTempFile("moneymind-bench-", ".db");
+        Files.copy(template, copy, StandardCopyOption.REPLACE_EXISTING);
+        BenchmarkDatabase db = new BenchmarkDatabase(copy);
+        // A template seeded before the latest migrations is brought up to date
+        DBInitializer.initializeDatabase(db.pool);
+        return db;
+    }
+
+    public static String username(int index) {
+        return "bench-user-" + index;
+    }
+
+    public ConnectionPool getPool() { return pool; }
+    public DataStorage getDataStorage() { return dataStorage; }
+
+    /**
+     * Loads a seeded user with its budgets, as the login screen would.
+     */
+    public User login(int index) throws SQLException {
+        User user = UserDAO.getUserByCredentials(pool, username(index), PASSWORD);
+        if (user == null) throw new IllegalStateException("Missing seeded user " + username(index));
+        user.setBudgets(dataStorage.getUserBudgets(user.getId()));
+        return user;
+    }
+
+    @Override
+    public void close() throws IOException {
+        pool.close();
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(Path.of(file + "-wal"));
+        Files.deleteIfExists(Path.of(file + "-shm"));
+    }
+
+    private static synchronized Path template(int transactions) throws IOException, SQLException {
+        Path dir = Path.of(System.getProperty("moneymind.bench.dir", "target/jmh-data"));
+        // Dated: monthly benchmarks need rows in the current month
+        Path template = dir.resolve("moneymind-" + transactions + "-" + LocalDate.now() + ".db");
+        if (Files.exists(template)) return template;
+
+        Files.createDirectories(dir);
+        Path partial = dir.resolve(template.getFileName() + ".partial");
+        Files.deleteIfExists(partial);
+        BenchmarkDatabase db = new BenchmarkDatabase(partial);
+        try {
+            db.seed(transactions);
+        } finally {
+            db.pool.close();
+        }
+        Files.move(partial, template, StandardCopyOption.ATOMIC_MOVE);
+        return template;
+    }
+
+    private void seed(int transactions) throws SQLException {
+        long start = System.nanoTime();
+        DBInitializer.initializeDatabase(pool);
+        List<String> categories = dataStorage.getAllCategories();
+
+        List<User> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            dataStorage.registerUser(username(i), PASSWORD);
+            User user = dataStorage.getLoggedUser();
+            for (String category : categories) {
+                Budget budget = new Budget(category, Money.ofMajor(5_000L));
+                dataStorage.addBudget(user, budget);
+                user.getBudgets().add(budget);
+            }
+            dataStorage.updateUserTotalLimit(user, Money.ofMajor(1_000_000_000L));
+            user.setTotalLimit(Money.ofMajor(1_000_000_000L));
+            users.add(user);
+        }
+
+        Random random = new Random(SEED);
+        LocalDate today = LocalDate.now();
+        for (int u = 0; u < USERS; u++) {
+            // Spread evenly; the first users take the remainder
+            int remaining = transactions / USERS + (u < transactions % USERS ? 1 : 0);
+            while (remaining > 0) {
+                int chunk = Math.min(SEED_CHUNK, remaining);
+                List<Transaction> rows = new ArrayList<>(chunk);
+                for (int i = 0; i < chunk; i++) {
+                    String category = categories.get(random.nextInt(categories.size()));
+                    // Nine expenses for one income, between 0.01 and 2000.00
+                    long amount = 1 + random.nextInt(200_000);
+                    if (random.nextInt(10) != 0) amount = -amount;
+                    rows.add(new Transaction("Tx " + i, amount, category,
+                            today.minusDays(random.nextInt(HISTORY_DAYS))));
+                }
+                dataStorage.addTransactions(users.get(u), rows, false);
+                remaining -= chunk;
+            }
+        }
+        System.out.printf("Seeded %d transactions in %.1f s%n", transactions, (System.nanoTime() - start) / 1e9);
+    }
+}
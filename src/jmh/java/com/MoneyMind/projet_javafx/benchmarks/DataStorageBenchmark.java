@@ -0,0 +1,88 @@
+package com.MoneyMind.projet_javafx.benchmarks;
+
+import com.MoneyMind.projet_javafx.controllers.DataStorage;
+import com.MoneyMind.projet_javafx.controllers.Money;
+import com.MoneyMind.projet_javafx.controllers.Transaction;
+import com.MoneyMind.projet_javafx.controllers.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DAO hot paths of {@link DataStorage} against a seeded database.
+ *
+ * Run with {@code mvn -Pjmh test-compile exec:exec}; narrow the sizes with
+ * {@code -Djmh.args="DataStorageBenchmark -p transactions=10000"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataStorageBenchmark {
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int transactions;
+
+    private BenchmarkDatabase db;
+    private DataStorage dataStorage;
+    private User user;
+    private String otherUsername;
+    private LocalDate monthStart;
+    private LocalDate monthEnd;
+    private boolean transferForward;
+
+    @Setup(Level.Trial)
+    public void openDatabase() throws IOException, SQLException {
+        db = BenchmarkDatabase.open(transactions);
+        dataStorage = db.getDataStorage();
+        user = db.login(0);
+        dataStorage.setLoggedUser(user);
+        otherUsername = BenchmarkDatabase.username(1);
+
+        LocalDate today = LocalDate.now();
+        monthStart = today.with(TemporalAdjusters.firstDayOfMonth());
+        monthEnd = today.with(TemporalAdjusters.lastDayOfMonth());
+    }
+
+    @Setup(Level.Iteration)
+    public void forgetInsertedRows() {
+        // addTransaction mirrors every row in memory; keep the heap flat across iterations
+        user.getTransactions().clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void closeDatabase() throws IOException {
+        db.close();
+    }
+
+    @Benchmark
+    public void addTransaction() throws SQLException {
+        dataStorage.addTransaction(user, "Bench", -1_250, "Nourriture", LocalDate.now());
+    }
+
+    @Benchmark
+    public List<Transaction> getUserTransactions() throws SQLException {
+        return dataStorage.getUserTransactions();
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionsBetweenDates() throws SQLException {
+        return dataStorage.getTransactionsBetweenDates(user.getId(), monthStart, monthEnd);
+    }
+
+    @Benchmark
+    public boolean transferMoney() throws SQLException {
+        // Alternate directions so neither balance drains over a long run
+        transferForward = !transferForward;
+        return transferForward
+                ? dataStorage.transferMoney(user.getUsername(), otherUsername, Money.ofMajor(10L))
+                : dataStorage.transferMoney(otherUsername, user.getUsername(), Money.ofMajor(10L));
+    }
+}
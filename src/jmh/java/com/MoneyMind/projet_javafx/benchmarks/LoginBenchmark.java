@@ -0,0 +1,71 @@
+package com.MoneyMind.projet_javafx.benchmarks;
+
+import com.MoneyMind.projet_javafx.controllers.Budget;
+import com.MoneyMind.projet_javafx.controllers.DataStorage;
+import com.MoneyMind.projet_javafx.controllers.LoginSnapshot;
+import com.MoneyMind.projet_javafx.controllers.MonthlyTotal;
+import com.MoneyMind.projet_javafx.controllers.PagedTransactionList;
+import com.MoneyMind.projet_javafx.controllers.TransactionQuery;
+import com.MoneyMind.projet_javafx.controllers.User;
+import com.MoneyMind.projet_javafx.db.UserDAO;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Data behind the main window's first frame: the reads each tab made on its own after
+ * the credentials check (categories, budgets twice, the rollup three times, a page of
+ * rows) against {@link DataStorage#loadUserData} reading it all in one transaction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoginBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int transactions;
+
+    private BenchmarkDatabase db;
+    private DataStorage dataStorage;
+    private String username;
+
+    @Setup(Level.Trial)
+    public void openDatabase() throws IOException, SQLException {
+        db = BenchmarkDatabase.open(transactions);
+        dataStorage = db.getDataStorage();
+        username = BenchmarkDatabase.username(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void closeDatabase() throws IOException {
+        db.close();
+    }
+
+    @Benchmark
+    public void separateReads(Blackhole bh) throws SQLException {
+        User user = UserDAO.getUserByCredentials(db.getPool(), username, BenchmarkDatabase.PASSWORD);
+        dataStorage.setLoggedUser(user);
+        bh.consume(dataStorage.getAllCategories());
+        List<Budget> budgets = dataStorage.getBudgets();
+        bh.consume(budgets);
+        bh.consume(dataStorage.getBudgets());
+        List<MonthlyTotal> totals = dataStorage.getMonthlyTotals(user.getId());
+        bh.consume(totals);
+        bh.consume(dataStorage.getMonthlyTotals(user.getId()));
+        bh.consume(PagedTransactionList.load(dataStorage, TransactionQuery.all(user.getId())));
+    }
+
+    @Benchmark
+    public LoginSnapshot hydrated() throws SQLException {
+        LoginSnapshot login = dataStorage.loadUserData(username, BenchmarkDatabase.PASSWORD);
+        login.isCurrent();
+        return login;
+    }
+}
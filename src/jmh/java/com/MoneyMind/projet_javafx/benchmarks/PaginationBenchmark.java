@@ -0,0 +1,75 @@
+package com.MoneyMind.projet_javafx.benchmarks;
+
+import com.MoneyMind.projet_javafx.controllers.DataStorage;
+import com.MoneyMind.projet_javafx.controllers.PagedTransactionList;
+import com.MoneyMind.projet_javafx.controllers.Transaction;
+import com.MoneyMind.projet_javafx.controllers.TransactionQuery;
+import com.MoneyMind.projet_javafx.controllers.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opening the transaction table: the whole history ({@code getUserTransactions})
+ * against the count and first page of a {@link PagedTransactionList}, and a page
+ * deep in the history read by keyset against the same page read by offset.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaginationBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int transactions;
+
+    private BenchmarkDatabase db;
+    private DataStorage dataStorage;
+    private TransactionQuery query;
+    private Transaction deepCursor;
+    private int deepOffset;
+
+    @Setup(Level.Trial)
+    public void openDatabase() throws IOException, SQLException {
+        db = BenchmarkDatabase.open(transactions);
+        dataStorage = db.getDataStorage();
+        User user = db.login(0);
+        dataStorage.setLoggedUser(user);
+        query = TransactionQuery.all(user.getId());
+
+        // Last row before the page at 90% of the user's history
+        int rows = PagedTransactionList.load(dataStorage, query).size();
+        deepOffset = rows * 9 / 10;
+        deepCursor = dataStorage.getTransactionPage(query, null, deepOffset - 1, 1).get(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void closeDatabase() throws IOException {
+        db.close();
+    }
+
+    @Benchmark
+    public List<Transaction> fullHistory() throws SQLException {
+        return dataStorage.getUserTransactions();
+    }
+
+    @Benchmark
+    public PagedTransactionList firstPage() throws SQLException {
+        return PagedTransactionList.load(dataStorage, query);
+    }
+
+    @Benchmark
+    public List<Transaction> deepPageByKeyset() throws SQLException {
+        return dataStorage.getTransactionPage(query, deepCursor, 0, PagedTransactionList.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Transaction> deepPageByOffset() throws SQLException {
+        return dataStorage.getTransactionPage(query, null, deepOffset, PagedTransactionList.DEFAULT_PAGE_SIZE);
+    }
+}
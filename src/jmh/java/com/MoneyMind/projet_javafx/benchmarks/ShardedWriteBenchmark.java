@@ -0,0 +1,102 @@
+package com.MoneyMind.projet_javafx.benchmarks;
+
+import com.MoneyMind.projet_javafx.controllers.Budget;
+import com.MoneyMind.projet_javafx.controllers.DataStorage;
+import com.MoneyMind.projet_javafx.controllers.Money;
+import com.MoneyMind.projet_javafx.controllers.Transaction;
+import com.MoneyMind.projet_javafx.controllers.User;
+import com.MoneyMind.projet_javafx.db.PoolConfig;
+import com.MoneyMind.projet_javafx.db.ShardRouter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Concurrent synchronous inserts, one COMMIT each, from users spread over
+ * {@code shards} database files (see {@link ShardRouter}). Each file has its own
+ * writer, so throughput should grow with the shard count until cores or disk run out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class ShardedWriteBenchmark {
+
+    private static final int USERS = 64;
+
+    @Param({"1", "2", "4", "8"})
+    public int shards;
+
+    private Path dir;
+    private ShardRouter router;
+    private final List<User> users = new ArrayList<>(USERS);
+    private final AtomicInteger threads = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void openDatabase() throws IOException, SQLException {
+        dir = Files.createTempDirectory("moneymind-shards-");
+        router = new ShardRouter(PoolConfig.defaults().setUrl("jdbc:sqlite:" + dir.resolve("money_mind.db")), shards);
+        router.initialize();
+
+        DataStorage dataStorage = new DataStorage(router);
+        for (int i = 0; i < USERS; i++) {
+            dataStorage.registerUser(BenchmarkDatabase.username(i), BenchmarkDatabase.PASSWORD);
+            User user = dataStorage.getLoggedUser();
+            Budget budget = new Budget("Nourriture", Money.ofMajor(5_000L));
+            dataStorage.addBudget(user, budget);
+            user.getBudgets().add(budget);
+            users.add(user);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void closeDatabase() throws IOException {
+        router.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * One caller: its own DataStorage and its own users (no two threads update the same
+     * in-memory budgets), visited in turn so that it writes to every shard.
+     */
+    @State(Scope.Thread)
+    public static class Writer {
+        DataStorage dataStorage;
+        final List<User> users = new ArrayList<>();
+        int next;
+
+        @Setup(Level.Trial)
+        public void open(ShardedWriteBenchmark benchmark, BenchmarkParams params) {
+            dataStorage = new DataStorage(benchmark.router);
+            int thread = benchmark.threads.getAndIncrement();
+            for (int i = thread; i < USERS; i += params.getThreads()) {
+                users.add(benchmark.users.get(i));
+            }
+        }
+    }
+
+    @Benchmark
+    public void addTransaction(Writer writer) throws SQLException {
+        User user = writer.users.get(writer.next++ % writer.users.size());
+        writer.dataStorage.addTransactions(user,
+                List.of(new Transaction("Bench", -1_250, "Nourriture", LocalDate.now())), false);
+    }
+}
@@ -0,0 +1,112 @@
+package com.MoneyMind.projet_javafx.benchmarks;
+
+import com.MoneyMind.projet_javafx.controllers.DataStorage;
+import com.MoneyMind.projet_javafx.controllers.InsufficientFundsException;
+import com.MoneyMind.projet_javafx.controllers.TransferEngine;
+import com.MoneyMind.projet_javafx.controllers.TransferRequest;
+import com.MoneyMind.projet_javafx.controllers.TransferResult;
+import com.MoneyMind.projet_javafx.db.ConnectionPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrent random transfers between the seeded users, and payroll batches (one
+ * payer, every other user paid in one call), through the {@link TransferEngine}.
+ *
+ * Balances start low so that some transfers are refused for insufficient funds.
+ * Doubles as a stress check: after the trial the sum of all balances must be
+ * unchanged and none negative, otherwise the trial fails.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class TransferBenchmark {
+
+    private static final long STARTING_BALANCE = 10_000; // 100.00 each
+
+    @Param({"10000"})
+    public int transactions;
+
+    private BenchmarkDatabase db;
+    private DataStorage dataStorage;
+    private long balancesBefore;
+    private final AtomicLong refused = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void openDatabase() throws IOException, SQLException {
+        db = BenchmarkDatabase.open(transactions);
+        dataStorage = db.getDataStorage();
+        try (Connection connection = db.getPool().borrowWriter();
+             Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("UPDATE users SET total_limit = " + STARTING_BALANCE);
+            connection.commit();
+        }
+        balancesBefore = sumOfBalances(db.getPool())[0];
+    }
+
+    @TearDown(Level.Trial)
+    public void checkConservation() throws IOException, SQLException {
+        long[] after = sumOfBalances(db.getPool());
+        System.out.println("\n" + dataStorage.getTransferEngine() + ", refused=" + refused.get()
+                + ", balances " + balancesBefore + " -> " + after[0] + ", lowest " + after[1]);
+        db.close();
+        if (after[0] != balancesBefore || after[1] < 0) {
+            throw new IllegalStateException("Balances not conserved: " + balancesBefore + " -> " + after[0]
+                    + ", lowest " + after[1]);
+        }
+    }
+
+    @Benchmark
+    public TransferResult randomTransfer() throws SQLException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(BenchmarkDatabase.USERS);
+        int to = (from + 1 + random.nextInt(BenchmarkDatabase.USERS - 1)) % BenchmarkDatabase.USERS;
+        return transferOrRefuse(List.of(TransferRequest.of(
+                BenchmarkDatabase.username(from), BenchmarkDatabase.username(to), 1 + random.nextInt(3_000))));
+    }
+
+    @Benchmark
+    public TransferResult payroll() throws SQLException {
+        int payer = ThreadLocalRandom.current().nextInt(BenchmarkDatabase.USERS);
+        List<TransferRequest> legs = new ArrayList<>(BenchmarkDatabase.USERS - 1);
+        for (int i = 0; i < BenchmarkDatabase.USERS; i++) {
+            if (i != payer) {
+                legs.add(TransferRequest.of(BenchmarkDatabase.username(payer), BenchmarkDatabase.username(i), 5));
+            }
+        }
+        return transferOrRefuse(legs);
+    }
+
+    private TransferResult transferOrRefuse(List<TransferRequest> requests) throws SQLException {
+        try {
+            return dataStorage.transferAll(requests).get(0);
+        } catch (InsufficientFundsException e) {
+            refused.incrementAndGet();
+            return null;
+        }
+    }
+
+    // {sum, lowest}
+    private static long[] sumOfBalances(ConnectionPool pool) throws SQLException {
+        try (Connection connection = pool.borrowReader();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT SUM(total_limit), MIN(total_limit) FROM users")) {
+            rs.next();
+            return new long[]{rs.getLong(1), rs.getLong(2)};
+        }
+    }
+}
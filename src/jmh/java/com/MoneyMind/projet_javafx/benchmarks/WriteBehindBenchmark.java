@@ -0,0 +1,67 @@
+package com.MoneyMind.projet_javafx.benchmarks;
+
+import com.MoneyMind.projet_javafx.controllers.DataStorage;
+import com.MoneyMind.projet_javafx.controllers.TransactionWriteQueue;
+import com.MoneyMind.projet_javafx.controllers.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent {@code addTransaction} calls, each returning once its row is committed:
+ * one COMMIT per call ({@code sync}) against group commits through the
+ * {@link TransactionWriteQueue} ({@code writeBehind}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class WriteBehindBenchmark {
+
+    @Param({"sync", "writeBehind"})
+    public String mode;
+
+    @Param({"10000"})
+    public int transactions;
+
+    private BenchmarkDatabase db;
+    private DataStorage dataStorage;
+    private User user;
+
+    @Setup(Level.Trial)
+    public void openDatabase() throws IOException, SQLException {
+        db = BenchmarkDatabase.open(transactions);
+        dataStorage = db.getDataStorage();
+        user = db.login(0);
+        dataStorage.setLoggedUser(user);
+        if (mode.equals("writeBehind")) {
+            dataStorage.enableWriteBehind(TransactionWriteQueue.DEFAULT_CAPACITY,
+                    TransactionWriteQueue.DEFAULT_MAX_BATCH, TransactionWriteQueue.DEFAULT_MAX_DELAY);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void forgetInsertedRows() {
+        // Every row is mirrored in memory by the calling threads, in both modes
+        user.setTransactions(Collections.synchronizedList(new ArrayList<>()));
+    }
+
+    @TearDown(Level.Trial)
+    public void closeDatabase() throws IOException {
+        dataStorage.disableWriteBehind();
+        db.close();
+    }
+
+    @Benchmark
+    public void addTransaction() throws SQLException {
+        dataStorage.addTransaction(user, "Bench", -1_250, "Nourriture", LocalDate.now());
+    }
+}
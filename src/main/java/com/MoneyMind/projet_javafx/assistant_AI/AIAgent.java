@@ -1,29 +1,101 @@
 package com.MoneyMind.projet_javafx.assistant_AI;
 
 
+import com.MoneyMind.projet_javafx.db.SQliteConnector;
 import okhttp3.*;
 import org.json.JSONObject;
 
 import java.io.IOException;
+import java.time.Duration;
 
 public class AIAgent {
     private static final String API_KEY = "clé";
     private static final String API_URL = "https://api.openai.com/v1/chat/completions";
+    private static final String MODEL = "gpt-3.5-turbo";
+
+    // Un même résumé de dépenses donne le même conseil pendant CACHE_TTL
+    private static final int CACHE_CAPACITY = 64;
+    private static final Duration CACHE_TTL = Duration.ofHours(6);
+
+    private static volatile AIAgent shared;
+
     private final OkHttpClient client = new OkHttpClient();
+    private final String apiUrl;
+    private final String apiKey;
+    private final AdviceCache cache; // null : pas de cache
+
+    public AIAgent() {
+        this(API_URL, API_KEY, new AdviceCache(CACHE_CAPACITY, CACHE_TTL));
+    }
+
+    /**
+     * @param apiUrl point d'accès compatible OpenAI (chat/completions), par ex. un serveur local de test
+     * @param apiKey clé envoyée dans l'en-tête Authorization
+     * @param cache  cache des réponses, ou null pour appeler l'API à chaque fois
+     */
+    public AIAgent(String apiUrl, String apiKey, AdviceCache cache) {
+        this.apiUrl = apiUrl;
+        this.apiKey = apiKey;
+        this.cache = cache;
+    }
+
+    /**
+     * Agent de l'application : cache persisté dans la base SQLite, partagé par tous
+     * les {@link AIAssistant}. L'URL peut être remplacée par {@code -Dmoneymind.ai.url=...},
+     * la clé est lue dans la variable d'environnement OPENAI_API_KEY.
+     */
+    public static AIAgent shared() {
+        AIAgent agent = shared;
+        if (agent == null) {
+            synchronized (AIAgent.class) {
+                agent = shared;
+                if (agent == null) {
+                    agent = new AIAgent(System.getProperty("moneymind.ai.url", API_URL),
+                            System.getenv().getOrDefault("OPENAI_API_KEY", API_KEY),
+                            new AdviceCache(CACHE_CAPACITY, CACHE_TTL, SQliteConnector.pool()));
+                    shared = agent;
+                }
+            }
+        }
+        return agent;
+    }
 
     public String getAdvice(String userInput) throws IOException {
+        try {
+            if (cache == null) {
+                return requestAdvice(userInput);
+            }
+            // Le modèle fait partie de la clé : changer de modèle invalide le cache
+            return cache.get(MODEL + "\n" + userInput, () -> requestAdvice(userInput));
+        } catch (ApiErrorException e) {
+            return e.getMessage();
+        }
+    }
+
+    /**
+     * Compteurs du cache, ou null si l'agent n'en a pas.
+     */
+    public AdviceCacheStats getCacheStats() {
+        return cache == null ? null : cache.getStats();
+    }
+
+    public AdviceCache getCache() {
+        return cache;
+    }
+
+    private String requestAdvice(String userInput) throws IOException {
         JSONObject message = new JSONObject()
                 .put("role", "user")
                 .put("content", userInput);
 
         JSONObject requestBody = new JSONObject()
-                .put("model", "gpt-3.5-turbo")
+                .put("model", MODEL)
                 .put("messages", new org.json.JSONArray().put(message))
                 .put("temperature", 0.7);
 
         Request request = new Request.Builder()
-                .url(API_URL)
-                .addHeader("Authorization", "Bearer " + API_KEY)
+                .url(apiUrl)
+                .addHeader("Authorization", "Bearer " + apiKey)
                 .addHeader("Content-Type", "application/json")
                 .post(RequestBody.create(requestBody.toString(), MediaType.get("application/json")))
                 .build();
@@ -34,7 +106,8 @@ public class AIAgent {
             if (!response.isSuccessful()) {
                 String errorBody = response.body() != null ? response.body().string() : "";
                 System.err.println("Erreur API OpenAI: " + errorBody);
-                return "Erreur API OpenAI, code HTTP: " + statusCode;
+                // Exception plutôt que valeur de retour : une erreur ne doit pas être mise en cache
+                throw new ApiErrorException("Erreur API OpenAI, code HTTP: " + statusCode);
             }
             String responseBody = response.body().string();
             System.out.println("Réponse brute OpenAI: " + responseBody);
@@ -48,4 +121,9 @@ public class AIAgent {
         }
     }
 
+    private static class ApiErrorException extends IOException {
+        ApiErrorException(String message) {
+            super(message);
+        }
+    }
 }
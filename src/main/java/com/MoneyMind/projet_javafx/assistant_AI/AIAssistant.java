@@ -3,52 +3,51 @@ package com.MoneyMind.projet_javafx.assistant_AI;
 import com.MoneyMind.projet_javafx.controllers.Budget;
 import com.MoneyMind.projet_javafx.controllers.Transaction;
 import com.MoneyMind.projet_javafx.controllers.DataStorage;
+import com.MoneyMind.projet_javafx.controllers.Money;
+import com.MoneyMind.projet_javafx.controllers.MonthlyTotal;
 
 import java.io.IOException;
 import java.sql.SQLException;
 import java.time.LocalDate;
-import java.time.temporal.TemporalAdjusters;
+import java.time.YearMonth;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class AIAssistant {
     private final DataStorage dataStorage;
+    private final AIAgent aiAgent;
     private static final double HIGH_SPENDING_THRESHOLD = 0.90; // 90% of budget
     private static final double MODERATE_SPENDING_THRESHOLD = 0.70; // 70% of budget
     private static final double TARGETED_ADVICE_THRESHOLD = 0.80; // 80% of budget
 
     public AIAssistant(DataStorage dataStorage) {
+        this(dataStorage, AIAgent.shared());
+    }
+
+    /**
+     * @param aiAgent client used for the AI-generated part of the advice (a stub in benchmarks)
+     */
+    public AIAssistant(DataStorage dataStorage, AIAgent aiAgent) {
         this.dataStorage = dataStorage;
+        this.aiAgent = aiAgent;
     }
 
     public String generateMonthlyAdvice(int userId) throws SQLException, IOException {
         LocalDate now = LocalDate.now();
-        LocalDate firstDay = now.with(TemporalAdjusters.firstDayOfMonth());
-        LocalDate lastDay = now.with(TemporalAdjusters.lastDayOfMonth());
+        YearMonth month = YearMonth.from(now);
 
-        // Get monthly transactions
-        List<Transaction> monthlyTransactions = dataStorage.getTransactionsBetweenDates(userId, firstDay, lastDay);
+        // Monthly rollup: one row per category, however many transactions the month holds
+        List<MonthlyTotal> monthTotals = dataStorage.getMonthlyTotals(userId, month, month);
 
-        if (monthlyTransactions.isEmpty()) {
+        if (monthTotals.isEmpty()) {
             return "Aucune transaction trouvée pour ce mois. Commencez à enregistrer vos dépenses pour recevoir des conseils personnalisés.";
         }
 
-        // Calculate spending by category (only expenses - negative amounts)
-        Map<String, Double> spendingByCategory = monthlyTransactions.stream()
-                .filter(t -> t.getAmount() < 0) // Fixed: filter actual expenses (negative amounts)
-                .collect(Collectors.groupingBy(
-                        Transaction::getCategory,
-                        Collectors.summingDouble(t -> Math.abs(t.getAmount())) // Use absolute values for spending
-                ));
+        // Calculate spending by category (only expenses - negative amounts), in minor units
+        Map<String, Long> spendingByCategory = expensesByCategory(monthTotals);
 
         // Get budget limits
         List<Budget> budgets = dataStorage.getUserBudgets(userId);
-        Map<String, Double> budgetLimits = budgets.stream()
-                .collect(Collectors.toMap(
-                        Budget::getName,
-                        Budget::getAmount,
-                        Double::sum // Handle multiple budgets for same category
-                ));
+        Map<String, Long> budgetLimits = sumBudgetLimits(budgets);
 
         StringBuilder advice = new StringBuilder("📊 Conseils pour " + now.getMonth() + " " + now.getYear() + ":\n\n");
 
@@ -56,7 +55,7 @@ public class AIAssistant {
         analyzeSpendingByCategory(spendingByCategory, budgetLimits, advice);
 
         // Detect unusual spending patterns
-        detectUnusualSpending(monthlyTransactions, advice);
+        detectUnusualSpending(dataStorage.getLargestExpense(userId, month, monthTotals), monthTotals, advice);
 
         // General advice
         addGeneralAdvice(spendingByCategory, budgetLimits, advice);
@@ -74,27 +73,70 @@ public class AIAssistant {
         return advice.toString();
     }
 
-    private void analyzeSpendingByCategory(Map<String, Double> spendingByCategory,
-                                           Map<String, Double> budgetLimits,
+    /**
+     * Sums expenses per category with one {@code long} cell per category, so only the
+     * final map entries are boxed.
+     */
+    public static Map<String, Long> sumExpensesByCategory(List<Transaction> transactions) {
+        Map<String, long[]> totals = new HashMap<>();
+        for (Transaction t : transactions) {
+            if (t.getAmount() >= 0) continue; // expenses are negative amounts
+            long[] total = totals.computeIfAbsent(t.getCategory(), c -> new long[1]);
+            total[0] = Money.add(total[0], Money.abs(t.getAmount())); // Use absolute values for spending
+        }
+        return unbox(totals);
+    }
+
+    /**
+     * Same as {@link #sumExpensesByCategory} from the monthly rollup.
+     */
+    public static Map<String, Long> expensesByCategory(List<MonthlyTotal> totals) {
+        Map<String, long[]> expenses = new HashMap<>();
+        for (MonthlyTotal t : totals) {
+            if (t.getExpenseCount() == 0) continue;
+            long[] total = expenses.computeIfAbsent(t.getCategory(), c -> new long[1]);
+            total[0] = Money.add(total[0], t.getExpenses());
+        }
+        return unbox(expenses);
+    }
+
+    // Handle multiple budgets for same category
+    public static Map<String, Long> sumBudgetLimits(List<Budget> budgets) {
+        Map<String, long[]> totals = new HashMap<>();
+        for (Budget b : budgets) {
+            long[] total = totals.computeIfAbsent(b.getName(), c -> new long[1]);
+            total[0] = Money.add(total[0], b.getAmount());
+        }
+        return unbox(totals);
+    }
+
+    private static Map<String, Long> unbox(Map<String, long[]> totals) {
+        Map<String, Long> result = new HashMap<>(totals.size() * 2);
+        totals.forEach((category, total) -> result.put(category, total[0]));
+        return result;
+    }
+
+    private void analyzeSpendingByCategory(Map<String, Long> spendingByCategory,
+                                           Map<String, Long> budgetLimits,
                                            StringBuilder advice) {
         boolean hasWarnings = false;
 
-        for (Map.Entry<String, Double> entry : spendingByCategory.entrySet()) {
+        for (Map.Entry<String, Long> entry : spendingByCategory.entrySet()) {
             String category = entry.getKey();
-            double amount = entry.getValue();
-            double limit = budgetLimits.getOrDefault(category, 0.0);
+            long amount = entry.getValue();
+            long limit = budgetLimits.getOrDefault(category, 0L);
 
             if (limit > 0) {
-                double percentage = (amount / limit) * 100;
+                double percentage = Money.ratio(amount, limit) * 100;
                 if (percentage > HIGH_SPENDING_THRESHOLD * 100) {
                     advice.append("⚠️ **ALERTE** - Vous avez dépensé ")
                             .append(String.format("%.1f%%", percentage))
                             .append(" de votre budget pour \"")
                             .append(category)
                             .append("\" (")
-                            .append(String.format("%.2f", amount))
+                            .append(Money.format(amount))
                             .append(" DH sur ")
-                            .append(String.format("%.2f", limit))
+                            .append(Money.format(limit))
                             .append(" DH). Budget dépassé !\n");
                     hasWarnings = true;
                 } else if (percentage > MODERATE_SPENDING_THRESHOLD * 100) {
@@ -109,7 +151,7 @@ public class AIAssistant {
                 advice.append("💡 **SUGGESTION** - \"")
                         .append(category)
                         .append("\" : ")
-                        .append(String.format("%.2f", amount))
+                        .append(Money.format(amount))
                         .append(" DH dépensés sans budget défini. Considérez créer un budget !\n");
             }
         }
@@ -119,18 +161,20 @@ public class AIAssistant {
         }
     }
 
-    private void addGeneralAdvice(Map<String, Double> spendingByCategory,
-                                  Map<String, Double> budgetLimits,
+    private void addGeneralAdvice(Map<String, Long> spendingByCategory,
+                                  Map<String, Long> budgetLimits,
                                   StringBuilder advice) {
-        double totalSpent = spendingByCategory.values().stream().mapToDouble(Double::doubleValue).sum();
-        double totalBudget = budgetLimits.values().stream().mapToDouble(Double::doubleValue).sum();
+        long totalSpent = 0;
+        for (long spent : spendingByCategory.values()) totalSpent = Money.add(totalSpent, spent);
+        long totalBudget = 0;
+        for (long limit : budgetLimits.values()) totalBudget = Money.add(totalBudget, limit);
 
         advice.append("📈 **Analyse générale** :\n");
-        advice.append("Total dépensé : ").append(String.format("%.2f", totalSpent)).append(" DH\n");
-        advice.append("Budget total : ").append(String.format("%.2f", totalBudget)).append(" DH\n");
+        advice.append("Total dépensé : ").append(Money.format(totalSpent)).append(" DH\n");
+        advice.append("Budget total : ").append(Money.format(totalBudget)).append(" DH\n");
 
         if (totalBudget > 0) {
-            double percentage = (totalSpent / totalBudget) * 100;
+            double percentage = Money.ratio(totalSpent, totalBudget) * 100;
             advice.append("Utilisation du budget : ").append(String.format("%.1f%%", percentage)).append("\n");
 
             if (percentage > 100) {
@@ -146,25 +190,21 @@ public class AIAssistant {
         advice.append("\n");
     }
 
-    private void addTargetedRecommendation(Map<String, Double> spendingByCategory,
-                                           Map<String, Double> budgetLimits,
+    private void addTargetedRecommendation(Map<String, Long> spendingByCategory,
+                                           Map<String, Long> budgetLimits,
                                            StringBuilder advice) {
         // Find category with highest spending ratio relative to budget
-        Optional<Map.Entry<String, Double>> problematicCategory = spendingByCategory.entrySet().stream()
+        Optional<Map.Entry<String, Long>> problematicCategory = spendingByCategory.entrySet().stream()
                 .filter(entry -> budgetLimits.containsKey(entry.getKey()))
                 .max((e1, e2) -> {
-                    double limit1 = budgetLimits.get(e1.getKey());
-                    double limit2 = budgetLimits.get(e2.getKey());
-                    double ratio1 = e1.getValue() / limit1;
-                    double ratio2 = e2.getValue() / limit2;
+                    double ratio1 = Money.ratio(e1.getValue(), budgetLimits.get(e1.getKey()));
+                    double ratio2 = Money.ratio(e2.getValue(), budgetLimits.get(e2.getKey()));
                     return Double.compare(ratio1, ratio2);
                 });
 
         problematicCategory.ifPresent(entry -> {
             String category = entry.getKey();
-            double spent = entry.getValue();
-            double limit = budgetLimits.get(category);
-            double ratio = spent / limit;
+            double ratio = Money.ratio(entry.getValue(), budgetLimits.get(category));
 
             if (ratio > TARGETED_ADVICE_THRESHOLD) {
                 advice.append("🎯 **Conseil ciblé** : La catégorie \"")
@@ -179,16 +219,16 @@ public class AIAssistant {
         });
 
         // Also check for categories without budgets but high spending
-        Optional<Map.Entry<String, Double>> highSpendingNoBudget = spendingByCategory.entrySet().stream()
+        Optional<Map.Entry<String, Long>> highSpendingNoBudget = spendingByCategory.entrySet().stream()
                 .filter(entry -> !budgetLimits.containsKey(entry.getKey()))
                 .max(Map.Entry.comparingByValue());
 
         highSpendingNoBudget.ifPresent(entry -> {
-            if (entry.getValue() > 100) { // Arbitrary threshold for "high" spending
+            if (entry.getValue() > Money.ofMajor(100L)) { // Arbitrary threshold for "high" spending
                 advice.append("💰 **Catégorie à budgétiser** : \"")
                         .append(entry.getKey())
                         .append("\" (")
-                        .append(String.format("%.2f", entry.getValue()))
+                        .append(Money.format(entry.getValue()))
                         .append(" DH) mériterait un budget dédié.\n");
             }
         });
@@ -216,28 +256,23 @@ public class AIAssistant {
         }
     }
 
-    private void detectUnusualSpending(List<Transaction> transactions, StringBuilder advice) {
-        // Find largest expense
-        Optional<Transaction> largestExpense = transactions.stream()
-                .filter(t -> t.getAmount() < 0)
-                .min(Comparator.comparingDouble(Transaction::getAmount)); // min because amounts are negative
-
-        largestExpense.ifPresent(expense ->
-                advice.append("💸 **Dépense la plus importante** : ")
-                        .append(expense.getName())
-                        .append(" (")
-                        .append(String.format("%.2f", Math.abs(expense.getAmount())))
-                        .append(" DH) dans la catégorie \"")
-                        .append(expense.getCategory())
-                        .append("\"\n"));
+    private void detectUnusualSpending(Transaction largestExpense, List<MonthlyTotal> monthTotals, StringBuilder advice) {
+        // Largest expense (looked up from the rollup's smallest amount)
+        if (largestExpense != null) {
+            advice.append("💸 **Dépense la plus importante** : ")
+                    .append(largestExpense.getName())
+                    .append(" (")
+                    .append(Money.format(Money.abs(largestExpense.getAmount())))
+                    .append(" DH) dans la catégorie \"")
+                    .append(largestExpense.getCategory())
+                    .append("\"\n");
+        }
 
         // Find most frequent spending category
-        Map<String, Long> frequentCategories = transactions.stream()
-                .filter(t -> t.getAmount() < 0)
-                .collect(Collectors.groupingBy(
-                        Transaction::getCategory,
-                        Collectors.counting()
-                ));
+        Map<String, Long> frequentCategories = new HashMap<>();
+        for (MonthlyTotal t : monthTotals) {
+            if (t.getExpenseCount() > 0) frequentCategories.merge(t.getCategory(), (long) t.getExpenseCount(), Long::sum);
+        }
 
         frequentCategories.entrySet().stream()
                 .max(Map.Entry.comparingByValue())
@@ -252,7 +287,7 @@ public class AIAssistant {
         advice.append("\n");
     }
 
-    private String generateAIAdvice(Map<String, Double> spendingByCategory, Map<String, Double> budgetLimits) {
+    private String generateAIAdvice(Map<String, Long> spendingByCategory, Map<String, Long> budgetLimits) {
         try {
             StringBuilder prompt = new StringBuilder("Je suis un assistant budgétaire intelligent. ");
             prompt.append("Analyse les dépenses mensuelles suivantes et donne 3 conseils pratiques et personnalisés :\n\n");
@@ -262,15 +297,15 @@ public class AIAssistant {
             }
 
             spendingByCategory.forEach((category, amount) -> {
-                double budget = budgetLimits.getOrDefault(category, 0.0);
-                double percentage = budget > 0 ? (amount / budget) * 100 : 0;
+                long budget = budgetLimits.getOrDefault(category, 0L);
+                double percentage = Money.ratio(amount, budget) * 100;
 
                 prompt.append("- ").append(category).append(" : ")
-                        .append(String.format("%.2f", amount)).append(" DH dépensés");
+                        .append(Money.format(amount)).append(" DH dépensés");
 
                 if (budget > 0) {
                     prompt.append(" (").append(String.format("%.1f%%", percentage))
-                            .append(" du budget de ").append(String.format("%.2f", budget)).append(" DH)");
+                            .append(" du budget de ").append(Money.format(budget)).append(" DH)");
                 } else {
                     prompt.append(" (aucun budget défini)");
                 }
@@ -280,8 +315,7 @@ public class AIAssistant {
             prompt.append("\nDonne des conseils concrets, spécifiques et réalisables en français. ");
             prompt.append("Sois encourageant mais réaliste. Maximum 200 mots.");
 
-            AIAgent chatGPT = new AIAgent();
-            return chatGPT.getAdvice(prompt.toString());
+            return aiAgent.getAdvice(prompt.toString());
 
         } catch (Exception e) {
             System.err.println("Erreur lors de la génération des conseils IA : " + e.getMessage());
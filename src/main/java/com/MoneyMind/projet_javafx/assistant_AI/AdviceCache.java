@@ -0,0 +1,295 @@
+package com.MoneyMind.projet_javafx.assistant_AI;
+
+import com.MoneyMind.projet_javafx.db.ConnectionPool;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache des réponses de l'assistant IA, indexé par l'empreinte SHA-256 du prompt
+ * normalisé (Unicode NFC, espaces consécutifs réduits à un seul).
+ *
+ * - en mémoire : LRU borné à {@code capacity} entrées, chacune valable {@code ttl} ;
+ * - sur disque (optionnel) : table {@code ai_advice_cache} de la base SQLite, relue
+ *   quand l'entrée n'est plus en mémoire (redémarrage) ;
+ * - les appels simultanés pour la même clé sont fusionnés : un seul appel réseau,
+ *   les autres threads attendent son résultat.
+ *
+ * Un appel en échec n'est jamais mis en cache.
+ */
+public class AdviceCache {
+
+    /**
+     * Appel réel, exécuté en cas d'absence dans le cache.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        String load() throws IOException;
+    }
+
+    private static final String SELECT_ENTRY = "SELECT response, created_at FROM ai_advice_cache WHERE cache_key = ?";
+    private static final String UPSERT_ENTRY =
+            "INSERT OR REPLACE INTO ai_advice_cache (cache_key, response, created_at) VALUES (?, ?, ?)";
+    private static final String DELETE_EXPIRED = "DELETE FROM ai_advice_cache WHERE created_at < ?";
+    private static final String DELETE_OVERFLOW = """
+            DELETE FROM ai_advice_cache WHERE cache_key NOT IN (
+                SELECT cache_key FROM ai_advice_cache ORDER BY created_at DESC LIMIT ?)""";
+
+    private final int capacity;
+    private final long ttlMillis;
+    private final ConnectionPool pool; // null : pas de persistance
+
+    // Accès sous synchronized(entries)
+    private final LinkedHashMap<String, Entry> entries;
+    private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public AdviceCache(int capacity, Duration ttl) {
+        this(capacity, ttl, null);
+    }
+
+    /**
+     * @param pool base où persister les réponses (migration v4), ou null pour un cache en mémoire
+     */
+    public AdviceCache(int capacity, Duration ttl, ConnectionPool pool) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity doit être >= 1");
+        }
+        this.capacity = capacity;
+        this.ttlMillis = ttl.toMillis();
+        this.pool = pool;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > AdviceCache.this.capacity) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        if (pool != null) {
+            purgeDisk();
+        }
+    }
+
+    /**
+     * Renvoie la réponse en cache pour ce prompt, ou l'obtient via {@code loader}
+     * (un seul appel à la fois par prompt) et la met en cache.
+     */
+    public String get(String prompt, Loader loader) throws IOException {
+        String key = key(prompt);
+
+        String cached = lookupMemory(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        CompletableFuture<String> own = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(key, own);
+        if (running != null) {
+            coalesced.increment();
+            return await(running);
+        }
+
+        try {
+            String response = lookupDisk(key);
+            if (response != null) {
+                diskHits.increment();
+            } else {
+                misses.increment();
+                response = loader.load();
+                store(key, response);
+            }
+            own.complete(response);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    /**
+     * Vide le cache mémoire et, s'il est persistant, la table.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+        if (pool != null) {
+            try (Connection connection = pool.borrowWriter();
+                 PreparedStatement pstmt = connection.prepareStatement("DELETE FROM ai_advice_cache")) {
+                pstmt.executeUpdate();
+                connection.commit();
+            } catch (SQLException e) {
+                System.err.println("Cache IA : vidage impossible : " + e.getMessage());
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public AdviceCacheStats getStats() {
+        return new AdviceCacheStats(hits.sum(), diskHits.sum(), misses.sum(), coalesced.sum(),
+                evictions.sum(), expirations.sum(), size());
+    }
+
+    /**
+     * Empreinte SHA-256 (hexadécimal) du prompt normalisé.
+     */
+    public static String key(String prompt) {
+        String normalized = Normalizer.normalize(prompt, Normalizer.Form.NFC)
+                .strip()
+                .replaceAll("\\s+", " ");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(normalized.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
+    // ==================== Mémoire ====================
+
+    private String lookupMemory(String key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (isExpired(entry.createdAt)) {
+                entries.remove(key);
+                expirations.increment();
+                return null;
+            }
+            return entry.response;
+        }
+    }
+
+    private void remember(String key, String response, long createdAt) {
+        synchronized (entries) {
+            entries.put(key, new Entry(response, createdAt));
+        }
+    }
+
+    // ==================== Disque ====================
+
+    private String lookupDisk(String key) {
+        if (pool == null) {
+            return null;
+        }
+        try (Connection connection = pool.borrowReader();
+             PreparedStatement pstmt = connection.prepareStatement(SELECT_ENTRY)) {
+            pstmt.setString(1, key);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                long createdAt = rs.getLong("created_at");
+                if (isExpired(createdAt)) {
+                    expirations.increment();
+                    return null;
+                }
+                String response = rs.getString("response");
+                remember(key, response, createdAt);
+                return response;
+            }
+        } catch (SQLException e) {
+            // Le cache disque n'est qu'une optimisation : on retombe sur l'appel réel
+            System.err.println("Cache IA : lecture impossible : " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void store(String key, String response) {
+        long now = System.currentTimeMillis();
+        remember(key, response, now);
+        if (pool == null) {
+            return;
+        }
+        try (Connection connection = pool.borrowWriter()) {
+            try (PreparedStatement upsert = connection.prepareStatement(UPSERT_ENTRY)) {
+                upsert.setString(1, key);
+                upsert.setString(2, response);
+                upsert.setLong(3, now);
+                upsert.executeUpdate();
+            }
+            try (PreparedStatement overflow = connection.prepareStatement(DELETE_OVERFLOW)) {
+                overflow.setInt(1, capacity);
+                overflow.executeUpdate();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            System.err.println("Cache IA : écriture impossible : " + e.getMessage());
+        }
+    }
+
+    private void purgeDisk() {
+        try (Connection connection = pool.borrowWriter();
+             PreparedStatement pstmt = connection.prepareStatement(DELETE_EXPIRED)) {
+            pstmt.setLong(1, System.currentTimeMillis() - ttlMillis);
+            pstmt.executeUpdate();
+            connection.commit();
+        } catch (SQLException e) {
+            System.err.println("Cache IA : purge impossible : " + e.getMessage());
+        }
+    }
+
+    // ==================== Utilitaires ====================
+
+    private boolean isExpired(long createdAt) {
+        return System.currentTimeMillis() - createdAt > ttlMillis;
+    }
+
+    private static String await(CompletableFuture<String> running) throws IOException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Attente du conseil IA interrompue", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IOException(cause);
+        }
+    }
+
+    private static final class Entry {
+        final String response;
+        final long createdAt;
+
+        Entry(String response, long createdAt) {
+            this.response = response;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.MoneyMind.projet_javafx.assistant_AI;
+
+/**
+ * Instantané (immuable) des compteurs de l'{@link AdviceCache}.
+ */
+public class AdviceCacheStats {
+    private final long hits;
+    private final long diskHits;
+    private final long misses;
+    private final long coalesced;
+    private final long evictions;
+    private final long expirations;
+    private final int size;
+
+    AdviceCacheStats(long hits, long diskHits, long misses, long coalesced,
+                     long evictions, long expirations, int size) {
+        this.hits = hits;
+        this.diskHits = diskHits;
+        this.misses = misses;
+        this.coalesced = coalesced;
+        this.evictions = evictions;
+        this.expirations = expirations;
+        this.size = size;
+    }
+
+    public long getHits() { return hits; }
+    public long getDiskHits() { return diskHits; }
+    public long getMisses() { return misses; }
+    public long getCoalesced() { return coalesced; }
+    public long getEvictions() { return evictions; }
+    public long getExpirations() { return expirations; }
+    public int getSize() { return size; }
+
+    public long getRequests() {
+        return hits + diskHits + misses + coalesced;
+    }
+
+    /**
+     * Part des demandes servies sans appel réseau (mémoire, disque ou appel fusionné).
+     */
+    public double getHitRate() {
+        long requests = getRequests();
+        return requests == 0 ? 0.0 : (double) (requests - misses) / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "AdviceCacheStats{" +
+                "hits=" + hits +
+                ", diskHits=" + diskHits +
+                ", misses=" + misses +
+                ", coalesced=" + coalesced +
+                ", evictions=" + evictions +
+                ", expirations=" + expirations +
+                ", size=" + size +
+                ", hitRate=" + String.format("%.2f", getHitRate()) +
+                '}';
+    }
+}
@@ -2,7 +2,15 @@ package com.MoneyMind.projet_javafx.controllers;
 
 import com.MoneyMind.projet_javafx.controllers.DataStorage;
 import javafx.application.Application;
+import com.MoneyMind.projet_javafx.db.ConnectionPool;
 import com.MoneyMind.projet_javafx.db.DBInitializer;
+import com.MoneyMind.projet_javafx.db.DatabaseBackup;
+import com.MoneyMind.projet_javafx.db.Ledger;
+import com.MoneyMind.projet_javafx.db.MonthlyTotalsDAO;
+import com.MoneyMind.projet_javafx.db.QueryPlanVerifier;
+import com.MoneyMind.projet_javafx.db.SQliteConnector;
+import com.MoneyMind.projet_javafx.db.ShardRouter;
+import com.MoneyMind.projet_javafx.db.TransactionArchive;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Separator;
@@ -17,15 +25,31 @@ import javafx.scene.text.Text;
 
 import javafx.stage.Stage;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 public class App extends Application{
 
     private static final int WIDTH = 800;
     private static final int HEIGHT = 450;
     private static final String LOGO_PATH = "Logo.gif";
 
+    private DataStorage dataStorage;
+    // Scheduled online backups, one per database file (-Dmoneymind.backupDir)
+    private static final List<DatabaseBackup> backups = new ArrayList<>();
+    // Writes due recurring transactions at startup, then every hour by default
+    private static RecurringScheduler recurring;
+
     public void start(Stage primaryStage) {
 
-        DataStorage dataStorage = new DataStorage();
+        dataStorage = new DataStorage();
+        if (Boolean.getBoolean("moneymind.writeBehind")) {
+            // Group commits for inserts; see TransactionWriteQueue
+            dataStorage.enableWriteBehind(TransactionWriteQueue.DEFAULT_CAPACITY,
+                    TransactionWriteQueue.DEFAULT_MAX_BATCH, TransactionWriteQueue.DEFAULT_MAX_DELAY);
+        }
 
         Image icon = new Image("Logo.png");
         LoginScene loginScene = new LoginScene(dataStorage, primaryStage);
@@ -80,7 +104,90 @@ public class App extends Application{
         primaryStage.show();
     }
 
+    @Override
+    public void stop() {
+        // Interrupt database / AI work still running on background threads
+        BackgroundTasks.shutdown();
+        if (dataStorage != null) {
+            // Commit inserts still waiting in the write-behind queue
+            dataStorage.disableWriteBehind();
+        }
+        backups.forEach(DatabaseBackup::close);
+        if (recurring != null) recurring.close();
+    }
+
     public static void main(String[] args) {
-        DBInitializer.initializeDatabase();
+        Integer shards = Integer.getInteger("moneymind.shards");
+        if (shards != null) {
+            // Users spread over several database files; see ShardRouter
+            try {
+                ShardRouter router = SQliteConnector.configureShards(shards);
+                router.initialize();
+                new ShardedTransferEngine(router).recover();
+            } catch (java.sql.SQLException e) {
+                throw new DBInitializer.DatabaseInitializationException("Sharded mode failed to start", e);
+            }
+        } else {
+            DBInitializer.initializeDatabase();
+        }
+        String restore = System.getProperty("moneymind.restore");
+        if (restore != null) {
+            // Verified before anything is overwritten; the snapshot names the file it came from
+            try {
+                Path snapshot = Path.of(restore);
+                String source = DatabaseBackup.sourceOf(snapshot);
+                for (ConnectionPool pool : SQliteConnector.allPools()) {
+                    Path file = pool.getConfig().getDatabaseFile();
+                    if (file != null && file.getFileName().toString().equals(source)) {
+                        new DatabaseBackup(pool, snapshot.toAbsolutePath().getParent()).restore(snapshot);
+                    }
+                }
+            } catch (java.sql.SQLException e) {
+                System.err.println("Restore failed: " + e.getMessage());
+            }
+        }
+        if (Boolean.getBoolean("moneymind.verifyQueryPlans")) {
+            QueryPlanVerifier.verify(SQliteConnector.pool(), DataStorage.queryCatalog());
+        }
+        if (Boolean.getBoolean("moneymind.verifyRollups")) {
+            try {
+                for (ConnectionPool pool : SQliteConnector.dataPools()) {
+                    MonthlyTotalsDAO.verifyAndRepair(pool);
+                }
+            } catch (java.sql.SQLException e) {
+                System.err.println("Monthly rollup check failed: " + e.getMessage());
+            }
+        }
+        Integer archiveBefore = Integer.getInteger("moneymind.archiveBefore");
+        if (archiveBefore != null) {
+            try {
+                for (ConnectionPool pool : SQliteConnector.dataPools()) {
+                    TransactionArchive.of(pool).archiveBefore(archiveBefore);
+                }
+            } catch (java.sql.SQLException e) {
+                System.err.println("Archiving failed: " + e.getMessage());
+            }
+        }
+        if (Boolean.getBoolean("moneymind.verifyLedger")) {
+            try {
+                for (ConnectionPool pool : SQliteConnector.dataPools()) {
+                    Ledger.verifyAndRepair(pool);
+                }
+            } catch (java.sql.SQLException e) {
+                System.err.println("Ledger check failed: " + e.getMessage());
+            }
+        }
+        String backupDir = System.getProperty("moneymind.backupDir");
+        if (backupDir != null) {
+            Duration interval = Duration.ofMinutes(Long.getLong("moneymind.backupIntervalMinutes", 60));
+            for (ConnectionPool pool : SQliteConnector.allPools()) {
+                DatabaseBackup backup = new DatabaseBackup(pool, Path.of(backupDir))
+                        .setKeep(Integer.getInteger("moneymind.backupKeep", DatabaseBackup.DEFAULT_KEEP));
+                backup.schedule(interval);
+                backups.add(backup);
+            }
+        }
+        recurring = new RecurringScheduler(SQliteConnector.dataPools());
+        recurring.schedule(Duration.ofMinutes(Long.getLong("moneymind.recurringIntervalMinutes", 60)));
         launch(args); }
 }
@@ -0,0 +1,131 @@
+package com.MoneyMind.projet_javafx.controllers;
+
+import javafx.application.Platform;
+import javafx.beans.binding.Bindings;
+import javafx.beans.binding.BooleanBinding;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.concurrent.Task;
+import javafx.concurrent.WorkerStateEvent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Runs database and network work (DataStorage, AIAssistant) off the JavaFX
+ * application thread.
+ *
+ * Each piece of work becomes a {@link Task} executed on its own virtual thread, so
+ * blocking JDBC or HTTP calls cost no platform thread; completion callbacks run back
+ * on the FX thread. Controllers call {@link #submit} from the FX thread and may bind
+ * controls to the returned task ({@code runningProperty()}) or cancel it.
+ * {@link #inFlightProperty()} counts the tasks not yet finished, for a global indicator.
+ */
+public final class BackgroundTasks {
+
+    /**
+     * Background work; may block and throw.
+     */
+    @FunctionalInterface
+    public interface Work<T> {
+        T call() throws Exception;
+    }
+
+    /**
+     * Background work without a result.
+     */
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    private static final ExecutorService EXECUTOR =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("moneymind-bg-", 0).factory());
+
+    // Only touched on the FX thread
+    private static final ReadOnlyIntegerWrapper IN_FLIGHT = new ReadOnlyIntegerWrapper(0);
+    private static final BooleanBinding BUSY = Bindings.greaterThan(IN_FLIGHT, 0);
+
+    private BackgroundTasks() {
+    }
+
+    /**
+     * Runs {@code work} in the background, then {@code onSuccess} or {@code onFailure}
+     * on the FX thread. Neither callback runs if the task is cancelled.
+     * @return the running task, for binding and {@link Task#cancel()}
+     */
+    public static <T> Task<T> submit(Work<T> work, Consumer<? super T> onSuccess, Consumer<Throwable> onFailure) {
+        Task<T> task = new Task<>() {
+            @Override
+            protected T call() throws Exception {
+                return work.call();
+            }
+        };
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_SUCCEEDED, e -> {
+            if (onSuccess != null) onSuccess.accept(task.getValue());
+        });
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_FAILED, e -> {
+            Throwable error = task.getException();
+            if (onFailure != null) {
+                onFailure.accept(error);
+            } else {
+                System.err.println("Background task failed: " + error);
+            }
+        });
+        return submit(task);
+    }
+
+    /**
+     * Same as {@link #submit(Work, Consumer, Consumer)} for work without a result.
+     */
+    public static Task<Void> run(Action action, Runnable onSuccess, Consumer<Throwable> onFailure) {
+        return submit(() -> {
+            action.run();
+            return null;
+        }, ignored -> {
+            if (onSuccess != null) onSuccess.run();
+        }, onFailure);
+    }
+
+    /**
+     * Runs an existing task (e.g. one reporting progress) with in-flight tracking.
+     */
+    public static <T> Task<T> submit(Task<T> task) {
+        checkFxThread();
+        IN_FLIGHT.set(IN_FLIGHT.get() + 1);
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_SUCCEEDED, e -> finished());
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_FAILED, e -> finished());
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_CANCELLED, e -> finished());
+        EXECUTOR.execute(task);
+        return task;
+    }
+
+    public static ReadOnlyIntegerProperty inFlightProperty() {
+        return IN_FLIGHT.getReadOnlyProperty();
+    }
+
+    /**
+     * True while at least one task is running or queued.
+     */
+    public static BooleanBinding busyProperty() {
+        return BUSY;
+    }
+
+    /**
+     * Interrupts every running task; called when the application stops.
+     */
+    public static void shutdown() {
+        EXECUTOR.shutdownNow();
+    }
+
+    private static void finished() {
+        IN_FLIGHT.set(IN_FLIGHT.get() - 1);
+    }
+
+    private static void checkFxThread() {
+        if (!Platform.isFxApplicationThread()) {
+            throw new IllegalStateException("BackgroundTasks must be used from the JavaFX application thread");
+        }
+    }
+}
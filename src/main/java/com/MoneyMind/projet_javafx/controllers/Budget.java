@@ -2,36 +2,36 @@ package com.MoneyMind.projet_javafx.controllers;
 
 public class Budget {
     private String name;
-    private double amount;
-    private double current;
+    private long amount;  // minor units, see Money
+    private long current;
     private String category;
 
-    public Budget(String name, double amount, double current) {
+    public Budget(String name, long amount, long current) {
         this.name = name;
         this.amount = amount;
         this.current = current;
     }
-    public Budget(String name, double amount) {
+    public Budget(String name, long amount) {
         this.name = name;
         this.amount = amount;
         this.current = amount; // Initialize current to amount
     }
-    public void setCurrent(double current) {
+    public void setCurrent(long current) {
         this.current = current;
     }
     public String getName() {
         return name;
     }
 
-    public double getCurrent() {
+    public long getCurrent() {
         return current;
     }
 
-    public double getAmount() {
+    public long getAmount() {
         return amount;
     }
 
-    public void setAmount(double amount) {
+    public void setAmount(long amount) {
         this.amount = amount;
     }
 
@@ -43,8 +43,8 @@ public class Budget {
     public String toString() {
         return "Budget{" +
                 "name='" + name + '\'' +
-                ", amount=" + amount +
-                ", current=" + current +
+                ", amount=" + Money.format(amount) +
+                ", current=" + Money.format(current) +
                 '}';
     }
 
@@ -1,5 +1,6 @@
 package com.MoneyMind.projet_javafx.controllers;
 
+import com.MoneyMind.projet_javafx.db.RowChange;
 import javafx.stage.Stage;
 import javafx.scene.Scene;
 import javafx.application.Platform;
@@ -12,7 +13,7 @@ import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.*;
 import javafx.scene.text.Font;
 
-import java.sql.SQLException;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -51,32 +52,44 @@ public class BudgetInputTab extends Tab {
     private final Button logoutButton = new Button("Logout");
 
     private DataStorage dataStorage;
-    private double totalBudgetAmount = 0.0;
+    private long totalBudgetAmount = 0; // minor units
     private Stage primaryStage;
     private Scene loginScene;
-
-    // Reference to TransactionInput for refreshing categories
-    private TransactionInput transactionInput;
-
-    public BudgetInputTab(DataStorage dataStorageInstance, Stage primaryStage, Scene loginScene) {
-        this(dataStorageInstance, primaryStage, loginScene, null);
+    private final ChangeStream changes; // closed at logout
+
+    /**
+     * @param changes committed changes of the logged user: budgets and balance are kept
+     *                in step with them, whoever wrote them
+     */
+    public BudgetInputTab(DataStorage dataStorageInstance, Stage primaryStage, Scene loginScene, ChangeStream changes) {
+        this(dataStorageInstance, primaryStage, loginScene, changes, null);
     }
 
-    // Overloaded constructor to accept TransactionInput reference
-    public BudgetInputTab(DataStorage dataStorageInstance, Stage primaryStage, Scene loginScene, TransactionInput transactionInput) {
+    /**
+     * @param login categories and budgets read at login, shown without reading them again;
+     *              null to read them
+     */
+    public BudgetInputTab(DataStorage dataStorageInstance, Stage primaryStage, Scene loginScene, ChangeStream changes,
+                          LoginSnapshot login) {
         this.dataStorage = dataStorageInstance;
         this.primaryStage = primaryStage;
         this.loginScene = loginScene;
-        this.transactionInput = transactionInput;
+        this.changes = changes;
+        changes.subscribe(this::applyChanges);
         setText("Budget Setup");
 
         setupFonts();
         setupLayout();
         setupTable();
         setupHandlers();
-        loadCategories();
-        loadBudgets();
-        updateTotalDisplay();
+        if (login == null) {
+            loadCategories();
+            updateTotalDisplay();
+            loadBudgets();
+        } else {
+            categoryCombo.getItems().setAll(login.getCategories());
+            showBudgets(login.getUser(), login.getBudgets());
+        }
 
         ScrollPane scrollPane = new ScrollPane(mainVBox);
         scrollPane.setFitToWidth(true);
@@ -147,12 +160,14 @@ public class BudgetInputTab extends Tab {
         nameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
         nameCol.setPrefWidth(180);
 
-        TableColumn<Budget, Double> amountCol = new TableColumn<>("Initial Amount (MAD)");
+        TableColumn<Budget, Long> amountCol = new TableColumn<>("Initial Amount (MAD)");
         amountCol.setCellValueFactory(new PropertyValueFactory<>("amount"));
+        amountCol.setCellFactory(col -> moneyCell());
         amountCol.setPrefWidth(120);
 
-        TableColumn<Budget, Double> currentCol = new TableColumn<>("Current (MAD)");
+        TableColumn<Budget, Long> currentCol = new TableColumn<>("Current (MAD)");
         currentCol.setCellValueFactory(new PropertyValueFactory<>("current"));
+        currentCol.setCellFactory(col -> moneyCell());
         currentCol.setPrefWidth(120);
 
         TableColumn<Budget, Void> removeCol = new TableColumn<>("Remove");
@@ -187,19 +202,24 @@ public class BudgetInputTab extends Tab {
         quitButton.setOnAction(e -> Platform.exit());
         logoutButton.setOnAction(e -> handleLogout());
         totalButton.setOnAction(e -> {
+            long newTotal;
             try {
-                double newTotal = Double.parseDouble(totalField.getText());
-                totalBudgetAmount = newTotal;
-                dataStorage.getLoggedUser().setTotalLimit(totalBudgetAmount);
-                dataStorage.updateUserTotalLimit(dataStorage.getLoggedUser(), totalBudgetAmount);
-                updateTotalDisplay();
-            } catch (NumberFormatException | SQLException ex) {
+                newTotal = Money.parse(totalField.getText());
+            } catch (NumberFormatException ex) {
                 showAlert("Invalid total budget.");
+                return;
             }
+            totalBudgetAmount = newTotal;
+            User user = dataStorage.getLoggedUser();
+            user.setTotalLimit(totalBudgetAmount);
+            updateTotalDisplay();
+            BackgroundTasks.run(() -> dataStorage.updateUserTotalLimit(user, newTotal), null,
+                    ex -> showAlert("Failed to save total budget: " + ex.getMessage()));
         });
     }
 
     private void handleLogout() {
+        changes.close();
         dataStorage.setLoggedUser(null);
         if (primaryStage != null && loginScene != null) {
             primaryStage.setScene(loginScene);
@@ -207,24 +227,63 @@ public class BudgetInputTab extends Tab {
     }
 
     private void loadCategories() {
-        try {
-            categoryCombo.getItems().clear();
-            categoryCombo.getItems().addAll(dataStorage.getAllCategories());
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        BackgroundTasks.submit(dataStorage::getAllCategories,
+                categories -> categoryCombo.getItems().setAll(categories),
+                Throwable::printStackTrace);
     }
 
+    // Reloads the budgets in the background, then updates the table and the total
     private void loadBudgets() {
-        if (dataStorage.getLoggedUser() != null) {
-            budgetList.setAll(dataStorage.getBudgets());
-            dataStorage.getLoggedUser().setBudgets(budgetList);
-            totalBudgetAmount = dataStorage.getLoggedUser().getTotalLimit();
+        User user = dataStorage.getLoggedUser();
+        if (user == null) {
+            return;
+        }
+        BackgroundTasks.submit(dataStorage::getBudgets, budgets -> showBudgets(user, budgets),
+                Throwable::printStackTrace);
+    }
+
+    private void showBudgets(User user, List<Budget> budgets) {
+        budgetList.setAll(budgets);
+        user.setBudgets(budgetList);
+        totalBudgetAmount = user.getTotalLimit();
+        table.refresh();
+        updateTotalDisplay();
+    }
+
+    /**
+     * Budget rows and the balance as committed. The table already shows this tab's own
+     * edits; this brings in the spending of new transactions and what other writers did.
+     */
+    private void applyChanges(List<RowChange<?>> changes) {
+        User user = dataStorage.getLoggedUser();
+        if (user == null) return;
+        boolean budgetsChanged = false;
+        for (RowChange<Budget> change : RowChange.select(changes, RowChange.BUDGETS)) {
+            Budget row = change.getRow();
+            Budget shown = budgetList.stream().filter(b -> b.getName().equals(row.getName())).findFirst().orElse(null);
+            if (change.getOp() == RowChange.Op.DELETE) {
+                budgetList.remove(shown);
+            } else if (shown == null) {
+                budgetList.add(row);
+            } else {
+                shown.setAmount(row.getAmount());
+                shown.setCurrent(row.getCurrent());
+            }
+            budgetsChanged = true;
+        }
+        List<RowChange<Long>> balances = RowChange.select(changes, RowChange.USERS);
+        if (!balances.isEmpty()) {
+            totalBudgetAmount = balances.get(balances.size() - 1).getRow();
+            user.setTotalLimit(totalBudgetAmount);
+            updateTotalDisplay();
+        }
+        if (budgetsChanged) {
+            table.refresh();
         }
     }
 
     private void updateTotalDisplay() {
-        totalDisplayLabel.setText("Available Budget: " + String.format("%.2f", totalBudgetAmount) + " MAD");
+        totalDisplayLabel.setText("Available Budget: " + Money.format(totalBudgetAmount) + " MAD");
     }
 
     private void addHandler() {
@@ -234,7 +293,7 @@ public class BudgetInputTab extends Tab {
             return;
         }
         try {
-            double amount = Double.parseDouble(amountField.getText());
+            long amount = Money.parse(amountField.getText());
             if (amount <= 0) {
                 showAlert("Amount must be positive.");
                 return;
@@ -255,61 +314,69 @@ public class BudgetInputTab extends Tab {
                 suffix++;
             }
             String name = candidateName;
-
-            // Ensure the final category name exists in the DB and ComboBox
-            if (!categoryCombo.getItems().contains(name)) {
-                dataStorage.addCategory(name, "EXPENSE"); // Or let user choose type
+            boolean newCategory = !categoryCombo.getItems().contains(name);
+            if (newCategory) {
                 categoryCombo.getItems().add(name);
             }
 
             Budget newBudget = new Budget(name, amount);
             budgetList.add(newBudget);
-            dataStorage.addBudget(dataStorage.getLoggedUser(), newBudget);
 
             // Subtract the allocated amount from the total budget
-            totalBudgetAmount -= amount;
-            dataStorage.getLoggedUser().setTotalLimit(totalBudgetAmount);
-            dataStorage.updateUserTotalLimit(dataStorage.getLoggedUser(), totalBudgetAmount);
+            totalBudgetAmount = Money.subtract(totalBudgetAmount, amount);
+            long newTotal = totalBudgetAmount;
+            User user = dataStorage.getLoggedUser();
+            user.setTotalLimit(newTotal);
 
             amountField.clear();
             updateTotalDisplay();
             table.refresh();
 
-            // Refresh TransactionInput's category ComboBox if reference is set
-            if (transactionInput != null) {
-                transactionInput.refreshCategoryComboBox();
-            }
+            BackgroundTasks.run(() -> {
+                // Ensure the final category name exists in the DB
+                if (newCategory) {
+                    dataStorage.addCategory(name, "EXPENSE"); // Or let user choose type
+                }
+                dataStorage.addBudget(user, newBudget);
+                dataStorage.updateUserTotalLimit(user, newTotal);
+            }, null, ex -> {
+                showAlert("Failed to add new category: " + ex.getMessage());
+                loadCategories();
+                refreshBudgets();
+            });
         } catch (NumberFormatException e) {
             showAlert("Invalid amount entered.");
-        } catch (SQLException e) {
-            showAlert("Failed to add new category: " + e.getMessage());
         }
     }
     private void removeHandler(Budget toRemove) {
         budgetList.remove(toRemove);
-        dataStorage.removeBudget(toRemove.getName());
 
         // Add the deallocated amount back to the total budget
-        totalBudgetAmount += toRemove.getCurrent();
-        dataStorage.getLoggedUser().setTotalLimit(totalBudgetAmount);
-        try {
-            dataStorage.updateUserTotalLimit(dataStorage.getLoggedUser(), totalBudgetAmount);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        totalBudgetAmount = Money.add(totalBudgetAmount, toRemove.getCurrent());
+        long newTotal = totalBudgetAmount;
+        User user = dataStorage.getLoggedUser();
+        user.setTotalLimit(newTotal);
         updateTotalDisplay();
         table.refresh();
 
-        // Refresh TransactionInput's category ComboBox if reference is set
-        if (transactionInput != null) {
-            transactionInput.refreshCategoryComboBox();
-        }
+        BackgroundTasks.run(() -> {
+            dataStorage.removeBudget(toRemove.getName());
+            dataStorage.updateUserTotalLimit(user, newTotal);
+        }, null, Throwable::printStackTrace);
     }
 
     public void refreshBudgets() {
-        loadBudgets();      // reloads the budgets from DataStorage
-        table.refresh();    // refreshes the TableView display
-        updateTotalDisplay();
+        loadBudgets();      // reloads the budgets from DataStorage, then refreshes the table and total
+    }
+
+    private static TableCell<Budget, Long> moneyCell() {
+        return new TableCell<>() {
+            @Override
+            protected void updateItem(Long item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : Money.format(item));
+            }
+        };
     }
 
     private void showAlert(String msg) {
@@ -317,8 +384,4 @@ public class BudgetInputTab extends Tab {
         alert.showAndWait();
     }
 
-    // Setter to inject TransactionInput reference after construction if needed
-    public void setTransactionInput(TransactionInput transactionInput) {
-        this.transactionInput = transactionInput;
-    }
 }
\ No newline at end of file
@@ -28,12 +28,12 @@ public class BudgetList {
 
     /**
      * gives sum of all Budget objects in constructed list
-     * @return sum
+     * @return sum, in minor units
      */
-    public double getSum() {
-        double sum = 0;
+    public long getSum() {
+        long sum = 0;
         for (Budget item : list) {
-            sum += item.getAmount();
+            sum = Money.add(sum, item.getAmount());
         }
         return sum;
     }
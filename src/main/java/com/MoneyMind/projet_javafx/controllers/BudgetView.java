@@ -1,5 +1,6 @@
 package com.MoneyMind.projet_javafx.controllers;
 
+import com.MoneyMind.projet_javafx.db.RowChange;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -15,6 +16,9 @@ import javafx.util.Duration;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 
 public class BudgetView extends Tab {
@@ -30,8 +34,25 @@ public class BudgetView extends Tab {
     ObservableList<PieChart.Data> pieChartData = FXCollections.observableArrayList();
     double totalBudget;
 
+    // What the charts show, kept up to date from the change stream
+    private final Map<String, Budget> budgets = new LinkedHashMap<>();
+    private final Map<String, Long> spent = new LinkedHashMap<>();
+    private long totalLimit;
+    private boolean loaded;
+    private boolean loading;
+    private boolean reloadAgain; // changes arrived while loading
+    private boolean stale; // changed since the charts were drawn
 
-    public BudgetView(DataStorage dataStorage) {
+
+    public BudgetView(DataStorage dataStorage, ChangeStream changes) {
+        this(dataStorage, changes, null);
+    }
+
+    /**
+     * @param login budgets and rollup read at login, drawn without reading them again;
+     *              null to read them
+     */
+    public BudgetView(DataStorage dataStorage, ChangeStream changes, LoginSnapshot login) {
         this.dataStorage = dataStorage;
         setText("Budget Overview");
 
@@ -45,28 +66,117 @@ public class BudgetView extends Tab {
         hBox.setPadding(new Insets(10, 10, 10, 10));
         vBox.getChildren().add(hBox);
 
-        // Attach the refresh method to the onSelectionChanged event
+        // Redraw on selection only if something changed since the last drawing
         this.setOnSelectionChanged(event -> {
-            if (this.isSelected()) {
-                refresh();
+            if (this.isSelected() && stale) {
+                show();
             }
         });
+        changes.subscribe(this::applyChanges);
 
-        // Call refresh initially to populate the tab
-        refresh();
+        // Read everything once to populate the tab; changes are applied from then on
+        if (login == null) {
+            refresh();
+        } else {
+            load(new Snapshot(login.getBudgets(), login.getMonthlyTotals()), login.getUser());
+            show();
+        }
     }
 
 
+    /**
+     * Reads budgets and spending again, then redraws.
+     */
     public void refresh() {
+        User user = dataStorage.getLoggedUser();
+        if (user == null) return;
+        loading = true;
+        reloadAgain = false;
+        // Reload your data from DataStorage in the background, then rebuild the charts
+        BackgroundTasks.submit(() -> new Snapshot(dataStorage.getBudgets(), dataStorage.getMonthlyTotals(user.getId())),
+                snapshot -> {
+                    loading = false;
+                    load(snapshot, user);
+                    if (reloadAgain) {
+                        refresh(); // the snapshot may predate those changes
+                    } else {
+                        show();
+                    }
+                },
+                error -> {
+                    loading = false;
+                    error.printStackTrace();
+                });
+    }
+
+    private void load(Snapshot snapshot, User user) {
+        budgets.clear();
+        for (Budget budget : snapshot.budgets) budgets.put(budget.getName(), budget);
+        spent.clear();
+        spent.putAll(spentByCategory(snapshot.totals));
+        totalLimit = user.getTotalLimit();
+        loaded = true;
+    }
+
+    /**
+     * Moves spending, budgets and the balance by the committed changes, without reading
+     * the database; the charts are redrawn now if the tab is shown, else when it is selected.
+     */
+    private void applyChanges(List<RowChange<?>> changes) {
+        if (loading) {
+            reloadAgain = true;
+            return;
+        }
+        if (!loaded) return;
+        for (RowChange<Transaction> change : RowChange.select(changes, RowChange.TRANSACTIONS)) {
+            Transaction row = change.getRow();
+            long amount = change.getOp() == RowChange.Op.DELETE ? -row.getAmount() : row.getAmount();
+            spent.merge(row.getCategory(), amount, Money::add);
+        }
+        for (RowChange<Budget> change : RowChange.select(changes, RowChange.BUDGETS)) {
+            Budget row = change.getRow();
+            if (change.getOp() == RowChange.Op.DELETE) budgets.remove(row.getName());
+            else budgets.put(row.getName(), row);
+        }
+        for (RowChange<Long> change : RowChange.select(changes, RowChange.USERS)) {
+            totalLimit = change.getRow();
+        }
+        stale = true;
+        if (isSelected()) show();
+    }
+
+    private void show() {
+        stale = false;
+        showBudgets(new ArrayList<>(budgets.values()), spent);
+    }
+
+    // Budgets and monthly rollup read together off the FX thread
+    private static final class Snapshot {
+        final List<Budget> budgets;
+        final List<MonthlyTotal> totals;
+
+        Snapshot(List<Budget> budgets, List<MonthlyTotal> totals) {
+            this.budgets = budgets;
+            this.totals = totals;
+        }
+    }
+
+    // Net amount per category over the whole history, from the rollup
+    private static Map<String, Long> spentByCategory(List<MonthlyTotal> totals) {
+        Map<String, Long> spent = new LinkedHashMap<>();
+        for (MonthlyTotal t : totals) {
+            spent.merge(t.getCategory(), t.getTotal(), Money::add);
+        }
+        return spent;
+    }
+
+    private void showBudgets(List<Budget> budgets, Map<String, Long> spent) {
         // Clear the old data
         vBox.getChildren().clear();
         pieChartData.clear();
 
-        // Reload your data from DataStorage
-        if (dataStorage.getLoggedUser() != null){
-        totalBudget = dataStorage.getLoggedUser().getTotalLimit();}
-        ObservableList<Budget> list = FXCollections.observableArrayList(dataStorage.getBudgets());
-        ObservableList<Transaction> transactionList = FXCollections.observableArrayList(dataStorage.getLoggedUser().getTransactions());
+        totalBudget = Money.toMajor(totalLimit);
+        ObservableList<Budget> list = FXCollections.observableArrayList(budgets);
 
         // Re-populate your UI elements
         double sum = sumCategories(list);
@@ -85,7 +195,7 @@ public class BudgetView extends Tab {
             data.setName(label);
         });
 
-        StackedBarChart stackedBarChart = createSBC(list, transactionList, totalBudget);
+        StackedBarChart stackedBarChart = createSBC(list, spent, totalBudget);
 
         vBox.getChildren().addAll(chart, stackedBarChart);
         vBox.setPadding(new Insets(10));
@@ -104,7 +214,7 @@ public class BudgetView extends Tab {
         return names;
     }
 
-    private StackedBarChart createSBC(ObservableList<Budget> bList, ObservableList<Transaction> tList, double totalBudget) {
+    private StackedBarChart createSBC(ObservableList<Budget> bList, Map<String, Long> spent, double totalBudget) {
         // get category names for xAxis
         ArrayList<String> categoryNames = getBudgetNames(bList);
 
@@ -122,14 +232,15 @@ public class BudgetView extends Tab {
 
         XYChart.Series<String, Number> spentSeries = new XYChart.Series<>();
         spentSeries.setName("Spent");
-        for (Transaction item : tList) {
-            spentSeries.getData().add(new XYChart.Data<>(item.getCategory(), item.getAmount()));
+        for (Map.Entry<String, Long> item : spent.entrySet()) {
+            if (item.getKey() == null) continue; // uncategorized: no bar to stack on
+            spentSeries.getData().add(new XYChart.Data<>(item.getKey(), Money.toMajor(item.getValue())));
         }
 
         XYChart.Series<String, Number> totalSeries = new XYChart.Series<>();
         totalSeries.setName("Total");
         for (Budget item : bList) {
-            totalSeries.getData().add(new XYChart.Data<>(item.getName(), item.getAmount()));
+            totalSeries.getData().add(new XYChart.Data<>(item.getName(), Money.toMajor(item.getAmount())));
         }
 
         stackedBarChart.getData().addAll(spentSeries, totalSeries);
@@ -139,16 +250,16 @@ public class BudgetView extends Tab {
 
 
     private double sumCategories(ObservableList<Budget> list) {
-        double sum = 0;
+        long sum = 0;
         for (Budget item : list) {
-            sum += item.getAmount();
+            sum = Money.add(sum, item.getAmount());
         }
-        return sum;
+        return Money.toMajor(sum);
     }
 
     private void addToPieChartData(ObservableList<Budget> list) {
         for (Budget item : list) {
-            pieChartData.add(new PieChart.Data(item.getName(), item.getAmount()));
+            pieChartData.add(new PieChart.Data(item.getName(), Money.toMajor(item.getAmount())));
         }
     }
 }
@@ -0,0 +1,35 @@
+package com.MoneyMind.projet_javafx.controllers;
+
+/**
+ * Outcome of a bulk insert: how many rows were written and how fast.
+ */
+public class BulkInsertResult {
+    private final int rows;
+    private final long elapsedNanos;
+
+    public BulkInsertResult(int rows, long elapsedNanos) {
+        this.rows = rows;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getElapsedMillis() {
+        return elapsedNanos / 1_000_000.0;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : rows * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d rows in %.1f ms (%.0f rows/s)", rows, getElapsedMillis(), getRowsPerSecond());
+    }
+}
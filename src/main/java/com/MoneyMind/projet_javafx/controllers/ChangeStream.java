@@ -0,0 +1,69 @@
+package com.MoneyMind.projet_javafx.controllers;
+
+import com.MoneyMind.projet_javafx.db.ChangeFeed;
+import com.MoneyMind.projet_javafx.db.RowChange;
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * The logged user's committed row changes (see {@link DataStorage#subscribeChanges}),
+ * delivered on the FX thread so that views can apply them as deltas.
+ *
+ * Commits that land before the FX thread gets round to them are delivered together, in
+ * commit order: one pass per frame at most, however many rows a bulk import commits.
+ * One stream per main window; closing it (at logout) stops every view listening to it.
+ */
+public class ChangeStream implements AutoCloseable {
+
+    private final ChangeFeed.Subscription subscription;
+    private final ConcurrentLinkedQueue<RowChange<?>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final List<Consumer<List<RowChange<?>>>> listeners = new ArrayList<>(); // FX thread only
+    private volatile boolean closed;
+
+    public ChangeStream(DataStorage dataStorage, int userId) {
+        this.subscription = dataStorage.subscribeChanges(userId, this::enqueue);
+    }
+
+    /**
+     * Calls {@code listener} on the FX thread with every batch of changes, in order.
+     */
+    public void subscribe(Consumer<List<RowChange<?>>> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        subscription.close();
+        pending.clear();
+    }
+
+    // Committing thread: hand off and return at once
+    private void enqueue(List<RowChange<?>> changes) {
+        if (closed) return;
+        pending.addAll(changes);
+        if (scheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::deliver);
+        }
+    }
+
+    private void deliver() {
+        scheduled.set(false);
+        List<RowChange<?>> batch = new ArrayList<>();
+        RowChange<?> change;
+        while ((change = pending.poll()) != null) {
+            batch.add(change);
+        }
+        if (closed || batch.isEmpty()) return;
+        List<RowChange<?>> changes = List.copyOf(batch);
+        for (Consumer<List<RowChange<?>>> listener : listeners) {
+            listener.accept(changes);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.MoneyMind.projet_javafx.controllers;
+
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Describes how the columns of a bank CSV export map onto {@link Transaction} fields.
+ * Columns can be given by index, or by header name (resolved when the header row is read).
+ */
+public class CsvColumnMapping {
+    public static final int ABSENT = -1;
+
+    private char separator = ',';
+    private boolean hasHeader = true;
+    private char decimalSeparator = '.';
+    private DateTimeFormatter dateFormat = DateTimeFormatter.ISO_LOCAL_DATE;
+    private String defaultCategory;
+
+    private int nameColumn = 1;
+    private int amountColumn = 2;
+    private int categoryColumn = 3;
+    private int dateColumn = 0;
+
+    private String nameHeader;
+    private String amountHeader;
+    private String categoryHeader;
+    private String dateHeader;
+
+    /**
+     * date,name,amount,category with a header row and ISO dates.
+     */
+    public static CsvColumnMapping defaults() {
+        return new CsvColumnMapping();
+    }
+
+    public CsvColumnMapping columns(int date, int name, int amount, int category) {
+        this.dateColumn = date;
+        this.nameColumn = name;
+        this.amountColumn = amount;
+        this.categoryColumn = category;
+        return this;
+    }
+
+    public CsvColumnMapping headers(String date, String name, String amount, String category) {
+        this.hasHeader = true;
+        this.dateHeader = date;
+        this.nameHeader = name;
+        this.amountHeader = amount;
+        this.categoryHeader = category;
+        return this;
+    }
+
+    /**
+     * Resolves header-based columns against the first row of the file.
+     */
+    void resolve(String[] header) {
+        List<String> names = Arrays.stream(header).map(h -> h.trim().toLowerCase()).toList();
+        if (dateHeader != null) dateColumn = indexOf(names, dateHeader);
+        if (nameHeader != null) nameColumn = indexOf(names, nameHeader);
+        if (amountHeader != null) amountColumn = indexOf(names, amountHeader);
+        if (categoryHeader != null) categoryColumn = names.indexOf(categoryHeader.trim().toLowerCase());
+    }
+
+    private static int indexOf(List<String> names, String header) {
+        int index = names.indexOf(header.trim().toLowerCase());
+        if (index < 0) throw new IllegalArgumentException("Missing CSV column: " + header);
+        return index;
+    }
+
+    /**
+     * Parses an amount such as "-1 234,50" or "1234.50" according to the decimal separator.
+     * @return the amount in minor units
+     */
+    long parseAmount(String raw) {
+        String cleaned = raw.trim().replace(" ", "").replace("\u00A0", "");
+        if (decimalSeparator == ',') {
+            cleaned = cleaned.replace(".", "").replace(',', '.');
+        } else {
+            cleaned = cleaned.replace(",", "");
+        }
+        return Money.parse(cleaned);
+    }
+
+    // Getters and setters (chainable)
+    public char getSeparator() { return separator; }
+    public CsvColumnMapping setSeparator(char separator) { this.separator = separator; return this; }
+
+    public boolean hasHeader() { return hasHeader; }
+    public CsvColumnMapping setHasHeader(boolean hasHeader) { this.hasHeader = hasHeader; return this; }
+
+    public char getDecimalSeparator() { return decimalSeparator; }
+    public CsvColumnMapping setDecimalSeparator(char decimalSeparator) { this.decimalSeparator = decimalSeparator; return this; }
+
+    public DateTimeFormatter getDateFormat() { return dateFormat; }
+    public CsvColumnMapping setDateFormat(String pattern) { this.dateFormat = DateTimeFormatter.ofPattern(pattern); return this; }
+
+    public String getDefaultCategory() { return defaultCategory; }
+    public CsvColumnMapping setDefaultCategory(String defaultCategory) { this.defaultCategory = defaultCategory; return this; }
+
+    public int getNameColumn() { return nameColumn; }
+    public int getAmountColumn() { return amountColumn; }
+    public int getCategoryColumn() { return categoryColumn; }
+    public int getDateColumn() { return dateColumn; }
+}
@@ -0,0 +1,39 @@
+package com.MoneyMind.projet_javafx.controllers;
+
+import java.util.List;
+
+/**
+ * Result of a CSV import: rows written, rows rejected (with the first error messages)
+ * and overall throughput.
+ */
+public class CsvImportSummary {
+    private final long rowsImported;
+    private final long rowsSkipped;
+    private final boolean cancelled;
+    private final List<String> errors;
+    private final long elapsedNanos;
+
+    public CsvImportSummary(long rowsImported, long rowsSkipped, boolean cancelled, List<String> errors, long elapsedNanos) {
+        this.rowsImported = rowsImported;
+        this.rowsSkipped = rowsSkipped;
+        this.cancelled = cancelled;
+        this.errors = List.copyOf(errors);
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getRowsImported() { return rowsImported; }
+    public long getRowsSkipped() { return rowsSkipped; }
+    public boolean isCancelled() { return cancelled; }
+    public List<String> getErrors() { return errors; }
+    public long getElapsedNanos() { return elapsedNanos; }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : rowsImported * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d rows imported, %d skipped%s (%.0f rows/s)",
+                rowsImported, rowsSkipped, cancelled ? ", cancelled" : "", getRowsPerSecond());
+    }
+}
@@ -0,0 +1,38 @@
+package com.MoneyMind.projet_javafx.controllers;
+
+import javafx.concurrent.Task;
+
+import java.nio.file.Path;
+
+/**
+ * JavaFX wrapper around {@link CsvTransactionImporter}: progress and message
+ * properties can be bound directly by the UI (e.g. a ProgressBar).
+ */
+public class CsvImportTask extends Task<CsvImportSummary> {
+    private final CsvTransactionImporter importer;
+    private final User user;
+    private final Path file;
+
+    public CsvImportTask(CsvTransactionImporter importer, User user, Path file) {
+        this.importer = importer;
+        this.user = user;
+        this.file = file;
+    }
+
+    @Override
+    protected CsvImportSummary call() throws Exception {
+        updateMessage("Importing " + file.getFileName() + "...");
+        CsvImportSummary summary = importer.importFile(user, file, progress -> {
+            updateProgress(progress.getBytesRead(), progress.getTotalBytes());
+            updateMessage(progress.getRowsImported() + " rows imported");
+        });
+        updateProgress(1, 1);
+        updateMessage(summary.toString());
+        return summary;
+    }
+
+    @Override
+    protected void cancelled() {
+        importer.cancel();
+    }
+}
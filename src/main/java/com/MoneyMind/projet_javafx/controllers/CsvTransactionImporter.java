@@ -0,0 +1,259 @@
+package com.MoneyMind.projet_javafx.controllers;
+
+import com.opencsv.CSVParserBuilder;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.exceptions.CsvValidationException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Streams a bank CSV export into the database.
+ *
+ * A reader thread parses rows lazily with {@link CSVReader} and hands fixed-size
+ * batches to the calling thread through a bounded queue; the calling thread writes
+ * each batch with {@link DataStorage#addTransactions(User, List, boolean)}. When the
+ * database falls behind, the queue fills up and the reader blocks, so at most
+ * {@code (maxPendingBatches + 2) * batchSize} rows are held in memory whatever the file size.
+ */
+public class CsvTransactionImporter {
+
+    /**
+     * Called on the importing thread after each committed batch.
+     */
+    public interface ProgressListener {
+        void onProgress(Progress progress);
+    }
+
+    public static class Progress {
+        private final long rowsImported;
+        private final long rowsSkipped;
+        private final long bytesRead;
+        private final long totalBytes;
+
+        Progress(long rowsImported, long rowsSkipped, long bytesRead, long totalBytes) {
+            this.rowsImported = rowsImported;
+            this.rowsSkipped = rowsSkipped;
+            this.bytesRead = bytesRead;
+            this.totalBytes = totalBytes;
+        }
+
+        public long getRowsImported() { return rowsImported; }
+        public long getRowsSkipped() { return rowsSkipped; }
+        public long getBytesRead() { return bytesRead; }
+        public long getTotalBytes() { return totalBytes; }
+
+        public double getFraction() {
+            return totalBytes <= 0 ? 0.0 : Math.min(1.0, (double) bytesRead / totalBytes);
+        }
+    }
+
+    private static final int MAX_REPORTED_ERRORS = 20;
+    private static final Batch END = new Batch(List.of(), 0, 0);
+
+    private final DataStorage dataStorage;
+    private final CsvColumnMapping mapping;
+    private final int batchSize;
+    private final int maxPendingBatches;
+    private volatile boolean cancelled;
+
+    public CsvTransactionImporter(DataStorage dataStorage, CsvColumnMapping mapping) {
+        this(dataStorage, mapping, 1_000, 2);
+    }
+
+    public CsvTransactionImporter(DataStorage dataStorage, CsvColumnMapping mapping, int batchSize, int maxPendingBatches) {
+        this.dataStorage = dataStorage;
+        this.mapping = mapping;
+        this.batchSize = batchSize;
+        this.maxPendingBatches = maxPendingBatches;
+    }
+
+    /**
+     * Imports every valid row of {@code file} for {@code user}. Each batch commits on
+     * its own, so a failure or cancellation keeps the batches already written.
+     */
+    public CsvImportSummary importFile(User user, Path file, ProgressListener listener) throws IOException, SQLException {
+        long start = System.nanoTime();
+        long totalBytes = Files.size(file);
+        Set<String> knownCategories = new HashSet<>(dataStorage.getAllCategories());
+
+        BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(maxPendingBatches);
+        AtomicReference<Exception> readerFailure = new AtomicReference<>();
+        List<String> errors = new ArrayList<>();
+
+        Thread reader = new Thread(() -> {
+            try {
+                readBatches(file, knownCategories, queue, errors);
+            } catch (InterruptedException e) {
+                return; // stopped by the writing side
+            } catch (Exception e) {
+                readerFailure.set(e);
+            }
+            try {
+                queue.put(END);
+            } catch (InterruptedException ignored) {
+                // the writing side already stopped
+            }
+        }, "csv-import-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        long imported = 0;
+        long skipped = 0;
+        try {
+            while (!cancelled) {
+                Batch batch = queue.take();
+                if (batch == END) break;
+                if (!batch.rows.isEmpty()) {
+                    dataStorage.addTransactions(user, batch.rows, false);
+                    imported += batch.rows.size();
+                }
+                skipped = batch.skippedSoFar;
+                if (listener != null) {
+                    listener.onProgress(new Progress(imported, skipped, batch.bytesRead, totalBytes));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled = true;
+        } finally {
+            reader.interrupt();
+        }
+
+        Exception failure = readerFailure.get();
+        if (failure instanceof IOException io) throw io;
+        if (failure != null) throw new IOException("Unreadable CSV file: " + failure.getMessage(), failure);
+
+        synchronized (errors) {
+            return new CsvImportSummary(imported, skipped, cancelled, new ArrayList<>(errors), System.nanoTime() - start);
+        }
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private void readBatches(Path file, Set<String> knownCategories, BlockingQueue<Batch> queue, List<String> errors)
+            throws IOException, CsvValidationException, InterruptedException {
+        CountingInputStream counter = new CountingInputStream(Files.newInputStream(file));
+        Reader in = new BufferedReader(new InputStreamReader(counter, StandardCharsets.UTF_8));
+        try (CSVReader csv = new CSVReaderBuilder(in)
+                .withCSVParser(new CSVParserBuilder().withSeparator(mapping.getSeparator()).build())
+                .build()) {
+
+            if (mapping.hasHeader()) {
+                String[] header = csv.readNext();
+                if (header == null) return;
+                mapping.resolve(header);
+            }
+
+            List<Transaction> rows = new ArrayList<>(batchSize);
+            long skipped = 0;
+            String[] line;
+            while (!cancelled && (line = csv.readNext()) != null) {
+                try {
+                    rows.add(toTransaction(line, knownCategories));
+                } catch (RuntimeException e) {
+                    skipped++;
+                    synchronized (errors) {
+                        if (errors.size() < MAX_REPORTED_ERRORS) {
+                            errors.add("Line " + csv.getLinesRead() + ": " + e.getMessage());
+                        }
+                    }
+                }
+                if (rows.size() == batchSize) {
+                    queue.put(new Batch(rows, counter.getCount(), skipped));
+                    rows = new ArrayList<>(batchSize);
+                }
+            }
+            queue.put(new Batch(rows, counter.getCount(), skipped));
+        }
+    }
+
+    private Transaction toTransaction(String[] line, Set<String> knownCategories) {
+        String name = column(line, mapping.getNameColumn()).trim();
+        if (name.isEmpty()) throw new IllegalArgumentException("empty name");
+
+        long amount;
+        try {
+            amount = mapping.parseAmount(column(line, mapping.getAmountColumn()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid amount");
+        }
+
+        LocalDate date;
+        try {
+            date = LocalDate.parse(column(line, mapping.getDateColumn()).trim(), mapping.getDateFormat());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("invalid date");
+        }
+
+        String category = mapping.getCategoryColumn() == CsvColumnMapping.ABSENT
+                ? "" : column(line, mapping.getCategoryColumn()).trim();
+        if (category.isEmpty() || !knownCategories.contains(category)) {
+            String fallback = mapping.getDefaultCategory();
+            if (fallback == null || !knownCategories.contains(fallback)) {
+                throw new IllegalArgumentException("unknown category '" + category + "'");
+            }
+            category = fallback;
+        }
+        return new Transaction(name, amount, category, date);
+    }
+
+    private static String column(String[] line, int index) {
+        if (index < 0 || index >= line.length) throw new IllegalArgumentException("missing column " + index);
+        return line[index];
+    }
+
+    private static class Batch {
+        private final List<Transaction> rows;
+        private final long bytesRead;
+        private final long skippedSoFar;
+
+        Batch(List<Transaction> rows, long bytesRead, long skippedSoFar) {
+            this.rows = rows;
+            this.bytesRead = bytesRead;
+            this.skippedSoFar = skippedSoFar;
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private final AtomicLong count = new AtomicLong();
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count.incrementAndGet();
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int off, int len) throws IOException {
+            int n = super.read(buffer, off, len);
+            if (n > 0) count.addAndGet(n);
+            return n;
+        }
+
+        long getCount() {
+            return count.get();
+        }
+    }
+}
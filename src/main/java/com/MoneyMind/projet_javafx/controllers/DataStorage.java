@@ -1,24 +1,160 @@
 package com.MoneyMind.projet_javafx.controllers;
 
+import com.MoneyMind.projet_javafx.db.CategoryDictionary;
+import com.MoneyMind.projet_javafx.db.ChangeFeed;
+import com.MoneyMind.projet_javafx.db.ConnectionPool;
+import com.MoneyMind.projet_javafx.db.Ledger;
+import com.MoneyMind.projet_javafx.db.MonthlyTotalsDAO;
+import com.MoneyMind.projet_javafx.db.RowChange;
 import com.MoneyMind.projet_javafx.db.SQliteConnector;
+import com.MoneyMind.projet_javafx.db.ShardRouter;
+import com.MoneyMind.projet_javafx.db.TransactionArchive;
+import com.MoneyMind.projet_javafx.db.TransactionSearch;
+import com.MoneyMind.projet_javafx.db.UserDAO;
 import java.sql.*;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
 
 public class DataStorage {
 
+    // Rows sent to SQLite per executeBatch() call during bulk inserts
+    private static final int BATCH_SIZE = 500;
+
+    // ==================== Requêtes ====================
+    // Kept as constants so the query-plan audit (see queryCatalog) checks exactly what runs
+
+    private static final String SELECT_USERNAME_EXISTS =
+            "SELECT 1 FROM users WHERE username = ?";
+    private static final String SELECT_TOTAL_LIMIT =
+            "SELECT total_limit FROM users WHERE user_id = ?";
+    private static final String UPDATE_TOTAL_LIMIT =
+            "UPDATE users SET total_limit = ? WHERE user_id = ?";
+    static final String ADD_TO_TOTAL_LIMIT =
+            "UPDATE users SET total_limit = total_limit + ? WHERE user_id = ?";
+    private static final String SELECT_USER_BUDGETS =
+            "SELECT b.name, b.amount, b.current FROM budgets b WHERE b.user_id = ?";
+    private static final String UPDATE_BUDGET_SPENDING =
+            "UPDATE budgets SET current = current + ? WHERE category_id = ? AND user_id = ? RETURNING budget_id, name, amount, current";
+    private static final String SELECT_BUDGET_IDS =
+            "SELECT budget_id, category_id FROM budgets WHERE user_id = ?";
+    private static final String INSERT_BUDGET =
+            "INSERT INTO budgets (user_id, category_id, name, amount, current, month_year) VALUES (?, ?, ?, ?, ?, ?) RETURNING budget_id";
+    private static final String DELETE_BUDGET =
+            "DELETE FROM budgets WHERE user_id = ? AND name = ? RETURNING budget_id, name, amount, current";
+    // Reads of transactions go through TransactionArchive.route: numbered parameters only,
+    // they are shared by the branches on archived years
+    private static final String SELECT_USER_TRANSACTIONS =
+            "SELECT t.transaction_id, t.name, t.amount, c.name as category, t.date FROM transactions t LEFT JOIN categories c ON t.category_id = c.category_id WHERE t.user_id = ?1";
+    private static final String SELECT_TRANSACTIONS_BETWEEN =
+            "SELECT t.transaction_id, t.name, t.amount, c.name as category, t.date FROM transactions t LEFT JOIN categories c ON t.category_id = c.category_id WHERE t.user_id = ?1 AND t.date BETWEEN ?2 AND ?3";
+    // Keyset pagination on (date, transaction_id): ?2/?4 are the last row of the previous page
+    // (start day and 0 for the first one), ?3 the last day, ?5 the page size; ?6 > 0 jumps ahead
+    private static final String SELECT_TRANSACTION_PAGE = """
+            SELECT t.transaction_id, t.name, t.amount, c.name as category, t.date
+            FROM transactions t LEFT JOIN categories c ON t.category_id = c.category_id
+            WHERE t.user_id = ?1 AND t.date >= ?2 AND t.date <= ?3 AND (t.date > ?2 OR t.transaction_id > ?4)
+            ORDER BY t.date, t.transaction_id LIMIT ?5 OFFSET ?6""";
+    private static final String SELECT_TRANSACTION_PAGE_IN_CATEGORY = """
+            SELECT t.transaction_id, t.name, t.amount, c.name as category, t.date
+            FROM transactions t LEFT JOIN categories c ON t.category_id = c.category_id
+            WHERE t.user_id = ?1 AND t.category_id = (SELECT category_id FROM categories WHERE name = ?7)
+              AND t.date >= ?2 AND t.date <= ?3 AND (t.date > ?2 OR t.transaction_id > ?4)
+            ORDER BY t.date, t.transaction_id LIMIT ?5 OFFSET ?6""";
+    // Full-text search (see TransactionSearch): per file, the latest ?8 matches of the user in
+    // index order, no sort; the branches are merged, ranked, and the page cut from the result.
+    // CROSS JOIN keeps the index outside: driven by (user_id, date), MATCH would run per row
+    private static final String SEARCH_WINDOW = """
+            SELECT * FROM (
+                SELECT t.transaction_id, t.name, t.amount, t.category_id, t.date, f.rank AS rank
+                FROM transactions_fts f CROSS JOIN transactions t ON t.transaction_id = f.rowid
+                WHERE f.transactions_fts MATCH ?1 AND t.user_id = ?2 AND t.date >= ?3 AND t.date <= ?4
+                  AND (?5 IS NULL OR t.category_id = (SELECT category_id FROM categories WHERE name = ?5))
+                ORDER BY f.rowid DESC LIMIT ?8)""";
+    private static final String SEARCH_TRANSACTIONS = """
+            SELECT w.transaction_id, w.name, w.amount, c.name as category, w.date
+            FROM (%s) w LEFT JOIN categories c ON w.category_id = c.category_id
+            ORDER BY w.rank, w.date DESC, w.transaction_id DESC LIMIT ?6 OFFSET ?7""";
+    static final String INSERT_TRANSACTION =
+            "INSERT INTO transactions (user_id, name, amount, category_id, date, type) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String LAST_INSERT_ID = "SELECT last_insert_rowid()";
+    // ?2 is a JSON array of ids: one statement, one primary-key lookup per id, however many
+    private static final String DELETE_TRANSACTIONS_BY_ID = """
+            DELETE FROM transactions
+            WHERE user_id = ?1 AND transaction_id IN (SELECT value FROM json_each(?2))
+            RETURNING transaction_id, name, amount, COALESCE(category_id, 0) AS category_id, date""";
+    private static final String SELECT_TRANSACTIONS_BY_NAME =
+            "SELECT transaction_id FROM transactions WHERE user_id = ? AND name = ?";
+    private static final String INSERT_RECURRING_RULE = """
+            INSERT INTO recurring_rules (user_id, name, amount, category_id, frequency, every, start_date, end_date, occurrences, next_due)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) RETURNING rule_id""";
+    private static final String SELECT_RECURRING_RULES = """
+            SELECT r.rule_id, r.name, r.amount, c.name as category, r.frequency, r.every, r.start_date, r.end_date, r.occurrences, r.next_due
+            FROM recurring_rules r JOIN categories c ON r.category_id = c.category_id
+            WHERE r.user_id = ? ORDER BY r.rule_id""";
+    private static final String DELETE_RECURRING_RULE =
+            "DELETE FROM recurring_rules WHERE user_id = ? AND rule_id = ?";
+    private static final String SELECT_TRANSACTION_BY_AMOUNT =
+            "SELECT t.transaction_id, t.name, t.amount, c.name as category, t.date FROM transactions t LEFT JOIN categories c ON t.category_id = c.category_id WHERE t.user_id = ?1 AND t.date >= ?2 AND t.date < ?3 AND t.amount = ?4 LIMIT 1";
+
     private User loggedUser;
-    private Connection connection;
+    private final ConnectionPool pool; // the directory in sharded mode
+    private final ShardRouter router; // null: one file holds every user
+    private final CategoryDictionary categories; // shared by every DataStorage on this pool
+    private final TransferEngine transfers;
+    // null: addTransaction commits on the caller's thread; otherwise one queue per user file
+    private List<TransactionWriteQueue> writeQueues;
 
     // ==================== Constructeur ====================
     public DataStorage() {
-        try {
-            this.connection = SQliteConnector.connect();
-            this.connection.setAutoCommit(false);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        this(SQliteConnector.pool(), SQliteConnector.router());
+    }
+
+    public DataStorage(ConnectionPool pool) {
+        this(pool, null);
+    }
+
+    /**
+     * Sharded mode: users, credentials and categories in the directory, everything else
+     * in the user's shard (see {@link ShardRouter}).
+     */
+    public DataStorage(ShardRouter router) {
+        this(router.directory(), router);
+    }
+
+    private DataStorage(ConnectionPool pool, ShardRouter router) {
+        this.pool = pool;
+        this.router = router;
+        this.categories = CategoryDictionary.of(pool);
+        this.transfers = router == null ? new TransferEngine(pool) : new ShardedTransferEngine(router);
+    }
+
+    // File holding the user's balance, budgets, transactions and ledger
+    private ConnectionPool poolFor(int userId) {
+        return router == null ? pool : router.shardFor(userId);
+    }
+
+    // Every file holding user data, for maintenance that covers all users
+    private List<ConnectionPool> userPools() {
+        return router == null ? List.of(pool) : router.shards();
+    }
+
+    // Years moved out of the user's file
+    private TransactionArchive archiveFor(int userId) {
+        return TransactionArchive.of(poolFor(userId));
     }
 
     // ==================== Méthodes Utilisateur ====================
@@ -29,28 +165,116 @@ public class DataStorage {
         }
 
         String sql = "INSERT INTO users (username, password) VALUES (?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setString(1, username);
-            pstmt.setString(2, password);
-            int affectedRows = pstmt.executeUpdate();
-            if (affectedRows == 0) return false;
-            ResultSet rs = pstmt.getGeneratedKeys();
-            if (rs.next()) {
-                int userId = rs.getInt(1);
-                this.loggedUser = new User(userId, username, password);
-                connection.commit();
-                return true;
+        try (Connection connection = pool.borrowWriter()) {
+            try (PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                pstmt.setString(1, username);
+                pstmt.setString(2, password);
+                int affectedRows = pstmt.executeUpdate();
+                if (affectedRows == 0) return false;
+                ResultSet rs = pstmt.getGeneratedKeys();
+                if (rs.next()) {
+                    int userId = rs.getInt(1);
+                    ChangeFeed changes = ChangeFeed.listening(connection);
+                    if (changes != null) changes.record(RowChange.balance(RowChange.Op.INSERT, userId, 0));
+                    connection.commit();
+                    // Replayed at the next start (ShardRouter.initialize) if this fails
+                    if (router != null) router.replicateUser(userId, username);
+                    this.loggedUser = new User(userId, username, password);
+                    return true;
+                }
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
             }
-        } catch (SQLException e) {
-            connection.rollback();
-            throw e;
         }
         return false;
     }
 
+    /**
+     * Checks the credentials and reads what the main window shows first (see
+     * {@link LoginSnapshot}) in one read transaction of the user's file, so budgets,
+     * balance, rollup and first page agree with each other. Sharded, the credentials are
+     * checked in the directory first. Does not log the user in. Blocking: run it through
+     * {@link BackgroundTasks}.
+     * @return null if no user has these credentials
+     */
+    public LoginSnapshot loadUserData(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        if (router == null) {
+            LoginSnapshot.Watch watch = new LoginSnapshot.Watch(pool.getChangeFeed());
+            try (Connection connection = pool.borrowSnapshot()) {
+                User user = UserDAO.findByCredentials(connection, username, password);
+                if (user == null) {
+                    watch.close();
+                    return null;
+                }
+                return loadUserData(connection, user, watch, start);
+            } catch (SQLException | RuntimeException e) {
+                watch.close();
+                throw e;
+            }
+        }
+        User user;
+        try (Connection connection = pool.borrowReader()) {
+            user = UserDAO.findByCredentials(connection, username, password);
+        }
+        if (user == null) return null;
+        LoginSnapshot.Watch watch = new LoginSnapshot.Watch(poolFor(user.getId()).getChangeFeed());
+        try (Connection connection = poolFor(user.getId()).borrowSnapshot();
+             PreparedStatement pstmt = connection.prepareStatement(SELECT_TOTAL_LIMIT)) {
+            pstmt.setInt(1, user.getId());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                user.setTotalLimit(rs.next() ? rs.getLong("total_limit") : 0);
+            }
+            return loadUserData(connection, user, watch, start);
+        } catch (SQLException | RuntimeException e) {
+            watch.close();
+            throw e;
+        }
+    }
+
+    private LoginSnapshot loadUserData(Connection connection, User user, LoginSnapshot.Watch watch, long start) throws SQLException {
+        List<Budget> budgets = selectBudgets(connection, user.getId());
+        List<MonthlyTotal> totals = MonthlyTotalsDAO.select(connection, user.getId(), YearMonth.of(1, 1), YearMonth.of(9999, 12));
+        TransactionQuery query = TransactionQuery.all(user.getId());
+        List<Transaction> lastRows = selectLastRows(connection, query, totals);
+        LoginSnapshot snapshot = new LoginSnapshot(user, budgets, categories.names(), totals, lastRows,
+                watch, System.nanoTime() - start);
+        user.setBudgets(snapshot.getBudgets());
+        return snapshot;
+    }
+
+    /**
+     * The rows of {@code query} from page {@link PagedTransactionList#lastPages} to the end,
+     * read from the first month holding them (found in the rollup): the older archives are
+     * not opened, and the offset only skips rows within that month.
+     */
+    private List<Transaction> selectLastRows(Connection connection, TransactionQuery query,
+                                             List<MonthlyTotal> totals) throws SQLException {
+        TreeMap<YearMonth, Integer> countsByMonth = new TreeMap<>();
+        for (MonthlyTotal total : totals) {
+            if (query.matches(total)) countsByMonth.merge(total.getMonth(), total.getCount(), Integer::sum);
+        }
+        int count = PagedTransactionList.count(query, totals);
+        int wanted = count - PagedTransactionList.lastPages(count) * PagedTransactionList.DEFAULT_PAGE_SIZE;
+        if (wanted == 0) return new ArrayList<>();
+
+        int inWindow = 0;
+        YearMonth from = null;
+        for (Map.Entry<YearMonth, Integer> month : countsByMonth.descendingMap().entrySet()) {
+            inWindow += month.getValue();
+            from = month.getKey();
+            if (inWindow >= wanted) break;
+        }
+        LocalDate windowStart = from.atDay(1);
+        String sql = TransactionArchive.route(SELECT_TRANSACTION_PAGE,
+                archiveFor(query.getUserId()).schemasBetween(windowStart, query.getEnd()));
+        return selectTransactionPage(connection, sql, query, windowStart, null, inWindow - wanted, wanted);
+    }
+
     public boolean usernameExists(String username) throws SQLException {
-        String sql = "SELECT 1 FROM users WHERE username = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = pool.borrowReader();
+             PreparedStatement pstmt = connection.prepareStatement(SELECT_USERNAME_EXISTS)) {
             pstmt.setString(1, username);
             ResultSet rs = pstmt.executeQuery();
             return rs.next();
@@ -61,130 +285,408 @@ public class DataStorage {
 
     public List<Budget> getUserBudgets() throws SQLException {
         if (loggedUser == null) return new ArrayList<>();
-        String sql = "SELECT b.name, b.amount, b.current FROM budgets b WHERE b.user_id = ?";
-        List<Budget> budgets = new ArrayList<>();
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, loggedUser.getId());
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                budgets.add(new Budget(rs.getString("name"), rs.getDouble("amount"), rs.getDouble("current")));
-            }
-        }
-        return budgets;
+        return getUserBudgets(loggedUser.getId());
     }
 
     // ==================== Méthodes Transaction ====================
 
-    public void addTransaction(User loggedUser, String name, double amount, String category, LocalDate date) throws SQLException {
+    public void addTransaction(User loggedUser, String name, long amount, String category, LocalDate date) throws SQLException {
         if (this.loggedUser == null) throw new IllegalStateException("Aucun utilisateur connecté");
+        if (writeQueues != null) {
+            Transaction transaction = new Transaction(name, amount, category, date);
+            awaitDurable(writeQueueFor(this.loggedUser.getId()).submit(this.loggedUser.getId(), transaction));
+            // On the caller's thread: the queue's writer thread never touches the User
+            mirrorInserted(this.loggedUser, transaction);
+            return;
+        }
 
-        String sql = """
-        INSERT INTO transactions (user_id, name, amount, category_id, date, type)
-        VALUES (?, ?, ?, ?, ?, ?)
-    """;
+        addTransactions(this.loggedUser, List.of(new Transaction(name, amount, category, date)));
+    }
 
+    /**
+     * Queues the insert when write-behind is enabled (see {@link #enableWriteBehind}),
+     * otherwise commits it right away.
+     * @return completes once the row is committed; the in-memory user is then updated only
+     *         without write-behind, the views follow {@link #subscribeChanges} either way
+     */
+    public CompletableFuture<Void> addTransactionAsync(User loggedUser, String name, long amount, String category, LocalDate date) {
+        if (this.loggedUser == null) throw new IllegalStateException("Aucun utilisateur connecté");
+        Transaction transaction = new Transaction(name, amount, category, date);
+        if (writeQueues != null) {
+            return writeQueueFor(this.loggedUser.getId()).submit(this.loggedUser.getId(), transaction);
+        }
         try {
-            int categoryId = -1;
-            boolean hasCategory = category != null && !category.isEmpty();
-            if (hasCategory) {
-                categoryId = getCategoryId(category);
+            addTransactions(this.loggedUser, List.of(transaction));
+            return CompletableFuture.completedFuture(null);
+        } catch (SQLException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Inserts many transactions for one user in a single write transaction.
+     * Categories are resolved once, rows go through JDBC batches and budget
+     * changes are summed per category so each budget is updated only once.
+     * @param user owner of the transactions
+     * @param transactions rows to insert (negative amounts are expenses)
+     * @return number of rows written and the throughput achieved
+     */
+    public BulkInsertResult addTransactions(User user, List<Transaction> transactions) throws SQLException {
+        return addTransactions(user, transactions, true);
+    }
+
+    /**
+     * Same as {@link #addTransactions(User, List)}; streaming imports pass
+     * {@code appendToUser = false} so the rows are not kept in the user's in-memory list.
+     */
+    public BulkInsertResult addTransactions(User user, List<Transaction> transactions, boolean appendToUser) throws SQLException {
+        long start = System.nanoTime();
+        if (transactions.isEmpty()) return new BulkInsertResult(0, 0);
+
+        // One mutable cell per category: summing never boxes
+        Map<String, long[]> budgetDeltas = new HashMap<>();
+        long totalLimitDelta;
+
+        try (Connection connection = poolFor(user.getId()).borrowWriter()) {
+            try {
+                Map<String, Integer> categoryIds = categories.ids();
+                totalLimitDelta = insertTransactions(connection, user.getId(), transactions, categoryIds, budgetDeltas);
+                applyDeltas(connection, user.getId(), categoryIds, budgetDeltas, totalLimitDelta);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
             }
-            String type = amount >= 0 ? "INCOME" : "EXPENSE";
+        }
 
-            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-                pstmt.setInt(1, this.loggedUser.getId());
-                pstmt.setString(2, name);
-                pstmt.setDouble(3, amount);
+        mirrorDeltas(user, budgetDeltas, totalLimitDelta);
+        if (appendToUser) user.getTransactions().addAll(transactions);
+
+        return new BulkInsertResult(transactions.size(), System.nanoTime() - start);
+    }
+
+    /**
+     * Batches the INSERTs for one user, journals them in the {@link Ledger}, updates the
+     * monthly rollup and sums the budget changes per category into {@code budgetDeltas}.
+     * Part of the caller's transaction: the caller commits.
+     * @return change to apply to the user's total limit (rows without category)
+     */
+    static long insertTransactions(Connection connection, int userId, List<Transaction> transactions,
+                                   Map<String, Integer> categoryIds, Map<String, long[]> budgetDeltas) throws SQLException {
+        long totalLimitDelta = 0;
+        MonthlyTotalsDAO.Delta rollup = new MonthlyTotalsDAO.Delta();
+        Map<Integer, List<Long>> budgetIds = selectBudgetIds(connection, userId);
+        LocalDate today = LocalDate.now();
+        try (PreparedStatement pstmt = connection.prepareStatement(INSERT_TRANSACTION)) {
+            int pending = 0;
+            int chunkStart = 0;
+            for (int i = 0; i < transactions.size(); i++) {
+                Transaction t = transactions.get(i);
+                String category = t.getCategory();
+                boolean hasCategory = category != null && !category.isEmpty();
+                long amount = t.getAmount();
+
+                pstmt.setInt(1, userId);
+                pstmt.setString(2, t.getName());
+                pstmt.setLong(3, amount);
                 if (hasCategory) {
+                    Integer categoryId = categoryIds.get(category);
+                    if (categoryId == null) throw new SQLException("Category not found: " + category);
                     pstmt.setInt(4, categoryId);
+                    long[] delta = budgetDeltas.computeIfAbsent(category, k -> new long[1]);
+                    delta[0] = Money.add(delta[0], amount);
+                    rollup.add(t.getDate(), categoryId, amount);
                 } else {
                     pstmt.setNull(4, java.sql.Types.INTEGER);
+                    totalLimitDelta = Money.subtract(totalLimitDelta, Money.abs(amount));
+                    rollup.add(t.getDate(), 0, amount);
                 }
-                pstmt.setString(5, date.toString());
-                pstmt.setString(6, type);
-                pstmt.executeUpdate();
+                pstmt.setLong(5, t.getDate().toEpochDay());
+                pstmt.setString(6, amount >= 0 ? "INCOME" : "EXPENSE");
+                pstmt.addBatch();
 
-                // Update budget or total
-                if (hasCategory) {
-                    updateBudgetSpending(categoryId, amount);
-
-                    // Update in-memory Budget object
-                    for (Budget b : this.loggedUser.getBudgets()) {
-                        if (b.getName().equals(category)) {
-                            if (amount < 0) { // Expense
-                                b.setCurrent(b.getCurrent() - Math.abs(amount));
-                            } else { // Income
-                                b.setCurrent(b.getCurrent() + amount);
-                            }
-                            break;
-                        }
-                    }
-                } else {
-                    // No category: subtract from total budget
-                    double newTotal = this.loggedUser.getTotalLimit() - Math.abs(amount);
-                    this.loggedUser.setTotalLimit(newTotal);
-                    updateUserTotalLimit(this.loggedUser, newTotal);
+                if (++pending == BATCH_SIZE) {
+                    pstmt.executeBatch();
+                    journal(connection, userId, transactions.subList(chunkStart, i + 1), categoryIds, budgetIds, today);
+                    chunkStart = i + 1;
+                    pending = 0;
                 }
+            }
+            if (pending > 0) {
+                pstmt.executeBatch();
+                journal(connection, userId, transactions.subList(chunkStart, transactions.size()), categoryIds, budgetIds, today);
+            }
+        }
+        MonthlyTotalsDAO.applyInserts(connection, userId, rollup);
+        return totalLimitDelta;
+    }
 
-                this.loggedUser.getTransactions().add(new Transaction(name, amount, category, date));
-                connection.commit();
+    /**
+     * One ledger entry per row just inserted, mirroring what applyDeltas does to the
+     * balances: each budget of the category moves by the amount, a row without category
+     * takes its absolute value off the user's total. Rows that move no balance are skipped.
+     * The rows, now that their ids are known, also go to the change feed.
+     */
+    private static void journal(Connection connection, int userId, List<Transaction> inserted,
+                                Map<String, Integer> categoryIds, Map<Integer, List<Long>> budgetIds,
+                                LocalDate today) throws SQLException {
+        // Called right after the batch: its ids are consecutive and end at the last one inserted
+        long transactionId;
+        try (PreparedStatement pstmt = connection.prepareStatement(LAST_INSERT_ID);
+             ResultSet rs = pstmt.executeQuery()) {
+            transactionId = (rs.next() ? rs.getLong(1) : 0) - inserted.size() + 1;
+        }
+        Ledger.Account external = Ledger.Account.external(userId);
+        ChangeFeed changes = ChangeFeed.listening(connection);
+        List<Ledger.Entry> entries = new ArrayList<>(inserted.size());
+        for (Transaction t : inserted) {
+            if (changes != null) {
+                changes.record(RowChange.transaction(RowChange.Op.INSERT, userId,
+                        new Transaction(transactionId, t.getName(), t.getAmount(), t.getCategory(), t.getDate())));
             }
-        } catch (SQLException e) {
-            connection.rollback();
-            throw e;
+            Ledger.Entry entry = new Ledger.Entry(userId, "TRANSACTION", transactionId++, t.getName());
+            String category = t.getCategory();
+            if (category != null && !category.isEmpty()) {
+                for (long budgetId : budgetIds.getOrDefault(categoryIds.get(category), List.of())) {
+                    entry.move(external, Ledger.Account.budget(budgetId), t.getAmount());
+                }
+            } else {
+                entry.move(Ledger.Account.user(userId), external, Money.abs(t.getAmount()));
+            }
+            entries.add(entry);
         }
+        Ledger.append(connection, entries, today);
     }
+
+    // category_id -> budget ids: UPDATE_BUDGET_SPENDING moves every budget of the category
+    private static Map<Integer, List<Long>> selectBudgetIds(Connection connection, int userId) throws SQLException {
+        Map<Integer, List<Long>> budgetIds = new HashMap<>();
+        try (PreparedStatement pstmt = connection.prepareStatement(SELECT_BUDGET_IDS)) {
+            pstmt.setInt(1, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    budgetIds.computeIfAbsent(rs.getInt("category_id"), k -> new ArrayList<>()).add(rs.getLong("budget_id"));
+                }
+            }
+        }
+        return budgetIds;
+    }
+
+    // One UPDATE per touched budget plus one for the total. Part of the caller's transaction
+    static void applyDeltas(Connection connection, int userId, Map<String, Integer> categoryIds,
+                            Map<String, long[]> budgetDeltas, long totalLimitDelta) throws SQLException {
+        for (Map.Entry<String, long[]> delta : budgetDeltas.entrySet()) {
+            updateBudgetSpending(connection, userId, categoryIds.get(delta.getKey()), delta.getValue()[0]);
+        }
+        if (totalLimitDelta != 0) {
+            try (PreparedStatement pstmt = connection.prepareStatement(ADD_TO_TOTAL_LIMIT)) {
+                pstmt.setLong(1, totalLimitDelta);
+                pstmt.setInt(2, userId);
+                pstmt.executeUpdate();
+            }
+            recordBalances(connection, List.of(userId));
+        }
+    }
+
+    /**
+     * Sends the balances of {@code userIds}, just moved by relative UPDATEs, to the change
+     * feed: they are read back from the row. Part of the caller's transaction.
+     */
+    static void recordBalances(Connection connection, Iterable<Integer> userIds) throws SQLException {
+        ChangeFeed changes = ChangeFeed.listening(connection);
+        if (changes == null) return;
+        try (PreparedStatement pstmt = connection.prepareStatement(SELECT_TOTAL_LIMIT)) {
+            for (int userId : userIds) {
+                pstmt.setInt(1, userId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) changes.record(RowChange.balance(RowChange.Op.UPDATE, userId, rs.getLong("total_limit")));
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends rows just written by one executeBatch() of INSERT_TRANSACTION to the change
+     * feed, with their ids: consecutive, ending at last_insert_rowid(). Call it right after
+     * the batch, before any other insert. Part of the caller's transaction.
+     * @param inserted owner and row, in batch order
+     */
+    static void recordInserted(Connection connection, List<Map.Entry<Integer, Transaction>> inserted) throws SQLException {
+        ChangeFeed changes = ChangeFeed.listening(connection);
+        if (changes == null || inserted.isEmpty()) return;
+        long transactionId;
+        try (PreparedStatement pstmt = connection.prepareStatement(LAST_INSERT_ID);
+             ResultSet rs = pstmt.executeQuery()) {
+            transactionId = (rs.next() ? rs.getLong(1) : 0) - inserted.size() + 1;
+        }
+        for (Map.Entry<Integer, Transaction> row : inserted) {
+            Transaction t = row.getValue();
+            changes.record(RowChange.transaction(RowChange.Op.INSERT, row.getKey(),
+                    new Transaction(transactionId++, t.getName(), t.getAmount(), t.getCategory(), t.getDate())));
+        }
+    }
+
+    // Mirror committed changes on the in-memory user
+    static void mirrorDeltas(User user, Map<String, long[]> budgetDeltas, long totalLimitDelta) {
+        for (Budget b : user.getBudgets()) {
+            long[] delta = budgetDeltas.get(b.getName());
+            if (delta != null) b.setCurrent(Money.add(b.getCurrent(), delta[0]));
+        }
+        user.setTotalLimit(Money.add(user.getTotalLimit(), totalLimitDelta));
+    }
+
+    // One committed row in the in-memory user, counted as insertTransactions does
+    private static void mirrorInserted(User user, Transaction transaction) {
+        String category = transaction.getCategory();
+        if (category != null && !category.isEmpty()) {
+            mirrorDeltas(user, Map.of(category, new long[]{transaction.getAmount()}), 0);
+        } else {
+            mirrorDeltas(user, Map.of(), Money.subtract(0, Money.abs(transaction.getAmount())));
+        }
+        user.getTransactions().add(transaction);
+    }
+
     public List<Transaction> getUserTransactions() throws SQLException {
         if (loggedUser == null) return new ArrayList<>();
-        String sql = "SELECT t.name, t.amount, c.name as category, t.date FROM transactions t LEFT JOIN categories c ON t.category_id = c.category_id WHERE t.user_id = ?";
         List<Transaction> transactions = new ArrayList<>();
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        String sql = TransactionArchive.route(SELECT_USER_TRANSACTIONS, archiveFor(loggedUser.getId()).schemas());
+        try (Connection connection = poolFor(loggedUser.getId()).borrowReader();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, loggedUser.getId());
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                transactions.add(new Transaction(
-                        rs.getString("name"),
-                        rs.getDouble("amount"),
-                        rs.getString("category"),
-                        LocalDate.parse(rs.getString("date"))
-                ));
+            readTransactions(pstmt.executeQuery(), transactions);
+        }
+        return transactions;
+    }
+
+    /**
+     * One page of the rows matching {@code query}, in (date, transaction_id) order.
+     *
+     * Sequential pages seek from the last row of the previous one through the
+     * (user_id, date) index, so reading page N costs the same as reading page 1.
+     * {@code skip} is only for jumping to a page whose predecessor is unknown.
+     *
+     * @param after last row of the previous page, or null to start at the beginning
+     * @param skip rows to pass over after {@code after}
+     */
+    public List<Transaction> getTransactionPage(TransactionQuery query, Transaction after, int skip, int limit) throws SQLException {
+        String sql = TransactionArchive.route(
+                query.getCategory() == null ? SELECT_TRANSACTION_PAGE : SELECT_TRANSACTION_PAGE_IN_CATEGORY,
+                archiveFor(query.getUserId()).schemasBetween(query.getStart(), query.getEnd()));
+        try (Connection connection = poolFor(query.getUserId()).borrowReader()) {
+            return selectTransactionPage(connection, sql, query, query.getStart(), after, skip, limit);
+        }
+    }
+
+    // from: first day read when there is no after row
+    private List<Transaction> selectTransactionPage(Connection connection, String sql, TransactionQuery query, LocalDate from,
+                                                    Transaction after, int skip, int limit) throws SQLException {
+        List<Transaction> transactions = new ArrayList<>(limit);
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, query.getUserId());
+            pstmt.setLong(2, (after == null ? from : after.getDate()).toEpochDay());
+            pstmt.setLong(3, query.getEnd().toEpochDay());
+            pstmt.setLong(4, after == null ? 0 : after.getId());
+            pstmt.setInt(5, limit);
+            pstmt.setInt(6, skip);
+            if (query.getCategory() != null) {
+                pstmt.setString(7, query.getCategory());
             }
+            readTransactions(pstmt.executeQuery(), transactions);
         }
         return transactions;
     }
 
-    // ==================== Méthodes Utilitaires ====================
+    /**
+     * The user's rows whose name or description contains every word of {@code text}, the
+     * last one possibly unfinished, best matches first, within the category and month of
+     * {@code query}. Ranking covers the latest {@link TransactionSearch#RANKED_WINDOW}
+     * matches (more when paging further): the cost follows that window, not the history.
+     * @param offset matches to skip, for the following pages
+     * @return at most {@code limit} rows; none if {@code text} has no word
+     */
+    public List<Transaction> searchTransactions(TransactionQuery query, String text, int offset, int limit) throws SQLException {
+        String match = TransactionSearch.matchExpression(text);
+        if (match == null) return new ArrayList<>();
+        TransactionArchive archive = archiveFor(query.getUserId());
+        archive.ensureSearchable();
+
+        StringBuilder windows = new StringBuilder(SEARCH_WINDOW);
+        for (String schema : archive.schemasBetween(query.getStart(), query.getEnd())) {
+            windows.append("\nUNION ALL\n").append(SEARCH_WINDOW.replace(
+                    "FROM transactions_fts f CROSS JOIN transactions t",
+                    "FROM " + schema + ".transactions_fts f CROSS JOIN " + schema + ".transactions t"));
+        }
 
-    private void loadUserData() throws SQLException {
-        // Implementation omitted for brevity
+        List<Transaction> transactions = new ArrayList<>(limit);
+        try (Connection connection = poolFor(query.getUserId()).borrowReader();
+             PreparedStatement pstmt = connection.prepareStatement(SEARCH_TRANSACTIONS.formatted(windows))) {
+            pstmt.setString(1, match);
+            pstmt.setInt(2, query.getUserId());
+            pstmt.setLong(3, query.getStart().toEpochDay());
+            pstmt.setLong(4, query.getEnd().toEpochDay());
+            pstmt.setString(5, query.getCategory());
+            pstmt.setInt(6, limit);
+            pstmt.setInt(7, offset);
+            pstmt.setInt(8, Math.max(TransactionSearch.RANKED_WINDOW, offset + limit));
+            readTransactions(pstmt.executeQuery(), transactions);
+        }
+        return transactions;
     }
+
+    // ==================== Méthodes Utilitaires ====================
+
     public void addCategory(String name, String type) throws SQLException {
         String sql = "INSERT INTO categories (name, type) VALUES (?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = pool.borrowWriter();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, name);
             pstmt.setString(2, type);
             pstmt.executeUpdate();
             connection.commit();
+        } finally {
+            categories.invalidate();
         }
+        if (router != null) router.syncCategories();
     }
-    private int getCategoryId(String categoryName) throws SQLException {
-        String sql = "SELECT category_id FROM categories WHERE name = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, categoryName);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) return rs.getInt("category_id");
+
+    // Part of the caller's transaction: the caller commits
+    private static void updateBudgetSpending(Connection connection, int userId, int categoryId, long amount) throws SQLException {
+        ChangeFeed changes = ChangeFeed.listening(connection);
+        try (PreparedStatement pstmt = connection.prepareStatement(UPDATE_BUDGET_SPENDING)) {
+            pstmt.setLong(1, amount);
+            pstmt.setInt(2, categoryId);
+            pstmt.setInt(3, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (changes != null && rs.next()) {
+                    changes.record(RowChange.budget(RowChange.Op.UPDATE, userId, rs.getLong("budget_id"),
+                            new Budget(rs.getString("name"), rs.getLong("amount"), rs.getLong("current"))));
+                }
+            }
         }
-        throw new SQLException("Category not found: " + categoryName);
     }
 
-    private void updateBudgetSpending(int categoryId, double amount) throws SQLException {
-        String sql = "UPDATE budgets SET current = current + ? WHERE category_id = ? AND user_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setDouble(1, amount);
-            pstmt.setInt(2, categoryId);
-            pstmt.setInt(3, loggedUser.getId());
-            pstmt.executeUpdate();
-            connection.commit();
+    /**
+     * Maps transaction_id, name, amount, category, date rows. Dates are stored as epoch
+     * days: no parsing, and rows of the same day (adjacent in date order) share one
+     * LocalDate; category names are interned through the category dictionary.
+     */
+    private void readTransactions(ResultSet rs, List<Transaction> out) throws SQLException {
+        categories.ids(); // loaded, so that intern() has something to share
+        long day = Long.MIN_VALUE;
+        LocalDate date = null;
+        while (rs.next()) {
+            long rowDay = rs.getLong("date");
+            if (rowDay != day) {
+                day = rowDay;
+                date = LocalDate.ofEpochDay(day);
+            }
+            out.add(new Transaction(
+                    rs.getLong("transaction_id"),
+                    rs.getString("name"),
+                    rs.getLong("amount"),
+                    categories.intern(rs.getString("category")),
+                    date
+            ));
         }
     }
 
@@ -193,20 +695,80 @@ public class DataStorage {
         return now.getMonthValue() + "-" + now.getYear();
     }
 
-    public void close() {
+    /**
+     * Switches {@link #addTransaction} to group commits through a {@link TransactionWriteQueue}:
+     * concurrent inserts share one COMMIT instead of paying one each.
+     */
+    public synchronized void enableWriteBehind(int capacity, int maxBatch, Duration maxDelay) {
+        if (writeQueues == null) {
+            List<TransactionWriteQueue> queues = new ArrayList<>();
+            for (ConnectionPool userPool : userPools()) {
+                queues.add(new TransactionWriteQueue(userPool, capacity, maxBatch, maxDelay));
+            }
+            writeQueues = List.copyOf(queues);
+        }
+    }
+
+    /**
+     * Commits what is still queued and returns to synchronous inserts.
+     */
+    public synchronized void disableWriteBehind() {
+        if (writeQueues != null) {
+            for (TransactionWriteQueue queue : writeQueues) {
+                queue.close();
+            }
+            writeQueues = null;
+        }
+    }
+
+    /**
+     * One queue per file holding users (one per shard), empty when write-behind is off.
+     */
+    public List<TransactionWriteQueue> getWriteQueues() {
+        List<TransactionWriteQueue> queues = writeQueues;
+        return queues == null ? List.of() : queues;
+    }
+
+    private TransactionWriteQueue writeQueueFor(int userId) {
+        return writeQueues.get(router == null ? 0 : router.shardIndex(userId));
+    }
+
+    private static void awaitDurable(CompletableFuture<Void> future) throws SQLException {
         try {
-            if (connection != null && !connection.isClosed()) connection.close();
-        } catch (SQLException e) {
-            e.printStackTrace();
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the commit", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sql) throw sql;
+            throw new SQLException(cause.getMessage(), cause);
         }
     }
 
+    public void close() {
+        disableWriteBehind();
+        if (router != null) router.close();
+        else pool.close();
+    }
+
     // ==================== Getters ====================
 
     public User getLoggedUser() {
         return loggedUser;
     }
 
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Null unless running sharded.
+     */
+    public ShardRouter getRouter() {
+        return router;
+    }
+
     public List<Budget> getBudgets() {
         try {
             return getUserBudgets();
@@ -224,146 +786,141 @@ public class DataStorage {
             return new ArrayList<>();
         }
     }
-// In DataStorage.java
+    public boolean transferMoney(String fromUsername, String toUsername, long amount) throws SQLException {
+        transfer(TransferRequest.of(fromUsername, toUsername, amount));
+        return true;
+    }
 
-    public boolean transferMoney(String fromUsername, String toUsername, double amount) throws SQLException {
-        if (amount <= 0) throw new IllegalArgumentException("Amount must be positive");
+    /**
+     * Runs one transfer through the {@link TransferEngine}; submitting the same request
+     * (same idempotency key) again moves nothing and reports it as replayed.
+     */
+    public TransferResult transfer(TransferRequest request) throws SQLException {
+        return transferAll(List.of(request)).get(0);
+    }
 
-        // Get both users
-        User fromUser = null, toUser = null;
-        String sql = "SELECT user_id, username, password, total_limit FROM users WHERE username = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, fromUsername);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                fromUser = new User(rs.getInt("user_id"), rs.getString("username"), rs.getString("password"), rs.getDouble("total_limit"));
-            }
-        }
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, toUsername);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                toUser = new User(rs.getInt("user_id"), rs.getString("username"), rs.getString("password"), rs.getDouble("total_limit"));
+    /**
+     * Applies every transfer or none of them, e.g. one payer paying many users.
+     */
+    public List<TransferResult> transferAll(List<TransferRequest> requests) throws SQLException {
+        List<TransferResult> results = transfers.transferAll(requests);
+        // Keep the logged user's in-memory balance in step with what was committed
+        User user = loggedUser;
+        if (user != null) {
+            for (TransferResult result : results) {
+                if (result.isReplayed()) continue;
+                TransferRequest request = result.getRequest();
+                if (request.getFromUsername().equals(user.getUsername())) {
+                    user.setTotalLimit(Money.subtract(user.getTotalLimit(), request.getAmount()));
+                }
+                if (request.getToUsername().equals(user.getUsername())) {
+                    user.setTotalLimit(Money.add(user.getTotalLimit(), request.getAmount()));
+                }
             }
         }
+        return results;
+    }
 
-        if (fromUser == null || toUser == null) throw new SQLException("User not found");
-
-        // Check balance
-        if (fromUser.getTotalLimit() < amount) throw new SQLException("Insufficient funds");
-
-        // Update balances
-        String updateSql = "UPDATE users SET total_limit = ? WHERE user_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(updateSql)) {
-            // Deduct from sender
-            pstmt.setDouble(1, fromUser.getTotalLimit() - amount);
-            pstmt.setInt(2, fromUser.getId());
-            pstmt.executeUpdate();
-
-            // Add to receiver
-            pstmt.setDouble(1, toUser.getTotalLimit() + amount);
-            pstmt.setInt(2, toUser.getId());
-            pstmt.executeUpdate();
-        }
-
-        // Get or create the "Transfer" category
-        int transferCategoryId = getOrCreateTransferCategoryId();
-
-        // Add a transaction record for both users
-        String insertSql = "INSERT INTO transactions (user_id, name, amount, category_id, date, type) VALUES (?, ?, ?, ?, ?, ?)";
-        String now = java.time.LocalDate.now().toString();
-        try (PreparedStatement pstmt = connection.prepareStatement(insertSql)) {
-            // Sender (expense)
-            pstmt.setInt(1, fromUser.getId());
-            pstmt.setString(2, "Transfer to " + toUsername);
-            pstmt.setDouble(3, -amount);
-            pstmt.setInt(4, transferCategoryId);
-            pstmt.setString(5, now);
-            pstmt.setString(6, "EXPENSE");
-            pstmt.executeUpdate();
-
-            // Receiver (income)
-            pstmt.setInt(1, toUser.getId());
-            pstmt.setString(2, "Transfer from " + fromUsername);
-            pstmt.setDouble(3, amount);
-            pstmt.setInt(4, transferCategoryId);
-            pstmt.setString(5, now);
-            pstmt.setString(6, "INCOME");
-            pstmt.executeUpdate();
-        }
-
-        connection.commit();
-        return true;
+    public TransferEngine getTransferEngine() {
+        return transfers;
     }
 
     // Helper method to get or create the "Transfer" category
     public int getOrCreateTransferCategoryId() throws SQLException {
-        String name = "Transfer";
-        String type = "INCOME"; // or "EXPENSE", as you wish
-
-        // Try to get the category id
-        String sql = "SELECT category_id FROM categories WHERE name = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, name);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return rs.getInt("category_id");
-            }
-        }
-
-        // If not found, insert it
-        sql = "INSERT INTO categories (name, type) VALUES (?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, name);
-            pstmt.setString(2, type);
-            pstmt.executeUpdate();
-        }
-
-        // Now fetch the new id
-        try (PreparedStatement pstmt = connection.prepareStatement("SELECT category_id FROM categories WHERE name = ?")) {
-            pstmt.setString(1, name);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return rs.getInt("category_id");
-            }
-        }
-        throw new SQLException("Failed to create or retrieve Transfer category");
+        if (router != null) return router.getOrCreateCategory("Transfer", "INCOME");
+        return categories.getOrCreate("Transfer", "INCOME");
     }
+
     public void removeBudget(String name) {
-        String sql = "DELETE FROM budgets WHERE user_id = ? AND name = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, loggedUser.getId());
-            pstmt.setString(2, name);
-            pstmt.executeUpdate();
-            connection.commit();
+        int userId = loggedUser.getId();
+        try (Connection connection = poolFor(userId).borrowWriter()) {
+            try {
+                // What the deleted budgets still held goes back outside, in the ledger
+                Ledger.Entry entry = new Ledger.Entry(userId, "ADJUSTMENT", 0, "Budget removed: " + name);
+                ChangeFeed changes = ChangeFeed.listening(connection);
+                try (PreparedStatement pstmt = connection.prepareStatement(DELETE_BUDGET)) {
+                    pstmt.setInt(1, userId);
+                    pstmt.setString(2, name);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            entry.move(Ledger.Account.budget(rs.getLong("budget_id")),
+                                    Ledger.Account.external(userId), rs.getLong("current"));
+                            if (changes != null) {
+                                changes.record(RowChange.budget(RowChange.Op.DELETE, userId, rs.getLong("budget_id"),
+                                        new Budget(rs.getString("name"), rs.getLong("amount"), rs.getLong("current"))));
+                            }
+                        }
+                    }
+                }
+                Ledger.append(connection, entry, LocalDate.now());
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
-    public void updateUserTotalLimit(User loggedUser, double totalBudgetAmount) throws SQLException {
-        String sql = "UPDATE users SET total_limit = ? WHERE user_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setDouble(1, totalBudgetAmount);
-            pstmt.setInt(2, loggedUser.getId());
-            pstmt.executeUpdate();
-            connection.commit();
+    /**
+     * Sets the user's total; the difference with the stored value is journaled as an adjustment.
+     */
+    public void updateUserTotalLimit(User loggedUser, long totalBudgetAmount) throws SQLException {
+        int userId = loggedUser.getId();
+        try (Connection connection = poolFor(userId).borrowWriter()) {
+            try {
+                long previous;
+                try (PreparedStatement pstmt = connection.prepareStatement(SELECT_TOTAL_LIMIT)) {
+                    pstmt.setInt(1, userId);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        if (!rs.next()) throw new SQLException("User not found: " + loggedUser.getUsername());
+                        previous = rs.getLong("total_limit");
+                    }
+                }
+                try (PreparedStatement pstmt = connection.prepareStatement(UPDATE_TOTAL_LIMIT)) {
+                    pstmt.setLong(1, totalBudgetAmount);
+                    pstmt.setInt(2, userId);
+                    pstmt.executeUpdate();
+                }
+                Ledger.append(connection, new Ledger.Entry(userId, "ADJUSTMENT", 0, "Total limit set")
+                        .move(Ledger.Account.external(userId), Ledger.Account.user(userId),
+                                Money.subtract(totalBudgetAmount, previous)), LocalDate.now());
+                ChangeFeed changes = ChangeFeed.listening(connection);
+                if (changes != null) changes.record(RowChange.balance(RowChange.Op.UPDATE, userId, totalBudgetAmount));
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
         }
     }
 
     public void addBudget(User loggedUser, Budget newBudget) {
-        String sql = "INSERT INTO budgets (user_id, category_id, name, amount, current, month_year) VALUES (?, ?, ?, ?, ?, ?)";
-        try {
-            int categoryId = getCategoryId(newBudget.getName());
-            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-                pstmt.setInt(1, loggedUser.getId());
+        int userId = loggedUser.getId();
+        try (Connection connection = poolFor(userId).borrowWriter()) {
+            int categoryId = categories.idOf(newBudget.getName());
+            try (PreparedStatement pstmt = connection.prepareStatement(INSERT_BUDGET)) {
+                pstmt.setInt(1, userId);
                 pstmt.setInt(2, categoryId);
                 pstmt.setString(3, newBudget.getName());
-                pstmt.setDouble(4, newBudget.getAmount());
-                pstmt.setDouble(5, newBudget.getCurrent());
+                pstmt.setLong(4, newBudget.getAmount());
+                pstmt.setLong(5, newBudget.getCurrent());
                 pstmt.setString(6, getCurrentMonthYear());
-                pstmt.executeUpdate();
+                long budgetId;
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    budgetId = rs.getLong("budget_id");
+                }
+                Ledger.append(connection, new Ledger.Entry(userId, "OPENING", budgetId, "Budget created: " + newBudget.getName())
+                        .move(Ledger.Account.external(userId), Ledger.Account.budget(budgetId), newBudget.getCurrent()),
+                        LocalDate.now());
+                ChangeFeed changes = ChangeFeed.listening(connection);
+                if (changes != null) changes.record(RowChange.budget(RowChange.Op.INSERT, userId, budgetId, newBudget));
                 connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -375,61 +932,444 @@ public class DataStorage {
     }
 
     public List<String> getAllCategories() throws SQLException {
-        String sql = "SELECT name FROM categories";
-        List<String> categories = new ArrayList<>();
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                categories.add(rs.getString("name"));
-            }
-        }
-        return categories;
+        return new ArrayList<>(categories.names());
+    }
+
+    /**
+     * Deletes one of the user's transactions; see {@link #removeTransactions}.
+     * @return false if the user has no transaction with that id
+     */
+    public boolean removeTransaction(User user, long transactionId) throws SQLException {
+        return removeTransactions(user, List.of(transactionId)) > 0;
     }
 
+    /**
+     * Deletes every transaction named {@code name}.
+     * @deprecated names are not unique: delete by id ({@link #removeTransaction(User, long)})
+     */
+    @Deprecated
     public void removeTransaction(User loggedUser, String name) {
-        String sql = "DELETE FROM transactions WHERE user_id = ? AND name = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, loggedUser.getId());
-            pstmt.setString(2, name);
-            pstmt.executeUpdate();
-            connection.commit();
+        try {
+            List<Long> ids = new ArrayList<>();
+            try (Connection connection = poolFor(loggedUser.getId()).borrowReader();
+                 PreparedStatement pstmt = connection.prepareStatement(SELECT_TRANSACTIONS_BY_NAME)) {
+                pstmt.setInt(1, loggedUser.getId());
+                pstmt.setString(2, name);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) ids.add(rs.getLong("transaction_id"));
+                }
+            }
+            removeTransactions(loggedUser, ids);
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Deletes the user's transactions with the given ids, archived years included, and
+     * undoes what their insertion did, in the same transaction: budgets of the category
+     * give the amount back, a row without category returns its absolute value to the
+     * total, each reversal is journaled in the {@link Ledger} and the monthly rollup
+     * loses the rows. Transfer records only moved the total through their transfer,
+     * which stands: deleting the record moves no balance.
+     * Ids that are unknown or belong to another user are ignored.
+     * @return number of rows deleted
+     */
+    public int removeTransactions(User user, Collection<Long> transactionIds) throws SQLException {
+        if (transactionIds.isEmpty()) return 0;
+        int userId = user.getId();
+        Set<Long> ids = new HashSet<>(transactionIds);
+        String idArray = ids.stream().map(String::valueOf).collect(Collectors.joining(",", "[", "]"));
+
+        Map<String, long[]> budgetDeltas = new HashMap<>();
+        long totalLimitDelta = 0;
+        int deleted = 0;
+
+        try (Connection connection = poolFor(userId).borrowWriter()) {
+            try {
+                Map<String, Integer> categoryIds = categories.ids();
+                Integer transferCategoryId = categoryIds.get(TransferEngine.TRANSFER_CATEGORY);
+                Map<Integer, List<Long>> budgetIds = selectBudgetIds(connection, userId);
+                MonthlyTotalsDAO.Delta rollup = new MonthlyTotalsDAO.Delta();
+                ChangeFeed changes = ChangeFeed.listening(connection);
+                Ledger.Account external = Ledger.Account.external(userId);
+                List<Ledger.Entry> entries = new ArrayList<>();
+
+                List<String> archives = archiveFor(userId).schemas();
+                List<String> tables = new ArrayList<>(List.of("transactions"));
+                for (String schema : archives) tables.add(schema + ".transactions");
+                for (String table : tables) {
+                    if (deleted == ids.size()) break;
+                    String sql = DELETE_TRANSACTIONS_BY_ID.replace("FROM transactions", "FROM " + table);
+                    try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                        pstmt.setInt(1, userId);
+                        pstmt.setString(2, idArray);
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            while (rs.next()) {
+                                deleted++;
+                                long transactionId = rs.getLong("transaction_id");
+                                String name = rs.getString("name");
+                                long amount = rs.getLong("amount");
+                                int categoryId = rs.getInt("category_id");
+                                LocalDate date = LocalDate.ofEpochDay(rs.getLong("date"));
+                                String category = categoryId == 0 ? null : categories.nameOf(categoryId);
+                                rollup.add(date, categoryId, amount);
+                                if (changes != null) {
+                                    changes.record(RowChange.transaction(RowChange.Op.DELETE, userId,
+                                            new Transaction(transactionId, name, amount, category, date)));
+                                }
+
+                                Ledger.Entry entry = new Ledger.Entry(userId, "TRANSACTION", transactionId,
+                                        "Transaction deleted: " + name);
+                                if (categoryId == 0) {
+                                    totalLimitDelta = Money.add(totalLimitDelta, Money.abs(amount));
+                                    entry.move(external, Ledger.Account.user(userId), Money.abs(amount));
+                                } else if (transferCategoryId == null || categoryId != transferCategoryId) {
+                                    long[] delta = budgetDeltas.computeIfAbsent(category, k -> new long[1]);
+                                    delta[0] = Money.subtract(delta[0], amount);
+                                    for (long budgetId : budgetIds.getOrDefault(categoryId, List.of())) {
+                                        entry.move(Ledger.Account.budget(budgetId), external, amount);
+                                    }
+                                }
+                                entries.add(entry);
+                            }
+                        }
+                    }
+                }
+
+                MonthlyTotalsDAO.applyDeletes(connection, userId, rollup, archives);
+                applyDeltas(connection, userId, categoryIds, budgetDeltas, totalLimitDelta);
+                Ledger.append(connection, entries, LocalDate.now());
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+
+        mirrorDeltas(user, budgetDeltas, totalLimitDelta);
+        user.getTransactions().removeIf(t -> ids.contains(t.getId()));
+        return deleted;
+    }
+
+    /**
+     * Every DAO query that filters rows, by name, for {@link com.MoneyMind.projet_javafx.db.QueryPlanVerifier}.
+     */
+    public static Map<String, String> queryCatalog() {
+        Map<String, String> queries = new LinkedHashMap<>();
+        queries.put("UserDAO.SELECT_BY_CREDENTIALS", UserDAO.SELECT_BY_CREDENTIALS);
+        queries.put("SELECT_USERNAME_EXISTS", SELECT_USERNAME_EXISTS);
+        queries.put("SELECT_TOTAL_LIMIT", SELECT_TOTAL_LIMIT);
+        queries.put("UPDATE_TOTAL_LIMIT", UPDATE_TOTAL_LIMIT);
+        queries.put("ADD_TO_TOTAL_LIMIT", ADD_TO_TOTAL_LIMIT);
+        queries.put("CategoryDictionary.SELECT_ALL", CategoryDictionary.SELECT_ALL);
+        queries.put("SELECT_USER_BUDGETS", SELECT_USER_BUDGETS);
+        queries.put("UPDATE_BUDGET_SPENDING", UPDATE_BUDGET_SPENDING);
+        queries.put("SELECT_BUDGET_IDS", SELECT_BUDGET_IDS);
+        queries.put("DELETE_BUDGET", DELETE_BUDGET);
+        queries.put("SELECT_USER_TRANSACTIONS", SELECT_USER_TRANSACTIONS);
+        queries.put("SELECT_TRANSACTIONS_BETWEEN", SELECT_TRANSACTIONS_BETWEEN);
+        queries.put("SELECT_TRANSACTION_PAGE", SELECT_TRANSACTION_PAGE);
+        queries.put("SELECT_TRANSACTION_PAGE_IN_CATEGORY", SELECT_TRANSACTION_PAGE_IN_CATEGORY);
+        queries.put("SEARCH_TRANSACTIONS", SEARCH_TRANSACTIONS.formatted(SEARCH_WINDOW));
+        queries.put("DELETE_TRANSACTIONS_BY_ID", DELETE_TRANSACTIONS_BY_ID);
+        queries.put("SELECT_TRANSACTIONS_BY_NAME", SELECT_TRANSACTIONS_BY_NAME);
+        queries.put("SELECT_TRANSACTION_BY_AMOUNT", SELECT_TRANSACTION_BY_AMOUNT);
+        queries.put("SELECT_RECURRING_RULES", SELECT_RECURRING_RULES);
+        queries.put("DELETE_RECURRING_RULE", DELETE_RECURRING_RULE);
+        queries.put("RecurringScheduler.SELECT_DUE_RULES", RecurringScheduler.SELECT_DUE_RULES);
+        queries.put("MonthlyTotalsDAO.SELECT_RANGE", MonthlyTotalsDAO.SELECT_RANGE);
+        queries.put("TransferEngine.SELECT_USER_ID", TransferEngine.SELECT_USER_ID);
+        queries.put("TransferEngine.SELECT_TRANSFER_BY_KEY", TransferEngine.SELECT_TRANSFER_BY_KEY);
+        queries.put("TransferEngine.DEBIT_IF_FUNDED", TransferEngine.DEBIT_IF_FUNDED);
+        queries.put("Ledger.SELECT_SNAPSHOT_AS_OF", Ledger.SELECT_SNAPSHOT_AS_OF);
+        queries.put("Ledger.SELECT_POSTINGS_AFTER", Ledger.SELECT_POSTINGS_AFTER);
+        return queries;
+    }
+
+    // ==================== Flux de changements ====================
+
+    /**
+     * Calls {@code listener} after every commit that changed rows of {@code userId}:
+     * its transactions, budgets and balance (see {@link ChangeFeed}), with those changes only.
+     * It runs on the committing thread, which still holds the writer: hand the changes off
+     * (see {@link ChangeStream}) and do not write from it.
+     */
+    public ChangeFeed.Subscription subscribeChanges(int userId, ChangeFeed.Listener listener) {
+        return poolFor(userId).getChangeFeed().subscribe(changes -> {
+            List<RowChange<?>> mine = new ArrayList<>(changes.size());
+            for (RowChange<?> change : changes) {
+                if (change.getUserId() == userId) mine.add(change);
+            }
+            if (!mine.isEmpty()) listener.onCommit(mine);
+        });
+    }
+
     // ==================== Assistant ====================
 
     public List<Transaction> getTransactionsBetweenDates(int userId, LocalDate start, LocalDate end) throws SQLException {
-        String sql = "SELECT t.name, t.amount, c.name as category, t.date FROM transactions t LEFT JOIN categories c ON t.category_id = c.category_id WHERE t.user_id = ? AND t.date BETWEEN ? AND ?";
         List<Transaction> transactions = new ArrayList<>();
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        String sql = TransactionArchive.route(SELECT_TRANSACTIONS_BETWEEN, archiveFor(userId).schemasBetween(start, end));
+        try (Connection connection = poolFor(userId).borrowReader();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, userId);
-            pstmt.setString(2, start.toString());
-            pstmt.setString(3, end.toString());
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                transactions.add(new Transaction(
-                        rs.getString("name"),
-                        rs.getDouble("amount"),
-                        rs.getString("category"),
-                        LocalDate.parse(rs.getString("date"))
-                ));
-            }
+            pstmt.setLong(2, start.toEpochDay());
+            pstmt.setLong(3, end.toEpochDay());
+            readTransactions(pstmt.executeQuery(), transactions);
         }
         return transactions;
     }
 
     public List<Budget> getUserBudgets(int userId) throws SQLException {
-        String sql = "SELECT b.name, b.amount, b.current FROM budgets b WHERE b.user_id = ?";
+        try (Connection connection = poolFor(userId).borrowReader()) {
+            return selectBudgets(connection, userId);
+        }
+    }
+
+    private static List<Budget> selectBudgets(Connection connection, int userId) throws SQLException {
         List<Budget> budgets = new ArrayList<>();
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement pstmt = connection.prepareStatement(SELECT_USER_BUDGETS)) {
             pstmt.setInt(1, userId);
             ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
-                budgets.add(new Budget(rs.getString("name"), rs.getDouble("amount"), rs.getDouble("current")));
+                budgets.add(new Budget(rs.getString("name"), rs.getLong("amount"), rs.getLong("current")));
             }
         }
         return budgets;
     }
-}
\ No newline at end of file
+
+    // ==================== Agrégats mensuels ====================
+
+    /**
+     * Pre-aggregated totals per month and category, months {@code from} to {@code to}
+     * inclusive. Reads O(categories × months) rows whatever the history size.
+     */
+    public List<MonthlyTotal> getMonthlyTotals(int userId, YearMonth from, YearMonth to) throws SQLException {
+        try (Connection connection = poolFor(userId).borrowReader()) {
+            return MonthlyTotalsDAO.select(connection, userId, from, to);
+        }
+    }
+
+    /**
+     * Every month of the user's history.
+     */
+    public List<MonthlyTotal> getMonthlyTotals(int userId) throws SQLException {
+        return getMonthlyTotals(userId, YearMonth.of(1, 1), YearMonth.of(9999, 12));
+    }
+
+    /**
+     * Largest expense of the month: the rollup gives its amount, one indexed lookup its row.
+     * @return null when the month has no expense
+     */
+    public Transaction getLargestExpense(int userId, YearMonth month, List<MonthlyTotal> monthTotals) throws SQLException {
+        Long smallest = null;
+        for (MonthlyTotal total : monthTotals) {
+            if (total.getExpenseCount() > 0 && (smallest == null || total.getMinAmount() < smallest)) {
+                smallest = total.getMinAmount();
+            }
+        }
+        if (smallest == null) return null;
+
+        List<Transaction> found = new ArrayList<>(1);
+        String sql = TransactionArchive.route(SELECT_TRANSACTION_BY_AMOUNT,
+                archiveFor(userId).schemasBetween(month.atDay(1), month.atEndOfMonth()));
+        try (Connection connection = poolFor(userId).borrowReader();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            pstmt.setLong(2, month.atDay(1).toEpochDay());
+            pstmt.setLong(3, month.plusMonths(1).atDay(1).toEpochDay());
+            pstmt.setLong(4, smallest);
+            readTransactions(pstmt.executeQuery(), found);
+        }
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    /**
+     * Recomputes the rollup from the transactions table.
+     */
+    public int rebuildMonthlyTotals() throws SQLException {
+        int rows = 0;
+        for (ConnectionPool userPool : userPools()) {
+            rows += MonthlyTotalsDAO.rebuild(userPool);
+        }
+        return rows;
+    }
+
+    /**
+     * @return keys of the rollup rows that disagree with the transactions table
+     */
+    public List<String> verifyMonthlyTotals() throws SQLException {
+        List<String> mismatches = new ArrayList<>();
+        for (ConnectionPool userPool : userPools()) {
+            mismatches.addAll(MonthlyTotalsDAO.verify(userPool));
+        }
+        return mismatches;
+    }
+
+    // ==================== Journal des soldes ====================
+
+    /**
+     * Balance of an account at the end of {@code asOf}, read from the ledger (last
+     * snapshot plus the postings after it).
+     * @param userId owner of the account, whose file holds its ledger
+     */
+    public long getBalanceAsOf(int userId, Ledger.Account account, LocalDate asOf) throws SQLException {
+        try (Connection connection = poolFor(userId).borrowReader()) {
+            return Ledger.balanceAsOf(connection, account, asOf);
+        }
+    }
+
+    /**
+     * @return unbalanced entries and balances that disagree with the ledger
+     */
+    public List<String> verifyLedger() throws SQLException {
+        List<String> problems = new ArrayList<>();
+        for (ConnectionPool userPool : userPools()) {
+            problems.addAll(Ledger.verify(userPool));
+        }
+        return problems;
+    }
+
+    /**
+     * Rewrites every balance and snapshot from the ledger.
+     * @return number of balances corrected
+     */
+    public int rebuildBalances() throws SQLException {
+        int corrected = 0;
+        for (ConnectionPool userPool : userPools()) {
+            corrected += Ledger.rebuild(userPool);
+        }
+        return corrected;
+    }
+
+    // ==================== Transactions récurrentes ====================
+
+    /**
+     * Stores a rule for {@code user} and, in the same transaction, writes its occurrences
+     * due on or before {@code today}; the later ones are left to {@link RecurringScheduler}.
+     * Budgets and the in-memory user are updated as for {@link #addTransactions}.
+     * @return id of the stored rule
+     */
+    public long addRecurringRule(User user, RecurringRule rule, LocalDate today) throws SQLException {
+        Map<String, Integer> categoryIds = categories.ids();
+        Integer categoryId = categoryIds.get(rule.getCategory());
+        if (categoryId == null) throw new SQLException("Category not found: " + rule.getCategory());
+        List<Transaction> due = RecurringScheduler.dueOccurrences(rule, today);
+        LocalDate nextDue = rule.occurrence(rule.getOccurrences() + due.size());
+
+        Map<String, long[]> budgetDeltas = new HashMap<>();
+        long totalLimitDelta;
+        long ruleId;
+        try (Connection connection = poolFor(user.getId()).borrowWriter()) {
+            try (PreparedStatement pstmt = connection.prepareStatement(INSERT_RECURRING_RULE)) {
+                pstmt.setInt(1, user.getId());
+                pstmt.setString(2, rule.getName());
+                pstmt.setLong(3, rule.getAmount());
+                pstmt.setInt(4, categoryId);
+                pstmt.setString(5, rule.getFrequency().name());
+                pstmt.setInt(6, rule.getEvery());
+                pstmt.setLong(7, rule.getStartDate().toEpochDay());
+                if (rule.getEndDate() == null) {
+                    pstmt.setNull(8, Types.INTEGER);
+                } else {
+                    pstmt.setLong(8, rule.getEndDate().toEpochDay());
+                }
+                pstmt.setInt(9, rule.getOccurrences() + due.size());
+                if (nextDue == null) {
+                    pstmt.setNull(10, Types.INTEGER);
+                } else {
+                    pstmt.setLong(10, nextDue.toEpochDay());
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    ruleId = rs.getLong(1);
+                }
+                totalLimitDelta = insertTransactions(connection, user.getId(), due, categoryIds, budgetDeltas);
+                applyDeltas(connection, user.getId(), categoryIds, budgetDeltas, totalLimitDelta);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+
+        mirrorDeltas(user, budgetDeltas, totalLimitDelta);
+        user.getTransactions().addAll(due);
+        return ruleId;
+    }
+
+    public List<RecurringRule> getRecurringRules(int userId) throws SQLException {
+        List<RecurringRule> rules = new ArrayList<>();
+        try (Connection connection = poolFor(userId).borrowReader();
+             PreparedStatement pstmt = connection.prepareStatement(SELECT_RECURRING_RULES)) {
+            pstmt.setInt(1, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    long endDay = rs.getLong("end_date");
+                    LocalDate endDate = rs.wasNull() ? null : LocalDate.ofEpochDay(endDay);
+                    long nextDay = rs.getLong("next_due");
+                    LocalDate nextDue = rs.wasNull() ? null : LocalDate.ofEpochDay(nextDay);
+                    rules.add(new RecurringRule(
+                            rs.getLong("rule_id"),
+                            rs.getString("name"),
+                            rs.getLong("amount"),
+                            rs.getString("category"),
+                            RecurringRule.Frequency.valueOf(rs.getString("frequency")),
+                            rs.getInt("every"),
+                            LocalDate.ofEpochDay(rs.getLong("start_date")),
+                            endDate,
+                            rs.getInt("occurrences"),
+                            nextDue));
+                }
+            }
+        }
+        return rules;
+    }
+
+    /**
+     * Stops a rule; the transactions it already wrote stay.
+     */
+    public boolean removeRecurringRule(User user, long ruleId) throws SQLException {
+        try (Connection connection = poolFor(user.getId()).borrowWriter();
+             PreparedStatement pstmt = connection.prepareStatement(DELETE_RECURRING_RULE)) {
+            pstmt.setInt(1, user.getId());
+            pstmt.setLong(2, ruleId);
+            int deleted = pstmt.executeUpdate();
+            connection.commit();
+            return deleted > 0;
+        }
+    }
+
+    /**
+     * Writes every recurring occurrence due on or before {@code today}, for all users
+     * (see {@link RecurringScheduler}). Budgets and balances change in the database; the
+     * logged user's views follow through {@link #subscribeChanges}.
+     * @return number of transactions written
+     */
+    public int materializeRecurring(LocalDate today) throws SQLException {
+        return new RecurringScheduler(userPools()).runDue(today);
+    }
+
+    // ==================== Archives ====================
+
+    /**
+     * Moves every year before {@code firstHotYear} out of the main file into its
+     * per-year archive (see {@link TransactionArchive}).
+     * @return number of rows moved
+     */
+    public int archiveTransactionsBefore(int firstHotYear) throws SQLException {
+        int moved = 0;
+        for (ConnectionPool userPool : userPools()) {
+            moved += TransactionArchive.of(userPool).archiveBefore(firstHotYear);
+        }
+        return moved;
+    }
+
+    public List<Integer> getArchivedYears() throws SQLException {
+        TreeSet<Integer> years = new TreeSet<>();
+        for (ConnectionPool userPool : userPools()) {
+            years.addAll(TransactionArchive.of(userPool).years());
+        }
+        return new ArrayList<>(years);
+    }
+}
@@ -0,0 +1,21 @@
+package com.MoneyMind.projet_javafx.controllers;
+
+import java.sql.SQLException;
+
+/**
+ * A transfer refused because its payer's balance does not cover it. The transaction
+ * was rolled back: nothing moved, and the idempotency keys of the call are free again.
+ */
+public class InsufficientFundsException extends SQLException {
+    private final int userId;
+
+    public InsufficientFundsException(int userId) {
+        super("Insufficient funds");
+        this.userId = userId;
+    }
+
+    /**
+     * The payer whose balance fell short.
+     */
+    public int getUserId() { return userId; }
+}
@@ -1,6 +1,5 @@
 package com.MoneyMind.projet_javafx.controllers;
 
-import com.MoneyMind.projet_javafx.db.UserDAO;
 import javafx.geometry.*;
 import javafx.scene.*;
 import javafx.scene.control.*;
@@ -19,6 +18,7 @@ public class LoginScene extends Styling {
     private StackPane headerStackPane;
 
     private Stage primaryStage;
+    private boolean loggingIn; // a login is reading the user's data
 
     public LoginScene(DataStorage dataStorage, Stage primaryStage) {
         this.dataStorage = dataStorage;
@@ -145,22 +145,32 @@ public class LoginScene extends Styling {
         return scene;
     }
 
+    /**
+     * Reads the user's data in the background (see {@link DataStorage#loadUserData}), then
+     * shows the main window with it.
+     * @return null: the main window is shown once the data is read
+     */
     @Override
     protected Scene loginButtonEvent(String username, String password) {
-        User user = UserDAO.getUserByCredentials(username, password);
-
-        if (user != null) {
-            dataStorage.setLoggedUser(user);
+        if (loggingIn) return null;
+        loggingIn = true;
+        BackgroundTasks.submit(() -> dataStorage.loadUserData(username, password), login -> {
+            loggingIn = false;
+            if (login == null) {
+                errorText.setText("Wrong username or password");
+                return;
+            }
+            dataStorage.setLoggedUser(login.getUser());
             // Pass primaryStage and loginScene to MainWindow
-            MainWindow mainWindow = new MainWindow(dataStorage, primaryStage, this.getScene());
+            MainWindow mainWindow = new MainWindow(dataStorage, primaryStage, this.getScene(), login);
             errorText.setText(" ");
             Scene mainWindowScene = mainWindow.createScene();
             primaryStage.setScene(mainWindowScene);
-            return mainWindowScene;
-        } else {
-            errorText.setText("Wrong username or password");
-            return null;
-        }
+        }, error -> {
+            loggingIn = false;
+            errorText.setText("Login failed: " + error.getMessage());
+        });
+        return null;
     }
 
     public Scene getScene() {
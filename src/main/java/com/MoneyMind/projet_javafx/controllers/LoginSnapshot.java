@@ -0,0 +1,112 @@
+package com.MoneyMind.projet_javafx.controllers;
+
+import com.MoneyMind.projet_javafx.db.ChangeFeed;
+import com.MoneyMind.projet_javafx.db.RowChange;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * What the main window shows first after login, read in one read transaction by
+ * {@link DataStorage#loadUserData}: the user and balance, budgets, categories, the
+ * monthly rollup and the newest rows of the transaction table.
+ *
+ * The lists never change. Budgets are handed out as fresh copies, so each tab owns the
+ * rows it edits; from there on the tabs follow {@link ChangeStream}. The rest of the
+ * history is paged in the background as the table scrolls (see {@link PagedTransactionList}).
+ *
+ * Commits that land between the read and the moment the tabs listen are not in the
+ * snapshot: {@link #isCurrent} tells, and the tabs then read everything again.
+ */
+public final class LoginSnapshot {
+
+    private final User user;
+    private final List<Budget> budgets;
+    private final List<String> categories;
+    private final List<MonthlyTotal> monthlyTotals;
+    private final List<Transaction> lastRows; // of TransactionQuery.all(user), see PagedTransactionList.lastPages
+    private final Watch watch;
+    private final long loadNanos;
+
+    LoginSnapshot(User user, List<Budget> budgets, List<String> categories, List<MonthlyTotal> monthlyTotals,
+                  List<Transaction> lastRows, Watch watch, long loadNanos) {
+        this.user = user;
+        this.budgets = List.copyOf(budgets);
+        this.categories = List.copyOf(categories);
+        this.monthlyTotals = List.copyOf(monthlyTotals);
+        this.lastRows = List.copyOf(lastRows);
+        this.watch = watch;
+        this.loadNanos = loadNanos;
+    }
+
+    // Users with commits since just before the read; subscribed first, so none is missed
+    static final class Watch implements ChangeFeed.Subscription {
+        private final Set<Integer> changedUsers = ConcurrentHashMap.newKeySet();
+        private final ChangeFeed.Subscription subscription;
+
+        Watch(ChangeFeed feed) {
+            this.subscription = feed.subscribe(changes -> {
+                for (RowChange<?> change : changes) changedUsers.add(change.getUserId());
+            });
+        }
+
+        boolean changed(int userId) {
+            return changedUsers.contains(userId);
+        }
+
+        @Override
+        public void close() {
+            subscription.close();
+        }
+    }
+
+    /**
+     * Whether nothing was committed for the user since the snapshot was read. Call it once
+     * the tabs listen to their {@link ChangeStream}, and only once: it stops watching.
+     */
+    public boolean isCurrent() {
+        watch.close();
+        return !watch.changed(user.getId());
+    }
+
+    /**
+     * The user to log in, with its balance and budgets as of the snapshot.
+     */
+    public User getUser() { return user; }
+
+    /**
+     * @return a new copy of the budget rows on each call
+     */
+    public List<Budget> getBudgets() {
+        List<Budget> copy = new ArrayList<>(budgets.size());
+        for (Budget b : budgets) copy.add(new Budget(b.getName(), b.getAmount(), b.getCurrent()));
+        return copy;
+    }
+
+    public List<String> getCategories() { return categories; }
+
+    /**
+     * Every month of the user's history, per category.
+     */
+    public List<MonthlyTotal> getMonthlyTotals() { return monthlyTotals; }
+
+    /**
+     * The transaction table as first shown: no filter, its newest rows loaded. The older
+     * pages are read as the table scrolls up.
+     */
+    public PagedTransactionList transactions(DataStorage dataStorage) {
+        return PagedTransactionList.of(dataStorage, TransactionQuery.all(user.getId()), monthlyTotals, lastRows);
+    }
+
+    public long getLoadNanos() { return loadNanos; }
+
+    public double getLoadMillis() { return loadNanos / 1_000_000.0; }
+
+    @Override
+    public String toString() {
+        return String.format("LoginSnapshot{user=%s, budgets=%d, categories=%d, months=%d, lastRows=%d, %.1f ms}",
+                user.getUsername(), budgets.size(), categories.size(), monthlyTotals.size(), lastRows.size(), getLoadMillis());
+    }
+}
@@ -4,7 +4,11 @@ import javafx.application.Application;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.scene.Scene;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.TabPane;
+import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
 import javafx.stage.Stage;
 
@@ -20,33 +24,51 @@ public class MainWindow {
     private DataStorage dataStorage;
     private Stage primaryStage;
     private Scene loginScene;
+    private LoginSnapshot login; // null: the tabs read their data
 
     public MainWindow(DataStorage dataStorage, Stage primaryStage, Scene loginScene) {
+        this(dataStorage, primaryStage, loginScene, null);
+    }
+
+    /**
+     * @param login the logged user's data as read at login (see {@link DataStorage#loadUserData});
+     *              the tabs show it without reading the database
+     */
+    public MainWindow(DataStorage dataStorage, Stage primaryStage, Scene loginScene, LoginSnapshot login) {
         this.dataStorage = dataStorage;
         this.primaryStage = primaryStage;
         this.loginScene = loginScene;
+        this.login = login;
     }
 
     public Scene createScene() {
         final int WIDTH = 750;
         final int HEIGHT = 450;
 
-        // 1. Create TransactionInput first (with null for budgetInputTab for now)
-        transactionInputTab = new TransactionInput(dataStorage, null);
-
-        // 2. Create BudgetInputTab and pass the TransactionInput reference
-        budgetInputTab = new BudgetInputTab(dataStorage, primaryStage, loginScene, transactionInputTab);
+        // One stream of the user's committed changes: every tab applies them instead of reloading
+        ChangeStream changes = new ChangeStream(dataStorage, dataStorage.getLoggedUser().getId());
+        // Listening from here on: a snapshot that missed commits is read again by the tabs
+        LoginSnapshot first = login != null && login.isCurrent() ? login : null;
+        login = null;
+        budgetInputTab = new BudgetInputTab(dataStorage, primaryStage, loginScene, changes, first);
+        transactionInputTab = new TransactionInput(dataStorage, changes, first);
 
-        // 3. Now set the BudgetInputTab reference in TransactionInput (if you need two-way communication)
-        transactionInputTab.setBudgetInputTab(budgetInputTab);
-
-        BudgetView budgetViewTab = new BudgetView(dataStorage);
-        TransactionView transactionViewTab = new TransactionView(dataStorage);
+        BudgetView budgetViewTab = new BudgetView(dataStorage, changes, first);
+        TransactionView transactionViewTab = new TransactionView(dataStorage, changes, first);
         TransferMoneyTab transferMoneyTab = new TransferMoneyTab(dataStorage);
         tp.getTabs().addAll(budgetInputTab, budgetViewTab, transactionInputTab, transactionViewTab, transferMoneyTab);
         tp.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
 
-        Scene scene = new Scene(tp, WIDTH, HEIGHT, Color.LIGHTBLUE);
+        // Small spinner in the tab header row while database or AI work is running
+        ProgressIndicator busyIndicator = new ProgressIndicator();
+        busyIndicator.setMaxSize(18, 18);
+        busyIndicator.setMouseTransparent(true);
+        busyIndicator.visibleProperty().bind(BackgroundTasks.busyProperty());
+        StackPane root = new StackPane(tp, busyIndicator);
+        StackPane.setAlignment(busyIndicator, Pos.TOP_RIGHT);
+        StackPane.setMargin(busyIndicator, new Insets(6, 8, 0, 0));
+
+        Scene scene = new Scene(root, WIDTH, HEIGHT, Color.LIGHTBLUE);
         scene.getStylesheets().add("stylesheet.css");
 
         return scene;
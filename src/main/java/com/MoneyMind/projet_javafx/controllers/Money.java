@@ -0,0 +1,86 @@
+package com.MoneyMind.projet_javafx.controllers;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Exact money arithmetic on {@code long} minor units (centimes).
+ *
+ * Amounts travel through the models, the DAO and the INTEGER columns of the schema
+ * as plain {@code long}s, so sums are exact and aggregating never boxes. This class
+ * only converts at the edges: parsing user input, formatting for display and
+ * producing {@code double}s for charts and ratios.
+ */
+public final class Money {
+    public static final int SCALE = 2;
+    public static final long MINOR_PER_MAJOR = 100;
+
+    private Money() {
+    }
+
+    /**
+     * Parses "1234.5", "-12,30" or "1 234.50" into minor units, rounding half-up beyond two decimals.
+     * @throws NumberFormatException if the text is not a number
+     */
+    public static long parse(String text) {
+        String cleaned = text.trim().replace(" ", "").replace("\u00A0", "").replace(',', '.');
+        try {
+            return new BigDecimal(cleaned)
+                    .setScale(SCALE, RoundingMode.HALF_UP)
+                    .unscaledValue()
+                    .longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount out of range: " + text);
+        }
+    }
+
+    /**
+     * Converts a legacy floating-point amount, rounding to the nearest centime.
+     */
+    public static long ofMajor(double amount) {
+        return Math.round(amount * MINOR_PER_MAJOR);
+    }
+
+    public static long ofMajor(long amount) {
+        return Math.multiplyExact(amount, MINOR_PER_MAJOR);
+    }
+
+    /**
+     * For charts and percentages only: never feed the result back into a stored amount.
+     */
+    public static double toMajor(long minor) {
+        return (double) minor / MINOR_PER_MAJOR;
+    }
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    public static long abs(long minor) {
+        return Math.absExact(minor);
+    }
+
+    /**
+     * {@code part / whole} as a ratio (0.5 = 50 %), 0 when {@code whole} is zero.
+     */
+    public static double ratio(long part, long whole) {
+        return whole == 0 ? 0.0 : (double) part / whole;
+    }
+
+    /**
+     * "1234.50", "-0.05": two decimals, no grouping, locale-independent.
+     */
+    public static String format(long minor) {
+        StringBuilder sb = new StringBuilder(24);
+        if (minor < 0) sb.append('-');
+        long abs = Math.abs(minor);
+        long fraction = abs % MINOR_PER_MAJOR;
+        sb.append(abs / MINOR_PER_MAJOR).append('.');
+        if (fraction < 10) sb.append('0');
+        return sb.append(fraction).toString();
+    }
+}
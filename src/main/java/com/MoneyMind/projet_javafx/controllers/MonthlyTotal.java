@@ -0,0 +1,57 @@
+package com.MoneyMind.projet_javafx.controllers;
+
+import java.time.YearMonth;
+
+/**
+ * One row of the {@code monthly_category_totals} rollup: a user's transactions of one
+ * category in one month, pre-aggregated. Amounts are in minor units (see {@link Money}).
+ */
+public final class MonthlyTotal {
+    private final YearMonth month;
+    private final String category; // null: transactions without category
+    private final long total;      // signed sum
+    private final long expenses;   // sum of the negative amounts, as a positive value
+    private final int count;
+    private final int expenseCount;
+    private final long minAmount;
+    private final long maxAmount;
+
+    public MonthlyTotal(YearMonth month, String category, long total, long expenses,
+                        int count, int expenseCount, long minAmount, long maxAmount) {
+        this.month = month;
+        this.category = category;
+        this.total = total;
+        this.expenses = expenses;
+        this.count = count;
+        this.expenseCount = expenseCount;
+        this.minAmount = minAmount;
+        this.maxAmount = maxAmount;
+    }
+
+    public YearMonth getMonth() { return month; }
+
+    public String getCategory() { return category; }
+
+    public long getTotal() { return total; }
+
+    public long getExpenses() { return expenses; }
+
+    public int getCount() { return count; }
+
+    public int getExpenseCount() { return expenseCount; }
+
+    public long getMinAmount() { return minAmount; }
+
+    public long getMaxAmount() { return maxAmount; }
+
+    @Override
+    public String toString() {
+        return "MonthlyTotal{" +
+            "month=" + month +
+            ", category=" + category +
+            ", total=" + Money.format(total) +
+            ", expenses=" + Money.format(expenses) +
+            ", count=" + count +
+            '}';
+    }
+}
@@ -0,0 +1,294 @@
+package com.MoneyMind.projet_javafx.controllers;
+
+import com.MoneyMind.projet_javafx.db.RowChange;
+import javafx.collections.ObservableListBase;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Read-only window over the rows of a {@link TransactionQuery}, as the items of a
+ * {@code TableView}.
+ *
+ * The list reports the full row count, taken from the monthly rollup, but holds only
+ * the pages the table asked for: at most {@code maxPages} pages of {@code pageSize}
+ * rows, least recently used dropped first. {@link #get} on a row whose page is not
+ * loaded returns null (drawn as a blank row) and fetches the page in the background;
+ * when it arrives its rows are reported as replaced and the table redraws them.
+ * Serving a page also prefetches the pages on either side, so steady scrolling
+ * rarely meets a blank row.
+ *
+ * A page is read by keyset from the last row of the nearest page already read
+ * before it (see {@link DataStorage#getTransactionPage}); only a jump of the
+ * scrollbar past unread pages skips rows by offset. Use from the FX thread only.
+ *
+ * Committed inserts and deletes are applied with {@link #applyChanges}: the count and
+ * total move by the changed rows, and only the loaded pages at or after the first
+ * changed row are dropped, to be read again when shown.
+ */
+public class PagedTransactionList extends ObservableListBase<Transaction> {
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int DEFAULT_MAX_PAGES = 20;
+
+    private final DataStorage dataStorage;
+    private final TransactionQuery query;
+    private int size; // moved by applyChanges
+    private long total;
+    private final int pageSize;
+    private final Map<Integer, List<Transaction>> pages;
+    // Last row of every page read so far: where the following pages start
+    private final TreeMap<Integer, Transaction> pageEnds = new TreeMap<>();
+    private final Set<Integer> loading = new HashSet<>();
+    private int generation; // pages read before the last applyChanges are stale
+    private boolean disposed;
+
+    private PagedTransactionList(DataStorage dataStorage, TransactionQuery query, int size, long total,
+                                 int pageSize, int maxPages, int firstPage, List<Transaction> rows) {
+        this.dataStorage = dataStorage;
+        this.query = query;
+        this.size = size;
+        this.total = total;
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Transaction>> eldest) {
+                return size() > maxPages;
+            }
+        };
+        // Rows read ahead, from the start of firstPage: split into pages
+        for (int from = 0; from < rows.size(); from += pageSize) {
+            store(firstPage + from / pageSize, rows.subList(from, Math.min(from + pageSize, rows.size())));
+        }
+    }
+
+    /**
+     * Counts the rows of {@code query} and reads its first page. Blocking: run it
+     * through {@link BackgroundTasks} and give the result to the table.
+     */
+    public static PagedTransactionList load(DataStorage dataStorage, TransactionQuery query) throws SQLException {
+        return load(dataStorage, query, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+    }
+
+    public static PagedTransactionList load(DataStorage dataStorage, TransactionQuery query,
+                                            int pageSize, int maxPages) throws SQLException {
+        if (pageSize < 1 || maxPages < 3) {
+            throw new IllegalArgumentException("pageSize must be positive and maxPages at least 3");
+        }
+        List<MonthlyTotal> totals = query.getMonth() == null
+                ? dataStorage.getMonthlyTotals(query.getUserId())
+                : dataStorage.getMonthlyTotals(query.getUserId(), query.getMonth(), query.getMonth());
+        int count = count(query, totals);
+        List<Transaction> firstPage = count == 0
+                ? List.of()
+                : dataStorage.getTransactionPage(query, null, 0, pageSize);
+        return new PagedTransactionList(dataStorage, query, count, sum(query, totals), pageSize, maxPages, 0, firstPage);
+    }
+
+    /**
+     * The list from rows already read, in one transaction, at login (see {@link LoginSnapshot}):
+     * {@code totals} must cover the months of {@code query} and {@code lastRows} be its rows
+     * from page {@link #lastPages}{@code (count)} to the end. No database access.
+     */
+    static PagedTransactionList of(DataStorage dataStorage, TransactionQuery query,
+                                   List<MonthlyTotal> totals, List<Transaction> lastRows) {
+        int count = count(query, totals);
+        return new PagedTransactionList(dataStorage, query, count, sum(query, totals),
+                DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES, lastPages(count), lastRows);
+    }
+
+    /**
+     * First of the pages that end the list and hold at least a page of rows: the newest
+     * rows, shown first, with {@link #DEFAULT_PAGE_SIZE} pages.
+     */
+    static int lastPages(int count) {
+        return Math.max(0, count - DEFAULT_PAGE_SIZE) / DEFAULT_PAGE_SIZE;
+    }
+
+    static int count(TransactionQuery query, List<MonthlyTotal> totals) {
+        int count = 0;
+        for (MonthlyTotal monthlyTotal : totals) {
+            if (query.matches(monthlyTotal)) count += monthlyTotal.getCount();
+        }
+        return count;
+    }
+
+    private static long sum(TransactionQuery query, List<MonthlyTotal> totals) {
+        long sum = 0;
+        for (MonthlyTotal monthlyTotal : totals) {
+            if (query.matches(monthlyTotal)) sum = Money.add(sum, monthlyTotal.getTotal());
+        }
+        return sum;
+    }
+
+    public TransactionQuery getQuery() { return query; }
+
+    /**
+     * Sum of every matching amount, loaded or not (minor units).
+     */
+    public long getTotal() { return total; }
+
+    public int getLoadedPages() { return pages.size(); }
+
+    /**
+     * Stops loading pages; called once the table shows another list.
+     */
+    public void dispose() {
+        disposed = true;
+        pages.clear();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the row, or null while its page is being read
+     */
+    @Override
+    public Transaction get(int index) {
+        Objects.checkIndex(index, size);
+        int page = index / pageSize;
+        List<Transaction> rows = pages.get(page);
+        if (rows == null) {
+            fetch(page);
+            return null;
+        }
+        fetch(page + 1);
+        fetch(page - 1);
+        int offset = index - page * pageSize;
+        // The table may have shrunk since the count was taken
+        return offset < rows.size() ? rows.get(offset) : null;
+    }
+
+    // Searching the whole list would read every page: only loaded rows are considered
+
+    @Override
+    public int indexOf(Object o) {
+        for (Map.Entry<Integer, List<Transaction>> entry : pages.entrySet()) {
+            int offset = entry.getValue().indexOf(o);
+            if (offset >= 0) return entry.getKey() * pageSize + offset;
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * Applies committed changes of the query's user.
+     * @return whether any of them was one of the query's rows
+     */
+    public boolean applyChanges(List<RowChange<Transaction>> changes) {
+        Transaction first = null; // earliest changed row, in (date, transaction_id) order
+        int added = 0;
+        for (RowChange<Transaction> change : changes) {
+            Transaction row = change.getRow();
+            if (change.getUserId() != query.getUserId() || !query.matches(row)) continue;
+            switch (change.getOp()) {
+                case INSERT -> {
+                    added++;
+                    total = Money.add(total, row.getAmount());
+                }
+                case DELETE -> {
+                    added--;
+                    total = Money.subtract(total, row.getAmount());
+                }
+                default -> {
+                }
+            }
+            if (first == null || compare(row, first) < 0) first = row;
+        }
+        if (first == null) return false;
+
+        // A page keeps its rows only if it is full and ends before the first changed row
+        int firstDirty = Integer.MAX_VALUE;
+        for (Map.Entry<Integer, List<Transaction>> entry : pages.entrySet()) {
+            List<Transaction> rows = entry.getValue();
+            if (rows.size() < pageSize || compare(rows.get(rows.size() - 1), first) >= 0) {
+                firstDirty = Math.min(firstDirty, entry.getKey());
+            }
+        }
+        Integer firstMovedEnd = null;
+        for (Map.Entry<Integer, Transaction> end : pageEnds.entrySet()) {
+            if (compare(end.getValue(), first) >= 0) {
+                firstMovedEnd = end.getKey();
+                break;
+            }
+        }
+        if (firstMovedEnd != null) {
+            firstDirty = Math.min(firstDirty, firstMovedEnd);
+            pageEnds.tailMap(firstMovedEnd).clear();
+        }
+        int oldSize = size;
+        size = Math.max(0, size + added);
+        int from = firstDirty == Integer.MAX_VALUE ? oldSize : Math.min(firstDirty * pageSize, oldSize);
+        int dropFrom = firstDirty;
+        pages.keySet().removeIf(page -> page >= dropFrom);
+        generation++;
+        loading.clear();
+
+        beginChange();
+        int common = Math.min(oldSize, size);
+        if (from < common) nextReplace(from, common, Collections.nCopies(common - from, null));
+        if (size > oldSize) nextAdd(oldSize, size);
+        if (size < oldSize) nextRemove(size, Collections.nCopies(oldSize - size, null));
+        endChange();
+        return true;
+    }
+
+    private static int compare(Transaction a, Transaction b) {
+        int byDate = a.getDate().compareTo(b.getDate());
+        return byDate != 0 ? byDate : Long.compare(a.getId(), b.getId());
+    }
+
+    private void fetch(int page) {
+        if (disposed || page < 0 || page * pageSize >= size || pages.containsKey(page) || !loading.add(page)) {
+            return;
+        }
+        Map.Entry<Integer, Transaction> before = pageEnds.lowerEntry(page);
+        Transaction after = before == null ? null : before.getValue();
+        int skip = (page - (before == null ? 0 : before.getKey() + 1)) * pageSize;
+
+        int asOf = generation;
+        BackgroundTasks.submit(() -> dataStorage.getTransactionPage(query, after, skip, pageSize), rows -> {
+            loading.remove(page);
+            if (disposed) return;
+            if (asOf != generation) {
+                fetch(page); // read before rows moved: read it again
+                return;
+            }
+            store(page, rows);
+            int from = page * pageSize;
+            int to = Math.min(from + pageSize, size);
+            beginChange();
+            nextReplace(from, to, Collections.nCopies(to - from, null));
+            endChange();
+        }, error -> {
+            loading.remove(page);
+            System.err.println("Failed to load transactions page " + page + ": " + error.getMessage());
+        });
+    }
+
+    private void store(int page, List<Transaction> rows) {
+        pages.put(page, rows);
+        if (rows.size() == pageSize) {
+            pageEnds.put(page, rows.get(rows.size() - 1));
+        }
+    }
+}
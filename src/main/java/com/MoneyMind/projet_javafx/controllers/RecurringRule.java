@@ -0,0 +1,104 @@
+package com.MoneyMind.projet_javafx.controllers;
+
+import java.time.LocalDate;
+
+/**
+ * A transaction that repeats: rent, salary, subscriptions. Occurrence {@code k} falls
+ * {@code k * every} weeks, months or years after {@code startDate}, counted from the
+ * start each time, so a rule starting on the 31st lands on the last day of shorter
+ * months and back on the 31st after them. Amounts are in minor units (see {@link Money}).
+ *
+ * {@link RecurringScheduler} writes the due occurrences as ordinary transactions.
+ */
+public final class RecurringRule {
+
+    public enum Frequency { WEEKLY, MONTHLY, YEARLY }
+
+    private final long id; // 0 until stored
+    private final String name;
+    private final long amount;
+    private final String category;
+    private final Frequency frequency;
+    private final int every;
+    private final LocalDate startDate;
+    private final LocalDate endDate; // null: no end
+    private final int occurrences; // already written
+    private final LocalDate nextDue; // null: ended
+
+    public RecurringRule(String name, long amount, String category, Frequency frequency, int every,
+                         LocalDate startDate, LocalDate endDate) {
+        this(0, name, amount, category, frequency, every, startDate, endDate, 0, startDate);
+    }
+
+    RecurringRule(long id, String name, long amount, String category, Frequency frequency, int every,
+                  LocalDate startDate, LocalDate endDate, int occurrences, LocalDate nextDue) {
+        if (category == null || category.isEmpty()) throw new IllegalArgumentException("Category required");
+        if (every <= 0) throw new IllegalArgumentException("Interval must be positive");
+        if (endDate != null && endDate.isBefore(startDate)) throw new IllegalArgumentException("Ends before it starts");
+        this.id = id;
+        this.name = name;
+        this.amount = amount;
+        this.category = category;
+        this.frequency = frequency;
+        this.every = every;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.occurrences = occurrences;
+        this.nextDue = nextDue;
+    }
+
+    /**
+     * Every month on the day of {@code startDate}, with no end.
+     */
+    public static RecurringRule monthly(String name, long amount, String category, LocalDate startDate) {
+        return new RecurringRule(name, amount, category, Frequency.MONTHLY, 1, startDate, null);
+    }
+
+    /**
+     * Date of occurrence {@code k} (0 is {@code startDate}), or null once past {@code endDate}.
+     */
+    public LocalDate occurrence(int k) {
+        long steps = (long) k * every;
+        LocalDate date = switch (frequency) {
+            case WEEKLY -> startDate.plusWeeks(steps);
+            case MONTHLY -> startDate.plusMonths(steps);
+            case YEARLY -> startDate.plusYears(steps);
+        };
+        return endDate != null && date.isAfter(endDate) ? null : date;
+    }
+
+    public long getId() { return id; }
+
+    public String getName() { return name; }
+
+    public long getAmount() { return amount; }
+
+    public String getCategory() { return category; }
+
+    public Frequency getFrequency() { return frequency; }
+
+    public int getEvery() { return every; }
+
+    public LocalDate getStartDate() { return startDate; }
+
+    public LocalDate getEndDate() { return endDate; }
+
+    public int getOccurrences() { return occurrences; }
+
+    public LocalDate getNextDue() { return nextDue; }
+
+    @Override
+    public String toString() {
+        return "RecurringRule{" +
+            "id=" + id +
+            ", name='" + name + '\'' +
+            ", amount=" + Money.format(amount) +
+            ", category=" + category +
+            ", every=" + every + " " + frequency +
+            ", start=" + startDate +
+            (endDate == null ? "" : ", end=" + endDate) +
+            ", occurrences=" + occurrences +
+            ", nextDue=" + nextDue +
+            '}';
+    }
+}
@@ -0,0 +1,209 @@
+package com.MoneyMind.projet_javafx.controllers;
+
+import com.MoneyMind.projet_javafx.db.CategoryDictionary;
+import com.MoneyMind.projet_javafx.db.ConnectionPool;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the due occurrences of every user's {@link RecurringRule}s as transactions.
+ *
+ * A pass reads the rules due by today from each file, then writes their occurrences
+ * user by user through the bulk insert path (batched INSERTs, one UPDATE per touched
+ * budget, ledger and monthly rollup), {@link #USERS_PER_COMMIT} users per transaction.
+ * Each rule's progress ({@code occurrences}, {@code next_due}) is saved in the same
+ * transaction as its rows: after downtime a pass catches up on every missed occurrence,
+ * and running it again, or after a crash, never writes one twice. Passes hold the
+ * file's writer from the first read, so two of them cannot both see a rule as due.
+ * A new rule writes what is already due when it is stored
+ * ({@link DataStorage#addRecurringRule}), in the same transaction.
+ */
+public class RecurringScheduler implements AutoCloseable {
+
+    static final String SELECT_DUE_RULES = """
+            SELECT rule_id, user_id, name, amount, category_id, frequency, every, start_date, end_date, occurrences
+            FROM recurring_rules WHERE next_due <= ?""";
+    private static final String UPDATE_PROGRESS =
+            "UPDATE recurring_rules SET occurrences = ?, next_due = ? WHERE rule_id = ?";
+
+    // Users whose occurrences share one commit: bounds how long the writer is held
+    static final int USERS_PER_COMMIT = 1000;
+
+    private final List<ConnectionPool> pools;
+    private ScheduledExecutorService executor; // created by the first schedule()
+
+    /**
+     * @param pools every file holding user data (see {@link com.MoneyMind.projet_javafx.db.SQliteConnector#dataPools})
+     */
+    public RecurringScheduler(List<ConnectionPool> pools) {
+        this.pools = List.copyOf(pools);
+    }
+
+    /**
+     * Writes every occurrence due on or before {@code today}, for all users.
+     * @return number of transactions written
+     */
+    public int runDue(LocalDate today) throws SQLException {
+        long start = System.nanoTime();
+        int written = 0;
+        int users = 0;
+        for (ConnectionPool pool : pools) {
+            int[] counts = runDue(pool, today);
+            written += counts[0];
+            users += counts[1];
+        }
+        if (written > 0) {
+            System.out.printf("Recurring transactions: %d for %d users in %.1f ms%n",
+                    written, users, (System.nanoTime() - start) / 1_000_000.0);
+        }
+        return written;
+    }
+
+    /**
+     * Runs a pass now, then every {@code interval}, with the date of the day. A failure
+     * is logged; the next pass catches up.
+     */
+    public synchronized void schedule(Duration interval) {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "moneymind-recurring");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                runDue(LocalDate.now());
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("Recurring transactions failed: " + e.getMessage());
+            }
+        }, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops scheduled passes; a pass in progress finishes.
+     */
+    @Override
+    public synchronized void close() {
+        if (executor != null) executor.shutdown();
+    }
+
+    // What a rule has written once this pass commits
+    private static final class Progress {
+        final long ruleId;
+        final int occurrences;
+        final LocalDate nextDue; // null: ended
+
+        Progress(long ruleId, int occurrences, LocalDate nextDue) {
+            this.ruleId = ruleId;
+            this.occurrences = occurrences;
+            this.nextDue = nextDue;
+        }
+    }
+
+    // @return {transactions written, users}
+    private static int[] runDue(ConnectionPool pool, LocalDate today) throws SQLException {
+        CategoryDictionary categories = CategoryDictionary.of(pool);
+        int written = 0;
+        try (Connection connection = pool.borrowWriter()) {
+            try {
+                Map<Integer, List<RecurringRule>> dueByUser = new LinkedHashMap<>();
+                try (PreparedStatement pstmt = connection.prepareStatement(SELECT_DUE_RULES)) {
+                    pstmt.setLong(1, today.toEpochDay());
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            long endDay = rs.getLong("end_date");
+                            LocalDate endDate = rs.wasNull() ? null : LocalDate.ofEpochDay(endDay);
+                            RecurringRule rule = new RecurringRule(
+                                    rs.getLong("rule_id"),
+                                    rs.getString("name"),
+                                    rs.getLong("amount"),
+                                    categories.nameOf(rs.getInt("category_id")),
+                                    RecurringRule.Frequency.valueOf(rs.getString("frequency")),
+                                    rs.getInt("every"),
+                                    LocalDate.ofEpochDay(rs.getLong("start_date")),
+                                    endDate,
+                                    rs.getInt("occurrences"),
+                                    null);
+                            dueByUser.computeIfAbsent(rs.getInt("user_id"), k -> new ArrayList<>()).add(rule);
+                        }
+                    }
+                }
+
+                Map<String, Integer> categoryIds = categories.ids();
+                List<Progress> progress = new ArrayList<>();
+                int usersInCommit = 0;
+                for (Map.Entry<Integer, List<RecurringRule>> user : dueByUser.entrySet()) {
+                    List<Transaction> rows = new ArrayList<>();
+                    for (RecurringRule rule : user.getValue()) {
+                        List<Transaction> due = dueOccurrences(rule, today);
+                        rows.addAll(due);
+                        int k = rule.getOccurrences() + due.size();
+                        progress.add(new Progress(rule.getId(), k, rule.occurrence(k)));
+                    }
+
+                    Map<String, long[]> budgetDeltas = new HashMap<>();
+                    long totalLimitDelta = DataStorage.insertTransactions(connection, user.getKey(), rows, categoryIds, budgetDeltas);
+                    DataStorage.applyDeltas(connection, user.getKey(), categoryIds, budgetDeltas, totalLimitDelta);
+                    written += rows.size();
+
+                    if (++usersInCommit == USERS_PER_COMMIT) {
+                        saveProgress(connection, progress);
+                        connection.commit();
+                        progress.clear();
+                        usersInCommit = 0;
+                    }
+                }
+                saveProgress(connection, progress);
+                connection.commit();
+                return new int[]{written, dueByUser.size()};
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * The occurrences of {@code rule} not written yet and due on or before {@code today}.
+     */
+    static List<Transaction> dueOccurrences(RecurringRule rule, LocalDate today) {
+        List<Transaction> rows = new ArrayList<>();
+        LocalDate date;
+        for (int k = rule.getOccurrences(); (date = rule.occurrence(k)) != null && !date.isAfter(today); k++) {
+            rows.add(new Transaction(rule.getName(), rule.getAmount(), rule.getCategory(), date));
+        }
+        return rows;
+    }
+
+    private static void saveProgress(Connection connection, List<Progress> progress) throws SQLException {
+        if (progress.isEmpty()) return;
+        try (PreparedStatement pstmt = connection.prepareStatement(UPDATE_PROGRESS)) {
+            for (Progress p : progress) {
+                pstmt.setInt(1, p.occurrences);
+                if (p.nextDue == null) {
+                    pstmt.setNull(2, Types.INTEGER);
+                } else {
+                    pstmt.setLong(2, p.nextDue.toEpochDay());
+                }
+                pstmt.setLong(3, p.ruleId);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+}
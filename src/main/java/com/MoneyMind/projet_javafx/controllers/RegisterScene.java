@@ -8,7 +8,7 @@ import javafx.scene.paint.Color;
 import javafx.scene.text.*;
 import javafx.stage.Stage;
 
-import java.sql.SQLException;
+import javafx.concurrent.Task;
 
 public class RegisterScene extends Styling {
 
@@ -54,14 +54,7 @@ public class RegisterScene extends Styling {
         password.setFont(Font.font(password.getFont().getFamily(), FontWeight.EXTRA_BOLD, 14));
 
         // Event handlers for registerButton and loginNow
-        registerButton.setOnAction(event ->
-        {
-            try {
-                registerButtonEvent(usernameTxtField.getText(), passwordTxtField.getText());
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
-            }
-        });
+        registerButton.setOnAction(event -> registerButtonEvent(registerButton, usernameTxtField.getText(), passwordTxtField.getText()));
         loginNow.setOnMouseClicked(event -> primaryStage.setScene(loginScene.getScene()));
 
         // Add the elements to the GridPane (All labels are on 1st col, all text-fields on 2nd col)
@@ -91,18 +84,26 @@ public class RegisterScene extends Styling {
     }
 
 
-    private void registerButtonEvent(String username, String password) throws SQLException {
-            if(!dataStorage.usernameExists(username)) {
-            if (password.length() >= 6) {
-               dataStorage.registerUser(username, password);
+    private void registerButtonEvent(Button registerButton, String username, String password) {
+        // Returns the error to display, or null once the account is created
+        Task<String> task = BackgroundTasks.submit(() -> {
+            if (dataStorage.usernameExists(username)) {
+                return "Username already registered.";
+            }
+            if (password.length() < 6) {
+                return "Password must be at least 6 characters long.";
+            }
+            dataStorage.registerUser(username, password);
+            return null;
+        }, error -> {
+            if (error == null) {
                 // Navigate to the login screen or another appropriate screen after successful registration
                 primaryStage.setScene(loginScene.getScene());
             } else {
-                errorText.setText("Password must be at least 6 characters long.");
+                errorText.setText(error);
             }
-        } else {
-            errorText.setText("Username already registered.");
-        }
+        }, e -> errorText.setText("Registration failed: " + e.getMessage()));
+        registerButton.disableProperty().bind(task.runningProperty());
     }
 
 
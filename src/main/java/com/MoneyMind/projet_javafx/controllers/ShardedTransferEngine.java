@@ -0,0 +1,370 @@
+package com.MoneyMind.projet_javafx.controllers;
+
+import com.MoneyMind.projet_javafx.db.ConnectionPool;
+import com.MoneyMind.projet_javafx.db.Ledger;
+import com.MoneyMind.projet_javafx.db.MonthlyTotalsDAO;
+import com.MoneyMind.projet_javafx.db.ShardRouter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntPredicate;
+
+/**
+ * {@link TransferEngine} for the sharded mode (see {@link ShardRouter}), where payer and
+ * payee may live in different database files that no single SQLite transaction covers.
+ *
+ * Every key is first claimed in the directory's {@code transfer_intents} table, which
+ * keeps keys unique across shards. The money then moves in two phases:
+ * <ol>
+ *   <li>debit: one transaction per payer shard runs {@link TransferEngine}'s own logic.
+ *       It claims the key in that shard's {@code transfers} table and debits the payers
+ *       by conditional UPDATE. Transfers whose payee is in the same shard complete there;
+ *       the others post the money to the payer's EXTERNAL ledger account;</li>
+ *   <li>credit: one transaction per payee shard claims the key again in that shard, which
+ *       makes the credit idempotent, credits the payee and posts from its EXTERNAL account.</li>
+ * </ol>
+ * The intent is then marked DONE. A debit committed without its credit (crash in between)
+ * is finished by {@link #recover()}, or by submitting the same request again. Intents
+ * whose debit rolled back (refused, or never reached) are deleted: the key is free again,
+ * as in the shard, and only real debits without their credit stay PENDING.
+ *
+ * A batch is all-or-nothing per payer shard: payroll from one payer commits whole or not
+ * at all, but a batch whose payers live in several shards can stop half way. Each leg is
+ * still applied at most once, and resubmitting the batch completes it.
+ */
+public class ShardedTransferEngine extends TransferEngine {
+
+    static final String CLAIM_INTENT = """
+            INSERT INTO transfer_intents (idempotency_key, from_user_id, to_user_id, amount, state, created_at)
+            VALUES (?, ?, ?, ?, 'PENDING', ?)
+            ON CONFLICT (idempotency_key) DO NOTHING""";
+    static final String SELECT_INTENT =
+            "SELECT from_user_id, to_user_id, amount, state FROM transfer_intents WHERE idempotency_key = ?";
+    private static final String COMPLETE_INTENT =
+            "UPDATE transfer_intents SET state = 'DONE' WHERE idempotency_key = ?";
+    private static final String RELEASE_INTENT =
+            "DELETE FROM transfer_intents WHERE idempotency_key = ? AND state = 'PENDING'";
+    private static final String SELECT_PENDING_INTENTS = """
+            SELECT i.idempotency_key, i.amount, i.from_user_id, i.to_user_id, f.username AS from_name, t.username AS to_name
+            FROM transfer_intents i
+            JOIN users f ON f.user_id = i.from_user_id
+            JOIN users t ON t.user_id = i.to_user_id
+            WHERE i.state = 'PENDING'""";
+
+    private final ShardRouter router;
+
+    private final LongAdder recoveredTransfers = new LongAdder();
+
+    public ShardedTransferEngine(ShardRouter router) {
+        super(router.directory());
+        this.router = router;
+    }
+
+    /**
+     * @throws SQLException {@link InsufficientFundsException}, "User not found: ..." or a reused key;
+     *         payer shards debited before the failure are still credited
+     */
+    @Override
+    public List<TransferResult> transferAll(List<TransferRequest> requests) throws SQLException {
+        if (requests.isEmpty()) return List.of();
+        int categoryId = router.getOrCreateCategory(TRANSFER_CATEGORY, "INCOME");
+        LocalDate today = LocalDate.now();
+
+        Leg[] legs;
+        try {
+            legs = claim(requests, today);
+        } catch (SQLException | RuntimeException e) {
+            countFailure();
+            throw e;
+        }
+
+        // Phase 1: one transaction per payer shard
+        Map<Integer, List<Leg>> byPayerShard = new LinkedHashMap<>();
+        for (Leg leg : legs) {
+            byPayerShard.computeIfAbsent(leg.fromShard, k -> new ArrayList<>()).add(leg);
+        }
+        SQLException failure = null;
+        for (Map.Entry<Integer, List<Leg>> group : byPayerShard.entrySet()) {
+            int shard = group.getKey();
+            try {
+                debit(router.shards().get(shard), group.getValue(), categoryId, today,
+                        userId -> router.shardIndex(userId) == shard);
+            } catch (SQLException e) {
+                failure = e;
+                break;
+            }
+        }
+
+        // Phase 2: what left a shard is credited, even when a later payer shard failed
+        Map<Integer, List<Leg>> byPayeeShard = new LinkedHashMap<>();
+        List<Leg> completed = new ArrayList<>(legs.length);
+        for (Leg leg : legs) {
+            if (leg.result == null) continue;
+            if (leg.fromShard == leg.toShard || leg.done) {
+                completed.add(leg);
+            } else {
+                byPayeeShard.computeIfAbsent(leg.toShard, k -> new ArrayList<>()).add(leg);
+            }
+        }
+        for (Map.Entry<Integer, List<Leg>> group : byPayeeShard.entrySet()) {
+            List<TransferRequest> credited = new ArrayList<>(group.getValue().size());
+            for (Leg leg : group.getValue()) credited.add(leg.request);
+            // A failure here leaves the intents PENDING, for recover()
+            credit(router.shards().get(group.getKey()), credited, categoryId, today);
+            completed.addAll(group.getValue());
+        }
+        complete(completed);
+
+        if (failure != null) {
+            // Claimed by this call, debit rolled back or never run: nothing to recover
+            List<Leg> released = new ArrayList<>();
+            for (Leg leg : legs) {
+                if (leg.claimed && leg.result == null) released.add(leg);
+            }
+            release(released);
+            countFailure();
+            throw failure;
+        }
+        List<TransferResult> results = new ArrayList<>(legs.length);
+        for (Leg leg : legs) results.add(leg.result);
+        count(results);
+        return results;
+    }
+
+    /**
+     * Finishes the transfers left PENDING by a crash between their debit and their credit.
+     * Intents whose debit never committed (interrupted before it) are deleted: resubmitting
+     * the request applies it. Run at startup, before any transfer.
+     * @return number of transfers completed
+     */
+    public int recover() throws SQLException {
+        int categoryId = router.getOrCreateCategory(TRANSFER_CATEGORY, "INCOME");
+        LocalDate today = LocalDate.now();
+        List<Leg> pending = new ArrayList<>();
+        try (Connection connection = router.directory().borrowReader();
+             PreparedStatement pstmt = connection.prepareStatement(SELECT_PENDING_INTENTS);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                TransferRequest request = new TransferRequest(rs.getString("idempotency_key"),
+                        rs.getString("from_name"), rs.getString("to_name"), rs.getLong("amount"));
+                pending.add(new Leg(request, router.shardIndex(rs.getInt("from_user_id")),
+                        router.shardIndex(rs.getInt("to_user_id"))));
+            }
+        }
+
+        List<Leg> completed = new ArrayList<>();
+        List<Leg> released = new ArrayList<>();
+        for (Leg leg : pending) {
+            if (!isDebited(router.shards().get(leg.fromShard), leg.request)) {
+                released.add(leg);
+                continue;
+            }
+            if (leg.toShard != leg.fromShard) {
+                credit(router.shards().get(leg.toShard), List.of(leg.request), categoryId, today);
+            }
+            completed.add(leg);
+        }
+        complete(completed);
+        release(released);
+        recoveredTransfers.add(completed.size());
+        return completed.size();
+    }
+
+    /**
+     * Transfers finished by {@link #recover()} since this engine was created.
+     */
+    public long getRecoveredTransfers() { return recoveredTransfers.sum(); }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{moved=" + getMovedTransfers() + ", replayed=" + getReplayedTransfers()
+                + ", failedBatches=" + getFailedBatches() + ", recovered=" + getRecoveredTransfers() + "}";
+    }
+
+    // Resolves the users and claims every key in the directory, in one transaction
+    private Leg[] claim(List<TransferRequest> requests, LocalDate today) throws SQLException {
+        Leg[] legs = new Leg[requests.size()];
+        try (Connection connection = router.directory().borrowWriter()) {
+            try (PreparedStatement lookup = connection.prepareStatement(SELECT_USER_ID);
+                 PreparedStatement claim = connection.prepareStatement(CLAIM_INTENT);
+                 PreparedStatement select = connection.prepareStatement(SELECT_INTENT)) {
+                Map<String, Integer> userIds = new HashMap<>();
+                for (int i = 0; i < legs.length; i++) {
+                    TransferRequest request = requests.get(i);
+                    int from = userId(lookup, userIds, request.getFromUsername());
+                    int to = userId(lookup, userIds, request.getToUsername());
+                    Leg leg = new Leg(request, router.shardIndex(from), router.shardIndex(to));
+                    legs[i] = leg;
+
+                    claim.setString(1, request.getIdempotencyKey());
+                    claim.setInt(2, from);
+                    claim.setInt(3, to);
+                    claim.setLong(4, request.getAmount());
+                    claim.setString(5, today.toString());
+                    if (claim.executeUpdate() > 0) {
+                        leg.claimed = true;
+                        continue;
+                    }
+
+                    // Taken: the same transfer submitted again, or a misuse of the key
+                    select.setString(1, request.getIdempotencyKey());
+                    try (ResultSet rs = select.executeQuery()) {
+                        if (!rs.next() || rs.getInt("from_user_id") != from || rs.getInt("to_user_id") != to
+                                || rs.getLong("amount") != request.getAmount()) {
+                            throw new SQLException("Idempotency key already used for another transfer: "
+                                    + request.getIdempotencyKey());
+                        }
+                        leg.done = rs.getString("state").equals("DONE");
+                    }
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+        return legs;
+    }
+
+    private static void debit(ConnectionPool shard, List<Leg> legs, int categoryId, LocalDate today,
+                              IntPredicate isLocal) throws SQLException {
+        List<TransferRequest> requests = new ArrayList<>(legs.size());
+        for (Leg leg : legs) requests.add(leg.request);
+        try (Connection connection = shard.borrowWriter()) {
+            try {
+                List<TransferResult> results = apply(connection, requests, categoryId, today, isLocal);
+                connection.commit();
+                for (int i = 0; i < legs.size(); i++) legs.get(i).result = results.get(i);
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Payee side of transfers debited in another shard: keys already claimed in this shard
+     * were credited before and are skipped.
+     */
+    private static void credit(ConnectionPool shard, List<TransferRequest> requests, int categoryId,
+                               LocalDate today) throws SQLException {
+        try (Connection connection = shard.borrowWriter()) {
+            try {
+                Map<Integer, long[]> credits = new LinkedHashMap<>();
+                Map<Integer, MonthlyTotalsDAO.Delta> rollups = new HashMap<>();
+                List<Map.Entry<Integer, Transaction>> inserted = new ArrayList<>();
+                List<Ledger.Entry> entries = new ArrayList<>(requests.size());
+                try (PreparedStatement lookup = connection.prepareStatement(SELECT_USER_ID);
+                     PreparedStatement claim = connection.prepareStatement(CLAIM_TRANSFER);
+                     PreparedStatement record = connection.prepareStatement(DataStorage.INSERT_TRANSACTION)) {
+                    Map<String, Integer> userIds = new HashMap<>();
+                    for (TransferRequest request : requests) {
+                        int from = userId(lookup, userIds, request.getFromUsername());
+                        int to = userId(lookup, userIds, request.getToUsername());
+                        long amount = request.getAmount();
+
+                        claim.setString(1, request.getIdempotencyKey());
+                        claim.setInt(2, from);
+                        claim.setInt(3, to);
+                        claim.setLong(4, amount);
+                        claim.setString(5, today.toString());
+                        try (ResultSet rs = claim.executeQuery()) {
+                            if (!rs.next()) {
+                                replay(connection, request, from, to); // throws unless it is the same transfer
+                                continue;
+                            }
+                            entries.add(new Ledger.Entry(to, "TRANSFER", rs.getLong(1),
+                                    "Transfer " + request.getFromUsername() + " -> " + request.getToUsername())
+                                    .move(Ledger.Account.external(to), Ledger.Account.user(to), amount));
+                        }
+                        long[] received = credits.computeIfAbsent(to, k -> new long[1]);
+                        received[0] = Money.add(received[0], amount);
+                        addRecord(record, inserted, to, "Transfer from " + request.getFromUsername(), amount, categoryId, today);
+                        rollups.computeIfAbsent(to, k -> new MonthlyTotalsDAO.Delta()).add(today, categoryId, amount);
+                    }
+                    if (credits.isEmpty()) return;
+
+                    try (PreparedStatement update = connection.prepareStatement(DataStorage.ADD_TO_TOTAL_LIMIT)) {
+                        for (Map.Entry<Integer, long[]> entry : credits.entrySet()) {
+                            update.setLong(1, entry.getValue()[0]);
+                            update.setInt(2, entry.getKey());
+                            update.addBatch();
+                        }
+                        update.executeBatch();
+                    }
+                    record.executeBatch();
+                    DataStorage.recordInserted(connection, inserted);
+                    DataStorage.recordBalances(connection, credits.keySet());
+                }
+                Ledger.append(connection, entries, today);
+                for (Map.Entry<Integer, MonthlyTotalsDAO.Delta> entry : rollups.entrySet()) {
+                    MonthlyTotalsDAO.applyInserts(connection, entry.getKey(), entry.getValue());
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static boolean isDebited(ConnectionPool shard, TransferRequest request) throws SQLException {
+        try (Connection connection = shard.borrowReader();
+             PreparedStatement pstmt = connection.prepareStatement(SELECT_TRANSFER_BY_KEY)) {
+            pstmt.setString(1, request.getIdempotencyKey());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private void complete(List<Leg> legs) throws SQLException {
+        updateIntents(COMPLETE_INTENT, legs);
+    }
+
+    private void release(List<Leg> legs) throws SQLException {
+        updateIntents(RELEASE_INTENT, legs);
+    }
+
+    private void updateIntents(String sql, List<Leg> legs) throws SQLException {
+        if (legs.isEmpty()) return;
+        try (Connection connection = router.directory().borrowWriter()) {
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                for (Leg leg : legs) {
+                    pstmt.setString(1, leg.request.getIdempotencyKey());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // One request and where its two sides live
+    private static final class Leg {
+        final TransferRequest request;
+        final int fromShard;
+        final int toShard;
+        boolean claimed;        // intent inserted by this call
+        boolean done;           // intent already DONE: nothing left to credit
+        TransferResult result;  // set once the payer shard committed
+
+        Leg(TransferRequest request, int fromShard, int toShard) {
+            this.request = request;
+            this.fromShard = fromShard;
+            this.toShard = toShard;
+        }
+    }
+}
@@ -1,68 +1,61 @@
 package com.MoneyMind.projet_javafx.controllers;
 
-import javafx.beans.property.*;
-
 import java.io.Serializable;
 import java.time.LocalDate;
 
-public class Transaction implements Serializable
+/**
+ * Immutable transaction as stored in the database and used by analytics.
+ *
+ * Holds plain fields only: a {@code TableView} gets JavaFX properties through
+ * {@link TransactionProperties}, created for the rows it actually renders.
+ */
+public final class Transaction implements Serializable
 {
-    private StringProperty name;
-    private DoubleProperty amount;
-    private StringProperty category;
-    private ObjectProperty<LocalDate> date;
-
-    public Transaction(String name, double amount, String category, LocalDate date)
-    {
+    private static final long serialVersionUID = 3L;
 
-        this.name = new SimpleStringProperty(name);
-        this.amount = new SimpleDoubleProperty(amount);
-        this.category = new SimpleStringProperty(category);
-        this.date = new SimpleObjectProperty<>(date);
-    }
+    private final long id; // transactions.transaction_id, 0 until read back from the database
+    private final String name;
+    private final long amount; // minor units, see Money
+    private final String category;
+    private final LocalDate date;
 
-    public Transaction(String name, double amount, String category)
+    public Transaction(long id, String name, long amount, String category, LocalDate date)
     {
-        this(name, amount, category, LocalDate.now());
+        this.id = id;
+        this.name = name;
+        this.amount = amount;
+        this.category = category;
+        this.date = date;
     }
 
-    public Transaction(Transaction toClone) {
-        this.name = toClone.name;
-        this.amount = toClone.amount;
-        this.category = toClone.category;
-        this.date = toClone.date;
+    public Transaction(String name, long amount, String category, LocalDate date)
+    {
+        this(0, name, amount, category, date);
     }
 
-    public Transaction() {
-
+    public Transaction(String name, long amount, String category)
+    {
+        this(name, amount, category, LocalDate.now());
     }
 
-    public StringProperty nameProperty  () { return name; }
-    public DoubleProperty amountProperty() { return amount; }
-    public StringProperty categoryProperty () { return category; }
-    public ObjectProperty<LocalDate> dateProperty() { return date; }
+    public long getId() { return id; }
 
-    public String getName() { return this.nameProperty().get(); }
-    public void setName(String name) { this.name.set(name); }
+    public String getName() { return name; }
 
-    public double getAmount() { return this.amountProperty().get(); }
-    public void setAmount(double amount) { this.amount.set(amount); }
+    public long getAmount() { return amount; }
 
-    public String getCategory() { return this.categoryProperty().get(); }
-    public void setCategory(String category) { this.category.set(category); }
+    public String getCategory() { return category; }
 
-    public LocalDate getDate() { return this.dateProperty().get(); }
-    public void setDate(LocalDate date) { this.date.set(date); }
+    public LocalDate getDate() { return date; }
 
     @Override
     public String toString() {
         return "Transaction{" +
-            "name='" + name + '\'' +
-            ", amount=" + amount +
+            "id=" + id +
+            ", name='" + name + '\'' +
+            ", amount=" + Money.format(amount) +
             ", category=" + category +
             ", date=" + date +
             '}';
     }
-
-
 }
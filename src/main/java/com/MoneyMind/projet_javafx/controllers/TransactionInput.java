@@ -1,25 +1,30 @@
 package com.MoneyMind.projet_javafx.controllers;
 
 import com.MoneyMind.projet_javafx.assistant_AI.AIAssistant;
+import com.MoneyMind.projet_javafx.db.RowChange;
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.*;
 import javafx.collections.FXCollections;
-import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.control.cell.TextFieldTableCell;
 import javafx.scene.image.Image;
+import javafx.scene.input.KeyCode;
 import javafx.scene.layout.*;
 import javafx.scene.text.Font;
+import javafx.stage.FileChooser;
+import javafx.util.Duration;
 import javafx.util.StringConverter;
 
-import java.io.IOException;
-import java.sql.SQLException;
+import java.io.File;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.List;
 
 public class TransactionInput extends Tab {
@@ -60,47 +65,186 @@ public class TransactionInput extends Tab {
     Button purchaseButton = new Button("Add");
     TextField totalField = new TextField();
     Button quitButton = new Button("Quit");
+    Button importButton = new Button("Import CSV");
+    ProgressBar importProgress = new ProgressBar(0);
+    Label importStatusLabel = new Label();
 
     // radio buttons for transaction type
     private final ToggleGroup typeGroup = new ToggleGroup();
     private final RadioButton incomeRadio = new RadioButton("Income");
     private final RadioButton expenseRadio = new RadioButton("Expense");
+    private final CheckBox repeatMonthly = new CheckBox("Every month");
 
     // filter controls
     private ComboBox<String> filterCategoryCombo = new ComboBox<>();
     private DatePicker filterMonthPicker = new DatePicker();
+    private TextField searchField = new TextField();
 
-    // lists
-    ObservableList<Transaction> tableData; // hold purchases
+    // search as you type: one query per pause in typing, best matches only
+    private static final Duration SEARCH_DELAY = Duration.millis(250);
+    private static final int SEARCH_RESULTS = 200;
+    private final PauseTransition searchDelay = new PauseTransition(SEARCH_DELAY);
+    private Task<List<Transaction>> pendingSearch;
+    private List<Transaction> searchResults; // null: the table shows the paged rows
+
+    // rows of the table, read page by page for the current filters
+    private PagedTransactionList transactions;
+    private Task<PagedTransactionList> pendingLoad;
+    private boolean reloadAgain; // rows changed while pendingLoad was reading
+
+    // true while a transaction is being saved
+    private final BooleanProperty saving = new SimpleBooleanProperty(false);
 
     // tableview
     TableView<Transaction> table;
-    private BudgetInputTab budgetInputTab;
     private DataStorage dataStorage;
+    private final ChangeStream changes;
+
+    /**
+     * @param changes committed changes of the logged user, applied to the table and the
+     *                category choices as they arrive
+     */
+    public TransactionInput(DataStorage dataStorage, ChangeStream changes) {
+        this(dataStorage, changes, null);
+    }
 
-    public TransactionInput(DataStorage dataStorage, BudgetInputTab budgetInputTab) {
-        this.budgetInputTab = budgetInputTab;
+    /**
+     * @param login first page and rollup read at login, shown without reading them again;
+     *              null to read them
+     */
+    public TransactionInput(DataStorage dataStorage, ChangeStream changes, LoginSnapshot login) {
         this.dataStorage = dataStorage;
-        this.tableData = FXCollections.observableArrayList();
-        this.table = new TableView<>(tableData);
-        loadInitialData();
+        this.changes = changes;
+        this.table = new TableView<>();
+        loadInitialData(login);
         start();
+        changes.subscribe(this::applyChanges);
     }
 
-    private void loadInitialData() {
-        if (dataStorage.getLoggedUser() != null) {
-            List<Transaction> dbTransactions = dataStorage.getTransactions();
-            tableData.setAll(dbTransactions);
+    private void loadInitialData(LoginSnapshot login) {
+        if (dataStorage.getLoggedUser() == null) return;
+        if (login == null) {
+            reloadTransactions();
+        } else {
+            // Unfiltered, as the filters start; opened on the newest rows, the ones loaded
+            transactions = login.transactions(dataStorage);
+            table.setItems(transactions);
+            if (!transactions.isEmpty()) table.scrollTo(transactions.size() - 1);
+            updateTotal();
+        }
+    }
+
+    /**
+     * Shows the rows matching the filters: counts them and reads the first page in the
+     * background, further pages are read as the table scrolls (see {@link PagedTransactionList}).
+     */
+    private void reloadTransactions() {
+        User user = dataStorage.getLoggedUser();
+        if (user == null) return;
+        TransactionQuery query = currentQuery(user);
+        if (pendingLoad != null) {
+            pendingLoad.cancel(); // superseded by newer filters
+        }
+        reloadAgain = false;
+        pendingLoad = BackgroundTasks.submit(() -> PagedTransactionList.load(dataStorage, query), list -> {
+            if (transactions != null) {
+                transactions.dispose();
+            }
+            transactions = list;
+            if (searchResults == null) {
+                table.setItems(list);
+                updateTotal();
+            }
+            if (reloadAgain) {
+                reloadTransactions(); // the count may predate those changes: read it again
+            }
+        }, error -> showError("Failed to load transactions: " + error.getMessage()));
+    }
+
+    /**
+     * Shows the best matches of the search text for the current filters (see
+     * {@link DataStorage#searchTransactions}); a newer search cancels this one.
+     */
+    private void search() {
+        User user = dataStorage.getLoggedUser();
+        String text = searchField.getText();
+        if (user == null || text.isBlank()) return;
+        TransactionQuery query = currentQuery(user);
+        if (pendingSearch != null) {
+            pendingSearch.cancel();
+        }
+        pendingSearch = BackgroundTasks.submit(() -> dataStorage.searchTransactions(query, text, 0, SEARCH_RESULTS), results -> {
+            if (searchField.getText().isBlank()) return; // cleared meanwhile
+            searchResults = results;
+            table.setItems(FXCollections.observableArrayList(results));
             updateTotal();
+        }, error -> showError("Search failed: " + error.getMessage()));
+    }
+
+    private void searchTextChanged(String text) {
+        if (!text.isBlank()) {
+            searchDelay.playFromStart();
+            return;
+        }
+        searchDelay.stop();
+        if (pendingSearch != null) {
+            pendingSearch.cancel();
+        }
+        searchResults = null;
+        if (transactions != null) {
+            table.setItems(transactions);
+        }
+        updateTotal();
+    }
+
+    private void filtersChanged() {
+        reloadTransactions();
+        search();
+    }
+
+    /**
+     * Committed rows go into the table without reading it again (see
+     * {@link PagedTransactionList#applyChanges}); budgets added or removed change the
+     * category choices.
+     */
+    private void applyChanges(List<RowChange<?>> changes) {
+        List<RowChange<Transaction>> rows = RowChange.select(changes, RowChange.TRANSACTIONS);
+        if (!rows.isEmpty()) {
+            if (pendingLoad != null && pendingLoad.isRunning()) {
+                reloadAgain = true;
+            } else if (transactions != null && transactions.applyChanges(rows) && searchResults == null) {
+                updateTotal();
+            }
+            if (!searchField.getText().isBlank()) {
+                searchDelay.playFromStart(); // matches may have come or gone
+            }
+        }
+        for (RowChange<Budget> budget : RowChange.select(changes, RowChange.BUDGETS)) {
+            if (budget.getOp() != RowChange.Op.UPDATE) {
+                refreshCategoryComboBox();
+                break;
+            }
         }
     }
 
+    private TransactionQuery currentQuery(User user) {
+        String selectedCategory = filterCategoryCombo.getValue();
+        LocalDate selectedMonth = filterMonthPicker.getValue();
+        return new TransactionQuery(user.getId(),
+                selectedCategory == null || selectedCategory.equals("All") ? null : selectedCategory,
+                selectedMonth == null ? null : YearMonth.from(selectedMonth));
+    }
+
     private void updateTotal() {
-        double totalCost = 0;
-        for (Transaction t : table.getItems()) {
-            totalCost += t.getAmount();
+        long totalCost = 0;
+        if (searchResults != null) {
+            for (Transaction t : searchResults) {
+                totalCost = Money.add(totalCost, t.getAmount());
+            }
+        } else if (transactions != null) {
+            totalCost = transactions.getTotal();
         }
-        String str = String.format(" %.2f DH", totalCost);
+        String str = " " + Money.format(totalCost) + " DH";
         totalField.setText(str);
     }
 
@@ -134,7 +278,8 @@ public class TransactionInput extends Tab {
         expenseRadio.setToggleGroup(typeGroup);
         expenseRadio.setSelected(true); // Default to expense
 
-        HBox typeBox = new HBox(10, incomeRadio, expenseRadio);
+        repeatMonthly.setTooltip(new Tooltip("Add it again on this day each month (rent, salary, subscriptions)"));
+        HBox typeBox = new HBox(10, incomeRadio, expenseRadio, repeatMonthly);
         typeBox.setAlignment(Pos.CENTER);
 
         // Setup filter controls
@@ -143,8 +288,10 @@ public class TransactionInput extends Tab {
         filterCategoryCombo.getItems().addAll(budgetedCategories);
         filterCategoryCombo.setValue("All");
         filterMonthPicker.setPromptText("Filter by Month");
+        searchField.setPromptText("Name or description");
 
-        HBox filterBox = new HBox(10, new Label("Category:"), filterCategoryCombo, new Label("Month:"), filterMonthPicker);
+        HBox filterBox = new HBox(10, new Label("Category:"), filterCategoryCombo, new Label("Month:"), filterMonthPicker,
+                new Label("Search:"), searchField);
         filterBox.setAlignment(Pos.CENTER_LEFT);
 
         gridStyling();
@@ -154,15 +301,16 @@ public class TransactionInput extends Tab {
         populateGrids(typeBox, filterBox);
         tableSetup();
         addAmountRegex();
-        bindTotalField();
 
         setText("Transactions");
         setContent(outerGrid);
         setupAIComponents();
 
         // Add filter listeners
-        filterCategoryCombo.setOnAction(e -> applyFilters());
-        filterMonthPicker.setOnAction(e -> applyFilters());
+        filterCategoryCombo.setOnAction(e -> filtersChanged());
+        filterMonthPicker.setOnAction(e -> filtersChanged());
+        searchDelay.setOnFinished(e -> search());
+        searchField.textProperty().addListener((observable, oldValue, newValue) -> searchTextChanged(newValue));
     }
 
     private void addAmountRegex() {
@@ -173,44 +321,38 @@ public class TransactionInput extends Tab {
         });
     }
 
-    private void bindTotalField() {
-        tableData.addListener((ListChangeListener<Transaction>) change -> {
-            updateTotal();
-        });
-    }
-
     private void tableSetup() {
         TableColumn<Transaction, String> itemCol = new TableColumn<>("Name");
-        itemCol.setCellValueFactory(new PropertyValueFactory<>("name"));
+        itemCol.setCellValueFactory(TransactionProperties::name);
         itemCol.setStyle("-fx-alignment: CENTER;");
         itemCol.prefWidthProperty().bind(table.widthProperty().multiply(0.28));
         itemCol.setResizable(false);
 
-        TableColumn<Transaction, Double> amountCol = new TableColumn<>("Amount");
-        amountCol.setCellValueFactory(new PropertyValueFactory<>("amount"));
+        TableColumn<Transaction, Number> amountCol = new TableColumn<>("Amount");
+        amountCol.setCellValueFactory(TransactionProperties::amount);
         amountCol.setStyle("-fx-alignment: CENTER;");
         amountCol.prefWidthProperty().bind(table.widthProperty().multiply(0.14));
         amountCol.setResizable(false);
 
-        amountCol.setCellFactory(column -> new TextFieldTableCell<Transaction, Double>(new StringConverter<Double>() {
+        amountCol.setCellFactory(column -> new TextFieldTableCell<Transaction, Number>(new StringConverter<Number>() {
             @Override
-            public String toString(Double value) {
-                return  value + " DH";
+            public String toString(Number value) {
+                return value == null ? "" : Money.format(value.longValue()) + " DH";
             }
             @Override
-            public Double fromString(String value) {
+            public Number fromString(String value) {
                 return null;
             }
         }));
 
         TableColumn<Transaction, String> catCol = new TableColumn<>("Category");
-        catCol.setCellValueFactory(new PropertyValueFactory<>("category"));
+        catCol.setCellValueFactory(TransactionProperties::category);
         catCol.setStyle("-fx-alignment: CENTER;");
         catCol.prefWidthProperty().bind(table.widthProperty().multiply(0.26));
         catCol.setResizable(false);
 
         TableColumn<Transaction, LocalDate> dateCol = new TableColumn<>("Date Ordered");
-        dateCol.setCellValueFactory(new PropertyValueFactory<>("date"));
+        dateCol.setCellValueFactory(TransactionProperties::date);
         dateCol.setStyle("-fx-alignment: CENTER;");
         dateCol.prefWidthProperty().bind(table.widthProperty().multiply(0.21));
         dateCol.setResizable(false);
@@ -225,15 +367,24 @@ public class TransactionInput extends Tab {
             removeHandler(Transaction);
             return Transaction;
         }));
-        table.setSelectionModel(null);
+        // Selected rows go together with the Delete key
+        table.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        table.setOnKeyPressed(event -> {
+            if (event.getCode() == KeyCode.DELETE) removeSelectedHandler();
+        });
         table.setEditable(false);
         table.getColumns().addAll(itemCol, amountCol, catCol, dateCol, delCol);
+        // Rows come from the database in date order, pages are not sorted in memory
+        for (TableColumn<Transaction, ?> column : table.getColumns()) {
+            column.setSortable(false);
+        }
         table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
     }
 
     private void setButtonHandlers() {
         purchaseButton.setOnAction(e -> addTransactionHandler());
         quitButton.setOnAction(e -> quitHandler());
+        importButton.setOnAction(e -> importCsvHandler());
         purchaseButton.disableProperty().bind(
                 Bindings.or(
                         nameField.textProperty().isEmpty(),
@@ -241,7 +392,7 @@ public class TransactionInput extends Tab {
                                 amountField.textProperty().isEmpty(),
                                 categoryComboBox.valueProperty().isNull()
                         )
-                )
+                ).or(saving)
         );
     }
 
@@ -278,6 +429,8 @@ public class TransactionInput extends Tab {
         outerGrid.add(tableBox, 1, 1);
         outerGrid.add(bottomGrid, 1, 2);
         bottomGrid.add(removeBox, 0, 0);
+        VBox importBox = new VBox(4, importButton, importProgress, importStatusLabel);
+        removeBox.getChildren().add(importBox);
         totalBox.getChildren().addAll(totalLabel, totalField);
 
         quitBox.getChildren().add(quitButton);
@@ -326,6 +479,9 @@ public class TransactionInput extends Tab {
         totalField.setEditable(false);
         totalField.setMaxWidth(75);
         quitButton.setPrefWidth(75);
+        importButton.setFont(font);
+        importProgress.setPrefWidth(150);
+        importProgress.setVisible(false);
         purchaseButton.setFont(font);
         amountField.setFont(font);
         quitButton.setFont(font);
@@ -437,11 +593,13 @@ public class TransactionInput extends Tab {
         purchaseButton.setTooltip(new Tooltip("Add transaction to the table"));
         table.setTooltip(new Tooltip("Transaction will appear here"));
         totalField.setTooltip(new Tooltip("The total amount of all transactions"));
+        searchField.setTooltip(new Tooltip("Search transaction names and descriptions as you type"));
         quitButton.setTooltip(new Tooltip("Close the application"));
+        importButton.setTooltip(new Tooltip("Import transactions from a bank CSV export (date,name,amount,category)"));
     }
 
     private TransactionView createChartTab() {
-        TransactionView TransactionView = new TransactionView(dataStorage);
+        TransactionView TransactionView = new TransactionView(dataStorage, changes);
         TransactionView.setTooltip(new Tooltip("Shows a breakdown of the given purchased items"));
         return TransactionView;
     }
@@ -449,11 +607,11 @@ public class TransactionInput extends Tab {
     private void addTransactionHandler() {
         try {
             LocalDate date = dateField.getValue();
-            double enteredAmount = Double.parseDouble(amountField.getText());
+            long enteredAmount = Money.parse(amountField.getText());
             String category = categoryComboBox.getValue();
             String name = nameField.getText();
 
-            System.out.println("[DEBUG] Attempting to add transaction: name=" + name + ", amount=" + enteredAmount + ", category=" + category + ", date=" + date);
+            System.out.println("[DEBUG] Attempting to add transaction: name=" + name + ", amount=" + Money.format(enteredAmount) + ", category=" + category + ", date=" + date);
 
             // Prevent transaction if category is not budgeted
             if (category == null || category.isEmpty()) {
@@ -463,7 +621,7 @@ public class TransactionInput extends Tab {
             }
 
             boolean isExpense = expenseRadio.isSelected();
-            double amount = isExpense ? -Math.abs(enteredAmount) : Math.abs(enteredAmount);
+            long amount = isExpense ? -Money.abs(enteredAmount) : Money.abs(enteredAmount);
 
             // Check if expense exceeds category budget
             if (isExpense) {
@@ -476,7 +634,7 @@ public class TransactionInput extends Tab {
                 }
                 if (selectedBudget != null) {
                     System.out.println("[DEBUG] Selected budget for category: " + selectedBudget.getName() + ", current=" + selectedBudget.getCurrent());
-                    if (Math.abs(amount) > selectedBudget.getCurrent()) {
+                    if (Money.abs(amount) > selectedBudget.getCurrent()) {
                         System.out.println("[DEBUG] Expense exceeds current budget!");
                         showAlert("Expense exceeds the current budget for this category!");
                         return;
@@ -486,62 +644,77 @@ public class TransactionInput extends Tab {
                 }
             }
 
-            // Add transaction to database and update in-memory
-            dataStorage.addTransaction(dataStorage.getLoggedUser(), name, amount, category, date);
-
-            // Update in-memory Budget object and UI
-            for (Budget b : dataStorage.getLoggedUser().getBudgets()) {
-                if (b.getName().equals(category)) {
-                    if (isExpense) {
-                        b.setCurrent(b.getCurrent() - Math.abs(amount));
-                    } else {
-                        b.setCurrent(b.getCurrent() + Math.abs(amount));
-                    }
-                    System.out.println("[DEBUG] Updated budget '" + b.getName() + "' new current: " + b.getCurrent());
-                    break;
+            // Add transaction to database (DataStorage also updates the in-memory budget)
+            saving.set(true);
+            // The table and the budgets follow through the change stream
+            boolean repeat = repeatMonthly.isSelected();
+            BackgroundTasks.run(() -> {
+                if (repeat) {
+                    // The rule writes its occurrences up to today, this one included
+                    dataStorage.addRecurringRule(dataStorage.getLoggedUser(), RecurringRule.monthly(name, amount, category, date), LocalDate.now());
+                } else {
+                    dataStorage.addTransaction(dataStorage.getLoggedUser(), name, amount, category, date);
                 }
-            }
-            if (budgetInputTab != null) {
-                budgetInputTab.refreshBudgets();
-            }
+            }, () -> {
+                saving.set(false);
+                amountField.setText(null);
+            }, error -> {
+                saving.set(false);
+                showError("Failed to save transaction: " + error.getMessage());
+            });
 
-            Transaction newT = new Transaction(name, amount, category, date);
-            tableData.add(newT);
-            applyFilters();
-            updateTotal();
-
-            amountField.setText(null);
-
-        } catch (SQLException e) {
-            System.out.println("[DEBUG] SQLException: " + e.getMessage());
-            new Alert(Alert.AlertType.ERROR, "Failed to save transaction: " + e.getMessage()).show();
         } catch (NumberFormatException e) {
             System.out.println("[DEBUG] NumberFormatException: " + e.getMessage());
             new Alert(Alert.AlertType.ERROR, "Invalid amount format").show();
         }
     }
 
-    private void removeHandler(Transaction toRemove) {
-        tableData.remove(toRemove);
-        applyFilters();
-        dataStorage.removeTransaction(dataStorage.getLoggedUser(), toRemove.getName());
+    private void importCsvHandler() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import bank statement");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files", "*.csv"));
+        File file = chooser.showOpenDialog(getTabPane().getScene().getWindow());
+        if (file == null) return;
+
+        CsvTransactionImporter importer = new CsvTransactionImporter(dataStorage, CsvColumnMapping.defaults());
+        CsvImportTask task = new CsvImportTask(importer, dataStorage.getLoggedUser(), file.toPath());
+
+        importProgress.progressProperty().bind(task.progressProperty());
+        importProgress.visibleProperty().bind(task.runningProperty());
+        importStatusLabel.textProperty().bind(task.messageProperty());
+        importButton.disableProperty().bind(task.runningProperty());
+
+        task.setOnFailed(e -> showError("Import failed: " + task.getException().getMessage()));
+
+        BackgroundTasks.submit(task);
     }
 
-    private void applyFilters() {
-        String selectedCategory = filterCategoryCombo.getValue();
-        LocalDate selectedMonth = filterMonthPicker.getValue();
+    private void removeHandler(Transaction toRemove) {
+        if (toRemove == null) return; // row still loading
+        User user = dataStorage.getLoggedUser();
+        BackgroundTasks.run(() -> dataStorage.removeTransaction(user, toRemove.getId()), null,
+                error -> showError("Failed to remove transaction: " + error.getMessage()));
+    }
 
-        table.setItems(tableData.filtered(t -> {
-            boolean matchesCategory = selectedCategory == null || selectedCategory.equals("All") || t.getCategory().equals(selectedCategory);
-            boolean matchesMonth = selectedMonth == null ||
-                    (t.getDate() != null && t.getDate().getMonth() == selectedMonth.getMonth() && t.getDate().getYear() == selectedMonth.getYear());
-            return matchesCategory && matchesMonth;
-        }));
-        updateTotal();
+    private void removeSelectedHandler() {
+        List<Long> ids = new ArrayList<>();
+        for (Transaction t : table.getSelectionModel().getSelectedItems()) {
+            if (t != null) ids.add(t.getId()); // rows still loading are skipped
+        }
+        if (ids.isEmpty()) return;
+        table.getSelectionModel().clearSelection();
+        User user = dataStorage.getLoggedUser();
+        BackgroundTasks.run(() -> dataStorage.removeTransactions(user, ids), null,
+                error -> showError("Failed to remove transactions: " + error.getMessage()));
     }
 
     private void setupAIComponents() {
         Button aiButton = new Button("Obtenir des conseils");
+        Button cancelAiButton = new Button("Annuler");
+        ProgressIndicator aiProgress = new ProgressIndicator();
+        aiProgress.setPrefSize(24, 24);
+        aiProgress.setVisible(false);
+        cancelAiButton.setVisible(false);
         TextArea adviceArea = new TextArea();
         adviceArea.setEditable(false);
         adviceArea.setWrapText(true);
@@ -550,20 +723,25 @@ public class TransactionInput extends Tab {
 
         aiButton.setPrefWidth(180);
 
-        VBox aiBox = new VBox(10, aiButton, adviceArea);
+        HBox aiButtons = new HBox(8, aiButton, aiProgress, cancelAiButton);
+        aiButtons.setAlignment(Pos.CENTER);
+        VBox aiBox = new VBox(10, aiButtons, adviceArea);
         aiBox.setAlignment(Pos.CENTER);
         aiBox.setPadding(new Insets(10));
 
         aiButton.setOnAction(e -> {
-            try {
-                AIAssistant assistant = new AIAssistant(dataStorage);
-                String advice = assistant.generateMonthlyAdvice(dataStorage.getLoggedUser().getId());
-                adviceArea.setText(advice);
-            } catch (SQLException ex) {
-                adviceArea.setText("Erreur lors de la génération des conseils: " + ex.getMessage());
-            } catch (IOException ex) {
-                throw new RuntimeException(ex);
-            }
+            int userId = dataStorage.getLoggedUser().getId();
+            adviceArea.setText("Analyse en cours...");
+            Task<String> task = BackgroundTasks.submit(
+                    () -> new AIAssistant(dataStorage).generateMonthlyAdvice(userId),
+                    adviceArea::setText,
+                    error -> adviceArea.setText("Erreur lors de la génération des conseils: " + error.getMessage()));
+            task.setOnCancelled(ev -> adviceArea.setText("Génération des conseils annulée."));
+
+            aiButton.disableProperty().bind(task.runningProperty());
+            aiProgress.visibleProperty().bind(task.runningProperty());
+            cancelAiButton.visibleProperty().bind(task.runningProperty());
+            cancelAiButton.setOnAction(ev -> task.cancel());
         });
         outerGrid.add(aiBox, 0, 2);
     }
@@ -577,11 +755,14 @@ public class TransactionInput extends Tab {
         Alert alert = new Alert(Alert.AlertType.WARNING, msg, ButtonType.OK);
         alert.showAndWait();
     }
+
+    private void showError(String msg) {
+        new Alert(Alert.AlertType.ERROR, msg).show();
+    }
     /**
-     * Call this method after adding a new budget/category to refresh the ComboBox.
-     * You can call it from BudgetInputTab after a new budget is added.
+     * Refreshes the ComboBoxes from the user's budgets, once one was added or removed.
      */
-    public void refreshCategoryComboBox() {
+    private void refreshCategoryComboBox() {
         ObservableList<String> budgetedCategories = getBudgetedCategories();
         System.out.println("[DEBUG] [refreshCategoryComboBox] Setting ComboBox items: " + budgetedCategories);
         categoryComboBox.getItems().setAll(budgetedCategories);
@@ -592,8 +773,5 @@ public class TransactionInput extends Tab {
         filterCategoryCombo.getItems().addAll(budgetedCategories);
         filterCategoryCombo.setValue("All");
     }
-    public void setBudgetInputTab(BudgetInputTab budgetInputTab) {
-        this.budgetInputTab = budgetInputTab;
-    }
     public static void main(String[] args) { }
 }
\ No newline at end of file
@@ -13,7 +13,6 @@ import javafx.geometry.Pos;
 import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.control.skin.DatePickerSkin;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
@@ -216,8 +215,7 @@ public class TransactionPage extends Application
         /* ---------------------------------------------------------- */
 
         TableColumn<Transaction, String> colName = new TableColumn<>("Transaction");
-        colName.setCellValueFactory(
-                new PropertyValueFactory<Transaction, String>("name"));
+        colName.setCellValueFactory(TransactionProperties::name);
 
         /*
         // Line allows users to edit Transaction name seamlessly, but may not be desirable
@@ -231,9 +229,15 @@ public class TransactionPage extends Application
         /* LINK Amount */
         /* ---------------------------------------------------------- */
 
-        TableColumn<Transaction, Double> colAmount = new TableColumn<>("Amount");
-        colAmount.setCellValueFactory(
-                new PropertyValueFactory<Transaction, Double>("amount"));
+        TableColumn<Transaction, Number> colAmount = new TableColumn<>("Amount");
+        colAmount.setCellValueFactory(TransactionProperties::amount);
+        colAmount.setCellFactory(column -> new TableCell<>() {
+            @Override
+            protected void updateItem(Number value, boolean empty) {
+                super.updateItem(value, empty);
+                setText(empty || value == null ? null : Money.format(value.longValue()));
+            }
+        });
 
         colAmount.setReorderable(false);
         colAmount.setResizable(false);
@@ -245,8 +249,7 @@ public class TransactionPage extends Application
         /* ---------------------------------------------------------- */
 
         TableColumn<Transaction, String> colCategory = new TableColumn<>("Category");
-        colCategory.setCellValueFactory(
-                new PropertyValueFactory<Transaction, String>("category"));
+        colCategory.setCellValueFactory(TransactionProperties::category);
 
         /*
         // Line allows users to edit Transaction name seamlessly, but may not be desirable
@@ -262,8 +265,7 @@ public class TransactionPage extends Application
         /* ---------------------------------------------------------- */
 
         TableColumn<Transaction, LocalDate> colDate = new TableColumn<>("Date");
-        colDate.setCellValueFactory(
-                new PropertyValueFactory<Transaction, LocalDate>("date"));
+        colDate.setCellValueFactory(TransactionProperties::date);
 
         colDate.setReorderable(false);
         colDate.setResizable(false);
@@ -405,7 +407,7 @@ public class TransactionPage extends Application
                     && amountInput != null && !amountInput.isEmpty()
                     && categoryInput != null && !categoryInput.isEmpty()
                     && dateInput != null && dateField.valueProperty() != null) {
-                Transaction Transaction = new Transaction(nameInput, Double.parseDouble(amountInput), categoryInput, dateInput);
+                Transaction Transaction = new Transaction(nameInput, Money.parse(amountInput), categoryInput, dateInput);
                 // Add event handler to Transaction
 
                 table.getItems().add(Transaction);
@@ -0,0 +1,42 @@
+package com.MoneyMind.projet_javafx.controllers;
+
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.control.TableColumn.CellDataFeatures;
+
+import java.time.LocalDate;
+
+/**
+ * Cell value factories exposing {@link Transaction} fields as read-only JavaFX values.
+ *
+ * A {@code TableView} only asks for the cells it lays out, so adapters exist for the
+ * visible rows alone instead of four properties per loaded transaction. Unlike
+ * {@code PropertyValueFactory}, no reflection is involved. A null row (a page of
+ * {@link PagedTransactionList} still loading) gets empty cells.
+ *
+ * <pre>nameCol.setCellValueFactory(TransactionProperties::name);</pre>
+ */
+public final class TransactionProperties {
+
+    private TransactionProperties() {
+    }
+
+    public static ObservableValue<String> name(CellDataFeatures<Transaction, String> cell) {
+        return new ReadOnlyObjectWrapper<>(cell.getValue() == null ? null : cell.getValue().getName());
+    }
+
+    /**
+     * Amount in minor units; format with {@link Money#format(long)}.
+     */
+    public static ObservableValue<Number> amount(CellDataFeatures<Transaction, Number> cell) {
+        return new ReadOnlyObjectWrapper<>(cell.getValue() == null ? null : cell.getValue().getAmount());
+    }
+
+    public static ObservableValue<String> category(CellDataFeatures<Transaction, String> cell) {
+        return new ReadOnlyObjectWrapper<>(cell.getValue() == null ? null : cell.getValue().getCategory());
+    }
+
+    public static ObservableValue<LocalDate> date(CellDataFeatures<Transaction, LocalDate> cell) {
+        return new ReadOnlyObjectWrapper<>(cell.getValue() == null ? null : cell.getValue().getDate());
+    }
+}
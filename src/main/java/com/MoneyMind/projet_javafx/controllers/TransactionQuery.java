@@ -0,0 +1,73 @@
+package com.MoneyMind.projet_javafx.controllers;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Rows shown by the transaction table: one user's transactions, optionally limited
+ * to a category and a month. Pages are read in {@code (date, transaction_id)} order,
+ * see {@link DataStorage#getTransactionPage}.
+ */
+public final class TransactionQuery {
+    private static final LocalDate FIRST_DAY = LocalDate.of(1, 1, 1);
+    private static final LocalDate LAST_DAY = LocalDate.of(9999, 12, 31);
+
+    private final int userId;
+    private final String category; // null: every category
+    private final YearMonth month; // null: every month
+
+    public TransactionQuery(int userId, String category, YearMonth month) {
+        this.userId = userId;
+        this.category = category;
+        this.month = month;
+    }
+
+    public static TransactionQuery all(int userId) {
+        return new TransactionQuery(userId, null, null);
+    }
+
+    public int getUserId() { return userId; }
+
+    public String getCategory() { return category; }
+
+    public YearMonth getMonth() { return month; }
+
+    /**
+     * First day of the range, inclusive.
+     */
+    public LocalDate getStart() {
+        return month == null ? FIRST_DAY : month.atDay(1);
+    }
+
+    /**
+     * Last day of the range, inclusive.
+     */
+    public LocalDate getEnd() {
+        return month == null ? LAST_DAY : month.atEndOfMonth();
+    }
+
+    /**
+     * Whether the rollup row counts towards this query (its month is already in range).
+     */
+    public boolean matches(MonthlyTotal total) {
+        return category == null || category.equals(total.getCategory());
+    }
+
+    /**
+     * Whether the row is one of this query's (its owner is checked by the caller).
+     */
+    public boolean matches(Transaction transaction) {
+        LocalDate date = transaction.getDate();
+        return (category == null || category.equals(transaction.getCategory()))
+                && !date.isBefore(getStart()) && !date.isAfter(getEnd());
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionQuery{" +
+            "userId=" + userId +
+            ", category=" + category +
+            ", month=" + month +
+            '}';
+    }
+}
@@ -1,5 +1,6 @@
 package com.MoneyMind.projet_javafx.controllers;
 
+import com.MoneyMind.projet_javafx.db.RowChange;
 import javafx.scene.chart.CategoryAxis;
 import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.XYChart;
@@ -35,7 +36,21 @@ public class TransactionView extends Tab {
      */
     private DataStorage dataStorage;
     private Button quit; // Define quit button as a class field
-    public TransactionView(DataStorage dataStorage) {
+
+    // Category -> 12 monthly totals, kept up to date from the change stream
+    private Map<String, long[]> chartData;
+    private boolean loading;
+    private boolean reloadAgain; // changes arrived while loading
+    private boolean stale; // changed since the chart was drawn
+
+    public TransactionView(DataStorage dataStorage, ChangeStream changes) {
+        this(dataStorage, changes, null);
+    }
+
+    /**
+     * @param login rollup read at login, drawn without reading it again; null to read it
+     */
+    public TransactionView(DataStorage dataStorage, ChangeStream changes, LoginSnapshot login) {
         this.dataStorage = dataStorage;
         setText("Transactions Breakdown");
 
@@ -50,23 +65,70 @@ public class TransactionView extends Tab {
         quit.setMaxWidth(75);
         quit.setFont(font);
 
-        // Attach the refresh method to the onSelectionChanged event
+        // Redraw on selection only if something changed since the last drawing
         this.setOnSelectionChanged(event -> {
-            if (this.isSelected()) {
-                refresh();
+            if (this.isSelected() && stale) {
+                show(chartData);
             }
         });
-
-        // Call refresh initially to populate the tab
-        refresh();
+        changes.subscribe(this::applyChanges);
+
+        // Read the rollup once to populate the tab; changes are applied from then on
+        if (login == null) {
+            refresh();
+        } else {
+            chartData = monthlyTotalsFromRollup(login.getMonthlyTotals());
+            show(chartData);
+        }
     }
 
     public void refresh() {
-        // Clear the old data
-        List<Transaction> list = dataStorage.getLoggedUser().getTransactions();
+        // Read the monthly rollup in the background, then re-create the chart
+        int userId = dataStorage.getLoggedUser().getId();
+        loading = true;
+        reloadAgain = false;
+        BackgroundTasks.submit(() -> dataStorage.getMonthlyTotals(userId), totals -> {
+            loading = false;
+            chartData = monthlyTotalsFromRollup(totals);
+            if (reloadAgain) {
+                refresh(); // the rollup may predate those changes
+            } else {
+                show(chartData);
+            }
+        }, error -> {
+            loading = false;
+            error.printStackTrace();
+        });
+    }
+
+    /**
+     * Adds committed rows to (or takes deleted ones off) their month, without reading the
+     * rollup; the chart is redrawn now if the tab is shown, else when it is selected.
+     */
+    private void applyChanges(List<RowChange<?>> changes) {
+        List<RowChange<Transaction>> rows = RowChange.select(changes, RowChange.TRANSACTIONS);
+        if (rows.isEmpty()) return;
+        if (loading) {
+            reloadAgain = true;
+            return;
+        }
+        if (chartData == null) return;
+        for (RowChange<Transaction> change : rows) {
+            Transaction row = change.getRow();
+            long[] months = chartData.computeIfAbsent(row.getCategory(), c -> new long[12]);
+            int m = row.getDate().getMonthValue() - 1;
+            months[m] = change.getOp() == RowChange.Op.DELETE
+                    ? Money.subtract(months[m], row.getAmount())
+                    : Money.add(months[m], row.getAmount());
+        }
+        stale = true;
+        if (isSelected()) show(chartData);
+    }
 
+    private void show(Map<String, long[]> chartData) {
+        stale = false;
         // Clear and re-create the chart
-        LineChart<String, Number> chart = createChart(list);
+        LineChart<String, Number> chart = createChart(chartData);
 
         // Re-populate your UI elements
         VBox vBox = new VBox();
@@ -96,10 +158,10 @@ public class TransactionView extends Tab {
 
     /**
      * Method creates LineChart from map data
-     * @param list: Map containing categories as keys and total costs for each category as values
+     * @param chartData: Map containing categories as keys and the 12 monthly totals of each category as values
      * @return LineChart chart
      */
-    public static LineChart<String, Number> createChart(List<Transaction> list) {
+    public static LineChart<String, Number> createChart(Map<String, long[]> chartData) {
         CategoryAxis xAxis = new CategoryAxis();
         NumberAxis yAxis = new NumberAxis();
         xAxis.setLabel("Month");
@@ -112,55 +174,59 @@ public class TransactionView extends Tab {
         Label titleLabel = (Label) chart.lookup(".chart-title");
         titleLabel.setStyle("-fx-font-family: \"Hanken Grotesk\"; -fx-font-size: 20px;");
 
-        createChartData(list, chart);
+        createChartData(chartData, chart);
 
         return chart;
     }
 
-    private static void createChartData(List<Transaction> transactions, LineChart<String,Number> chart)
+    /**
+     * Totals per category and calendar month, without touching the scene graph.
+     * @param transactions: transactions to aggregate
+     * @return category -> 12 totals in minor units (index 0 = January)
+     */
+    public static Map<String, long[]> monthlyTotals(List<Transaction> transactions)
     {
-        Map<String, Map<String, Double>> chartData = new HashMap<>();
+        Map<String, long[]> chartData = new HashMap<>();
 
         // Each category will represent one line/entry in the map
         for (Transaction t : transactions)
         {
-            String c = t.getCategory();
-            String tMonth = t.getDate().getMonth().getDisplayName(TextStyle.SHORT, Locale.getDefault());
-            Double tAmount = t.getAmount();
-            if (!chartData.containsKey(c))
-            {
-                Map<String, Double> months = addMonthMap();
-                months.put(tMonth, months.get(tMonth) + tAmount);
-                chartData.put(c, months);
-            } else
-            {
-                Map<String, Double> months = chartData.get(c);
-                months.put(tMonth, months.get(tMonth) + tAmount);
-            }
+            long[] months = chartData.computeIfAbsent(t.getCategory(), c -> new long[12]);
+            int m = t.getDate().getMonthValue() - 1;
+            months[m] = Money.add(months[m], t.getAmount());
         }
+        return chartData;
+    }
 
-        for (Map.Entry<String, Map<String, Double>> category : chartData.entrySet()) {
+    /**
+     * Same as {@link #monthlyTotals} from the monthly rollup: O(categories × months) rows.
+     * @param totals: rollup rows, any years (each calendar month sums all years, like monthlyTotals)
+     * @return category -> 12 totals in minor units (index 0 = January)
+     */
+    public static Map<String, long[]> monthlyTotalsFromRollup(List<MonthlyTotal> totals)
+    {
+        Map<String, long[]> chartData = new HashMap<>();
+        for (MonthlyTotal t : totals)
+        {
+            long[] months = chartData.computeIfAbsent(t.getCategory(), c -> new long[12]);
+            int m = t.getMonth().getMonthValue() - 1;
+            months[m] = Money.add(months[m], t.getTotal());
+        }
+        return chartData;
+    }
+
+    private static void createChartData(Map<String, long[]> chartData, LineChart<String,Number> chart)
+    {
+        for (Map.Entry<String, long[]> category : chartData.entrySet()) {
             XYChart.Series series = new XYChart.Series();
             series.setName(category.getKey());
 
             for (int i = 1; i <= 12; i++) {
                 String month = Month.of(i).getDisplayName(TextStyle.SHORT, Locale.getDefault());
-                series.getData().add(new XYChart.Data(month, category.getValue().get(month)));
+                series.getData().add(new XYChart.Data(month, Money.toMajor(category.getValue()[i - 1])));
             }
             chart.getData().add(series);
         }
 
     }
-
-    // Each category stores the total amount spent in each month in a map
-    // key month, value: total spent on this category this month
-    private static Map<String, Double> addMonthMap()
-    {
-        Map<String, Double> months = new HashMap<>();
-        for (int i = 1; i <= 12; i++) {
-            String month = Month.of(i).getDisplayName(TextStyle.SHORT, Locale.getDefault());
-            months.put(month, 0.0);
-        }
-        return months;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,233 @@
+package com.MoneyMind.projet_javafx.controllers;
+
+import com.MoneyMind.projet_javafx.db.CategoryDictionary;
+import com.MoneyMind.projet_javafx.db.ConnectionPool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind queue for transaction inserts (group commit).
+ *
+ * Callers enqueue rows and get a future; a single writer thread drains the queue
+ * and writes everything pending in one SQLite transaction, once {@code maxBatch}
+ * rows are waiting or {@code maxDelay} after the first one arrived, whichever
+ * comes first. A future completes only after the COMMIT holding its row, so a
+ * burst of N inserts costs one commit instead of N. The queue is bounded:
+ * {@link #submit} blocks while it is full.
+ *
+ * Rows whose category does not exist fail on their own; any other error fails
+ * the whole group, which is rolled back.
+ *
+ * The queue lives in memory only: rows not yet committed are lost if the process
+ * dies, and their futures never complete ({@link #close} commits what is queued).
+ * The writer thread only touches the database; callers update their in-memory
+ * {@link User} once their future completes, and the views follow the change stream.
+ */
+public class TransactionWriteQueue implements AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 10_000;
+    public static final int DEFAULT_MAX_BATCH = 500;
+    // No linger: rows arriving during a commit form the next group on their own
+    public static final Duration DEFAULT_MAX_DELAY = Duration.ZERO;
+
+    private static final Pending SHUTDOWN = new Pending(0, null);
+
+    private final ConnectionPool pool;
+    private final BlockingQueue<Pending> queue;
+    private final int maxBatch;
+    private final long maxDelayNanos;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    private final LongAdder committedRows = new LongAdder();
+    private final LongAdder groupCommits = new LongAdder();
+    private final LongAdder failedRows = new LongAdder();
+
+    public TransactionWriteQueue(ConnectionPool pool) {
+        this(pool, DEFAULT_CAPACITY, DEFAULT_MAX_BATCH, DEFAULT_MAX_DELAY);
+    }
+
+    /**
+     * @param capacity rows that may wait before {@link #submit} blocks
+     * @param maxBatch most rows written by one commit
+     * @param maxDelay longest a row waits for others before its group is committed
+     */
+    public TransactionWriteQueue(ConnectionPool pool, int capacity, int maxBatch, Duration maxDelay) {
+        if (capacity < 1 || maxBatch < 1) {
+            throw new IllegalArgumentException("capacity and maxBatch must be positive");
+        }
+        this.pool = pool;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatch = maxBatch;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.writer = new Thread(this::drainLoop, "moneymind-group-commit");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues one row for {@code userId}.
+     * @return completes when the row is committed, exceptionally if it was not written
+     */
+    public CompletableFuture<Void> submit(int userId, Transaction transaction) {
+        Pending pending = new Pending(userId, transaction);
+        if (closed) {
+            pending.done.completeExceptionally(new IllegalStateException("Write queue closed"));
+            return pending.done;
+        }
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.done.completeExceptionally(e);
+            return pending.done;
+        }
+        if (closed && !writer.isAlive()) {
+            // Raced with close(): nobody will drain this row
+            failLeftovers();
+        }
+        return pending.done;
+    }
+
+    /**
+     * Writes every row already queued, then stops the writer thread.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            queue.put(SHUTDOWN);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failLeftovers();
+    }
+
+    public int getPendingRows() { return queue.size(); }
+    public long getCommittedRows() { return committedRows.sum(); }
+    public long getGroupCommits() { return groupCommits.sum(); }
+    public long getFailedRows() { return failedRows.sum(); }
+
+    public double getAverageGroupSize() {
+        long commits = groupCommits.sum();
+        return commits == 0 ? 0.0 : (double) committedRows.sum() / commits;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TransactionWriteQueue{committed=%d, groupCommits=%d, avgGroup=%.1f, failed=%d, pending=%d}",
+                getCommittedRows(), getGroupCommits(), getAverageGroupSize(), getFailedRows(), getPendingRows());
+    }
+
+    // ==================== Writer thread ====================
+
+    private void drainLoop() {
+        List<Pending> group = new ArrayList<>(maxBatch);
+        boolean running = true;
+        while (running) {
+            try {
+                Pending first = queue.take();
+                if (first == SHUTDOWN) break;
+                group.add(first);
+
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (group.size() < maxBatch) {
+                    long wait = deadline - System.nanoTime();
+                    Pending next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    if (next == SHUTDOWN) {
+                        running = false;
+                        break;
+                    }
+                    group.add(next);
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            if (!group.isEmpty()) {
+                write(group);
+                group.clear();
+            }
+        }
+    }
+
+    private void write(List<Pending> group) {
+        // Rows grouped per user, each list in arrival order
+        Map<Integer, List<Pending>> byUser = new LinkedHashMap<>();
+        List<Pending> accepted = new ArrayList<>(group.size());
+
+        try (Connection connection = pool.borrowWriter()) {
+            try {
+                Map<String, Integer> categoryIds = CategoryDictionary.of(pool).ids();
+                for (Pending p : group) {
+                    String category = p.transaction.getCategory();
+                    if (category != null && !category.isEmpty() && !categoryIds.containsKey(category)) {
+                        failedRows.increment();
+                        p.done.completeExceptionally(new SQLException("Category not found: " + category));
+                        continue;
+                    }
+                    byUser.computeIfAbsent(p.userId, u -> new ArrayList<>()).add(p);
+                    accepted.add(p);
+                }
+
+                for (Map.Entry<Integer, List<Pending>> entry : byUser.entrySet()) {
+                    int userId = entry.getKey();
+                    List<Transaction> rows = new ArrayList<>(entry.getValue().size());
+                    for (Pending p : entry.getValue()) rows.add(p.transaction);
+
+                    Map<String, long[]> deltas = new HashMap<>();
+                    long totalDelta = DataStorage.insertTransactions(connection, userId, rows, categoryIds, deltas);
+                    DataStorage.applyDeltas(connection, userId, categoryIds, deltas, totalDelta);
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException | RuntimeException e) {
+            failedRows.add(accepted.size());
+            for (Pending p : accepted) p.done.completeExceptionally(e);
+            System.err.println("Group commit failed (" + accepted.size() + " rows): " + e.getMessage());
+            return;
+        }
+
+        groupCommits.increment();
+        committedRows.add(accepted.size());
+        for (Pending p : accepted) p.done.complete(null);
+    }
+
+    private void failLeftovers() {
+        Pending p;
+        while ((p = queue.poll()) != null) {
+            if (p != SHUTDOWN) {
+                failedRows.increment();
+                p.done.completeExceptionally(new IllegalStateException("Write queue closed"));
+            }
+        }
+    }
+
+    private static final class Pending {
+        final int userId;
+        final Transaction transaction;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Pending(int userId, Transaction transaction) {
+            this.userId = userId;
+            this.transaction = transaction;
+        }
+    }
+}
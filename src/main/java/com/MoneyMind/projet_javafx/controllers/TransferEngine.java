@@ -0,0 +1,236 @@
+package com.MoneyMind.projet_javafx.controllers;
+
+import com.MoneyMind.projet_javafx.db.CategoryDictionary;
+import com.MoneyMind.projet_javafx.db.ConnectionPool;
+import com.MoneyMind.projet_javafx.db.Ledger;
+import com.MoneyMind.projet_javafx.db.MonthlyTotalsDAO;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntPredicate;
+
+/**
+ * Moves money between users' balances ({@code users.total_limit}).
+ *
+ * A call is one SQLite transaction. Each request first claims its idempotency key in
+ * the {@code transfers} table; a key already there is reported as replayed and moves
+ * nothing. Every payee is then credited by increment, and every payer debited once,
+ * for the sum of its new transfers, by a conditional
+ * {@code UPDATE ... WHERE total_limit >= ?} that fails instead of going negative.
+ * Balances are never read into Java and written back, so concurrent transfers cannot
+ * overwrite each other, and a batch (e.g. payroll: one payer, many payees) commits
+ * whole or not at all. Each new transfer is journaled in the {@link Ledger} as one
+ * entry, payer to payee, in the same transaction.
+ */
+public class TransferEngine {
+
+    static final String SELECT_USER_ID =
+            "SELECT user_id FROM users WHERE username = ?";
+    static final String CLAIM_TRANSFER = """
+            INSERT INTO transfers (idempotency_key, from_user_id, to_user_id, amount, created_at)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (idempotency_key) DO NOTHING
+            RETURNING transfer_id""";
+    static final String SELECT_TRANSFER_BY_KEY =
+            "SELECT transfer_id, from_user_id, to_user_id, amount FROM transfers WHERE idempotency_key = ?";
+    static final String DEBIT_IF_FUNDED =
+            "UPDATE users SET total_limit = total_limit - ?1 WHERE user_id = ?2 AND total_limit >= ?1";
+
+    static final String TRANSFER_CATEGORY = "Transfer";
+
+    private final ConnectionPool pool;
+    private final CategoryDictionary categories;
+
+    private final LongAdder movedTransfers = new LongAdder();
+    private final LongAdder replayedTransfers = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+
+    public TransferEngine(ConnectionPool pool) {
+        this.pool = pool;
+        this.categories = CategoryDictionary.of(pool);
+    }
+
+    public TransferResult transfer(TransferRequest request) throws SQLException {
+        return transferAll(List.of(request)).get(0);
+    }
+
+    /**
+     * Applies every request, or none of them.
+     * @return one result per request, in order
+     * @throws SQLException {@link InsufficientFundsException}, "User not found: ..." or a reused key;
+     *         nothing has been written
+     */
+    public List<TransferResult> transferAll(List<TransferRequest> requests) throws SQLException {
+        if (requests.isEmpty()) return List.of();
+        // Resolved first: it commits on its own when the category has to be created
+        int categoryId = categories.getOrCreate(TRANSFER_CATEGORY, "INCOME");
+
+        List<TransferResult> results;
+        try (Connection connection = pool.borrowWriter()) {
+            try {
+                results = apply(connection, requests, categoryId, LocalDate.now(), userId -> true);
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                countFailure();
+                throw e;
+            }
+        }
+        count(results);
+        return results;
+    }
+
+    void count(List<TransferResult> results) {
+        for (TransferResult result : results) {
+            (result.isReplayed() ? replayedTransfers : movedTransfers).increment();
+        }
+    }
+
+    void countFailure() {
+        failedBatches.increment();
+    }
+
+    public long getMovedTransfers() { return movedTransfers.sum(); }
+    public long getReplayedTransfers() { return replayedTransfers.sum(); }
+    public long getFailedBatches() { return failedBatches.sum(); }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{moved=" + getMovedTransfers() + ", replayed=" + getReplayedTransfers()
+                + ", failedBatches=" + getFailedBatches() + "}";
+    }
+
+    /**
+     * Part of the caller's transaction: the caller commits.
+     * @param isLocal whether a payee's balance is in this database; the others are left to
+     *                {@link ShardedTransferEngine}, the payer's side posting to its EXTERNAL account
+     */
+    static List<TransferResult> apply(Connection connection, List<TransferRequest> requests,
+                                      int categoryId, LocalDate today, IntPredicate isLocal) throws SQLException {
+        Map<String, Integer> userIds = new HashMap<>();
+        // One mutable cell per user: summing never boxes
+        Map<Integer, long[]> debits = new LinkedHashMap<>();
+        Map<Integer, long[]> credits = new LinkedHashMap<>();
+        Map<Integer, MonthlyTotalsDAO.Delta> rollups = new HashMap<>();
+        List<Map.Entry<Integer, Transaction>> inserted = new ArrayList<>();
+        List<Ledger.Entry> entries = new ArrayList<>(requests.size());
+        List<TransferResult> results = new ArrayList<>(requests.size());
+
+        try (PreparedStatement lookup = connection.prepareStatement(SELECT_USER_ID);
+             PreparedStatement claim = connection.prepareStatement(CLAIM_TRANSFER);
+             PreparedStatement record = connection.prepareStatement(DataStorage.INSERT_TRANSACTION)) {
+            for (TransferRequest request : requests) {
+                int from = userId(lookup, userIds, request.getFromUsername());
+                int to = userId(lookup, userIds, request.getToUsername());
+                long amount = request.getAmount();
+
+                claim.setString(1, request.getIdempotencyKey());
+                claim.setInt(2, from);
+                claim.setInt(3, to);
+                claim.setLong(4, amount);
+                claim.setString(5, today.toString());
+                try (ResultSet rs = claim.executeQuery()) {
+                    if (!rs.next()) {
+                        results.add(replay(connection, request, from, to));
+                        continue;
+                    }
+                    long transferId = rs.getLong(1);
+                    results.add(new TransferResult(request, transferId, false));
+                    entries.add(new Ledger.Entry(from, "TRANSFER", transferId,
+                            "Transfer " + request.getFromUsername() + " -> " + request.getToUsername())
+                            .move(Ledger.Account.user(from),
+                                    isLocal.test(to) ? Ledger.Account.user(to) : Ledger.Account.external(from), amount));
+                }
+
+                long[] paid = debits.computeIfAbsent(from, k -> new long[1]);
+                paid[0] = Money.add(paid[0], amount);
+                addRecord(record, inserted, from, "Transfer to " + request.getToUsername(), -amount, categoryId, today);
+                rollups.computeIfAbsent(from, k -> new MonthlyTotalsDAO.Delta()).add(today, categoryId, -amount);
+                if (isLocal.test(to)) {
+                    long[] received = credits.computeIfAbsent(to, k -> new long[1]);
+                    received[0] = Money.add(received[0], amount);
+                    addRecord(record, inserted, to, "Transfer from " + request.getFromUsername(), amount, categoryId, today);
+                    rollups.computeIfAbsent(to, k -> new MonthlyTotalsDAO.Delta()).add(today, categoryId, amount);
+                }
+            }
+            if (debits.isEmpty()) return results; // every request was a replay
+
+            // Credits first: a payee of this batch may pay others with what it receives
+            try (PreparedStatement credit = connection.prepareStatement(DataStorage.ADD_TO_TOTAL_LIMIT)) {
+                for (Map.Entry<Integer, long[]> entry : credits.entrySet()) {
+                    credit.setLong(1, entry.getValue()[0]);
+                    credit.setInt(2, entry.getKey());
+                    credit.addBatch();
+                }
+                credit.executeBatch();
+            }
+            try (PreparedStatement debit = connection.prepareStatement(DEBIT_IF_FUNDED)) {
+                for (Map.Entry<Integer, long[]> entry : debits.entrySet()) {
+                    debit.setLong(1, entry.getValue()[0]);
+                    debit.setInt(2, entry.getKey());
+                    if (debit.executeUpdate() == 0) throw new InsufficientFundsException(entry.getKey());
+                }
+            }
+            record.executeBatch();
+            DataStorage.recordInserted(connection, inserted);
+            Set<Integer> moved = new LinkedHashSet<>(credits.keySet());
+            moved.addAll(debits.keySet());
+            DataStorage.recordBalances(connection, moved);
+        }
+        Ledger.append(connection, entries, today);
+        for (Map.Entry<Integer, MonthlyTotalsDAO.Delta> entry : rollups.entrySet()) {
+            MonthlyTotalsDAO.applyInserts(connection, entry.getKey(), entry.getValue());
+        }
+        return results;
+    }
+
+    static int userId(PreparedStatement lookup, Map<String, Integer> userIds, String username) throws SQLException {
+        Integer id = userIds.get(username);
+        if (id != null) return id;
+        lookup.setString(1, username);
+        try (ResultSet rs = lookup.executeQuery()) {
+            if (!rs.next()) throw new SQLException("User not found: " + username);
+            id = rs.getInt("user_id");
+        }
+        userIds.put(username, id);
+        return id;
+    }
+
+    // The key is taken: same transfer committed earlier (or earlier in this batch), or a misuse
+    static TransferResult replay(Connection connection, TransferRequest request, int from, int to) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(SELECT_TRANSFER_BY_KEY)) {
+            pstmt.setString(1, request.getIdempotencyKey());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next() && rs.getInt("from_user_id") == from && rs.getInt("to_user_id") == to
+                        && rs.getLong("amount") == request.getAmount()) {
+                    return new TransferResult(request, rs.getLong("transfer_id"), true);
+                }
+            }
+        }
+        throw new SQLException("Idempotency key already used for another transfer: " + request.getIdempotencyKey());
+    }
+
+    // Queues one transactions row; inserted keeps it for the change feed
+    static void addRecord(PreparedStatement record, List<Map.Entry<Integer, Transaction>> inserted, int userId,
+                          String name, long amount, int categoryId, LocalDate date) throws SQLException {
+        record.setInt(1, userId);
+        record.setString(2, name);
+        record.setLong(3, amount);
+        record.setInt(4, categoryId);
+        record.setLong(5, date.toEpochDay());
+        record.setString(6, amount >= 0 ? "INCOME" : "EXPENSE");
+        record.addBatch();
+        inserted.add(Map.entry(userId, new Transaction(name, amount, TRANSFER_CATEGORY, date)));
+    }
+}
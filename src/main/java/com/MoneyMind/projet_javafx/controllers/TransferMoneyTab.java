@@ -1,5 +1,6 @@
 package com.MoneyMind.projet_javafx.controllers;
 
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
@@ -14,6 +15,9 @@ public class TransferMoneyTab extends Tab {
     private final Label statusLabel = new Label();
 
     private final DataStorage dataStorage;
+    // Last request that did not succeed: retrying the same transfer reuses its idempotency key,
+    // so a retry after an unclear failure cannot move the money twice
+    private TransferRequest unconfirmed;
 
     public TransferMoneyTab(DataStorage dataStorage) {
         this.dataStorage = dataStorage;
@@ -52,9 +56,9 @@ public class TransferMoneyTab extends Tab {
             statusLabel.setText("Please enter both recipient username and amount.");
             return;
         }
-        double amount;
+        long amount;
         try {
-            amount = Double.parseDouble(amountStr);
+            amount = Money.parse(amountStr);
             if (amount <= 0) {
                 statusLabel.setText("Amount must be positive.");
                 return;
@@ -68,15 +72,22 @@ public class TransferMoneyTab extends Tab {
             statusLabel.setText("Cannot transfer to yourself.");
             return;
         }
-        try {
-            boolean success = dataStorage.transferMoney(fromUser, toUser, amount);
-            if (success) {
-                statusLabel.setText("Transfer successful!");
-                toUserField.clear();
-                amountField.clear();
-            }
-        } catch (Exception ex) {
-            statusLabel.setText("Transfer failed: " + ex.getMessage());
-        }
+        TransferRequest request = isRetryOf(unconfirmed, fromUser, toUser, amount)
+                ? unconfirmed
+                : TransferRequest.of(fromUser, toUser, amount);
+        unconfirmed = request;
+        statusLabel.setText("Transferring...");
+        Task<TransferResult> task = BackgroundTasks.submit(() -> dataStorage.transfer(request), result -> {
+            unconfirmed = null;
+            statusLabel.setText(result.isReplayed() ? "Transfer already done." : "Transfer successful!");
+            toUserField.clear();
+            amountField.clear();
+        }, ex -> statusLabel.setText("Transfer failed: " + ex.getMessage()));
+        transferButton.disableProperty().bind(task.runningProperty());
+    }
+
+    private static boolean isRetryOf(TransferRequest previous, String fromUser, String toUser, long amount) {
+        return previous != null && previous.getFromUsername().equals(fromUser)
+                && previous.getToUsername().equals(toUser) && previous.getAmount() == amount;
     }
-}
\ No newline at end of file
+}
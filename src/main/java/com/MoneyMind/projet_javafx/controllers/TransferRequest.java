@@ -0,0 +1,52 @@
+package com.MoneyMind.projet_javafx.controllers;
+
+import java.util.UUID;
+
+/**
+ * One money transfer between two users, identified by an idempotency key: submitting
+ * the same key again, even after a crash or a retry, never moves the money twice.
+ * Amounts are in minor units (see {@link Money}).
+ */
+public final class TransferRequest {
+    private final String idempotencyKey;
+    private final String fromUsername;
+    private final String toUsername;
+    private final long amount;
+
+    public TransferRequest(String idempotencyKey, String fromUsername, String toUsername, long amount) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            throw new IllegalArgumentException("Idempotency key required");
+        }
+        if (amount <= 0) throw new IllegalArgumentException("Amount must be positive");
+        if (fromUsername.equals(toUsername)) throw new IllegalArgumentException("Cannot transfer to the same user");
+        this.idempotencyKey = idempotencyKey;
+        this.fromUsername = fromUsername;
+        this.toUsername = toUsername;
+        this.amount = amount;
+    }
+
+    /**
+     * A request with a fresh random key, for callers that do not retry.
+     */
+    public static TransferRequest of(String fromUsername, String toUsername, long amount) {
+        return new TransferRequest(UUID.randomUUID().toString(), fromUsername, toUsername, amount);
+    }
+
+    public String getIdempotencyKey() { return idempotencyKey; }
+
+    public String getFromUsername() { return fromUsername; }
+
+    public String getToUsername() { return toUsername; }
+
+    public long getAmount() { return amount; }
+
+    @Override
+    public String toString() {
+        return "TransferRequest{" +
+            "key=" + idempotencyKey +
+            ", from=" + fromUsername +
+            ", to=" + toUsername +
+            ", amount=" + Money.format(amount) +
+            '}';
+    }
+}
@@ -0,0 +1,36 @@
+package com.MoneyMind.projet_javafx.controllers;
+
+/**
+ * Outcome of one {@link TransferRequest}: the row of the {@code transfers} table that
+ * holds it, and whether this call moved the money or found it already moved under
+ * the same idempotency key.
+ */
+public final class TransferResult {
+    private final TransferRequest request;
+    private final long transferId;
+    private final boolean replayed;
+
+    public TransferResult(TransferRequest request, long transferId, boolean replayed) {
+        this.request = request;
+        this.transferId = transferId;
+        this.replayed = replayed;
+    }
+
+    public TransferRequest getRequest() { return request; }
+
+    public long getTransferId() { return transferId; }
+
+    /**
+     * True when the key had already been committed: nothing was moved this time.
+     */
+    public boolean isReplayed() { return replayed; }
+
+    @Override
+    public String toString() {
+        return "TransferResult{" +
+            "transferId=" + transferId +
+            ", replayed=" + replayed +
+            ", request=" + request +
+            '}';
+    }
+}
@@ -9,7 +9,7 @@ public class User {
     private String password;
     private List<Budget> budgets = new ArrayList<>();
     private List<Transaction> transactions = new ArrayList<>();
-    private double totalLimit = 0.0;
+    private long totalLimit = 0; // minor units, see Money
 
     public User(int id, String username, String password) {
         this.user_id = id;
@@ -20,7 +20,7 @@ public class User {
         this.transactions = new ArrayList<>();
     }
 
-    public User(int id, String username, String password, double totalLimit) {
+    public User(int id, String username, String password, long totalLimit) {
         this.user_id = id;
         this.username = username;
         this.password = password;
@@ -43,6 +43,6 @@ public class User {
     public void setTransactions(List<Transaction> transactions) {
         this.transactions = transactions != null ? transactions : new ArrayList<>();
     }
-    public double getTotalLimit() { return totalLimit; }
-    public void setTotalLimit(double totalLimit) { this.totalLimit = totalLimit; }
+    public long getTotalLimit() { return totalLimit; }
+    public void setTotalLimit(long totalLimit) { this.totalLimit = totalLimit; }
 }
\ No newline at end of file
@@ -0,0 +1,185 @@
+package com.MoneyMind.projet_javafx.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionnaire des catégories (nom ↔ category_id), partagé par tout le processus pour
+ * une même base.
+ *
+ * La table {@code categories} ne compte que quelques lignes et ne change presque jamais :
+ * elle est lue une fois, puis les résolutions se font en mémoire en O(1). Toute écriture
+ * dans la table passe par {@link #invalidate()} ; un nom inconnu provoque aussi une
+ * relecture, au cas où la catégorie aurait été créée par un autre chemin.
+ *
+ * {@link #intern(String)} rend l'instance unique de chaque nom : les transactions lues
+ * partagent une seule chaîne par catégorie au lieu d'une copie par ligne.
+ */
+public class CategoryDictionary {
+
+    public static final String SELECT_ALL = "SELECT category_id, name FROM categories ORDER BY category_id";
+    private static final String INSERT_IF_ABSENT = "INSERT OR IGNORE INTO categories (name, type) VALUES (?, ?)";
+
+    // Un dictionnaire par pool, libéré à sa fermeture (voir ConnectionPool.close)
+    private static final Map<ConnectionPool, CategoryDictionary> BY_POOL = new ConcurrentHashMap<>();
+
+    private final ConnectionPool pool;
+    private volatile Snapshot snapshot; // null : à relire
+    private int loads;
+
+    private CategoryDictionary(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    public static CategoryDictionary of(ConnectionPool pool) {
+        return BY_POOL.computeIfAbsent(pool, CategoryDictionary::new);
+    }
+
+    static void release(ConnectionPool pool) {
+        BY_POOL.remove(pool);
+    }
+
+    // ==================== Résolution ====================
+
+    /**
+     * @throws SQLException si la catégorie n'existe pas
+     */
+    public int idOf(String name) throws SQLException {
+        Integer id = current().ids.get(name);
+        if (id == null) {
+            invalidate();
+            id = current().ids.get(name);
+        }
+        if (id == null) throw new SQLException("Category not found: " + name);
+        return id;
+    }
+
+    /**
+     * @return le nom, ou null si l'identifiant est inconnu
+     */
+    public String nameOf(int id) throws SQLException {
+        return current().names.get(id);
+    }
+
+    /**
+     * Toutes les catégories, nom → identifiant (vue non modifiable).
+     */
+    public Map<String, Integer> ids() throws SQLException {
+        return current().ids;
+    }
+
+    /**
+     * Noms dans l'ordre de création (vue non modifiable).
+     */
+    public List<String> names() throws SQLException {
+        return current().ordered;
+    }
+
+    /**
+     * Instance partagée du nom s'il désigne une catégorie connue, sinon {@code name} tel quel.
+     * Ne relit jamais la table.
+     */
+    public String intern(String name) {
+        if (name == null) return null;
+        Snapshot current = snapshot;
+        if (current == null) return name;
+        String canonical = current.canonical.get(name);
+        return canonical != null ? canonical : name;
+    }
+
+    // ==================== Écriture ====================
+
+    /**
+     * Identifiant de la catégorie, créée avec {@code type} si elle n'existe pas encore.
+     */
+    public int getOrCreate(String name, String type) throws SQLException {
+        Integer id = current().ids.get(name);
+        if (id != null) return id;
+
+        try (Connection connection = pool.borrowWriter()) {
+            try (PreparedStatement pstmt = connection.prepareStatement(INSERT_IF_ABSENT)) {
+                pstmt.setString(1, name);
+                pstmt.setString(2, type);
+                pstmt.executeUpdate();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+        invalidate();
+        return idOf(name);
+    }
+
+    /**
+     * À appeler après toute écriture dans {@code categories} : la prochaine lecture relit la table.
+     */
+    public synchronized void invalidate() {
+        // Synchronisé : attend la fin d'une lecture en cours, qui a pu précéder l'écriture
+        snapshot = null;
+    }
+
+    /**
+     * Nombre de lectures de la table depuis la création du dictionnaire.
+     */
+    public synchronized int getLoads() {
+        return loads;
+    }
+
+    // ==================== Chargement ====================
+
+    private Snapshot current() throws SQLException {
+        Snapshot current = snapshot;
+        if (current != null) return current;
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = load();
+                loads++;
+            }
+            return snapshot;
+        }
+    }
+
+    private Snapshot load() throws SQLException {
+        Map<String, Integer> ids = new HashMap<>();
+        Map<Integer, String> names = new HashMap<>();
+        Map<String, String> canonical = new HashMap<>();
+        List<String> ordered = new ArrayList<>();
+        try (Connection connection = pool.borrowReader();
+             PreparedStatement pstmt = connection.prepareStatement(SELECT_ALL);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                String name = rs.getString("name").intern();
+                int id = rs.getInt("category_id");
+                ids.put(name, id);
+                names.put(id, name);
+                canonical.put(name, name);
+                ordered.add(name);
+            }
+        }
+        return new Snapshot(ids, names, canonical, ordered);
+    }
+
+    private static final class Snapshot {
+        final Map<String, Integer> ids;
+        final Map<Integer, String> names;
+        final Map<String, String> canonical;
+        final List<String> ordered;
+
+        Snapshot(Map<String, Integer> ids, Map<Integer, String> names,
+                 Map<String, String> canonical, List<String> ordered) {
+            this.ids = Collections.unmodifiableMap(ids);
+            this.names = names;
+            this.canonical = canonical;
+            this.ordered = Collections.unmodifiableList(ordered);
+        }
+    }
+}
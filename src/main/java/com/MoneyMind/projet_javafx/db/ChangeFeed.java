@@ -0,0 +1,110 @@
+package com.MoneyMind.projet_javafx.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Flux des changements validés d'un pool (capture de données modifiées au niveau des DAO).
+ *
+ * Les DAO décrivent chaque ligne de {@code transactions}, {@code budgets} et {@code users}
+ * qu'ils écrivent par un {@link RowChange} ({@link #record}). Le pool retient ces
+ * descriptions le temps de la transaction : quand la connexion d'écriture valide, elles
+ * sont publiées aux abonnés en un seul lot ; quand elle annule (ou est restituée sans
+ * valider), elles sont oubliées. Un abonné ne voit donc que ce qui est réellement écrit,
+ * une fois, dans l'ordre des validations.
+ *
+ * Les abonnés sont appelés sur le thread qui valide, qui détient encore l'écrivain : ils
+ * doivent rendre la main aussitôt (passer le lot à un autre thread) et ne pas écrire.
+ * Sans abonné, rien n'est décrit ({@link #listening} rend null).
+ *
+ * Les traitements de masse (reconstruction du journal ou des agrégats, archivage,
+ * restauration) ne publient rien : ils s'exécutent avant l'ouverture de l'interface.
+ */
+public final class ChangeFeed {
+
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * @param changes lignes écrites par une transaction validée (liste non modifiable)
+         */
+        void onCommit(List<RowChange<?>> changes);
+    }
+
+    /**
+     * Abonnement ; {@link #close()} le résilie.
+     */
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private List<RowChange<?>> pending = new ArrayList<>(); // confiné au thread qui détient l'écrivain
+
+    private final LongAdder publishedChanges = new LongAdder();
+    private final LongAdder discardedChanges = new LongAdder();
+
+    ChangeFeed() {
+    }
+
+    /**
+     * Flux du pool de {@code connection} (sa connexion d'écriture) s'il a au moins un abonné.
+     * @return null pour une connexion hors pool, de lecture, ou sans abonné : rien à décrire
+     */
+    public static ChangeFeed listening(Connection connection) throws SQLException {
+        if (!connection.isWrapperFor(ChangeFeed.class)) return null;
+        ChangeFeed feed = connection.unwrap(ChangeFeed.class);
+        return feed.listeners.isEmpty() ? null : feed;
+    }
+
+    /**
+     * Décrit une ligne écrite par la transaction en cours de la connexion d'écriture.
+     */
+    public void record(RowChange<?> change) {
+        pending.add(change);
+    }
+
+    public Subscription subscribe(Listener listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    public int getSubscriberCount() { return listeners.size(); }
+    public long getPublishedChanges() { return publishedChanges.sum(); }
+    public long getDiscardedChanges() { return discardedChanges.sum(); }
+
+    // ==================== Validation ====================
+
+    // Appelé par le pool juste après le COMMIT de l'écrivain
+    void committed() {
+        if (pending.isEmpty()) return;
+        List<RowChange<?>> changes = Collections.unmodifiableList(pending);
+        pending = new ArrayList<>();
+        publishedChanges.add(changes.size());
+        for (Listener listener : listeners) {
+            try {
+                listener.onCommit(changes);
+            } catch (RuntimeException e) {
+                System.err.println("Échec d'un abonné au flux de changements : " + e);
+            }
+        }
+    }
+
+    // Appelé par le pool après un ROLLBACK de l'écrivain
+    void rolledBack() {
+        if (pending.isEmpty()) return;
+        discardedChanges.add(pending.size());
+        pending.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeFeed{subscribers=" + getSubscriberCount() + ", published=" + getPublishedChanges()
+                + ", discarded=" + getDiscardedChanges() + "}";
+    }
+}
@@ -0,0 +1,479 @@
+package com.MoneyMind.projet_javafx.db;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pool de connexions SQLite : une seule connexion d'écriture (SQLite n'accepte
+ * qu'un écrivain à la fois) et jusqu'à N connexions de lecture en WAL.
+ *
+ * La connexion d'écriture est confinée au thread qui l'emprunte : un même thread
+ * peut l'emprunter plusieurs fois (emprunt réentrant), les autres attendent.
+ * Un thread qui détient l'écrivain et demande un lecteur reçoit l'écrivain,
+ * afin de voir ses propres écritures non encore validées.
+ *
+ * Les connexions rendues sont des proxys : {@code close()} les restitue au pool
+ * au lieu de fermer la connexion physique. Chaque connexion physique garde son
+ * propre {@link StatementCache}, vidé quand le schéma change.
+ *
+ * Les bases déclarées par {@link #attach} (archives, voir {@link TransactionArchive})
+ * sont attachées à chaque connexion avant son emprunt.
+ *
+ * Les validations et annulations de l'écrivain publient ou oublient les changements
+ * décrits pendant la transaction (voir {@link ChangeFeed}).
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private enum Role { WRITER, READER }
+
+    private final PoolConfig config;
+
+    private final ReentrantLock writerLock = new ReentrantLock(true);
+    private PooledConnection writer; // protégé par writerLock
+
+    private final BlockingQueue<PooledConnection> idleReaders = new LinkedBlockingQueue<>();
+    private final AtomicInteger openReaders = new AtomicInteger();
+    private volatile boolean closed;
+    private final AtomicLong schemaGeneration = new AtomicLong();
+    private final Map<String, String> attachments = new ConcurrentHashMap<>(); // schéma -> fichier
+    private final AtomicLong attachmentGeneration = new AtomicLong();
+    private final ChangeFeed changes = new ChangeFeed();
+
+    // Métriques
+    private final LongAdder writerBorrows = new LongAdder();
+    private final LongAdder readerBorrows = new LongAdder();
+    private final LongAdder writerWaitNanos = new LongAdder();
+    private final LongAdder readerWaitNanos = new LongAdder();
+    private final LongAdder healthCheckFailures = new LongAdder();
+    private final LongAdder connectionsReplaced = new LongAdder();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+    private final LongAdder statementCacheEvictions = new LongAdder();
+
+    public ConnectionPool(PoolConfig config) {
+        this.config = config;
+    }
+
+    // ==================== Emprunt ====================
+
+    /**
+     * Emprunte la connexion d'écriture (autoCommit désactivé). Le travail non
+     * validé au moment de la restitution finale est annulé.
+     */
+    public Connection borrowWriter() throws SQLException {
+        ensureOpen();
+        long start = System.nanoTime();
+        try {
+            if (!writerLock.tryLock(config.getBorrowTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Délai d'attente dépassé pour la connexion d'écriture");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Attente de la connexion d'écriture interrompue", e);
+        }
+        writerWaitNanos.add(System.nanoTime() - start);
+        writerBorrows.increment();
+
+        try {
+            if (writerLock.getHoldCount() == 1) {
+                writer = writer == null ? open(Role.WRITER) : validate(writer);
+                refreshStatementCache(writer);
+                refreshAttachments(writer);
+            }
+            return handle(writer);
+        } catch (SQLException | RuntimeException e) {
+            writerLock.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Emprunte une connexion de lecture (autoCommit activé, query_only).
+     */
+    public Connection borrowReader() throws SQLException {
+        ensureOpen();
+        if (writerLock.isHeldByCurrentThread()) {
+            return borrowWriter();
+        }
+
+        long start = System.nanoTime();
+        PooledConnection pooled = idleReaders.poll();
+        if (pooled == null) {
+            if (openReaders.incrementAndGet() <= config.getReaderCount()) {
+                try {
+                    pooled = open(Role.READER);
+                } catch (SQLException e) {
+                    openReaders.decrementAndGet();
+                    throw e;
+                }
+            } else {
+                openReaders.decrementAndGet();
+                try {
+                    pooled = idleReaders.poll(config.getBorrowTimeoutMillis(), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Attente d'une connexion de lecture interrompue", e);
+                }
+                if (pooled == null) {
+                    throw new SQLException("Délai d'attente dépassé pour une connexion de lecture");
+                }
+            }
+        }
+
+        try {
+            pooled = validate(pooled);
+            refreshAttachments(pooled);
+        } catch (SQLException e) {
+            openReaders.decrementAndGet();
+            closeQuietly(pooled);
+            throw e;
+        }
+        refreshStatementCache(pooled);
+        readerWaitNanos.add(System.nanoTime() - start);
+        readerBorrows.increment();
+        return handle(pooled);
+    }
+
+    /**
+     * Emprunte une connexion de lecture dans une transaction : toutes ses lectures voient
+     * le même état de la base, quoi que l'écrivain valide entre-temps. La transaction se
+     * termine à la restitution.
+     */
+    public Connection borrowSnapshot() throws SQLException {
+        Connection connection = borrowReader();
+        // L'écrivain (si ce thread le détient) est déjà dans sa transaction
+        if (connection.getAutoCommit()) connection.setAutoCommit(false);
+        return connection;
+    }
+
+    private void release(PooledConnection pooled) {
+        pooled.lastUsed = System.nanoTime();
+        if (pooled.role == Role.WRITER) {
+            try {
+                if (writerLock.getHoldCount() == 1) {
+                    rollbackQuietly(pooled.raw);
+                    changes.rolledBack();
+                    if (closed) {
+                        closeQuietly(pooled);
+                        writer = null;
+                    }
+                }
+            } finally {
+                writerLock.unlock();
+            }
+        } else if (closed || !endReadTransaction(pooled.raw)) {
+            openReaders.decrementAndGet();
+            closeQuietly(pooled);
+        } else {
+            idleReaders.offer(pooled);
+        }
+    }
+
+    // ==================== Santé ====================
+
+    /**
+     * Vérifie la connexion d'écriture (si elle est libre) et les lecteurs
+     * inactifs, en remplaçant celles qui ne répondent plus.
+     *
+     * @return true si toutes les connexions vérifiées étaient saines
+     */
+    public boolean healthCheck() {
+        long failuresBefore = healthCheckFailures.sum();
+
+        if (writerLock.tryLock()) {
+            try {
+                if (writer != null) writer = check(writer);
+            } catch (SQLException e) {
+                writer = null;
+            } finally {
+                writerLock.unlock();
+            }
+        }
+
+        List<PooledConnection> drained = new ArrayList<>();
+        idleReaders.drainTo(drained);
+        for (PooledConnection reader : drained) {
+            try {
+                idleReaders.offer(check(reader));
+            } catch (SQLException e) {
+                openReaders.decrementAndGet();
+            }
+        }
+        return healthCheckFailures.sum() == failuresBefore;
+    }
+
+    private PooledConnection validate(PooledConnection pooled) throws SQLException {
+        long idleMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pooled.lastUsed);
+        return idleMillis < config.getValidationIntervalMillis() ? pooled : check(pooled);
+    }
+
+    private PooledConnection check(PooledConnection pooled) throws SQLException {
+        try (Statement stmt = pooled.raw.createStatement()) {
+            stmt.execute("SELECT 1");
+            pooled.lastUsed = System.nanoTime();
+            return pooled;
+        } catch (SQLException e) {
+            healthCheckFailures.increment();
+            System.err.println("Connexion SQLite invalide, remplacement : " + e.getMessage());
+            closeQuietly(pooled);
+            PooledConnection replacement = open(pooled.role);
+            connectionsReplaced.increment();
+            return replacement;
+        }
+    }
+
+    // ==================== Cache de requêtes ====================
+
+    /**
+     * Signale un changement de schéma : les requêtes en cache de chaque connexion
+     * seront finalisées avant son prochain emprunt.
+     */
+    public void invalidateStatementCaches() {
+        schemaGeneration.incrementAndGet();
+    }
+
+    private void refreshStatementCache(PooledConnection pooled) {
+        long generation = schemaGeneration.get();
+        if (pooled.cacheGeneration != generation) {
+            pooled.statements.clear();
+            pooled.cacheGeneration = generation;
+        }
+    }
+
+    // ==================== Bases attachées ====================
+
+    /**
+     * Attache {@code file} sous le nom {@code schema} à toutes les connexions du pool,
+     * présentes et futures : chacune l'attache avant son prochain emprunt. SQLite limite
+     * le nombre de bases attachées à une connexion (10 par défaut).
+     */
+    public void attach(String schema, String file) {
+        if (!file.equals(attachments.put(schema, file))) {
+            attachmentGeneration.incrementAndGet();
+        }
+    }
+
+    public Map<String, String> getAttachments() {
+        return Map.copyOf(attachments);
+    }
+
+    // Hors transaction : la connexion vient d'être empruntée (l'écrivain a été annulé à sa restitution)
+    private void refreshAttachments(PooledConnection pooled) throws SQLException {
+        long generation = attachmentGeneration.get();
+        if (pooled.attachmentGeneration == generation) return;
+        try (PreparedStatement pstmt = pooled.raw.prepareStatement("ATTACH DATABASE ? AS ?")) {
+            for (Map.Entry<String, String> attachment : attachments.entrySet()) {
+                if (pooled.attached.contains(attachment.getKey())) continue;
+                pstmt.setString(1, attachment.getValue());
+                pstmt.setString(2, attachment.getKey());
+                pstmt.execute();
+                pooled.attached.add(attachment.getKey());
+            }
+        }
+        pooled.attachmentGeneration = generation;
+    }
+
+    // ==================== Métriques ====================
+
+    public PoolMetrics getMetrics() {
+        return new PoolMetrics(
+                writerBorrows.sum(),
+                readerBorrows.sum(),
+                writerWaitNanos.sum(),
+                readerWaitNanos.sum(),
+                openReaders.get(),
+                idleReaders.size(),
+                healthCheckFailures.sum(),
+                connectionsReplaced.sum(),
+                statementCacheHits.sum(),
+                statementCacheMisses.sum(),
+                statementCacheEvictions.sum());
+    }
+
+    public PoolConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Changements validés par la connexion d'écriture de ce pool.
+     */
+    public ChangeFeed getChangeFeed() {
+        return changes;
+    }
+
+    // ==================== Cycle de vie ====================
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        CategoryDictionary.release(this);
+        TransactionArchive.release(this);
+        List<PooledConnection> drained = new ArrayList<>();
+        idleReaders.drainTo(drained);
+        for (PooledConnection reader : drained) {
+            openReaders.decrementAndGet();
+            closeQuietly(reader);
+        }
+        // Si l'écrivain est emprunté, il sera fermé à sa restitution
+        if (writerLock.tryLock()) {
+            try {
+                if (writer != null) closeQuietly(writer);
+                writer = null;
+            } finally {
+                writerLock.unlock();
+            }
+        }
+    }
+
+    private void ensureOpen() throws SQLException {
+        if (closed) throw new SQLException("Le pool de connexions est fermé");
+    }
+
+    // ==================== Connexions physiques ====================
+
+    private PooledConnection open(Role role) throws SQLException {
+        Connection raw = DriverManager.getConnection(config.getUrl());
+        try (Statement stmt = raw.createStatement()) {
+            for (Map.Entry<String, String> pragma : config.pragmas().entrySet()) {
+                stmt.execute("PRAGMA " + pragma.getKey() + " = " + pragma.getValue());
+            }
+            if (role == Role.READER) {
+                stmt.execute("PRAGMA query_only = ON");
+            }
+        } catch (SQLException e) {
+            closeQuietly(raw);
+            throw e;
+        }
+        raw.setAutoCommit(role == Role.READER);
+        StatementCache statements = new StatementCache(config.getStatementCacheSize(),
+                statementCacheHits, statementCacheMisses, statementCacheEvictions);
+        return new PooledConnection(raw, role, statements, schemaGeneration.get());
+    }
+
+    private Connection handle(PooledConnection pooled) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            if (released.compareAndSet(false, true)) release(pooled);
+                            return null;
+                        case "isClosed":
+                            return released.get() || pooled.raw.isClosed();
+                        case "prepareStatement":
+                            if (args.length == 1 && config.getStatementCacheSize() > 0 && !released.get()) {
+                                return pooled.statements.prepare(pooled.raw, (String) args[0]);
+                            }
+                            // autres variantes (clés générées, curseurs...) : non mises en cache
+                            break;
+                        case "toString":
+                            return "Pooled" + pooled.role + "[" + pooled.raw + "]";
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                    }
+                    if (released.get()) throw new SQLException("Connexion déjà restituée au pool");
+                    if (pooled.role == Role.WRITER) {
+                        switch (method.getName()) {
+                            case "commit":
+                                pooled.raw.commit();
+                                changes.committed();
+                                return null;
+                            case "rollback":
+                                if (args == null) {
+                                    pooled.raw.rollback();
+                                    changes.rolledBack();
+                                    return null;
+                                }
+                                break; // jusqu'à un point de sauvegarde : la transaction continue
+                            case "unwrap":
+                                if (args[0] == ChangeFeed.class) return changes;
+                                break;
+                            case "isWrapperFor":
+                                if (args[0] == ChangeFeed.class) return true;
+                                break;
+                        }
+                    }
+                    try {
+                        return method.invoke(pooled.raw, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private static void rollbackQuietly(Connection raw) {
+        try {
+            if (!raw.isClosed() && !raw.getAutoCommit()) raw.rollback();
+        } catch (SQLException e) {
+            System.err.println("Échec du rollback à la restitution : " + e.getMessage());
+        }
+    }
+
+    // Termine la transaction d'un lecteur emprunté par borrowSnapshot ; false s'il est inutilisable
+    private static boolean endReadTransaction(Connection raw) {
+        try {
+            if (!raw.getAutoCommit()) raw.setAutoCommit(true);
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(PooledConnection pooled) {
+        pooled.statements.clear();
+        closeQuietly(pooled.raw);
+    }
+
+    private static void closeQuietly(Connection raw) {
+        try {
+            raw.close();
+        } catch (SQLException e) {
+            System.err.println("Échec de la fermeture de la connexion : " + e.getMessage());
+        }
+    }
+
+    // Connexion physique et son état dans le pool
+    private static class PooledConnection {
+        private final Connection raw;
+        private final Role role;
+        private final StatementCache statements;
+        private long cacheGeneration;
+        private final Set<String> attached = new HashSet<>();
+        private long attachmentGeneration = -1;
+        private volatile long lastUsed = System.nanoTime();
+
+        PooledConnection(Connection raw, Role role, StatementCache statements, long cacheGeneration) {
+            this.raw = raw;
+            this.role = role;
+            this.statements = statements;
+            this.cacheGeneration = cacheGeneration;
+        }
+    }
+}
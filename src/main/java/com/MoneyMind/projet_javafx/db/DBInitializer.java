@@ -8,27 +8,25 @@ public class DBInitializer {
     private static final String FOREIGN_KEYS_ON = "PRAGMA foreign_keys = ON";
     private static final String DB_NAME = "money_mind.db";
 
-    // Structure des tables avec vérification d'existence
-    private static final List<TableDefinition> TABLES = Arrays.asList(
-            new TableDefinition("users", """
-            CREATE TABLE users (
+    // Migrations du schéma, appliquées dans l'ordre ; la version courante est
+    // conservée dans PRAGMA user_version. Ne jamais modifier une migration publiée :
+    // en ajouter une nouvelle à la fin de la liste.
+    private static final List<Migration> MIGRATIONS = Arrays.asList(
+            new Migration(1, "Schéma initial", """
+            CREATE TABLE IF NOT EXISTS users (
                 user_id INTEGER PRIMARY KEY AUTOINCREMENT,
                 username TEXT NOT NULL UNIQUE,
                 password TEXT NOT NULL,
                 total_limit REAL DEFAULT 0,
                 created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-            )"""),
-
-            new TableDefinition("categories", """
-            CREATE TABLE categories (
+            )""", """
+            CREATE TABLE IF NOT EXISTS categories (
                 category_id INTEGER PRIMARY KEY AUTOINCREMENT,
                 name TEXT NOT NULL UNIQUE,
                 type TEXT NOT NULL CHECK(type IN ('INCOME', 'EXPENSE')),
                 icon_name TEXT
-            )"""),
-
-            new TableDefinition("budgets", """
-            CREATE TABLE budgets (
+            )""", """
+            CREATE TABLE IF NOT EXISTS budgets (
                 budget_id INTEGER PRIMARY KEY AUTOINCREMENT,
                 user_id INTEGER NOT NULL,
                 category_id INTEGER NOT NULL,
@@ -39,10 +37,8 @@ public class DBInitializer {
                 FOREIGN KEY(user_id) REFERENCES users(user_id) ON DELETE CASCADE,
                 FOREIGN KEY(category_id) REFERENCES categories(category_id),
                 UNIQUE(user_id, name, month_year)
-            )"""),
-
-            new TableDefinition("transactions", """
-            CREATE TABLE transactions (
+            )""", """
+            CREATE TABLE IF NOT EXISTS transactions (
                 transaction_id INTEGER PRIMARY KEY AUTOINCREMENT,
                 user_id INTEGER NOT NULL,
                 category_id INTEGER NOT NULL,
@@ -53,7 +49,222 @@ public class DBInitializer {
                 description TEXT,
                 FOREIGN KEY(user_id) REFERENCES users(user_id) ON DELETE CASCADE,
                 FOREIGN KEY(category_id) REFERENCES categories(category_id)
-            )""")
+            )"""),
+
+            // Historique et analyses par période : (user_id, date) couvre aussi les
+            // agrégats par catégorie (category_id, amount) sans lire la table
+            new Migration(2, "Index des requêtes DAO",
+                    "CREATE INDEX IF NOT EXISTS idx_transactions_user_date ON transactions(user_id, date, category_id, amount)",
+                    "CREATE INDEX IF NOT EXISTS idx_transactions_user_category ON transactions(user_id, category_id)",
+                    "CREATE INDEX IF NOT EXISTS idx_budgets_user_category ON budgets(user_id, category_id)"),
+
+            // Montants exacts : REAL (en unités) -> INTEGER (en centimes), voir Money
+            new Migration(3, "Montants en centimes (INTEGER)", conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    // DROP COLUMN refuse une colonne indexée
+                    stmt.execute("DROP INDEX IF EXISTS idx_transactions_user_date");
+                }
+                convertToCents(conn, "users", "total_limit", "NOT NULL DEFAULT 0");
+                convertToCents(conn, "budgets", "amount", "NOT NULL DEFAULT 0");
+                convertToCents(conn, "budgets", "current", "NOT NULL DEFAULT 0");
+                convertToCents(conn, "transactions", "amount", "NOT NULL DEFAULT 0");
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("CREATE INDEX IF NOT EXISTS idx_transactions_user_date ON transactions(user_id, date, category_id, amount)");
+                }
+            }),
+
+            // Réponses de l'assistant IA, indexées par l'empreinte du prompt (voir AdviceCache)
+            new Migration(4, "Cache des conseils IA", """
+            CREATE TABLE IF NOT EXISTS ai_advice_cache (
+                cache_key TEXT PRIMARY KEY,
+                response TEXT NOT NULL,
+                created_at INTEGER NOT NULL
+            )""",
+                    "CREATE INDEX IF NOT EXISTS idx_ai_advice_cache_created ON ai_advice_cache(created_at)"),
+
+            // Agrégats par utilisateur, mois et catégorie, tenus à jour à chaque écriture
+            // (voir MonthlyTotalsDAO) ; category_id = 0 pour les transactions sans catégorie
+            new Migration(5, "Agrégats mensuels par catégorie", """
+            CREATE TABLE IF NOT EXISTS monthly_category_totals (
+                user_id INTEGER NOT NULL,
+                year_month TEXT NOT NULL,
+                category_id INTEGER NOT NULL,
+                total INTEGER NOT NULL DEFAULT 0,
+                expenses INTEGER NOT NULL DEFAULT 0,
+                tx_count INTEGER NOT NULL DEFAULT 0,
+                expense_count INTEGER NOT NULL DEFAULT 0,
+                min_amount INTEGER NOT NULL,
+                max_amount INTEGER NOT NULL,
+                PRIMARY KEY (user_id, year_month, category_id),
+                FOREIGN KEY(user_id) REFERENCES users(user_id) ON DELETE CASCADE
+            ) WITHOUT ROWID""", """
+            INSERT INTO monthly_category_totals
+                (user_id, year_month, category_id, total, expenses, tx_count, expense_count, min_amount, max_amount)
+            SELECT user_id, substr(date, 1, 7), COALESCE(category_id, 0),
+                   SUM(amount), SUM(CASE WHEN amount < 0 THEN -amount ELSE 0 END), COUNT(*),
+                   SUM(CASE WHEN amount < 0 THEN 1 ELSE 0 END), MIN(amount), MAX(amount)
+            FROM transactions
+            GROUP BY user_id, substr(date, 1, 7), COALESCE(category_id, 0)"""),
+
+            // Pagination par clé (date, transaction_id) du tableau des transactions : les index
+            // rendent les lignes déjà dans cet ordre, sans tri, avec ou sans filtre de catégorie.
+            // (user_id, category_id, date, ...) remplace (user_id, category_id), dont il est un préfixe
+            new Migration(6, "Index de pagination des transactions",
+                    "CREATE INDEX IF NOT EXISTS idx_transactions_user_day_id ON transactions(user_id, date, transaction_id)",
+                    "CREATE INDEX IF NOT EXISTS idx_transactions_user_category_day ON transactions(user_id, category_id, date, transaction_id)",
+                    "DROP INDEX IF EXISTS idx_transactions_user_category"),
+
+            // Virements : une ligne par clé d'idempotence, réservée dans la transaction même
+            // qui déplace l'argent (voir TransferEngine) ; rejouer une clé ne débite pas deux fois
+            new Migration(7, "Virements idempotents", """
+            CREATE TABLE IF NOT EXISTS transfers (
+                transfer_id INTEGER PRIMARY KEY AUTOINCREMENT,
+                idempotency_key TEXT NOT NULL UNIQUE,
+                from_user_id INTEGER NOT NULL,
+                to_user_id INTEGER NOT NULL,
+                amount INTEGER NOT NULL CHECK (amount > 0),
+                created_at TEXT NOT NULL,
+                FOREIGN KEY(from_user_id) REFERENCES users(user_id) ON DELETE CASCADE,
+                FOREIGN KEY(to_user_id) REFERENCES users(user_id) ON DELETE CASCADE
+            )""",
+                    "CREATE INDEX IF NOT EXISTS idx_transfers_from ON transfers(from_user_id)",
+                    "CREATE INDEX IF NOT EXISTS idx_transfers_to ON transfers(to_user_id)"),
+            // Journal en partie double des soldes (voir Ledger). Ouvert avec les soldes actuels,
+            // contrepartie sur le compte EXTERNAL de chaque utilisateur
+            new Migration(8, "Journal des soldes et instantanés", conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("""
+                        CREATE TABLE IF NOT EXISTS ledger_entries (
+                            entry_id INTEGER PRIMARY KEY AUTOINCREMENT,
+                            user_id INTEGER NOT NULL,
+                            kind TEXT NOT NULL CHECK (kind IN ('OPENING', 'TRANSACTION', 'TRANSFER', 'ADJUSTMENT')),
+                            reference_id INTEGER,
+                            description TEXT,
+                            posted_on TEXT NOT NULL
+                        )""");
+                    stmt.execute("""
+                        CREATE TABLE IF NOT EXISTS ledger_postings (
+                            posting_id INTEGER PRIMARY KEY AUTOINCREMENT,
+                            entry_id INTEGER NOT NULL REFERENCES ledger_entries(entry_id),
+                            account_kind TEXT NOT NULL CHECK (account_kind IN ('USER', 'BUDGET', 'EXTERNAL')),
+                            account_ref INTEGER NOT NULL,
+                            amount INTEGER NOT NULL CHECK (amount <> 0),
+                            posted_on TEXT NOT NULL
+                        )""");
+                    stmt.execute("""
+                        CREATE TABLE IF NOT EXISTS ledger_snapshots (
+                            account_kind TEXT NOT NULL,
+                            account_ref INTEGER NOT NULL,
+                            last_posting_id INTEGER NOT NULL,
+                            as_of TEXT NOT NULL,
+                            balance INTEGER NOT NULL,
+                            PRIMARY KEY (account_kind, account_ref, last_posting_id)
+                        ) WITHOUT ROWID""");
+                    // Couvrant : solde d'un compte et queue après instantané sans lire la table
+                    stmt.execute("CREATE INDEX IF NOT EXISTS idx_ledger_postings_account ON ledger_postings(account_kind, account_ref, posting_id, posted_on, amount)");
+                    stmt.execute("CREATE INDEX IF NOT EXISTS idx_ledger_entries_reference ON ledger_entries(kind, reference_id)");
+                    stmt.execute("CREATE INDEX IF NOT EXISTS idx_ledger_snapshots_position ON ledger_snapshots(last_posting_id)");
+                    for (String table : new String[]{"ledger_entries", "ledger_postings"}) {
+                        for (String operation : new String[]{"UPDATE", "DELETE"}) {
+                            stmt.execute("CREATE TRIGGER IF NOT EXISTS " + table + "_no_" + operation.toLowerCase()
+                                    + " BEFORE " + operation + " ON " + table
+                                    + " BEGIN SELECT RAISE(ABORT, '" + table + " is append-only'); END");
+                        }
+                    }
+
+                    // Une écriture d'ouverture par utilisateur, de même identifiant (tables vides)
+                    stmt.execute("""
+                        INSERT INTO ledger_entries (entry_id, user_id, kind, description, posted_on)
+                        SELECT user_id, user_id, 'OPENING', 'Opening balances', date('now') FROM users""");
+                    stmt.execute("""
+                        INSERT INTO ledger_postings (entry_id, account_kind, account_ref, amount, posted_on)
+                        SELECT user_id, 'USER', user_id, total_limit, date('now') FROM users WHERE total_limit <> 0
+                        UNION ALL
+                        SELECT user_id, 'EXTERNAL', user_id, -total_limit, date('now') FROM users WHERE total_limit <> 0
+                        UNION ALL
+                        SELECT user_id, 'BUDGET', budget_id, current, date('now') FROM budgets WHERE current <> 0
+                        UNION ALL
+                        SELECT user_id, 'EXTERNAL', user_id, -current, date('now') FROM budgets WHERE current <> 0""");
+                }
+                Ledger.takeMissingSnapshots(conn);
+            }),
+
+            // Dates des transactions : texte 'AAAA-MM-JJ' -> INTEGER (jours depuis 1970-01-01,
+            // LocalDate.toEpochDay) ; les index de date comparent alors des entiers
+            new Migration(9, "Dates des transactions en jours (INTEGER)", conn -> {
+                String[] dateIndexes = {
+                        "idx_transactions_user_date ON transactions(user_id, date, category_id, amount)",
+                        "idx_transactions_user_day_id ON transactions(user_id, date, transaction_id)",
+                        "idx_transactions_user_category_day ON transactions(user_id, category_id, date, transaction_id)"
+                };
+                try (Statement stmt = conn.createStatement()) {
+                    // DROP COLUMN refuse une colonne indexée
+                    for (String index : dateIndexes) {
+                        stmt.execute("DROP INDEX IF EXISTS " + index.substring(0, index.indexOf(' ')));
+                    }
+                }
+                convertToEpochDays(conn, "transactions", "date");
+                try (Statement stmt = conn.createStatement()) {
+                    for (String index : dateIndexes) {
+                        stmt.execute("CREATE INDEX IF NOT EXISTS " + index);
+                    }
+                }
+            }),
+
+            // Années closes déplacées dans un fichier par année (voir TransactionArchive)
+            new Migration(10, "Archives annuelles des transactions", """
+            CREATE TABLE IF NOT EXISTS archived_years (
+                year INTEGER PRIMARY KEY,
+                file TEXT NOT NULL,
+                row_count INTEGER NOT NULL,
+                archived_at TEXT NOT NULL
+            )"""),
+
+            // Mode shardé (voir ShardRouter) : l'annuaire fixe la liste de ses shards et suit
+            // chaque virement jusqu'au crédit du bénéficiaire (voir ShardedTransferEngine)
+            new Migration(11, "Annuaire des shards et virements entre shards", """
+            CREATE TABLE IF NOT EXISTS shards (
+                shard INTEGER PRIMARY KEY,
+                url TEXT NOT NULL
+            )""", """
+            CREATE TABLE IF NOT EXISTS transfer_intents (
+                idempotency_key TEXT PRIMARY KEY,
+                from_user_id INTEGER NOT NULL,
+                to_user_id INTEGER NOT NULL,
+                amount INTEGER NOT NULL CHECK (amount > 0),
+                state TEXT NOT NULL CHECK (state IN ('PENDING', 'DONE')),
+                created_at TEXT NOT NULL
+            )""",
+                    "CREATE INDEX IF NOT EXISTS idx_transfer_intents_pending ON transfer_intents(state) WHERE state = 'PENDING'"),
+
+            // Recherche plein texte sur les noms et descriptions (voir TransactionSearch) ;
+            // les archives existantes reçoivent leur index à la première recherche
+            new Migration(12, "Recherche plein texte des transactions", conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    TransactionSearch.createIndex(stmt, "main");
+                }
+            }),
+
+            // Transactions récurrentes (voir RecurringScheduler) : next_due est la date de la
+            // prochaine occurrence à écrire, NULL une fois la règle terminée
+            new Migration(13, "Règles de transactions récurrentes", """
+            CREATE TABLE IF NOT EXISTS recurring_rules (
+                rule_id INTEGER PRIMARY KEY AUTOINCREMENT,
+                user_id INTEGER NOT NULL,
+                name TEXT NOT NULL,
+                amount INTEGER NOT NULL,
+                category_id INTEGER NOT NULL,
+                frequency TEXT NOT NULL CHECK (frequency IN ('WEEKLY', 'MONTHLY', 'YEARLY')),
+                every INTEGER NOT NULL DEFAULT 1 CHECK (every > 0),
+                start_date INTEGER NOT NULL,
+                end_date INTEGER,
+                occurrences INTEGER NOT NULL DEFAULT 0,
+                next_due INTEGER,
+                FOREIGN KEY(user_id) REFERENCES users(user_id) ON DELETE CASCADE,
+                FOREIGN KEY(category_id) REFERENCES categories(category_id)
+            )""",
+                    "CREATE INDEX IF NOT EXISTS idx_recurring_rules_due ON recurring_rules(next_due) WHERE next_due IS NOT NULL",
+                    "CREATE INDEX IF NOT EXISTS idx_recurring_rules_user ON recurring_rules(user_id)")
     );
 
     // Catégories par défaut avec leur type
@@ -67,15 +278,24 @@ public class DBInitializer {
     );
 
     public static void initializeDatabase() {
-        try (Connection conn = SQliteConnector.connect()) {
-            conn.setAutoCommit(false);
+        initializeDatabase(SQliteConnector.pool());
+    }
 
+    public static void initializeDatabase(ConnectionPool pool) {
+        try (Connection conn = pool.borrowWriter()) {
             enableForeignKeys(conn);
-            createTables(conn);
+            int applied = migrate(conn);
             insertDefaultCategories(conn);
 
             conn.commit();
-            System.out.println(" Base de données initialisée avec succès");
+            if (applied > 0) {
+                // Le schéma a changé : les requêtes préparées en cache sont périmées
+                pool.invalidateStatementCaches();
+            }
+            // Catégories par défaut éventuellement ajoutées
+            CategoryDictionary.of(pool).invalidate();
+            TransactionArchive.of(pool).invalidate();
+            System.out.println(" Base de données initialisée avec succès (schéma v" + getSchemaVersion(conn) + ")");
 
         } catch (SQLException e) {
             throw new DatabaseInitializationException(
@@ -83,27 +303,88 @@ public class DBInitializer {
         }
     }
 
+    public static int getLatestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).getVersion();
+    }
+
     private static void enableForeignKeys(Connection conn) throws SQLException {
         try (Statement stmt = conn.createStatement()) {
             stmt.execute(FOREIGN_KEYS_ON);
         }
     }
 
-    private static void createTables(Connection conn) throws SQLException {
-        try (Statement stmt = conn.createStatement()) {
-            for (TableDefinition table : TABLES) {
-                if (!tableExists(conn, table.getName())) {
-                    stmt.execute(table.getCreateSql());
-                    System.out.println("Table " + table.getName() + " créée");
+    /**
+     * Applique les migrations dont la version dépasse PRAGMA user_version,
+     * chacune dans sa propre transaction.
+     * @return nombre de migrations appliquées
+     */
+    private static int migrate(Connection conn) throws SQLException {
+        int current = getSchemaVersion(conn);
+        if (current > getLatestVersion()) {
+            throw new DatabaseInitializationException(
+                    "Schéma v" + current + " plus récent que l'application (v" + getLatestVersion() + ")", null);
+        }
+
+        int applied = 0;
+        for (Migration migration : MIGRATIONS) {
+            if (migration.getVersion() <= current) continue;
+            try {
+                migration.apply(conn);
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("PRAGMA user_version = " + migration.getVersion());
                 }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
+            System.out.println("Migration v" + migration.getVersion() + " appliquée : " + migration.getDescription());
+            applied++;
+        }
+        return applied;
+    }
+
+    public static int getSchemaVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Remplace une colonne REAL par une colonne INTEGER de même nom contenant le
+     * montant arrondi au centime. SQLite ne sait pas changer le type d'une colonne :
+     * on passe par une colonne temporaire, sans reconstruire la table (les clés
+     * étrangères et les suppressions en cascade restent intactes).
+     */
+    private static void convertToCents(Connection conn, String table, String column, String constraints) throws SQLException {
+        String tmp = column + "_cents";
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + tmp + " INTEGER " + constraints);
+            stmt.execute("UPDATE " + table + " SET " + tmp + " = CAST(ROUND(COALESCE(\"" + column + "\", 0) * 100) AS INTEGER)");
+            stmt.execute("ALTER TABLE " + table + " DROP COLUMN \"" + column + "\"");
+            stmt.execute("ALTER TABLE " + table + " RENAME COLUMN " + tmp + " TO \"" + column + "\"");
         }
     }
 
-    private static boolean tableExists(Connection conn, String tableName) throws SQLException {
-        DatabaseMetaData meta = conn.getMetaData();
-        try (ResultSet rs = meta.getTables(null, null, tableName, null)) {
-            return rs.next();
+    /**
+     * Remplace une colonne de dates texte ('AAAA-MM-JJ', suivie ou non d'une heure) par une
+     * colonne INTEGER de même nom en jours depuis 1970-01-01, comme {@link #convertToCents}.
+     * Une date illisible fait échouer la migration plutôt que de devenir le 1er janvier 1970.
+     */
+    private static void convertToEpochDays(Connection conn, String table, String column) throws SQLException {
+        String tmp = column + "_days";
+        try (Statement stmt = conn.createStatement()) {
+            String days = "CAST(julianday(substr(\"" + column + "\", 1, 10)) - 2440587.5 AS INTEGER)";
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table + " WHERE " + days + " IS NULL")) {
+                if (rs.next() && rs.getInt(1) > 0) {
+                    throw new SQLException(rs.getInt(1) + " date(s) illisible(s) dans " + table + "." + column);
+                }
+            }
+            stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + tmp + " INTEGER NOT NULL DEFAULT 0");
+            stmt.execute("UPDATE " + table + " SET " + tmp + " = " + days);
+            stmt.execute("ALTER TABLE " + table + " DROP COLUMN \"" + column + "\"");
+            stmt.execute("ALTER TABLE " + table + " RENAME COLUMN " + tmp + " TO \"" + column + "\"");
         }
     }
 
@@ -121,17 +402,40 @@ public class DBInitializer {
     }
 
     // Classes internes pour une meilleure organisation
-    private static class TableDefinition {
-        private final String name;
-        private final String createSql;
 
-        public TableDefinition(String name, String createSql) {
-            this.name = name;
-            this.createSql = createSql;
+    /**
+     * Corps d'une migration qui ne se réduit pas à une liste d'ordres SQL
+     * (conversion de données, par exemple).
+     */
+    @FunctionalInterface
+    interface MigrationBody {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private static class Migration {
+        private final int version;
+        private final String description;
+        private final MigrationBody body;
+
+        public Migration(int version, String description, String... statements) {
+            this(version, description, conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    for (String sql : statements) {
+                        stmt.execute(sql);
+                    }
+                }
+            });
         }
 
-        public String getName() { return name; }
-        public String getCreateSql() { return createSql; }
+        public Migration(int version, String description, MigrationBody body) {
+            this.version = version;
+            this.description = description;
+            this.body = body;
+        }
+
+        public int getVersion() { return version; }
+        public String getDescription() { return description; }
+        public void apply(Connection conn) throws SQLException { body.apply(conn); }
     }
 
     private static class Category {
@@ -152,4 +456,4 @@ public class DBInitializer {
             super(message, cause);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,530 @@
+package com.MoneyMind.projet_javafx.db;
+
+import org.sqlite.SQLiteConnection;
+import org.sqlite.core.DB;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Sauvegardes à chaud d'une base (et de ses archives annuelles, voir {@link TransactionArchive})
+ * par l'API de sauvegarde incrémentale de SQLite, sans arrêter l'application.
+ *
+ * La copie passe par une connexion à part, hors pool, qui ouvre une transaction de lecture
+ * avant de copier : en WAL, les écrivains continuent pendant la copie et celle-ci reste un
+ * instantané cohérent, sans recommencer à chaque écriture. Les pages sont copiées par paquets
+ * de {@code pagesPerStep}, avec une pause entre deux paquets, sur un thread dédié de basse
+ * priorité ({@link #backupAsync}, {@link #schedule}).
+ *
+ * Un instantané est un fichier zip ({@code money_mind-20240131-220000-000.zip}) : une
+ * entrée compressée par base, plus {@code manifest.properties} avec la version du schéma et
+ * le SHA-256 de chaque base. Chaque copie passe {@code PRAGMA integrity_check} avant d'être
+ * empaquetée ; le zip n'apparaît sous son nom définitif qu'une fois complet. Après chaque
+ * sauvegarde, la rétention ne garde que les {@code keep} plus récents (et, si
+ * {@code maxAge} est fixé, supprime les plus anciens que cet âge, sauf le dernier).
+ *
+ * {@link #restore} ne remplace rien avant d'avoir tout vérifié (sommes de contrôle,
+ * intégrité, version du schéma, fichier d'origine), puis recopie les pages dans la base
+ * vivante par l'API de sauvegarde, en tenant la connexion d'écriture.
+ */
+public class DatabaseBackup implements AutoCloseable {
+
+    public static final int DEFAULT_PAGES_PER_STEP = 256;
+    public static final Duration DEFAULT_STEP_PAUSE = Duration.ofMillis(2);
+    public static final int DEFAULT_KEEP = 7;
+
+    private static final String MANIFEST = "manifest.properties";
+    private static final String MAIN = "main";
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    // Réessais espacés de 100 ms tant que la base est verrouillée
+    private static final int BUSY_SLEEP_MILLIS = 100;
+    private static final int BUSY_RETRIES = 50;
+
+    private final ConnectionPool pool;
+    private final Path directory;
+    private int pagesPerStep = DEFAULT_PAGES_PER_STEP;
+    private Duration stepPause = DEFAULT_STEP_PAUSE;
+    private int keep = DEFAULT_KEEP;
+    private Duration maxAge; // null : seul keep s'applique
+    private ScheduledExecutorService executor; // créé à la première sauvegarde en tâche de fond
+
+    public DatabaseBackup(ConnectionPool pool, Path directory) {
+        this.pool = pool;
+        this.directory = directory.toAbsolutePath();
+    }
+
+    // Réglages (chaînables)
+    public DatabaseBackup setPagesPerStep(int pagesPerStep) {
+        if (pagesPerStep < 1) throw new IllegalArgumentException("Au moins une page par étape");
+        this.pagesPerStep = pagesPerStep;
+        return this;
+    }
+
+    public DatabaseBackup setStepPause(Duration stepPause) { this.stepPause = stepPause; return this; }
+
+    public DatabaseBackup setKeep(int keep) {
+        if (keep < 1) throw new IllegalArgumentException("Au moins un instantané doit être gardé");
+        this.keep = keep;
+        return this;
+    }
+
+    public DatabaseBackup setMaxAge(Duration maxAge) { this.maxAge = maxAge; return this; }
+
+    // ==================== Sauvegarde ====================
+
+    /**
+     * Sauvegarde sur le thread appelant, puis applique la rétention.
+     */
+    public Snapshot backup() throws SQLException {
+        long start = System.nanoTime();
+        Path source = databaseFile();
+        String base = baseName(source);
+        Path target = directory.resolve(base + "-" + LocalDateTime.now().format(STAMP) + ".zip");
+        Path work = null;
+        try {
+            Files.createDirectories(directory);
+            work = Files.createTempDirectory(directory, "." + base + "-");
+            Map<String, String> files = copy(source, work);
+
+            Properties manifest = new Properties();
+            manifest.setProperty("source", source.getFileName().toString());
+            manifest.setProperty("created", Instant.now().toString());
+            manifest.setProperty("schemas", String.join(",", files.keySet()));
+            for (Map.Entry<String, String> file : files.entrySet()) {
+                Path copy = work.resolve(file.getKey() + ".db");
+                int version = check(copy);
+                if (file.getKey().equals(MAIN)) manifest.setProperty("schema_version", String.valueOf(version));
+                manifest.setProperty(file.getKey() + ".file", file.getValue());
+                manifest.setProperty(file.getKey() + ".bytes", String.valueOf(Files.size(copy)));
+            }
+
+            Path partial = directory.resolve(target.getFileName() + ".partial");
+            pack(work, files.keySet(), manifest, partial);
+            Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new SQLException("Sauvegarde impossible : " + e.getMessage(), e);
+        } finally {
+            deleteQuietly(work);
+        }
+
+        Snapshot snapshot = read(target);
+        System.out.println("Sauvegarde : " + snapshot + " en " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        prune();
+        return snapshot;
+    }
+
+    /**
+     * {@link #backup()} sur le thread de sauvegarde.
+     */
+    public CompletableFuture<Snapshot> backupAsync() {
+        CompletableFuture<Snapshot> future = new CompletableFuture<>();
+        executor().execute(() -> {
+            try {
+                future.complete(backup());
+            } catch (SQLException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Sauvegarde toutes les {@code interval}, la première après un intervalle.
+     * Un échec est journalisé ; la suivante a lieu quand même.
+     */
+    public synchronized void schedule(Duration interval) {
+        executor().scheduleWithFixedDelay(() -> {
+            try {
+                backup();
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("Échec de la sauvegarde planifiée : " + e.getMessage());
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Copie la base principale et ses archives attachées dans {@code work} ({@code <schéma>.db}).
+     * @return schéma -> nom du fichier d'origine
+     */
+    private Map<String, String> copy(Path source, Path work) throws SQLException {
+        Map<String, String> files = new LinkedHashMap<>();
+        files.put(MAIN, source.getFileName().toString());
+        for (Map.Entry<String, String> attachment : new TreeMap<>(pool.getAttachments()).entrySet()) {
+            files.put(attachment.getKey(), Path.of(attachment.getValue()).getFileName().toString());
+        }
+
+        // Connexion à part : ni l'écrivain ni les lecteurs du pool ne sont retenus pendant la copie
+        try (Connection connection = DriverManager.getConnection(pool.getConfig().getUrl())) {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("PRAGMA busy_timeout = " + pool.getConfig().getBusyTimeoutMillis());
+                for (Map.Entry<String, String> attachment : pool.getAttachments().entrySet()) {
+                    stmt.execute("ATTACH DATABASE '" + attachment.getValue().replace("'", "''") + "' AS " + attachment.getKey());
+                }
+            }
+            // Une transaction de lecture par base, ouverte avant la première page :
+            // la copie voit un seul instantané et ne repart pas de zéro à chaque écriture
+            connection.setAutoCommit(false);
+            try (Statement stmt = connection.createStatement()) {
+                for (String schema : files.keySet()) {
+                    try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + schema + ".sqlite_master")) {
+                        rs.next();
+                    }
+                }
+            }
+            DB db = connection.unwrap(SQLiteConnection.class).getDatabase();
+            for (String schema : files.keySet()) {
+                int rc = db.backup(schema, work.resolve(schema + ".db").toString(), this::pause,
+                        BUSY_SLEEP_MILLIS, BUSY_RETRIES, pagesPerStep);
+                if (rc != 0 && rc != 101) { // SQLITE_OK, SQLITE_DONE
+                    throw new SQLException("Copie de " + schema + " interrompue (code SQLite " + rc + ")");
+                }
+            }
+            connection.rollback();
+        }
+        return files;
+    }
+
+    // Appelé après chaque paquet de pages : laisse la main aux autres threads
+    private void pause(int remaining, int pageCount) {
+        if (remaining == 0 || stepPause.isZero()) return;
+        try {
+            Thread.sleep(stepPause.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void pack(Path work, Iterable<String> schemas, Properties manifest, Path zip) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            // Les sommes de contrôle sont calculées pendant la compression : le manifeste vient en dernier
+            for (String schema : schemas) {
+                out.putNextEntry(new ZipEntry(schema + ".db"));
+                MessageDigest digest = sha256();
+                try (InputStream in = new DigestInputStream(Files.newInputStream(work.resolve(schema + ".db")), digest)) {
+                    in.transferTo(out);
+                }
+                manifest.setProperty(schema + ".sha256", HexFormat.of().formatHex(digest.digest()));
+                out.closeEntry();
+            }
+            out.putNextEntry(new ZipEntry(MANIFEST));
+            manifest.store(out, "MoneyMind snapshot");
+            out.closeEntry();
+        }
+    }
+
+    /**
+     * Passe la copie en journal classique (un seul fichier, sans -wal) et vérifie son intégrité.
+     * @return version du schéma de la copie
+     */
+    private static int check(Path copy) throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + copy);
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA journal_mode = DELETE");
+            try (ResultSet rs = stmt.executeQuery("PRAGMA integrity_check")) {
+                String result = rs.next() ? rs.getString(1) : "";
+                if (!"ok".equals(result)) {
+                    throw new SQLException("Copie corrompue (" + copy.getFileName() + ") : " + result);
+                }
+            }
+            return DBInitializer.getSchemaVersion(connection);
+        }
+    }
+
+    // ==================== Rétention ====================
+
+    /**
+     * Instantanés de cette base dans le dossier, du plus récent au plus ancien.
+     */
+    public List<Path> snapshots() throws SQLException {
+        String prefix = baseName(databaseFile()) + "-";
+        List<Path> snapshots = new ArrayList<>();
+        if (!Files.isDirectory(directory)) return snapshots;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*.zip")) {
+            for (Path file : files) {
+                snapshots.add(file);
+            }
+        } catch (IOException e) {
+            throw new SQLException("Lecture du dossier de sauvegarde impossible : " + e.getMessage(), e);
+        }
+        snapshots.sort(Comparator.comparing((Path file) -> file.getFileName().toString()).reversed());
+        return snapshots;
+    }
+
+    /**
+     * Supprime les instantanés au-delà de {@code keep}, et ceux plus vieux que {@code maxAge}
+     * (le plus récent est toujours gardé).
+     * @return nombre d'instantanés supprimés
+     */
+    public int prune() throws SQLException {
+        List<Path> snapshots = snapshots();
+        Instant oldest = maxAge == null ? null : Instant.now().minus(maxAge);
+        int deleted = 0;
+        for (int i = 1; i < snapshots.size(); i++) {
+            Path snapshot = snapshots.get(i);
+            try {
+                FileTime modified = Files.getLastModifiedTime(snapshot);
+                if (i >= keep || (oldest != null && modified.toInstant().isBefore(oldest))) {
+                    Files.deleteIfExists(snapshot);
+                    deleted++;
+                }
+            } catch (IOException e) {
+                System.err.println("Suppression de " + snapshot.getFileName() + " impossible : " + e.getMessage());
+            }
+        }
+        return deleted;
+    }
+
+    // ==================== Vérification et restauration ====================
+
+    /**
+     * Décompresse l'instantané et vérifie les sommes de contrôle, l'intégrité de chaque base
+     * et la version du schéma, sans rien toucher à la base vivante.
+     */
+    public Snapshot verify(Path snapshot) throws SQLException {
+        Path work = null;
+        try {
+            work = Files.createTempDirectory(directory, ".verify-");
+            return extract(snapshot, work);
+        } catch (IOException e) {
+            throw new SQLException("Vérification impossible : " + e.getMessage(), e);
+        } finally {
+            deleteQuietly(work);
+        }
+    }
+
+    /**
+     * Remplace la base (et les archives de l'instantané) par le contenu de {@code snapshot},
+     * vérifié au préalable, puis la remet au schéma courant. Les écrivains attendent la fin ;
+     * les objets chargés en mémoire (utilisateur connecté...) sont à relire.
+     */
+    public void restore(Path snapshot) throws SQLException {
+        Path source = databaseFile();
+        Path work = null;
+        try {
+            work = Files.createTempDirectory(directory, ".restore-");
+            Snapshot verified = extract(snapshot, work);
+            if (!verified.getSource().equals(source.getFileName().toString())) {
+                throw new SQLException("Instantané de " + verified.getSource() + ", pas de " + source.getFileName());
+            }
+
+            Map<String, String> attached = pool.getAttachments();
+            try (Connection connection = pool.borrowWriter()) {
+                DB db = connection.unwrap(SQLiteConnection.class).getDatabase();
+                for (Map.Entry<String, String> file : verified.getFiles().entrySet()) {
+                    String schema = file.getKey();
+                    Path copy = work.resolve(schema + ".db");
+                    if (schema.equals(MAIN) || attached.containsKey(schema)) {
+                        // Base ouverte : les pages sont recopiées sous le verrou d'écriture
+                        int rc = db.restore(schema, copy.toString(), null, BUSY_SLEEP_MILLIS, BUSY_RETRIES, pagesPerStep);
+                        if (rc != 0 && rc != 101) {
+                            throw new SQLException("Restauration de " + schema + " interrompue (code SQLite " + rc + ")");
+                        }
+                    } else {
+                        // Archive que le pool n'a pas ouverte : le fichier suffit
+                        Files.copy(copy, source.resolveSibling(file.getValue()), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }
+                connection.commit();
+            }
+            pool.invalidateStatementCaches();
+            // Instantané d'une version antérieure : migrations ; invalide aussi catégories et archives
+            DBInitializer.initializeDatabase(pool);
+            try (Connection connection = pool.borrowReader();
+                 Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery("PRAGMA quick_check")) {
+                String result = rs.next() ? rs.getString(1) : "";
+                if (!"ok".equals(result)) throw new SQLException("Base restaurée invalide : " + result);
+            }
+            System.out.println("Restauration : " + verified);
+        } catch (IOException e) {
+            throw new SQLException("Restauration impossible : " + e.getMessage(), e);
+        } finally {
+            deleteQuietly(work);
+        }
+    }
+
+    /**
+     * Fichier d'origine d'un instantané, d'après son manifeste.
+     */
+    public static String sourceOf(Path snapshot) throws SQLException {
+        return read(snapshot).getSource();
+    }
+
+    private static Snapshot read(Path snapshot) throws SQLException {
+        try (ZipFile zip = new ZipFile(snapshot.toFile())) {
+            return new Snapshot(snapshot, manifest(zip), Files.size(snapshot));
+        } catch (IOException e) {
+            throw new SQLException("Instantané illisible (" + snapshot.getFileName() + ") : " + e.getMessage(), e);
+        }
+    }
+
+    private static Snapshot extract(Path snapshot, Path work) throws IOException, SQLException {
+        try (ZipFile zip = new ZipFile(snapshot.toFile())) {
+            Snapshot read = new Snapshot(snapshot, manifest(zip), Files.size(snapshot));
+            for (String schema : read.getFiles().keySet()) {
+                ZipEntry entry = zip.getEntry(schema + ".db");
+                if (entry == null) throw new SQLException("Base " + schema + " absente de l'instantané");
+                Path copy = work.resolve(schema + ".db");
+                MessageDigest digest = sha256();
+                try (InputStream in = new DigestInputStream(zip.getInputStream(entry), digest);
+                     OutputStream out = Files.newOutputStream(copy)) {
+                    in.transferTo(out);
+                }
+                String expected = read.getChecksums().get(schema);
+                if (!HexFormat.of().formatHex(digest.digest()).equals(expected)) {
+                    throw new SQLException("Somme de contrôle invalide pour " + schema + " dans " + snapshot.getFileName());
+                }
+                int version = check(copy);
+                if (version > DBInitializer.getLatestVersion()) {
+                    throw new SQLException("Instantané en schéma v" + version + ", plus récent que l'application");
+                }
+            }
+            return read;
+        }
+    }
+
+    private static Properties manifest(ZipFile zip) throws IOException, SQLException {
+        ZipEntry entry = zip.getEntry(MANIFEST);
+        if (entry == null) throw new SQLException("Manifeste absent : ce n'est pas un instantané MoneyMind");
+        Properties manifest = new Properties();
+        try (InputStream in = zip.getInputStream(entry)) {
+            manifest.load(in);
+        }
+        return manifest;
+    }
+
+    // ==================== Utilitaires ====================
+
+    private Path databaseFile() throws SQLException {
+        Path file = pool.getConfig().getDatabaseFile();
+        if (file == null) throw new SQLException("Backups need a database file: " + pool.getConfig().getUrl());
+        return file;
+    }
+
+    // money_mind.db -> money_mind
+    private static String baseName(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? name : name.substring(0, dot);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // garanti par toute JVM
+        }
+    }
+
+    private static void deleteQuietly(Path dir) {
+        if (dir == null) return;
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            System.err.println("Nettoyage de " + dir + " impossible : " + e.getMessage());
+        }
+    }
+
+    private synchronized ScheduledExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "moneymind-backup");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Arrête les sauvegardes planifiées ; une sauvegarde en cours se termine.
+     */
+    @Override
+    public synchronized void close() {
+        if (executor != null) executor.shutdown();
+    }
+
+    /**
+     * Un instantané, tel que décrit par son manifeste.
+     */
+    public static final class Snapshot {
+        private final Path file;
+        private final String source;
+        private final Instant created;
+        private final int schemaVersion;
+        private final long compressedBytes;
+        private final Map<String, String> files = new LinkedHashMap<>();     // schéma -> fichier d'origine
+        private final Map<String, String> checksums = new LinkedHashMap<>(); // schéma -> SHA-256
+
+        private Snapshot(Path file, Properties manifest, long compressedBytes) throws SQLException {
+            try {
+                this.file = file;
+                this.source = manifest.getProperty("source");
+                this.created = Instant.parse(manifest.getProperty("created"));
+                this.schemaVersion = Integer.parseInt(manifest.getProperty("schema_version"));
+                this.compressedBytes = compressedBytes;
+                for (String schema : manifest.getProperty("schemas").split(",")) {
+                    files.put(schema, manifest.getProperty(schema + ".file"));
+                    checksums.put(schema, manifest.getProperty(schema + ".sha256"));
+                }
+            } catch (RuntimeException e) {
+                throw new SQLException("Manifeste invalide dans " + file.getFileName(), e);
+            }
+        }
+
+        public Path getFile() { return file; }
+        public String getSource() { return source; }
+        public Instant getCreated() { return created; }
+        public int getSchemaVersion() { return schemaVersion; }
+        public long getCompressedBytes() { return compressedBytes; }
+        public Map<String, String> getFiles() { return files; }
+        public Map<String, String> getChecksums() { return checksums; }
+
+        @Override
+        public String toString() {
+            return "Snapshot{" + file.getFileName() +
+                ", source=" + source +
+                ", schema=v" + schemaVersion +
+                ", bases=" + files.keySet() +
+                ", bytes=" + compressedBytes +
+                '}';
+        }
+    }
+}
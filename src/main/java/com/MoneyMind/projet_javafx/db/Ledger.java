@@ -0,0 +1,361 @@
+package com.MoneyMind.projet_javafx.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Journal en partie double des soldes (tables {@code ledger_*}, migration v8).
+ *
+ * Toute écriture qui modifie {@code users.total_limit} ou {@code budgets.current} ajoute,
+ * dans la même transaction, une écriture comptable ({@link Entry}) dont les mouvements
+ * s'annulent : ce qu'un compte gagne, un autre le perd. Les comptes sont le solde d'un
+ * utilisateur ({@code USER}), un budget ({@code BUDGET}) et l'extérieur d'un utilisateur
+ * ({@code EXTERNAL} : revenus, dépenses, ajustements manuels). Les tables
+ * {@code ledger_entries} et {@code ledger_postings} refusent UPDATE et DELETE (déclencheurs).
+ *
+ * Tous les {@link #SNAPSHOT_INTERVAL} mouvements, un instantané fige le solde de chaque
+ * compte mouvementé depuis le précédent. Un solde à une date se lit alors comme le dernier
+ * instantané antérieur plus une queue bornée de mouvements ; les colonnes de solde et les
+ * instantanés se reconstruisent à l'identique depuis le journal ({@link #rebuild}).
+ *
+ * La date d'un mouvement est celle de son enregistrement, non celle de la transaction :
+ * elle croît avec {@code posting_id}, et « solde au jour J » est ce qu'affichait la colonne
+ * ce jour-là.
+ */
+public class Ledger {
+
+    public static final int SNAPSHOT_INTERVAL = 1000;
+
+    public static final String USER = "USER";
+    public static final String BUDGET = "BUDGET";
+    public static final String EXTERNAL = "EXTERNAL";
+
+    private static final String INSERT_ENTRY =
+            "INSERT INTO ledger_entries (user_id, kind, reference_id, description, posted_on) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_POSTING =
+            "INSERT INTO ledger_postings (entry_id, account_kind, account_ref, amount, posted_on) VALUES (?, ?, ?, ?, ?)";
+    private static final String LAST_ROWID = "SELECT last_insert_rowid()";
+    private static final String SELECT_LAST_SNAPSHOT_POSITION =
+            "SELECT COALESCE(MAX(last_posting_id), 0) FROM ledger_snapshots";
+    // Dernier instantané de chaque compte mouvementé dans ]?1, ?2], plus ses mouvements de l'intervalle
+    private static final String INSERT_SNAPSHOTS = """
+            INSERT INTO ledger_snapshots (account_kind, account_ref, last_posting_id, as_of, balance)
+            SELECT p.account_kind, p.account_ref, ?2,
+                   (SELECT posted_on FROM ledger_postings WHERE posting_id = ?2),
+                   COALESCE((SELECT s.balance FROM ledger_snapshots s
+                             WHERE s.account_kind = p.account_kind AND s.account_ref = p.account_ref
+                             ORDER BY s.last_posting_id DESC LIMIT 1), 0) + SUM(p.amount)
+            FROM ledger_postings p
+            WHERE p.posting_id > ?1 AND p.posting_id <= ?2
+            GROUP BY p.account_kind, p.account_ref""";
+    // Solde à une date : dernier instantané antérieur, puis les mouvements qui le suivent
+    public static final String SELECT_SNAPSHOT_AS_OF = """
+            SELECT last_posting_id, balance FROM ledger_snapshots
+            WHERE account_kind = ? AND account_ref = ? AND as_of <= ?
+            ORDER BY last_posting_id DESC LIMIT 1""";
+    public static final String SELECT_POSTINGS_AFTER = """
+            SELECT COALESCE(SUM(amount), 0) FROM ledger_postings
+            WHERE account_kind = ? AND account_ref = ? AND posting_id > ? AND posted_on <= ?""";
+
+    // Définition de référence : ce que les colonnes de solde doivent valoir d'après le journal
+    private static final String JOURNAL_USER_BALANCES = """
+            SELECT u.user_id, u.total_limit AS stored,
+                   COALESCE((SELECT SUM(amount) FROM ledger_postings
+                             WHERE account_kind = 'USER' AND account_ref = u.user_id), 0) AS journal
+            FROM users u""";
+    private static final String JOURNAL_BUDGET_BALANCES = """
+            SELECT b.budget_id, b.current AS stored,
+                   COALESCE((SELECT SUM(amount) FROM ledger_postings
+                             WHERE account_kind = 'BUDGET' AND account_ref = b.budget_id), 0) AS journal
+            FROM budgets b""";
+    private static final String SELECT_UNBALANCED_ENTRIES =
+            "SELECT entry_id FROM ledger_postings GROUP BY entry_id HAVING SUM(amount) <> 0";
+
+    // ==================== Comptes et écritures ====================
+
+    /**
+     * Un compte : {@code kind} parmi {@link #USER}, {@link #BUDGET}, {@link #EXTERNAL},
+     * {@code ref} l'identifiant de l'utilisateur ou du budget.
+     */
+    public static final class Account {
+        private final String kind;
+        private final long ref;
+
+        private Account(String kind, long ref) {
+            this.kind = kind;
+            this.ref = ref;
+        }
+
+        public static Account user(int userId) { return new Account(USER, userId); }
+        public static Account budget(long budgetId) { return new Account(BUDGET, budgetId); }
+        public static Account external(int userId) { return new Account(EXTERNAL, userId); }
+
+        public String getKind() { return kind; }
+        public long getRef() { return ref; }
+
+        @Override
+        public String toString() {
+            return kind + "/" + ref;
+        }
+    }
+
+    /**
+     * Une écriture : des mouvements dont la somme doit être nulle.
+     * {@code kind} parmi OPENING, TRANSACTION, TRANSFER, ADJUSTMENT ; {@code referenceId}
+     * pointe la ligne à l'origine de l'écriture (transaction_id, transfer_id...), ou 0.
+     */
+    public static class Entry {
+        private final int userId;
+        private final String kind;
+        private final long referenceId;
+        private final String description;
+        private final List<Account> accounts = new ArrayList<>(2);
+        private final List<Long> amounts = new ArrayList<>(2);
+
+        public Entry(int userId, String kind, long referenceId, String description) {
+            this.userId = userId;
+            this.kind = kind;
+            this.referenceId = referenceId;
+            this.description = description;
+        }
+
+        public Entry post(Account account, long amount) {
+            if (amount != 0) {
+                accounts.add(account);
+                amounts.add(amount);
+            }
+            return this;
+        }
+
+        /**
+         * Mouvement de {@code amount} de {@code from} vers {@code to}.
+         */
+        public Entry move(Account from, Account to, long amount) {
+            return post(from, -amount).post(to, amount);
+        }
+
+        public boolean isEmpty() {
+            return accounts.isEmpty();
+        }
+
+        long sum() {
+            long sum = 0;
+            for (long amount : amounts) sum = Math.addExact(sum, amount);
+            return sum;
+        }
+    }
+
+    // ==================== Écriture ====================
+
+    /**
+     * Ajoute les écritures au journal (les écritures vides sont ignorées) et prend les
+     * instantanés dont le seuil est franchi. Fait partie de la transaction de l'appelant, qui valide.
+     * @throws SQLException si une écriture n'est pas équilibrée ; rien n'a été ajouté
+     */
+    public static void append(Connection connection, List<Entry> entries, LocalDate today) throws SQLException {
+        List<Entry> written = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            if (entry.isEmpty()) continue;
+            if (entry.sum() != 0) {
+                throw new SQLException("Unbalanced ledger entry: " + entry.kind + " " + entry.referenceId);
+            }
+            written.add(entry);
+        }
+        if (written.isEmpty()) return;
+        String postedOn = today.toString();
+
+        // Un seul écrivain : les identifiants d'un lot se suivent et finissent au dernier inséré
+        try (PreparedStatement pstmt = connection.prepareStatement(INSERT_ENTRY)) {
+            for (Entry entry : written) {
+                pstmt.setInt(1, entry.userId);
+                pstmt.setString(2, entry.kind);
+                if (entry.referenceId != 0) pstmt.setLong(3, entry.referenceId);
+                else pstmt.setNull(3, java.sql.Types.INTEGER);
+                pstmt.setString(4, entry.description);
+                pstmt.setString(5, postedOn);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+        long entryId = lastRowId(connection) - written.size() + 1;
+
+        int postings = 0;
+        try (PreparedStatement pstmt = connection.prepareStatement(INSERT_POSTING)) {
+            for (Entry entry : written) {
+                for (int i = 0; i < entry.accounts.size(); i++) {
+                    Account account = entry.accounts.get(i);
+                    pstmt.setLong(1, entryId);
+                    pstmt.setString(2, account.kind);
+                    pstmt.setLong(3, account.ref);
+                    pstmt.setLong(4, entry.amounts.get(i));
+                    pstmt.setString(5, postedOn);
+                    pstmt.addBatch();
+                    postings++;
+                }
+                entryId++;
+            }
+            pstmt.executeBatch();
+        }
+        long last = lastRowId(connection);
+        long first = last - postings + 1;
+
+        // Seuils franchis par ce lot : multiples de SNAPSHOT_INTERVAL dans [first, last]
+        for (long position = (first + SNAPSHOT_INTERVAL - 1) / SNAPSHOT_INTERVAL * SNAPSHOT_INTERVAL;
+             position <= last; position += SNAPSHOT_INTERVAL) {
+            snapshot(connection, position);
+        }
+    }
+
+    public static void append(Connection connection, Entry entry, LocalDate today) throws SQLException {
+        append(connection, List.of(entry), today);
+    }
+
+    // Instantané des comptes mouvementés depuis le précédent, jusqu'au mouvement `position` inclus
+    private static void snapshot(Connection connection, long position) throws SQLException {
+        long previous;
+        try (PreparedStatement pstmt = connection.prepareStatement(SELECT_LAST_SNAPSHOT_POSITION);
+             ResultSet rs = pstmt.executeQuery()) {
+            previous = rs.next() ? rs.getLong(1) : 0;
+        }
+        if (previous >= position) return;
+        try (PreparedStatement pstmt = connection.prepareStatement(INSERT_SNAPSHOTS)) {
+            pstmt.setLong(1, previous);
+            pstmt.setLong(2, position);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Prend tous les instantanés dus qui manquent (journal rempli par une migration, ou
+     * instantanés effacés). Fait partie de la transaction de l'appelant, qui valide.
+     */
+    static void takeMissingSnapshots(Connection connection) throws SQLException {
+        long last;
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(posting_id), 0) FROM ledger_postings")) {
+            last = rs.next() ? rs.getLong(1) : 0;
+        }
+        for (long position = SNAPSHOT_INTERVAL; position <= last; position += SNAPSHOT_INTERVAL) {
+            snapshot(connection, position);
+        }
+    }
+
+    private static long lastRowId(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(LAST_ROWID)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    // ==================== Lecture ====================
+
+    /**
+     * Solde du compte à la fin du jour {@code asOf} : dernier instantané antérieur plus
+     * au plus quelques milliers de mouvements.
+     */
+    public static long balanceAsOf(Connection connection, Account account, LocalDate asOf) throws SQLException {
+        long position = 0;
+        long balance = 0;
+        try (PreparedStatement pstmt = connection.prepareStatement(SELECT_SNAPSHOT_AS_OF)) {
+            pstmt.setString(1, account.kind);
+            pstmt.setLong(2, account.ref);
+            pstmt.setString(3, asOf.toString());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    position = rs.getLong("last_posting_id");
+                    balance = rs.getLong("balance");
+                }
+            }
+        }
+        try (PreparedStatement pstmt = connection.prepareStatement(SELECT_POSTINGS_AFTER)) {
+            pstmt.setString(1, account.kind);
+            pstmt.setLong(2, account.ref);
+            pstmt.setLong(3, position);
+            pstmt.setString(4, asOf.toString());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return balance + (rs.next() ? rs.getLong(1) : 0);
+            }
+        }
+    }
+
+    // ==================== Reconstruction / vérification ====================
+
+    /**
+     * Compare le journal aux colonnes de solde.
+     * @return écritures déséquilibrées ("entry/id") et soldes qui divergent
+     *         ("USER/id" ou "BUDGET/id : colonne ≠ journal")
+     */
+    public static List<String> verify(ConnectionPool pool) throws SQLException {
+        List<String> mismatches = new ArrayList<>();
+        try (Connection connection = pool.borrowReader();
+             Statement stmt = connection.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(SELECT_UNBALANCED_ENTRIES)) {
+                while (rs.next()) mismatches.add("entry/" + rs.getLong(1));
+            }
+            collectMismatches(stmt, JOURNAL_USER_BALANCES, USER, mismatches);
+            collectMismatches(stmt, JOURNAL_BUDGET_BALANCES, BUDGET, mismatches);
+        }
+        return mismatches;
+    }
+
+    private static void collectMismatches(Statement stmt, String sql, String kind, List<String> out) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT * FROM (" + sql + ") WHERE stored <> journal")) {
+            while (rs.next()) {
+                out.add(kind + "/" + rs.getLong(1) + " : " + rs.getLong("stored") + " ≠ " + rs.getLong("journal"));
+            }
+        }
+    }
+
+    /**
+     * Réécrit {@code users.total_limit}, {@code budgets.current} et les instantanés depuis
+     * le journal. Le résultat ne dépend que du journal : deux reconstructions donnent les
+     * mêmes tables.
+     * @return nombre de soldes corrigés
+     */
+    public static int rebuild(ConnectionPool pool) throws SQLException {
+        try (Connection connection = pool.borrowWriter()) {
+            try (Statement stmt = connection.createStatement()) {
+                int fixed = stmt.executeUpdate("""
+                        UPDATE users SET total_limit = COALESCE((SELECT SUM(amount) FROM ledger_postings
+                            WHERE account_kind = 'USER' AND account_ref = users.user_id), 0)
+                        WHERE total_limit <> COALESCE((SELECT SUM(amount) FROM ledger_postings
+                            WHERE account_kind = 'USER' AND account_ref = users.user_id), 0)""");
+                fixed += stmt.executeUpdate("""
+                        UPDATE budgets SET current = COALESCE((SELECT SUM(amount) FROM ledger_postings
+                            WHERE account_kind = 'BUDGET' AND account_ref = budgets.budget_id), 0)
+                        WHERE current <> COALESCE((SELECT SUM(amount) FROM ledger_postings
+                            WHERE account_kind = 'BUDGET' AND account_ref = budgets.budget_id), 0)""");
+
+                stmt.executeUpdate("DELETE FROM ledger_snapshots");
+                takeMissingSnapshots(connection);
+                connection.commit();
+                return fixed;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Vérifie les soldes et, s'ils ont divergé du journal, les reconstruit.
+     * @return true si une reconstruction a eu lieu
+     */
+    public static boolean verifyAndRepair(ConnectionPool pool) throws SQLException {
+        List<String> mismatches = verify(pool);
+        if (mismatches.isEmpty()) {
+            System.out.println("Journal des soldes : cohérent");
+            return false;
+        }
+        System.err.println("Journal des soldes : " + mismatches.size() + " écart(s), ex. " + mismatches.get(0) + " ; reconstruction");
+        int fixed = rebuild(pool);
+        System.out.println("Soldes reconstruits depuis le journal : " + fixed + " solde(s) corrigé(s)");
+        return true;
+    }
+}
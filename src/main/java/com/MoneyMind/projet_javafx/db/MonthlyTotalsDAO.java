@@ -0,0 +1,285 @@
+package com.MoneyMind.projet_javafx.db;
+
+import com.MoneyMind.projet_javafx.controllers.MonthlyTotal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Agrégats mensuels par catégorie (table {@code monthly_category_totals}, migration v5).
+ *
+ * La table est tenue à jour dans la transaction même qui écrit dans {@code transactions} :
+ * l'appelant accumule les lignes écrites dans un {@link Delta}, puis appelle
+ * {@link #applyInserts} ou {@link #applyDeletes} avant son COMMIT. Les analyses lisent
+ * alors O(catégories × mois) lignes au lieu de tout l'historique.
+ *
+ * Les transactions sans catégorie sont regroupées sous {@code category_id = 0}.
+ */
+public class MonthlyTotalsDAO {
+
+    private static final String UPSERT = """
+            INSERT INTO monthly_category_totals
+                (user_id, year_month, category_id, total, expenses, tx_count, expense_count, min_amount, max_amount)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (user_id, year_month, category_id) DO UPDATE SET
+                total = total + excluded.total,
+                expenses = expenses + excluded.expenses,
+                tx_count = tx_count + excluded.tx_count,
+                expense_count = expense_count + excluded.expense_count,
+                min_amount = MIN(min_amount, excluded.min_amount),
+                max_amount = MAX(max_amount, excluded.max_amount)""";
+    private static final String SUBTRACT = """
+            UPDATE monthly_category_totals
+            SET total = total - ?, expenses = expenses - ?, tx_count = tx_count - ?, expense_count = expense_count - ?
+            WHERE user_id = ? AND year_month = ? AND category_id = ?""";
+    private static final String DELETE_EMPTY =
+            "DELETE FROM monthly_category_totals WHERE user_id = ? AND year_month = ? AND category_id = ? AND tx_count <= 0";
+    // Un minimum ou un maximum ne se décrémente pas : on le relit sur le mois (index user_id, date) ;
+    // %s reçoit la table principale, ou une sous-requête qui y ajoute les archives
+    private static final String REFRESH_MIN_MAX = """
+            UPDATE monthly_category_totals SET
+                min_amount = (SELECT MIN(amount) FROM %1$s
+                              WHERE user_id = ?1 AND date >= ?2 AND date < ?3 AND COALESCE(category_id, 0) = ?4),
+                max_amount = (SELECT MAX(amount) FROM %1$s
+                              WHERE user_id = ?1 AND date >= ?2 AND date < ?3 AND COALESCE(category_id, 0) = ?4)
+            WHERE user_id = ?1 AND year_month = ?5 AND category_id = ?4""";
+
+    public static final String SELECT_RANGE = """
+            SELECT m.year_month, c.name AS category, m.total, m.expenses, m.tx_count, m.expense_count,
+                   m.min_amount, m.max_amount
+            FROM monthly_category_totals m LEFT JOIN categories c ON m.category_id = c.category_id
+            WHERE m.user_id = ? AND m.year_month BETWEEN ? AND ?
+            ORDER BY m.year_month""";
+
+    // Définition de référence : ce que la table doit contenir, recalculé depuis transactions
+    // (date en jours depuis 1970 : + 2440587.5 donne le jour julien qu'attend strftime) ;
+    // %s reçoit les transactions de la base principale et des archives (TransactionArchive)
+    private static final String AGGREGATE_TRANSACTIONS = """
+            SELECT user_id, strftime('%%Y-%%m', date + 2440587.5) AS year_month, COALESCE(category_id, 0) AS category_id,
+                   SUM(amount) AS total,
+                   SUM(CASE WHEN amount < 0 THEN -amount ELSE 0 END) AS expenses,
+                   COUNT(*) AS tx_count,
+                   SUM(CASE WHEN amount < 0 THEN 1 ELSE 0 END) AS expense_count,
+                   MIN(amount) AS min_amount, MAX(amount) AS max_amount
+            FROM (%s)
+            GROUP BY user_id, strftime('%%Y-%%m', date + 2440587.5), COALESCE(category_id, 0)""";
+    private static final String ROLLUP_COLUMNS =
+            "user_id, year_month, category_id, total, expenses, tx_count, expense_count, min_amount, max_amount";
+
+    // ==================== Mise à jour incrémentale ====================
+
+    /**
+     * Variations à appliquer, cumulées par (mois, catégorie) pour un utilisateur.
+     */
+    public static class Delta {
+        private final Map<String, Cell> cells = new HashMap<>();
+
+        /**
+         * @param categoryId catégorie de la transaction, ou 0 si elle n'en a pas
+         */
+        public void add(LocalDate date, int categoryId, long amount) {
+            add(YearMonth.from(date).toString(), categoryId, amount);
+        }
+
+        public void add(String yearMonth, int categoryId, long amount) {
+            Cell cell = cells.computeIfAbsent(yearMonth + "|" + categoryId, k -> new Cell(yearMonth, categoryId));
+            cell.total += amount;
+            cell.count++;
+            if (amount < 0) {
+                cell.expenses -= amount;
+                cell.expenseCount++;
+            }
+            cell.min = Math.min(cell.min, amount);
+            cell.max = Math.max(cell.max, amount);
+        }
+
+        public boolean isEmpty() {
+            return cells.isEmpty();
+        }
+    }
+
+    private static class Cell {
+        final String yearMonth;
+        final int categoryId;
+        long total;
+        long expenses;
+        int count;
+        int expenseCount;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+
+        Cell(String yearMonth, int categoryId) {
+            this.yearMonth = yearMonth;
+            this.categoryId = categoryId;
+        }
+    }
+
+    /**
+     * Ajoute des lignes insérées. Fait partie de la transaction de l'appelant, qui valide.
+     */
+    public static void applyInserts(Connection connection, int userId, Delta delta) throws SQLException {
+        if (delta.isEmpty()) return;
+        try (PreparedStatement pstmt = connection.prepareStatement(UPSERT)) {
+            for (Cell cell : delta.cells.values()) {
+                pstmt.setInt(1, userId);
+                pstmt.setString(2, cell.yearMonth);
+                pstmt.setInt(3, cell.categoryId);
+                pstmt.setLong(4, cell.total);
+                pstmt.setLong(5, cell.expenses);
+                pstmt.setInt(6, cell.count);
+                pstmt.setInt(7, cell.expenseCount);
+                pstmt.setLong(8, cell.min);
+                pstmt.setLong(9, cell.max);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    /**
+     * Retire des lignes supprimées (à appeler après le DELETE). Fait partie de la
+     * transaction de l'appelant, qui valide.
+     */
+    public static void applyDeletes(Connection connection, int userId, Delta delta) throws SQLException {
+        applyDeletes(connection, userId, delta, List.of());
+    }
+
+    /**
+     * Idem, quand des lignes restent dans des années archivées : le minimum et le maximum
+     * d'un mois sont relus aussi dans les schémas {@code archives} (voir {@link TransactionArchive}).
+     */
+    public static void applyDeletes(Connection connection, int userId, Delta delta, List<String> archives) throws SQLException {
+        if (delta.isEmpty()) return;
+        String source = "transactions";
+        if (!archives.isEmpty()) {
+            StringBuilder union = new StringBuilder("(SELECT user_id, category_id, amount, date FROM main.transactions");
+            for (String schema : archives) {
+                union.append(" UNION ALL SELECT user_id, category_id, amount, date FROM ").append(schema).append(".transactions");
+            }
+            source = union.append(')').toString();
+        }
+        try (PreparedStatement subtract = connection.prepareStatement(SUBTRACT);
+             PreparedStatement deleteEmpty = connection.prepareStatement(DELETE_EMPTY);
+             PreparedStatement refresh = connection.prepareStatement(REFRESH_MIN_MAX.formatted(source))) {
+            for (Cell cell : delta.cells.values()) {
+                subtract.setLong(1, cell.total);
+                subtract.setLong(2, cell.expenses);
+                subtract.setInt(3, cell.count);
+                subtract.setInt(4, cell.expenseCount);
+                subtract.setInt(5, userId);
+                subtract.setString(6, cell.yearMonth);
+                subtract.setInt(7, cell.categoryId);
+                subtract.executeUpdate();
+
+                deleteEmpty.setInt(1, userId);
+                deleteEmpty.setString(2, cell.yearMonth);
+                deleteEmpty.setInt(3, cell.categoryId);
+                if (deleteEmpty.executeUpdate() > 0) continue;
+
+                YearMonth month = YearMonth.parse(cell.yearMonth);
+                refresh.setInt(1, userId);
+                refresh.setLong(2, month.atDay(1).toEpochDay());
+                refresh.setLong(3, month.plusMonths(1).atDay(1).toEpochDay());
+                refresh.setInt(4, cell.categoryId);
+                refresh.setString(5, cell.yearMonth);
+                refresh.executeUpdate();
+            }
+        }
+    }
+
+    // ==================== Lecture ====================
+
+    /**
+     * Agrégats d'un utilisateur pour les mois {@code from} à {@code to} inclus, par mois croissant.
+     */
+    public static List<MonthlyTotal> select(Connection connection, int userId, YearMonth from, YearMonth to) throws SQLException {
+        List<MonthlyTotal> totals = new ArrayList<>();
+        try (PreparedStatement pstmt = connection.prepareStatement(SELECT_RANGE)) {
+            pstmt.setInt(1, userId);
+            pstmt.setString(2, from.toString());
+            pstmt.setString(3, to.toString());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    totals.add(new MonthlyTotal(
+                            YearMonth.parse(rs.getString("year_month")),
+                            rs.getString("category"),
+                            rs.getLong("total"),
+                            rs.getLong("expenses"),
+                            rs.getInt("tx_count"),
+                            rs.getInt("expense_count"),
+                            rs.getLong("min_amount"),
+                            rs.getLong("max_amount")));
+                }
+            }
+        }
+        return totals;
+    }
+
+    // ==================== Reconstruction / vérification ====================
+
+    /**
+     * Recalcule toute la table depuis {@code transactions}, archives comprises.
+     * @return nombre de lignes d'agrégats écrites
+     */
+    public static int rebuild(ConnectionPool pool) throws SQLException {
+        String aggregate = AGGREGATE_TRANSACTIONS.formatted(TransactionArchive.of(pool).allTransactions());
+        try (Connection connection = pool.borrowWriter()) {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.executeUpdate("DELETE FROM monthly_category_totals");
+                int rows = stmt.executeUpdate("INSERT INTO monthly_category_totals (" + ROLLUP_COLUMNS + ") " + aggregate);
+                connection.commit();
+                return rows;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Compare la table à un recalcul complet.
+     * @return clés "user_id/année-mois/category_id" des agrégats faux, manquants ou en trop
+     */
+    public static List<String> verify(ConnectionPool pool) throws SQLException {
+        String aggregate = AGGREGATE_TRANSACTIONS.formatted(TransactionArchive.of(pool).allTransactions());
+        String stored = "SELECT " + ROLLUP_COLUMNS + " FROM monthly_category_totals";
+        String sql = "SELECT user_id, year_month, category_id FROM ("
+                + "SELECT * FROM (" + aggregate + " EXCEPT " + stored + ") "
+                + "UNION SELECT * FROM (" + stored + " EXCEPT " + aggregate + ")) "
+                + "GROUP BY user_id, year_month, category_id";
+        List<String> mismatches = new ArrayList<>();
+        try (Connection connection = pool.borrowReader();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                mismatches.add(rs.getInt("user_id") + "/" + rs.getString("year_month") + "/" + rs.getInt("category_id"));
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Vérifie la table et la reconstruit si elle a divergé.
+     * @return true si une reconstruction a eu lieu
+     */
+    public static boolean verifyAndRepair(ConnectionPool pool) throws SQLException {
+        List<String> mismatches = verify(pool);
+        if (mismatches.isEmpty()) {
+            System.out.println("Agrégats mensuels : cohérents");
+            return false;
+        }
+        System.err.println("Agrégats mensuels : " + mismatches.size() + " écart(s), ex. " + mismatches.get(0) + " ; reconstruction");
+        int rows = rebuild(pool);
+        System.out.println("Agrégats mensuels reconstruits : " + rows + " ligne(s)");
+        return true;
+    }
+}
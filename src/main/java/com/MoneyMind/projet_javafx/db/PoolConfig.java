@@ -0,0 +1,107 @@
+package com.MoneyMind.projet_javafx.db;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Paramètres du pool de connexions SQLite : URL, nombre de lecteurs,
+ * délais et PRAGMAs appliqués à chaque connexion ouverte.
+ */
+public class PoolConfig {
+    private String url = "jdbc:sqlite:money_mind.db";
+    private int readerCount = 4;
+    private long borrowTimeoutMillis = 10_000;
+    private long validationIntervalMillis = 30_000;
+    private int statementCacheSize = 64; // par connexion, 0 = désactivé
+
+    private String journalMode = "WAL";
+    private String synchronous = "NORMAL";
+    private long mmapSize = 256L * 1024 * 1024;
+    private int cacheSize = -16_000; // négatif = taille en Kio (16 Mo)
+    private int busyTimeoutMillis = 5_000;
+
+    public static PoolConfig defaults() {
+        return new PoolConfig();
+    }
+
+    /**
+     * PRAGMAs communs à toutes les connexions, dans l'ordre d'exécution.
+     */
+    Map<String, String> pragmas() {
+        Map<String, String> pragmas = new LinkedHashMap<>();
+        pragmas.put("busy_timeout", String.valueOf(busyTimeoutMillis));
+        pragmas.put("journal_mode", journalMode);
+        pragmas.put("synchronous", synchronous);
+        pragmas.put("mmap_size", String.valueOf(mmapSize));
+        pragmas.put("cache_size", String.valueOf(cacheSize));
+        pragmas.put("foreign_keys", "ON");
+        return pragmas;
+    }
+
+    /**
+     * Copie indépendante, pour ouvrir un autre fichier avec les mêmes réglages (voir ShardRouter).
+     */
+    public PoolConfig copy() {
+        PoolConfig copy = new PoolConfig();
+        copy.url = url;
+        copy.readerCount = readerCount;
+        copy.borrowTimeoutMillis = borrowTimeoutMillis;
+        copy.validationIntervalMillis = validationIntervalMillis;
+        copy.statementCacheSize = statementCacheSize;
+        copy.journalMode = journalMode;
+        copy.synchronous = synchronous;
+        copy.mmapSize = mmapSize;
+        copy.cacheSize = cacheSize;
+        copy.busyTimeoutMillis = busyTimeoutMillis;
+        return copy;
+    }
+
+    /**
+     * Fichier désigné par l'URL ({@code jdbc:sqlite:money_mind.db}), en chemin absolu ;
+     * null pour une base en mémoire.
+     */
+    public Path getDatabaseFile() {
+        String path = url.substring(url.indexOf(':', "jdbc:".length()) + 1);
+        int query = path.indexOf('?');
+        if (query >= 0) path = path.substring(0, query);
+        if (path.startsWith("file:")) path = path.substring("file:".length());
+        if (path.isEmpty() || path.contains(":memory:")) return null;
+        return Path.of(path).toAbsolutePath();
+    }
+
+    // Getters et setters (chaînables)
+    public String getUrl() { return url; }
+    public PoolConfig setUrl(String url) { this.url = url; return this; }
+
+    public int getReaderCount() { return readerCount; }
+    public PoolConfig setReaderCount(int readerCount) {
+        if (readerCount < 1) throw new IllegalArgumentException("Au moins un lecteur est requis");
+        this.readerCount = readerCount;
+        return this;
+    }
+
+    public long getBorrowTimeoutMillis() { return borrowTimeoutMillis; }
+    public PoolConfig setBorrowTimeoutMillis(long borrowTimeoutMillis) { this.borrowTimeoutMillis = borrowTimeoutMillis; return this; }
+
+    public long getValidationIntervalMillis() { return validationIntervalMillis; }
+    public PoolConfig setValidationIntervalMillis(long validationIntervalMillis) { this.validationIntervalMillis = validationIntervalMillis; return this; }
+
+    public int getStatementCacheSize() { return statementCacheSize; }
+    public PoolConfig setStatementCacheSize(int statementCacheSize) { this.statementCacheSize = statementCacheSize; return this; }
+
+    public String getJournalMode() { return journalMode; }
+    public PoolConfig setJournalMode(String journalMode) { this.journalMode = journalMode; return this; }
+
+    public String getSynchronous() { return synchronous; }
+    public PoolConfig setSynchronous(String synchronous) { this.synchronous = synchronous; return this; }
+
+    public long getMmapSize() { return mmapSize; }
+    public PoolConfig setMmapSize(long mmapSize) { this.mmapSize = mmapSize; return this; }
+
+    public int getCacheSize() { return cacheSize; }
+    public PoolConfig setCacheSize(int cacheSize) { this.cacheSize = cacheSize; return this; }
+
+    public int getBusyTimeoutMillis() { return busyTimeoutMillis; }
+    public PoolConfig setBusyTimeoutMillis(int busyTimeoutMillis) { this.busyTimeoutMillis = busyTimeoutMillis; return this; }
+}
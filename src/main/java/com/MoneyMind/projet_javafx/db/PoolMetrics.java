@@ -0,0 +1,69 @@
+package com.MoneyMind.projet_javafx.db;
+
+/**
+ * Instantané (immuable) des compteurs du {@link ConnectionPool}.
+ */
+public class PoolMetrics {
+    private final long writerBorrows;
+    private final long readerBorrows;
+    private final long writerWaitNanos;
+    private final long readerWaitNanos;
+    private final int openReaders;
+    private final int idleReaders;
+    private final long healthCheckFailures;
+    private final long connectionsReplaced;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+    private final long statementCacheEvictions;
+
+    PoolMetrics(long writerBorrows, long readerBorrows, long writerWaitNanos, long readerWaitNanos,
+                int openReaders, int idleReaders, long healthCheckFailures, long connectionsReplaced,
+                long statementCacheHits, long statementCacheMisses, long statementCacheEvictions) {
+        this.writerBorrows = writerBorrows;
+        this.readerBorrows = readerBorrows;
+        this.writerWaitNanos = writerWaitNanos;
+        this.readerWaitNanos = readerWaitNanos;
+        this.openReaders = openReaders;
+        this.idleReaders = idleReaders;
+        this.healthCheckFailures = healthCheckFailures;
+        this.connectionsReplaced = connectionsReplaced;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+        this.statementCacheEvictions = statementCacheEvictions;
+    }
+
+    public long getWriterBorrows() { return writerBorrows; }
+    public long getReaderBorrows() { return readerBorrows; }
+    public long getWriterWaitNanos() { return writerWaitNanos; }
+    public long getReaderWaitNanos() { return readerWaitNanos; }
+    public int getOpenReaders() { return openReaders; }
+    public int getIdleReaders() { return idleReaders; }
+    public int getActiveReaders() { return openReaders - idleReaders; }
+    public long getHealthCheckFailures() { return healthCheckFailures; }
+    public long getConnectionsReplaced() { return connectionsReplaced; }
+    public long getStatementCacheHits() { return statementCacheHits; }
+    public long getStatementCacheMisses() { return statementCacheMisses; }
+    public long getStatementCacheEvictions() { return statementCacheEvictions; }
+
+    public double getStatementCacheHitRate() {
+        long lookups = statementCacheHits + statementCacheMisses;
+        return lookups == 0 ? 0.0 : (double) statementCacheHits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolMetrics{" +
+                "writerBorrows=" + writerBorrows +
+                ", readerBorrows=" + readerBorrows +
+                ", writerWaitMs=" + writerWaitNanos / 1_000_000 +
+                ", readerWaitMs=" + readerWaitNanos / 1_000_000 +
+                ", activeReaders=" + getActiveReaders() +
+                ", idleReaders=" + idleReaders +
+                ", healthCheckFailures=" + healthCheckFailures +
+                ", connectionsReplaced=" + connectionsReplaced +
+                ", statementCacheHits=" + statementCacheHits +
+                ", statementCacheMisses=" + statementCacheMisses +
+                ", statementCacheEvictions=" + statementCacheEvictions +
+                '}';
+    }
+}
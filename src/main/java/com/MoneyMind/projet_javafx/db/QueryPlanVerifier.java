@@ -0,0 +1,75 @@
+package com.MoneyMind.projet_javafx.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Passe chaque requête DAO dans EXPLAIN QUERY PLAN et signale celles qui
+ * parcourent encore une table entière au lieu d'utiliser un index.
+ *
+ * Activé au démarrage avec {@code -Dmoneymind.verifyQueryPlans=true}.
+ */
+public class QueryPlanVerifier {
+
+    // Tables de référence minuscules, lues en entier volontairement
+    public static final Set<String> REFERENCE_TABLES = Set.of("categories");
+
+    public static void verify(ConnectionPool pool, Map<String, String> queries) {
+        verify(pool, queries, REFERENCE_TABLES);
+    }
+
+    /**
+     * @throws DBInitializer.DatabaseInitializationException si au moins une requête fait un parcours complet
+     */
+    public static void verify(ConnectionPool pool, Map<String, String> queries, Set<String> scannableTables) {
+        List<String> offenders;
+        try (Connection conn = pool.borrowReader()) {
+            offenders = findFullScans(conn, queries, scannableTables);
+        } catch (SQLException e) {
+            throw new DBInitializer.DatabaseInitializationException("Échec de l'analyse des plans de requête", e);
+        }
+        if (!offenders.isEmpty()) {
+            throw new DBInitializer.DatabaseInitializationException(
+                    "Parcours complets de table détectés :\n  " + String.join("\n  ", offenders), null);
+        }
+        System.out.println("Plans de requête vérifiés : " + queries.size() + " requêtes indexées");
+    }
+
+    /**
+     * @param scannableTables tables (ou alias) dont le parcours complet est accepté
+     * @return une ligne "requête : détail du plan" par parcours complet trouvé
+     */
+    public static List<String> findFullScans(Connection conn, Map<String, String> queries,
+                                             Set<String> scannableTables) throws SQLException {
+        List<String> offenders = new ArrayList<>();
+        for (Map.Entry<String, String> query : queries.entrySet()) {
+            try (PreparedStatement pstmt = conn.prepareStatement("EXPLAIN QUERY PLAN " + query.getValue());
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String detail = rs.getString("detail");
+                    String scanned = scannedTable(detail);
+                    if (scanned != null && !scannableTables.contains(scanned)) {
+                        offenders.add(query.getKey() + " : " + detail);
+                    }
+                }
+            }
+        }
+        return offenders;
+    }
+
+    // "SCAN t" ou "SCAN transactions USING COVERING INDEX ..." -> nom parcouru. Ne sont pas
+    // des parcours : une table virtuelle (FTS5, json_each), qui répond par son propre index,
+    // et le résultat d'une sous-requête ("SCAN (subquery-1)"), dont le plan est vérifié à part
+    private static String scannedTable(String detail) {
+        if (detail == null || !detail.startsWith("SCAN ") || detail.contains(" VIRTUAL TABLE INDEX ")) return null;
+        String[] tokens = detail.split(" ");
+        if (tokens.length < 2 || tokens[1].equals("CONSTANT") || tokens[1].startsWith("(")) return null;
+        return tokens[1];
+    }
+}
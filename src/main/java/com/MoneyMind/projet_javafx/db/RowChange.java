@@ -0,0 +1,107 @@
+package com.MoneyMind.projet_javafx.db;
+
+import com.MoneyMind.projet_javafx.controllers.Budget;
+import com.MoneyMind.projet_javafx.controllers.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Une ligne de {@code transactions}, {@code budgets} ou {@code users} insérée, modifiée
+ * ou supprimée par une transaction validée, telle que publiée par {@link ChangeFeed}.
+ *
+ * {@link #getRow()} est l'état de la ligne après le changement, ou juste avant sa
+ * suppression. Son type dépend de la table : {@link Transaction} (avec son identifiant),
+ * {@link Budget} (copie) ou, pour {@code users}, le solde {@code total_limit}.
+ */
+public final class RowChange<T> {
+
+    public enum Op { INSERT, UPDATE, DELETE }
+
+    /**
+     * Table suivie, et type de ses lignes dans les changements.
+     */
+    public static final class Table<T> {
+        private final String name;
+        private final Class<T> rowType;
+
+        private Table(String name, Class<T> rowType) {
+            this.name = name;
+            this.rowType = rowType;
+        }
+
+        public String getName() { return name; }
+
+        public Class<T> getRowType() { return rowType; }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    public static final Table<Transaction> TRANSACTIONS = new Table<>("transactions", Transaction.class);
+    public static final Table<Budget> BUDGETS = new Table<>("budgets", Budget.class);
+    public static final Table<Long> USERS = new Table<>("users", Long.class);
+
+    private final Table<T> table;
+    private final Op op;
+    private final int userId;
+    private final long rowId;
+    private final T row;
+
+    private RowChange(Table<T> table, Op op, int userId, long rowId, T row) {
+        this.table = table;
+        this.op = op;
+        this.userId = userId;
+        this.rowId = rowId;
+        this.row = row;
+    }
+
+    public static RowChange<Transaction> transaction(Op op, int userId, Transaction row) {
+        return new RowChange<>(TRANSACTIONS, op, userId, row.getId(), row);
+    }
+
+    public static RowChange<Budget> budget(Op op, int userId, long budgetId, Budget row) {
+        return new RowChange<>(BUDGETS, op, userId, budgetId,
+                new Budget(row.getName(), row.getAmount(), row.getCurrent()));
+    }
+
+    public static RowChange<Long> balance(Op op, int userId, long totalLimit) {
+        return new RowChange<>(USERS, op, userId, userId, totalLimit);
+    }
+
+    /**
+     * Les changements de {@code table}, dans leur ordre.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> List<RowChange<T>> select(List<RowChange<?>> changes, Table<T> table) {
+        List<RowChange<T>> selected = new ArrayList<>();
+        for (RowChange<?> change : changes) {
+            if (change.table == table) selected.add((RowChange<T>) change);
+        }
+        return selected;
+    }
+
+    public Table<T> getTable() { return table; }
+
+    public Op getOp() { return op; }
+
+    public int getUserId() { return userId; }
+
+    /**
+     * transaction_id, budget_id ou user_id.
+     */
+    public long getRowId() { return rowId; }
+
+    public T getRow() { return row; }
+
+    @Override
+    public String toString() {
+        return "RowChange{" +
+                op + " " + table + "#" + rowId +
+                ", userId=" + userId +
+                ", row=" + row +
+                '}';
+    }
+}
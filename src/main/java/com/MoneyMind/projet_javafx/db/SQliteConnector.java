@@ -3,10 +3,15 @@ package com.MoneyMind.projet_javafx.db;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class SQliteConnector {
     private static final String DB_URL = "jdbc:sqlite:money_mind.db";
 
+    private static ConnectionPool pool;
+    private static ShardRouter router; // null : un seul fichier
+
     static {
         try {
             Class.forName("org.sqlite.JDBC");
@@ -15,7 +20,72 @@ public class SQliteConnector {
         }
     }
 
+    /**
+     * Pool partagé par toute l'application (créé à la première demande).
+     */
+    public static synchronized ConnectionPool pool() {
+        if (pool == null || pool.isClosed()) {
+            pool = new ConnectionPool(PoolConfig.defaults().setUrl(DB_URL));
+        }
+        return pool;
+    }
+
+    /**
+     * Remplace le pool partagé par un pool construit avec la configuration donnée.
+     */
+    public static synchronized ConnectionPool configure(PoolConfig config) {
+        closeAll();
+        pool = new ConnectionPool(config);
+        return pool;
+    }
+
+    /**
+     * Passe l'application en mode shardé (voir {@link ShardRouter}) : {@link #pool()} rend
+     * désormais l'annuaire. À initialiser par {@link ShardRouter#initialize()}.
+     */
+    public static synchronized ShardRouter configureShards(int shardCount) {
+        closeAll();
+        router = new ShardRouter(PoolConfig.defaults().setUrl(DB_URL), shardCount);
+        pool = router.directory();
+        return router;
+    }
+
+    /**
+     * Routeur du mode shardé, null avec un seul fichier.
+     */
+    public static synchronized ShardRouter router() {
+        return router;
+    }
+
+    /**
+     * Pools qui portent des données d'utilisateurs : les shards, ou le pool unique.
+     */
+    public static synchronized List<ConnectionPool> dataPools() {
+        return router != null ? router.shards() : List.of(pool());
+    }
+
+    /**
+     * Toutes les bases ouvertes : l'annuaire et les shards, ou le pool unique.
+     */
+    public static synchronized List<ConnectionPool> allPools() {
+        if (router == null) return List.of(pool());
+        List<ConnectionPool> pools = new ArrayList<>(router.shards());
+        pools.add(0, router.directory());
+        return pools;
+    }
+
+    private static void closeAll() {
+        if (router != null) router.close();
+        else if (pool != null) pool.close();
+        router = null;
+        pool = null;
+    }
+
+    /**
+     * Ouvre une connexion physique hors pool. À réserver aux outils ponctuels :
+     * le code applicatif emprunte ses connexions via {@link #pool()}.
+     */
     public static Connection connect() throws SQLException {
         return DriverManager.getConnection(DB_URL);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,288 @@
+package com.MoneyMind.projet_javafx.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mode shardé : les données de chaque utilisateur (solde, budgets, transactions, journal,
+ * agrégats, virements, archives) vivent dans l'un de N fichiers choisi par hachage de son
+ * user_id ({@code money_mind_shard0.db}...). Un annuaire commun ({@code money_mind.db})
+ * attribue les user_id, garde les identifiants de connexion et fait référence pour les
+ * catégories.
+ *
+ * Chaque fichier a son pool, donc son propre écrivain : deux utilisateurs de shards
+ * différents n'attendent plus le même verrou d'écriture SQLite. Tous les fichiers portent
+ * le schéma complet. Dans chaque shard, les catégories sont recopiées de l'annuaire avec
+ * les mêmes identifiants et chaque utilisateur a sa ligne {@code users} (sans mot de passe),
+ * pour que les clés étrangères tiennent, y compris pour le bénéficiaire d'un virement venu
+ * d'un autre shard. Seule la ligne du shard propriétaire porte le solde :
+ * {@code users.total_limit} n'est pas tenu à jour dans l'annuaire.
+ *
+ * Le nombre de shards est inscrit dans l'annuaire à la première ouverture et ne change
+ * plus : les utilisateurs ne sont pas redistribués, et une base non shardée qui contient
+ * déjà des données n'est pas découpée.
+ */
+public class ShardRouter implements AutoCloseable {
+
+    public static final String SELECT_SHARDS = "SELECT shard, url FROM shards ORDER BY shard";
+    private static final String REGISTER_SHARD = "INSERT INTO shards (shard, url) VALUES (?, ?)";
+    private static final String HAS_USER_DATA =
+            "SELECT EXISTS (SELECT 1 FROM transactions) OR EXISTS (SELECT 1 FROM budgets) OR EXISTS (SELECT 1 FROM users WHERE total_limit <> 0)";
+    private static final String SELECT_USERS = "SELECT user_id, username FROM users ORDER BY user_id";
+    private static final String REPLICATE_USER =
+            "INSERT OR IGNORE INTO users (user_id, username, password) VALUES (?, ?, '')";
+    private static final String SELECT_CATEGORIES =
+            "SELECT category_id, name, type, icon_name FROM categories ORDER BY category_id";
+    private static final String REPLICATE_CATEGORY =
+            "INSERT OR IGNORE INTO categories (category_id, name, type, icon_name) VALUES (?, ?, ?, ?)";
+
+    private final ConnectionPool directory;
+    private final List<ConnectionPool> shards;
+
+    /**
+     * @param directoryConfig configuration de l'annuaire ; les shards la reprennent, à
+     *                        côté du même fichier
+     */
+    public ShardRouter(PoolConfig directoryConfig, int shardCount) {
+        if (shardCount < 1) throw new IllegalArgumentException("Au moins un shard est requis");
+        List<ConnectionPool> pools = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            pools.add(new ConnectionPool(directoryConfig.copy().setUrl(shardUrl(directoryConfig.getUrl(), shard))));
+        }
+        this.directory = new ConnectionPool(directoryConfig);
+        this.shards = List.copyOf(pools);
+    }
+
+    // ==================== Routage ====================
+
+    /**
+     * Hachage de Fibonacci : des user_id consécutifs se répartissent sur tous les shards.
+     */
+    public static int shardOf(int userId, int shardCount) {
+        int hash = userId * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), shardCount);
+    }
+
+    public int shardIndex(int userId) {
+        return shardOf(userId, shards.size());
+    }
+
+    /**
+     * Pool du fichier qui porte les données de l'utilisateur.
+     */
+    public ConnectionPool shardFor(int userId) {
+        return shards.get(shardIndex(userId));
+    }
+
+    public ConnectionPool directory() {
+        return directory;
+    }
+
+    public List<ConnectionPool> shards() {
+        return shards;
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    // ==================== Initialisation ====================
+
+    /**
+     * Migre l'annuaire et chaque shard, fixe la liste des shards à la première ouverture,
+     * puis recopie catégories et utilisateurs de l'annuaire (rattrape une recopie
+     * interrompue par un arrêt).
+     */
+    public void initialize() throws SQLException {
+        DBInitializer.initializeDatabase(directory);
+        for (ConnectionPool shard : shards) {
+            DBInitializer.initializeDatabase(shard);
+        }
+        registerShards();
+        syncCategories();
+        syncUsers();
+        System.out.println("Mode shardé : " + shards.size() + " shard(s)");
+    }
+
+    private void registerShards() throws SQLException {
+        try (Connection conn = directory.borrowWriter()) {
+            try {
+                int registered = 0;
+                try (PreparedStatement pstmt = conn.prepareStatement(SELECT_SHARDS);
+                     ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) registered++;
+                }
+                if (registered == 0) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(HAS_USER_DATA);
+                         ResultSet rs = pstmt.executeQuery()) {
+                        if (rs.next() && rs.getBoolean(1)) {
+                            throw new SQLException("L'annuaire contient déjà des données d'utilisateurs : "
+                                    + "le mode shardé ne découpe pas une base existante");
+                        }
+                    }
+                    try (PreparedStatement pstmt = conn.prepareStatement(REGISTER_SHARD)) {
+                        for (int shard = 0; shard < shards.size(); shard++) {
+                            pstmt.setInt(1, shard);
+                            pstmt.setString(2, shards.get(shard).getConfig().getUrl());
+                            pstmt.addBatch();
+                        }
+                        pstmt.executeBatch();
+                    }
+                } else if (registered != shards.size()) {
+                    throw new SQLException("Annuaire créé avec " + registered + " shard(s), pas " + shards.size()
+                            + " : les utilisateurs ne sont pas redistribués");
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // ==================== Réplication ====================
+
+    /**
+     * Recopie les catégories de l'annuaire dans chaque shard, avec leurs identifiants.
+     * @throws SQLException si un shard a une catégorie de même nom sous un autre identifiant
+     */
+    public void syncCategories() throws SQLException {
+        List<Object[]> categories = new ArrayList<>();
+        try (Connection conn = directory.borrowReader();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_CATEGORIES);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                categories.add(new Object[]{rs.getInt("category_id"), rs.getString("name"),
+                        rs.getString("type"), rs.getString("icon_name")});
+            }
+        }
+        for (ConnectionPool shard : shards) {
+            try (Connection conn = shard.borrowWriter()) {
+                try {
+                    try (PreparedStatement pstmt = conn.prepareStatement(REPLICATE_CATEGORY)) {
+                        for (Object[] category : categories) {
+                            pstmt.setInt(1, (Integer) category[0]);
+                            pstmt.setString(2, (String) category[1]);
+                            pstmt.setString(3, (String) category[2]);
+                            pstmt.setString(4, (String) category[3]);
+                            pstmt.addBatch();
+                        }
+                        pstmt.executeBatch();
+                    }
+                    Map<Integer, String> names = new HashMap<>();
+                    try (PreparedStatement pstmt = conn.prepareStatement(CategoryDictionary.SELECT_ALL);
+                         ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) names.put(rs.getInt("category_id"), rs.getString("name"));
+                    }
+                    for (Object[] category : categories) {
+                        if (!category[1].equals(names.get(category[0]))) {
+                            throw new SQLException("Catégorie " + category[1] + " sous un autre identifiant dans "
+                                    + shard.getConfig().getUrl());
+                        }
+                    }
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            } finally {
+                CategoryDictionary.of(shard).invalidate();
+            }
+        }
+    }
+
+    /**
+     * {@link CategoryDictionary#getOrCreate} sur l'annuaire, recopiée dans les shards
+     * si elle n'y est pas encore.
+     */
+    public int getOrCreateCategory(String name, String type) throws SQLException {
+        int id = CategoryDictionary.of(directory).getOrCreate(name, type);
+        for (ConnectionPool shard : shards) {
+            if (!CategoryDictionary.of(shard).ids().containsKey(name)) {
+                syncCategories();
+                break;
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Recopie dans chaque shard un utilisateur que l'annuaire vient de créer.
+     */
+    public void replicateUser(int userId, String username) throws SQLException {
+        for (ConnectionPool shard : shards) {
+            try (Connection conn = shard.borrowWriter()) {
+                try (PreparedStatement pstmt = conn.prepareStatement(REPLICATE_USER)) {
+                    pstmt.setInt(1, userId);
+                    pstmt.setString(2, username);
+                    pstmt.executeUpdate();
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void syncUsers() throws SQLException {
+        Map<Integer, String> users = new HashMap<>();
+        try (Connection conn = directory.borrowReader();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_USERS);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) users.put(rs.getInt("user_id"), rs.getString("username"));
+        }
+        for (ConnectionPool shard : shards) {
+            try (Connection conn = shard.borrowWriter()) {
+                try (PreparedStatement pstmt = conn.prepareStatement(REPLICATE_USER)) {
+                    for (Map.Entry<Integer, String> user : users.entrySet()) {
+                        pstmt.setInt(1, user.getKey());
+                        pstmt.setString(2, user.getValue());
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // ==================== Fichiers ====================
+
+    // jdbc:sqlite:money_mind.db -> jdbc:sqlite:money_mind_shard0.db, dans le même dossier
+    static String shardUrl(String url, int shard) {
+        int query = url.indexOf('?');
+        String path = query < 0 ? url : url.substring(0, query);
+        String parameters = query < 0 ? "" : url.substring(query);
+        if (path.contains(":memory:")) {
+            throw new IllegalArgumentException("Le mode shardé demande des fichiers : " + url);
+        }
+        int name = Math.max(path.lastIndexOf(':'), Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\')));
+        int dot = path.lastIndexOf('.');
+        String suffix = "_shard" + shard;
+        path = dot > name ? path.substring(0, dot) + suffix + path.substring(dot) : path + suffix;
+        return path + parameters;
+    }
+
+    @Override
+    public void close() {
+        for (ConnectionPool shard : shards) {
+            shard.close();
+        }
+        directory.close();
+    }
+
+    @Override
+    public String toString() {
+        return "ShardRouter{directory=" + directory.getConfig().getUrl() + ", shards=" + shards.size() + "}";
+    }
+}
@@ -0,0 +1,142 @@
+package com.MoneyMind.projet_javafx.db;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache LRU de requêtes préparées attaché à une connexion physique, indexé par
+ * le texte SQL. Les instructions rendues sont des proxys : {@code close()} remet
+ * l'instruction à zéro (paramètres, lot, curseur) sans la finaliser, afin que
+ * SQLite n'ait pas à ré-analyser la même requête à chaque appel.
+ *
+ * Comme la connexion, le cache est confiné au thread qui l'emprunte.
+ */
+class StatementCache {
+
+    private final int capacity;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    private final LinkedHashMap<String, Entry> entries;
+
+    StatementCache(int capacity, LongAdder hits, LongAdder misses, LongAdder evictions) {
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    PreparedStatement prepare(Connection raw, String sql) throws SQLException {
+        Entry entry = entries.get(sql);
+        if (entry != null && entry.inUse) {
+            // Même requête déjà ouverte plus haut dans la pile : instruction hors cache
+            misses.increment();
+            return raw.prepareStatement(sql);
+        }
+        if (entry == null) {
+            misses.increment();
+            entry = new Entry(raw.prepareStatement(sql));
+            entries.put(sql, entry);
+            evictOverflow();
+        } else {
+            hits.increment();
+        }
+        return entry.lease();
+    }
+
+    /**
+     * Finalise toutes les instructions du cache (changement de schéma, fermeture).
+     */
+    void clear() {
+        for (Entry entry : entries.values()) {
+            entry.closeQuietly();
+        }
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void evictOverflow() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (entries.size() > capacity && it.hasNext()) {
+            Entry eldest = it.next();
+            if (eldest.inUse) continue;
+            eldest.closeQuietly();
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    private static class Entry {
+        private final PreparedStatement statement;
+        private final List<ResultSet> openResults = new ArrayList<>();
+        private boolean inUse;
+        private long leaseId;
+
+        Entry(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        PreparedStatement lease() {
+            long id = ++leaseId;
+            inUse = true;
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    (proxy, method, args) -> {
+                        boolean active = inUse && leaseId == id;
+                        switch (method.getName()) {
+                            case "close":
+                                if (active) reset();
+                                return null;
+                            case "isClosed":
+                                return !active || statement.isClosed();
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "equals":
+                                return proxy == args[0];
+                            default:
+                                if (!active) throw new SQLException("Instruction déjà restituée au cache");
+                                try {
+                                    Object result = method.invoke(statement, args);
+                                    if (result instanceof ResultSet rs) openResults.add(rs);
+                                    return result;
+                                } catch (InvocationTargetException e) {
+                                    throw e.getCause();
+                                }
+                        }
+                    });
+        }
+
+        // Fermer le curseur remet l'instruction SQLite à zéro (sqlite3_reset)
+        private void reset() throws SQLException {
+            inUse = false;
+            for (ResultSet rs : openResults) {
+                if (!rs.isClosed()) rs.close();
+            }
+            openResults.clear();
+            statement.clearParameters();
+            statement.clearBatch();
+        }
+
+        private void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                System.err.println("Échec de la fermeture d'une requête en cache : " + e.getMessage());
+            }
+        }
+    }
+}
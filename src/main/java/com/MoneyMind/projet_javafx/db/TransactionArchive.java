@@ -0,0 +1,328 @@
+package com.MoneyMind.projet_javafx.db;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Archives annuelles des transactions : les années closes quittent {@code money_mind.db}
+ * pour un fichier par année ({@code money_mind_2022.db}), attaché à toutes les connexions
+ * du pool sous le schéma {@code archive_2022} (voir {@link ConnectionPool#attach}).
+ *
+ * La base principale ne garde que les années récentes (plus, le cas échéant, des lignes
+ * datées d'une année archivée et saisies après coup). Une lecture sur une période qui
+ * touche une année archivée est réécrite par {@link #route} en UNION ALL de la table
+ * principale et des archives concernées ; les autres lisent la seule table principale.
+ * Les agrégats mensuels et le journal des soldes couvrent toujours tout l'historique.
+ *
+ * L'archivage d'une année se fait en deux transactions, sûres en cas d'arrêt entre les
+ * deux : copie dans l'archive (rejouable, les identifiants sont conservés), puis, dans
+ * une seule transaction de la base principale, suppression des lignes effectivement
+ * copiées et inscription de l'année dans {@code archived_years}. Une année n'est lue dans
+ * son archive qu'une fois inscrite.
+ */
+public class TransactionArchive {
+
+    /**
+     * SQLite attache au plus 10 bases par connexion ; une place reste libre pour les outils.
+     */
+    public static final int MAX_ARCHIVES = 9;
+
+    public static final String SELECT_YEARS = "SELECT year, file FROM archived_years ORDER BY year";
+    private static final String REGISTER_YEAR = """
+            INSERT INTO archived_years (year, file, row_count, archived_at) VALUES (?, ?, ?, ?)
+            ON CONFLICT (year) DO UPDATE SET row_count = excluded.row_count, archived_at = excluded.archived_at""";
+    private static final String COLUMNS = "transaction_id, user_id, category_id, name, amount, type, date, description";
+
+    // Une instance par pool, libérée à sa fermeture (voir ConnectionPool.close)
+    private static final Map<ConnectionPool, TransactionArchive> BY_POOL = new ConcurrentHashMap<>();
+
+    private final ConnectionPool pool;
+    private volatile NavigableMap<Integer, String> years; // année -> schéma ; null : à relire
+    private volatile boolean searchable; // chaque archive a son index plein texte
+
+    private TransactionArchive(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    public static TransactionArchive of(ConnectionPool pool) {
+        return BY_POOL.computeIfAbsent(pool, TransactionArchive::new);
+    }
+
+    static void release(ConnectionPool pool) {
+        BY_POOL.remove(pool);
+    }
+
+    // ==================== Routage ====================
+
+    /**
+     * Schémas des années archivées comprises entre {@code start} et {@code end} (inclus),
+     * vide si la période ne touche que des années non archivées.
+     */
+    public List<String> schemasBetween(LocalDate start, LocalDate end) throws SQLException {
+        NavigableMap<Integer, String> archived = current();
+        if (archived.isEmpty()) return List.of();
+        return new ArrayList<>(archived.subMap(start.getYear(), true, end.getYear(), true).values());
+    }
+
+    /**
+     * Schémas de toutes les années archivées.
+     */
+    public List<String> schemas() throws SQLException {
+        return new ArrayList<>(current().values());
+    }
+
+    /**
+     * Années archivées, croissantes (vue non modifiable).
+     */
+    public List<Integer> years() throws SQLException {
+        return List.copyOf(current().keySet());
+    }
+
+    /**
+     * Crée l'index plein texte des archives qui n'en ont pas encore (archivées avant
+     * qu'il existe, voir {@link TransactionSearch}) ; ne fait rien les fois suivantes.
+     */
+    public void ensureSearchable() throws SQLException {
+        if (searchable) return;
+        List<String> schemas = schemas();
+        synchronized (this) {
+            if (searchable) return;
+            if (!schemas.isEmpty()) {
+                try (Connection connection = pool.borrowWriter();
+                     Statement stmt = connection.createStatement()) {
+                    try {
+                        for (String schema : schemas) {
+                            if (TransactionSearch.createIndex(stmt, schema)) {
+                                System.out.println("Index plein texte créé pour " + schema);
+                            }
+                        }
+                        connection.commit();
+                    } catch (SQLException e) {
+                        connection.rollback();
+                        throw e;
+                    }
+                }
+            }
+            searchable = true;
+        }
+    }
+
+    /**
+     * Étend une lecture de la table {@code transactions} aux archives données.
+     *
+     * {@code sql} lit {@code FROM transactions t} et se termine éventuellement par
+     * {@code ORDER BY t.x, ...} et/ou {@code LIMIT ...} : chaque archive reçoit une copie de
+     * la requête sur {@code <schéma>.transactions}, réunies par UNION ALL, et le tri et la
+     * limite s'appliquent au résultat. Les paramètres numérotés ({@code ?1}...) sont partagés
+     * par toutes les branches ; les paramètres anonymes ne le seraient pas.
+     * @return {@code sql} inchangé si {@code schemas} est vide
+     */
+    public static String route(String sql, List<String> schemas) {
+        if (schemas.isEmpty()) return sql;
+        if (!sql.contains("FROM transactions t ")) {
+            throw new IllegalArgumentException("Not a read of transactions t: " + sql);
+        }
+        int tail = sql.lastIndexOf("ORDER BY");
+        if (tail < 0) tail = sql.lastIndexOf("LIMIT");
+        if (tail < 0) tail = sql.length();
+        String branch = sql.substring(0, tail).strip();
+        // Après UNION ALL, le tri porte sur les colonnes du résultat, sans préfixe de table
+        String suffix = sql.substring(tail).replace("t.", "");
+
+        StringBuilder union = new StringBuilder(branch);
+        for (String schema : schemas) {
+            union.append("\nUNION ALL\n").append(branch.replace("FROM transactions t ", "FROM " + schema + ".transactions t "));
+        }
+        return union.append('\n').append(suffix).toString();
+    }
+
+    /**
+     * Source de toutes les transactions, archives comprises, pour une sous-requête
+     * {@code FROM (...)} : colonnes user_id, category_id, amount, date.
+     */
+    public String allTransactions() throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT user_id, category_id, amount, date FROM main.transactions");
+        for (String schema : schemas()) {
+            sql.append(" UNION ALL SELECT user_id, category_id, amount, date FROM ").append(schema).append(".transactions");
+        }
+        return sql.toString();
+    }
+
+    // ==================== Archivage ====================
+
+    /**
+     * Archive toutes les années antérieures à {@code firstHotYear} qui ont encore des
+     * lignes dans la base principale.
+     * @return nombre de lignes déplacées
+     */
+    public int archiveBefore(int firstHotYear) throws SQLException {
+        List<Integer> candidates = new ArrayList<>();
+        try (Connection connection = pool.borrowReader();
+             PreparedStatement pstmt = connection.prepareStatement(
+                     "SELECT DISTINCT CAST(strftime('%Y', date + 2440587.5) AS INTEGER) FROM main.transactions WHERE date < ? ORDER BY 1")) {
+            pstmt.setLong(1, LocalDate.of(firstHotYear, 1, 1).toEpochDay());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) candidates.add(rs.getInt(1));
+            }
+        }
+        int moved = 0;
+        for (int year : candidates) {
+            moved += archiveYear(year);
+        }
+        return moved;
+    }
+
+    /**
+     * Déplace les transactions de l'année {@code year} (qui doit être close) dans son archive.
+     * Rejouable : une année déjà archivée reçoit les lignes ajoutées depuis.
+     * @return nombre de lignes déplacées
+     */
+    public int archiveYear(int year) throws SQLException {
+        if (year >= LocalDate.now().getYear()) {
+            throw new SQLException("Year not closed yet: " + year);
+        }
+        String schema = "archive_" + year;
+        NavigableMap<Integer, String> archived = current();
+        if (!archived.containsKey(year) && archived.size() >= MAX_ARCHIVES) {
+            throw new SQLException("Too many archive files (max " + MAX_ARCHIVES + "): cannot archive " + year);
+        }
+        String file = fileFor(year);
+        pool.attach(schema, resolve(file).toString());
+
+        long start = LocalDate.of(year, 1, 1).toEpochDay();
+        long end = LocalDate.of(year + 1, 1, 1).toEpochDay();
+        try (Connection connection = pool.borrowWriter()) {
+            try (Statement stmt = connection.createStatement()) {
+                createSchema(stmt, schema);
+
+                // 1. Copie : validée seule, rejouable (INSERT OR IGNORE sur transaction_id)
+                try (PreparedStatement pstmt = connection.prepareStatement(
+                        "INSERT OR IGNORE INTO " + schema + ".transactions (" + COLUMNS + ") SELECT " + COLUMNS
+                                + " FROM main.transactions WHERE date >= ? AND date < ?")) {
+                    pstmt.setLong(1, start);
+                    pstmt.setLong(2, end);
+                    pstmt.executeUpdate();
+                }
+                TransactionSearch.optimize(stmt, schema);
+                connection.commit();
+
+                // 2. Suppression des seules lignes présentes dans l'archive, et inscription
+                int moved;
+                try (PreparedStatement pstmt = connection.prepareStatement(
+                        "DELETE FROM main.transactions WHERE date >= ? AND date < ? AND transaction_id IN (SELECT transaction_id FROM "
+                                + schema + ".transactions)")) {
+                    pstmt.setLong(1, start);
+                    pstmt.setLong(2, end);
+                    moved = pstmt.executeUpdate();
+                }
+                long rows;
+                try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + schema + ".transactions")) {
+                    rows = rs.next() ? rs.getLong(1) : 0;
+                }
+                try (PreparedStatement pstmt = connection.prepareStatement(REGISTER_YEAR)) {
+                    pstmt.setInt(1, year);
+                    pstmt.setString(2, file);
+                    pstmt.setLong(3, rows);
+                    pstmt.setString(4, LocalDate.now().toString());
+                    pstmt.executeUpdate();
+                }
+                connection.commit();
+                System.out.println("Archive " + year + " : " + moved + " ligne(s) déplacée(s) vers " + file);
+                return moved;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                invalidate();
+            }
+        }
+    }
+
+    /**
+     * À appeler après une écriture dans {@code archived_years} hors de cette classe.
+     */
+    public synchronized void invalidate() {
+        years = null;
+        searchable = false;
+    }
+
+    // Même structure et mêmes index de lecture que la table principale, sans clés étrangères
+    private static void createSchema(Statement stmt, String schema) throws SQLException {
+        stmt.execute("""
+                CREATE TABLE IF NOT EXISTS %s.transactions (
+                    transaction_id INTEGER PRIMARY KEY,
+                    user_id INTEGER NOT NULL,
+                    category_id INTEGER NOT NULL,
+                    name TEXT NOT NULL,
+                    amount INTEGER NOT NULL,
+                    type TEXT,
+                    date INTEGER NOT NULL,
+                    description TEXT
+                )""".formatted(schema));
+        stmt.execute("CREATE INDEX IF NOT EXISTS " + schema + ".idx_transactions_user_date ON transactions(user_id, date, category_id, amount)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS " + schema + ".idx_transactions_user_day_id ON transactions(user_id, date, transaction_id)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS " + schema + ".idx_transactions_user_category_day ON transactions(user_id, category_id, date, transaction_id)");
+        TransactionSearch.createIndex(stmt, schema);
+    }
+
+    // ==================== Fichiers ====================
+
+    // money_mind.db -> money_mind_2022.db, dans le même dossier
+    private String fileFor(int year) throws SQLException {
+        String name = mainFile().getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? name + "_" + year : name.substring(0, dot) + "_" + year + name.substring(dot);
+    }
+
+    private Path resolve(String file) throws SQLException {
+        return mainFile().resolveSibling(file);
+    }
+
+    private Path mainFile() throws SQLException {
+        Path file = pool.getConfig().getDatabaseFile();
+        if (file == null) throw new SQLException("Archives need a database file: " + pool.getConfig().getUrl());
+        return file;
+    }
+
+    // ==================== Chargement ====================
+
+    private NavigableMap<Integer, String> current() throws SQLException {
+        NavigableMap<Integer, String> current = years;
+        if (current != null) return current;
+        synchronized (this) {
+            if (years == null) years = load();
+            return years;
+        }
+    }
+
+    private NavigableMap<Integer, String> load() throws SQLException {
+        Map<String, String> files = new TreeMap<>();
+        NavigableMap<Integer, String> loaded = new TreeMap<>();
+        try (Connection connection = pool.borrowReader();
+             PreparedStatement pstmt = connection.prepareStatement(SELECT_YEARS);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                int year = rs.getInt("year");
+                loaded.put(year, "archive_" + year);
+                files.put("archive_" + year, rs.getString("file"));
+            }
+        }
+        // Attachées avant de servir à une requête
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            pool.attach(file.getKey(), resolve(file.getValue()).toString());
+        }
+        return Collections.unmodifiableNavigableMap(loaded);
+    }
+}
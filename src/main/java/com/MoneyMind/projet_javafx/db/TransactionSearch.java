@@ -0,0 +1,113 @@
+package com.MoneyMind.projet_javafx.db;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Index plein texte (FTS5) des noms et descriptions de transactions.
+ *
+ * {@code transactions_fts} est une table FTS5 à contenu externe : elle n'indexe que les
+ * mots et relit les lignes dans {@code transactions}. Des déclencheurs la tiennent à jour
+ * à chaque INSERT, DELETE et UPDATE de la table, dans la transaction même de l'écriture.
+ * Chaque fichier d'archive (voir {@link TransactionArchive}) a son propre index : une
+ * ligne archivée quitte celui de la base principale et entre dans celui de son année.
+ *
+ * Le classement (BM25) compte le nom dix fois plus que la description. Il ne porte que
+ * sur les {@link #RANKED_WINDOW} dernières lignes trouvées : l'index les rend dans l'ordre
+ * des identifiants, sans tri, alors que classer toutes les correspondances d'un mot
+ * courant coûterait autant que de les lire toutes.
+ */
+public final class TransactionSearch {
+
+    public static final String TABLE = "transactions_fts";
+
+    /**
+     * Correspondances les plus récentes (par identifiant) classées par pertinence.
+     */
+    public static final int RANKED_WINDOW = 1000;
+
+    private TransactionSearch() {
+    }
+
+    // ==================== Schéma ====================
+
+    /**
+     * Crée l'index et ses déclencheurs dans {@code schema} ({@code main} ou une archive)
+     * s'ils n'y sont pas encore, et l'alimente alors avec les lignes déjà présentes.
+     * Fait partie de la transaction de l'appelant, qui valide.
+     * @return true si l'index vient d'être créé
+     */
+    public static boolean createIndex(Statement stmt, String schema) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(
+                "SELECT 1 FROM " + schema + ".sqlite_master WHERE type = 'table' AND name = '" + TABLE + "'")) {
+            if (rs.next()) return false;
+        }
+        stmt.execute("""
+                CREATE VIRTUAL TABLE %s.%s USING fts5(
+                    name, description,
+                    content = 'transactions', content_rowid = 'transaction_id',
+                    tokenize = 'unicode61 remove_diacritics 2', prefix = '2 3 4'
+                )""".formatted(schema, TABLE));
+        stmt.execute("INSERT INTO " + schema + "." + TABLE + " (" + TABLE + ", rank) VALUES ('rank', 'bm25(10.0, 1.0)')");
+
+        // Les noms du corps d'un déclencheur se lisent dans le schéma du déclencheur
+        String insert = "INSERT INTO " + TABLE + " (rowid, name, description)"
+                + " VALUES (new.transaction_id, new.name, new.description);";
+        String delete = "INSERT INTO " + TABLE + " (" + TABLE + ", rowid, name, description)"
+                + " VALUES ('delete', old.transaction_id, old.name, old.description);";
+        stmt.execute("CREATE TRIGGER " + schema + "." + TABLE + "_insert AFTER INSERT ON transactions BEGIN "
+                + insert + " END");
+        stmt.execute("CREATE TRIGGER " + schema + "." + TABLE + "_delete AFTER DELETE ON transactions BEGIN "
+                + delete + " END");
+        stmt.execute("CREATE TRIGGER " + schema + "." + TABLE + "_update AFTER UPDATE OF name, description ON transactions BEGIN "
+                + delete + " " + insert + " END");
+
+        stmt.execute("INSERT INTO " + schema + "." + TABLE + " (" + TABLE + ") VALUES ('rebuild')");
+        return true;
+    }
+
+    /**
+     * Fusionne les segments de l'index de {@code schema} en un seul : à faire sur une
+     * archive une fois remplie, qui ne change plus guère. Fait partie de la transaction de
+     * l'appelant, qui valide.
+     */
+    public static void optimize(Statement stmt, String schema) throws SQLException {
+        stmt.execute("INSERT INTO " + schema + "." + TABLE + " (" + TABLE + ") VALUES ('optimize')");
+    }
+
+    // ==================== Requêtes ====================
+
+    /**
+     * Expression FTS5 pour le texte saisi : chaque mot doit apparaître (ET implicite), le
+     * dernier en début de mot à partir de deux lettres, pour chercher pendant la frappe.
+     * Les mots sont mis entre guillemets : la syntaxe FTS5 saisie (NEAR, *, :) est
+     * cherchée telle quelle.
+     * @return null si le texte ne contient aucun mot
+     */
+    public static String matchExpression(String text) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            int c = i < text.length() ? text.codePointAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.appendCodePoint(c);
+                if (Character.isSupplementaryCodePoint(c)) i++;
+            } else if (!word.isEmpty()) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        if (words.isEmpty()) return null;
+        StringBuilder expression = new StringBuilder();
+        for (int i = 0; i < words.size(); i++) {
+            String w = words.get(i);
+            if (i > 0) expression.append(' ');
+            expression.append('"').append(w).append('"');
+            if (i == words.size() - 1 && w.length() >= 2) expression.append('*');
+        }
+        return expression.toString();
+    }
+}
@@ -9,12 +9,54 @@ import java.sql.SQLException;
 
 public class UserDAO {
 
+    public static final String SELECT_BY_CREDENTIALS =
+            "SELECT user_id, username, password, total_limit FROM users WHERE username = ? AND password = ?";
+
+    private static final String SELECT_TOTAL_LIMIT =
+            "SELECT total_limit FROM users WHERE user_id = ?";
+
     public static User getUserByCredentials(String username, String password) {
-        String sql = "SELECT user_id, username, password, total_limit FROM users WHERE username = ? AND password = ?";
+        ShardRouter router = SQliteConnector.router();
+        if (router != null) return getUserByCredentials(router, username, password);
+        return getUserByCredentials(SQliteConnector.pool(), username, password);
+    }
+
+    /**
+     * Mode shardé : identifiants vérifiés dans l'annuaire, solde lu dans le shard de l'utilisateur.
+     */
+    public static User getUserByCredentials(ShardRouter router, String username, String password) {
+        User user = getUserByCredentials(router.directory(), username, password);
+        if (user == null) return null;
+
+        try (Connection conn = router.shardFor(user.getId()).borrowReader();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_TOTAL_LIMIT)) {
+            pstmt.setInt(1, user.getId());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                user.setTotalLimit(rs.next() ? rs.getLong("total_limit") : 0);
+            }
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la lecture du solde : " + e.getMessage());
+            return null;
+        }
+        return user;
+    }
 
-        try (Connection conn = SQliteConnector.connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    public static User getUserByCredentials(ConnectionPool pool, String username, String password) {
+        try (Connection conn = pool.borrowReader()) {
+            return findByCredentials(conn, username, password);
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la récupération de l'utilisateur : " + e.getMessage());
+        }
+
+        return null;
+    }
 
+    /**
+     * Même recherche, sur la connexion (et dans la transaction) de l'appelant.
+     * @return null si aucun utilisateur n'a ces identifiants
+     */
+    public static User findByCredentials(Connection conn, String username, String password) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(SELECT_BY_CREDENTIALS)) {
             pstmt.setString(1, username);
             pstmt.setString(2, password);
 
@@ -23,17 +65,13 @@ public class UserDAO {
                     int id = rs.getInt("user_id");
                     String uname = rs.getString("username");
                     String pwd = rs.getString("password");
-                    double totalLimit = rs.getDouble("total_limit");
+                    long totalLimit = rs.getLong("total_limit");
 
                     // Créer et retourner l'objet User avec total_limit
                     return new User(id, uname, pwd, totalLimit);
                 }
             }
-
-        } catch (SQLException e) {
-            System.err.println("Erreur lors de la récupération de l'utilisateur : " + e.getMessage());
         }
-
         return null;
     }
 }
@@ -9,6 +9,7 @@ module com.MoneyMind.projet_javafx {
     requires com.almasb.fxgl.all;
     requires com.opencsv;
     requires java.sql;
+    requires org.xerial.sqlitejdbc; // API de sauvegarde (DatabaseBackup)
     requires okhttp3;
     requires org.json;
     // Packages ouverts au chargement FXML (réflexion)
@@ -0,0 +1,178 @@
+package com.MoneyMind.projet_javafx.controllers;
+
+import com.MoneyMind.projet_javafx.db.ConnectionPool;
+import com.MoneyMind.projet_javafx.db.DBInitializer;
+import com.MoneyMind.projet_javafx.db.PoolConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Concurrent transfers through the {@link TransferEngine}: the sum of the balances never
+ * changes, none goes negative, and an idempotency key moves money once.
+ */
+class TransferEngineTest {
+
+    private static final int USERS = 10;
+    private static final int THREADS = 8;
+    private static final int CALLS_PER_THREAD = 150;
+    private static final long STARTING_BALANCE = 10_000; // 100.00 each
+
+    @TempDir
+    Path dir;
+
+    private ConnectionPool pool;
+    private DataStorage dataStorage;
+
+    @BeforeEach
+    void openDatabase() throws SQLException {
+        pool = new ConnectionPool(PoolConfig.defaults().setUrl("jdbc:sqlite:" + dir.resolve("transfers.db")));
+        DBInitializer.initializeDatabase(pool);
+        dataStorage = new DataStorage(pool);
+        for (int i = 0; i < USERS; i++) {
+            dataStorage.registerUser(username(i), "pw");
+            dataStorage.updateUserTotalLimit(dataStorage.getLoggedUser(), STARTING_BALANCE);
+        }
+    }
+
+    @AfterEach
+    void closeDatabase() {
+        dataStorage.close();
+    }
+
+    @Test
+    void concurrentTransfersConserveBalances() throws Exception {
+        long before = sumOfBalances();
+        ConcurrentLinkedQueue<List<TransferRequest>> applied = new ConcurrentLinkedQueue<>();
+        AtomicInteger refused = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                        List<TransferRequest> requests = random.nextInt(10) == 0 ? payroll(random) : randomTransfer(random);
+                        try {
+                            dataStorage.transferAll(requests);
+                            applied.add(requests);
+                        } catch (InsufficientFundsException e) {
+                            refused.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) worker.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        assertFalse(applied.isEmpty());
+        assertEquals(before, sumOfBalances());
+        Map<Integer, Long> balances = balances();
+        for (Map.Entry<Integer, Long> balance : balances.entrySet()) {
+            assertTrue(balance.getValue() >= 0, "Negative balance for user " + balance.getKey());
+        }
+        assertEquals(List.of(), dataStorage.verifyLedger());
+
+        // The same keys again: every request is a replay and nothing moves
+        for (List<TransferRequest> requests : applied) {
+            for (TransferResult result : dataStorage.transferAll(requests)) {
+                assertTrue(result.isReplayed(), result.toString());
+            }
+        }
+        assertEquals(balances, balances());
+        assertEquals(THREADS * CALLS_PER_THREAD, applied.size() + refused.get());
+    }
+
+    @Test
+    void reusedKeyWithAnotherAmountIsRejected() throws SQLException {
+        TransferRequest first = new TransferRequest("rent-2024-05", username(0), username(1), 1_000);
+        assertFalse(dataStorage.transfer(first).isReplayed());
+        Map<Integer, Long> balances = balances();
+
+        TransferRequest other = new TransferRequest("rent-2024-05", username(0), username(1), 2_000);
+        SQLException e = assertThrows(SQLException.class, () -> dataStorage.transfer(other));
+        assertFalse(e instanceof InsufficientFundsException);
+        assertEquals(balances, balances());
+        assertTrue(dataStorage.transfer(first).isReplayed());
+    }
+
+    @Test
+    void payrollIsRefusedAsAWhole() throws SQLException {
+        Map<Integer, Long> balances = balances();
+        List<TransferRequest> legs = new ArrayList<>();
+        for (int i = 1; i < USERS; i++) legs.add(TransferRequest.of(username(0), username(i), 2_000));
+
+        InsufficientFundsException e = assertThrows(InsufficientFundsException.class,
+                () -> dataStorage.transferAll(legs));
+        assertEquals(userId(username(0)), e.getUserId());
+        assertEquals(balances, balances());
+    }
+
+    private static List<TransferRequest> randomTransfer(ThreadLocalRandom random) {
+        int from = random.nextInt(USERS);
+        int to = (from + 1 + random.nextInt(USERS - 1)) % USERS;
+        return List.of(TransferRequest.of(username(from), username(to), 1 + random.nextInt(3_000)));
+    }
+
+    // One payer, every other user paid in the same call
+    private static List<TransferRequest> payroll(ThreadLocalRandom random) {
+        int payer = random.nextInt(USERS);
+        List<TransferRequest> legs = new ArrayList<>(USERS - 1);
+        for (int i = 0; i < USERS; i++) {
+            if (i != payer) legs.add(TransferRequest.of(username(payer), username(i), 500));
+        }
+        return legs;
+    }
+
+    private static String username(int index) {
+        return "user-" + index;
+    }
+
+    private long sumOfBalances() throws SQLException {
+        long sum = 0;
+        for (long balance : balances().values()) sum += balance;
+        return sum;
+    }
+
+    private Map<Integer, Long> balances() throws SQLException {
+        Map<Integer, Long> balances = new HashMap<>();
+        try (Connection connection = pool.borrowReader();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT user_id, total_limit FROM users")) {
+            while (rs.next()) balances.put(rs.getInt(1), rs.getLong(2));
+        }
+        return balances;
+    }
+
+    private int userId(String username) throws SQLException {
+        try (Connection connection = pool.borrowReader();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT user_id FROM users WHERE username = '" + username + "'")) {
+            assertTrue(rs.next());
+            return rs.getInt(1);
+        }
+    }
+}